@@ -24,9 +24,21 @@
 package co.aurasphere.assignables;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import co.aurasphere.assignables.concurrent.WaitStrategy;
 
 /**
  * Base class for a variable to which a value can be assigned.
+ * <p>
+ * Each variable has a stamp, incremented when a write starts and when it
+ * ends, so it's odd while a write is in progress and never goes back to a
+ * previous value. A write waits for the one in progress, if any, so a
+ * transactional assignment can check that a variable is unchanged and write
+ * it as a single step by starting the write only if the stamp is the one it
+ * read. Subclasses which hold a lock of their own while writing should start
+ * the write through {@link #beginWrite()} before taking it.
  * 
  * @author Donato Rimenti
  */
@@ -37,11 +49,37 @@ public class Assignable implements Serializable {
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Handle for the atomic access to the {@link #stamp}.
+	 */
+	private static final VarHandle STAMP;
+
+	static {
+		try {
+			STAMP = MethodHandles.lookup().findVarHandle(Assignable.class,
+					"stamp", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	/**
 	 * The object wrapped.
 	 */
 	private Object object;
 
+	/**
+	 * The version of the content, odd while a write is in progress. Only
+	 * meaningful in the current JVM, so it's not serialized.
+	 */
+	private transient volatile long stamp;
+
+	/**
+	 * The Thread writing this variable, if any. Writes nested in the one of
+	 * the same Thread don't wait for it.
+	 */
+	private transient volatile Thread writer;
+
 	/**
 	 * Instantiates a new Assignable.
 	 *
@@ -78,7 +116,7 @@ public class Assignable implements Serializable {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T get(Class<T> T) {
-		return (T) this.object;
+		return (T) get();
 	}
 
 	/**
@@ -87,7 +125,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Integer getAsInteger() {
-		return (Integer) this.object;
+		return (Integer) get();
 	}
 
 	/**
@@ -96,7 +134,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public String getAsString() {
-		return (String) this.object;
+		return (String) get();
 	}
 
 	/**
@@ -105,7 +143,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Long getAsLong() {
-		return (Long) this.object;
+		return (Long) get();
 	}
 
 	/**
@@ -114,7 +152,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Double getAsDouble() {
-		return (Double) this.object;
+		return (Double) get();
 	}
 
 	/**
@@ -123,7 +161,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Float getAsFloat() {
-		return (Float) this.object;
+		return (Float) get();
 	}
 
 	/**
@@ -132,7 +170,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Character getAsCharacter() {
-		return (Character) this.object;
+		return (Character) get();
 	}
 
 	/**
@@ -141,7 +179,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Boolean getAsBoolean() {
-		return (Boolean) this.object;
+		return (Boolean) get();
 	}
 
 	/**
@@ -150,7 +188,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Byte getAsByte() {
-		return (Byte) this.object;
+		return (Byte) get();
 	}
 
 	/**
@@ -159,7 +197,7 @@ public class Assignable implements Serializable {
 	 * @return the {@link #object}.
 	 */
 	public Short getAsShort() {
-		return (Short) this.object;
+		return (Short) get();
 	}
 
 	/**
@@ -169,7 +207,103 @@ public class Assignable implements Serializable {
 	 *            the {@link #object}.
 	 */
 	public void set(Object object) {
-		this.object = object;
+		boolean started = beginWrite();
+		try {
+			this.object = object;
+		} finally {
+			if (started) {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Starts a write of this variable, waiting for the write in progress, if
+	 * any. Must be followed by {@link #endWrite()} if it returns true.
+	 *
+	 * @return true if the write has been started, false if the current
+	 *         Thread is already writing this variable.
+	 */
+	protected final boolean beginWrite() {
+		Thread current = Thread.currentThread();
+		if (writer == current) {
+			return false;
+		}
+		long word;
+		int attempts = 0;
+		while (((word = (long) STAMP.getVolatile(this)) & 1) != 0
+				|| !STAMP.compareAndSet(this, word, word + 1)) {
+			WaitStrategy.PARK.idle(attempts++);
+		}
+		writer = current;
+		return true;
+	}
+
+	/**
+	 * Starts a write of this variable, unless another one is in progress.
+	 * Must be followed by {@link #endWrite()} if it returns true.
+	 *
+	 * @return true if the write has been started, false if a write was
+	 *         already in progress.
+	 */
+	protected final boolean tryBeginWrite() {
+		long word = (long) STAMP.getVolatile(this);
+		return (word & 1) == 0 && beginWriteAt(word);
+	}
+
+	/**
+	 * Starts a write of this variable only if its stamp is still the given
+	 * one, that is if nobody wrote it since the stamp has been read. Must be
+	 * followed by {@link #endWrite()} or {@link #cancelWrite()} if it returns
+	 * true.
+	 *
+	 * @param expected
+	 *            the stamp returned by {@link #getStamp()}.
+	 * @return true if the write has been started, false if the variable has
+	 *         been written or is being written.
+	 */
+	final boolean beginWriteAt(long expected) {
+		if (!STAMP.compareAndSet(this, expected, expected + 1)) {
+			return false;
+		}
+		writer = Thread.currentThread();
+		return true;
+	}
+
+	/**
+	 * Ends the write started by the current Thread, publishing a new stamp.
+	 */
+	protected final void endWrite() {
+		long word = (long) STAMP.getVolatile(this);
+		writer = null;
+		STAMP.setRelease(this, word + 1);
+	}
+
+	/**
+	 * Ends the write started by the current Thread without writing anything,
+	 * restoring the previous stamp.
+	 */
+	final void cancelWrite() {
+		long word = (long) STAMP.getVolatile(this);
+		writer = null;
+		STAMP.setRelease(this, word - 1);
+	}
+
+	/**
+	 * Gets the stamp of this variable, waiting for the write in progress by
+	 * another Thread, if any. The content read after this call is the one of
+	 * the stamp returned, unless the stamp changes.
+	 *
+	 * @return the {@link #stamp}.
+	 */
+	final long getStamp() {
+		long word;
+		int attempts = 0;
+		while (((word = (long) STAMP.getAcquire(this)) & 1) != 0
+				&& writer != Thread.currentThread()) {
+			WaitStrategy.PARK.idle(attempts++);
+		}
+		return word;
 	}
 
 	/*
@@ -23,20 +23,34 @@
  */
 package co.aurasphere.assignables;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import co.aurasphere.assignables.concurrent.AdaptiveTimeout;
+import co.aurasphere.assignables.concurrent.AssignmentExecutor;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.WaitStrategy;
 import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
 import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+import co.aurasphere.assignables.policy.HedgedAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
 
 /**
  * Main class of the Assignables library. Contains methods to perform an
@@ -52,6 +66,12 @@ public class Assignables {
 	private final static Logger logger = LoggerFactory
 			.getLogger(Assignables.class);
 
+	/**
+	 * Maximum number of attempts of a transactional assignment whose
+	 * variables keep being changed by other Threads.
+	 */
+	private static final int MAX_TRANSACTION_ATTEMPTS = 16;
+
 	/**
 	 * The value to assign into the variable.
 	 */
@@ -62,6 +82,11 @@ public class Assignables {
 	 */
 	private Assignable variable;
 
+	/**
+	 * The variables to which assign the value, when fanning out.
+	 */
+	private Assignable[] variables;
+
 	/**
 	 * The enforce thread safety policy.
 	 */
@@ -77,21 +102,78 @@ public class Assignables {
 	 */
 	private boolean parallelProcessing;
 
+	/**
+	 * The percentile of the policy latency after which a parallel assignment
+	 * is hedged. If 0, parallel assignments are not hedged.
+	 */
+	private double hedgePercentile;
+
+	/**
+	 * The executor used for the parallel processing. If null, a new Thread is
+	 * used for each assignment.
+	 */
+	private AssignmentExecutor assignmentExecutor;
+
 	/**
 	 * This assignment timeout for the parallel processing.
 	 */
 	private long timeout;
 
+	/**
+	 * Derives the {@link #timeout} from the observed latency of the policy.
+	 * If null, the timeout is fixed.
+	 */
+	private AdaptiveTimeout adaptiveTimeout;
+
+	/**
+	 * The priority of this assignment, used by executors which schedule the
+	 * assignments.
+	 */
+	private int priority;
+
 	/**
 	 * Ends an assignment (sometimes).
 	 */
 	private boolean endAssign;
 
+	/**
+	 * The period between two refreshes of an assignment which doesn't end, in
+	 * milliseconds. If 0, the assignment is refreshed as fast as possible or,
+	 * if {@link #continuously(AssignmentPolicy)}, only when triggered.
+	 */
+	private long refreshPeriod;
+
+	/**
+	 * How to wait between two refreshes of an assignment which doesn't end.
+	 */
+	private WaitStrategy waitStrategy = WaitStrategy.PARK;
+
 	/**
 	 * Defines how to perform an assignment.
 	 */
 	private AssignmentPolicy assignmentPolicy;
 
+	/**
+	 * The invoker bound to the {@link #assignmentPolicy}.
+	 */
+	private AssignmentPolicyInvoker invoker;
+
+	/**
+	 * The capabilities of the {@link #assignmentPolicy}.
+	 */
+	private AssignmentPolicyCapabilities capabilities;
+
+	/**
+	 * Whether the variables are written only if the assignment completes, so
+	 * that a timed out or failed assignment leaves them untouched.
+	 */
+	private boolean transactional;
+
+	/**
+	 * The running attempt of a {@link #transactional} assignment.
+	 */
+	private volatile AssignmentTransaction transaction;
+
 	/**
 	 * The lock used for the Thread safety policy.
 	 */
@@ -102,6 +184,13 @@ public class Assignables {
 	 */
 	private volatile boolean interrupted;
 
+	/**
+	 * Whether the latency of the running attempt has already been recorded
+	 * into the {@link #adaptiveTimeout}, either by the worker or as a timeout.
+	 * Whoever sets it first records the only sample of the attempt.
+	 */
+	private final AtomicBoolean latencyRecorded = new AtomicBoolean();
+
 	/**
 	 * Instantiates a new Assignables.
 	 *
@@ -123,6 +212,30 @@ public class Assignables {
 		return new Assignables(value);
 	}
 
+	/**
+	 * Defines the values to assign in a bulk assignment.
+	 *
+	 * @param values
+	 *            the values to assign.
+	 * @return a new bulk assignment.
+	 * @see BulkAssignables
+	 */
+	public static BulkAssignables assignAll(Object... values) {
+		return BulkAssignables.assignAll(values);
+	}
+
+	/**
+	 * Defines the values to assign in a bulk assignment.
+	 *
+	 * @param values
+	 *            the values to assign.
+	 * @return a new bulk assignment.
+	 * @see BulkAssignables
+	 */
+	public static BulkAssignables assignAll(List<?> values) {
+		return BulkAssignables.assignAll(values);
+	}
+
 	/**
 	 * Defines the variable into which assign.
 	 *
@@ -132,9 +245,39 @@ public class Assignables {
 	 */
 	public Assignables into(Assignable variable) {
 		this.variable = variable;
+		this.variables = null;
+		return this;
+	}
+
+	/**
+	 * Defines the variables into which assign the same value. If the policy
+	 * is pure, the value is computed once and then written into all the
+	 * variables, otherwise the policy is applied to each variable. With
+	 * {@link #parallelProcessing()}, the variables are split in chunks
+	 * processed in parallel.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 * @return this object.
+	 */
+	public Assignables into(Assignable... variables) {
+		this.variable = null;
+		this.variables = variables.clone();
 		return this;
 	}
 
+	/**
+	 * Defines the variables into which assign the same value.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 * @return this object.
+	 * @see #into(Assignable...)
+	 */
+	public Assignables into(Collection<? extends Assignable> variables) {
+		return into(variables.toArray(new Assignable[variables.size()]));
+	}
+
 	/**
 	 * Declares to use a policy that enforces Thread safety.
 	 * 
@@ -178,6 +321,69 @@ public class Assignables {
 		return this;
 	}
 
+	/**
+	 * Sets an adaptive timeout for the parallel processing, derived from the
+	 * observed latency of the policy when the assignment starts. The latency
+	 * of this assignment is recorded as well.
+	 *
+	 * @param adaptiveTimeout
+	 *            the {@link #adaptiveTimeout}.
+	 * @return this object.
+	 */
+	public Assignables timeout(AdaptiveTimeout adaptiveTimeout) {
+		this.adaptiveTimeout = adaptiveTimeout;
+		return this;
+	}
+
+	/**
+	 * Sets the period between two refreshes of an assignment which doesn't
+	 * end.
+	 *
+	 * @param refreshPeriod
+	 *            the {@link #refreshPeriod}.
+	 * @return this object.
+	 */
+	public Assignables refreshEvery(long refreshPeriod) {
+		if (refreshPeriod < 0) {
+			throw new IllegalArgumentException(
+					"The refresh period can't be negative.");
+		}
+		this.refreshPeriod = refreshPeriod;
+		return this;
+	}
+
+	/**
+	 * Sets how to wait between two refreshes of an assignment which doesn't
+	 * end.
+	 *
+	 * @param waitStrategy
+	 *            the {@link #waitStrategy}.
+	 * @return this object.
+	 */
+	public Assignables waitStrategy(WaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException(
+					"The wait strategy can't be null.");
+		}
+		this.waitStrategy = waitStrategy;
+		return this;
+	}
+
+	/**
+	 * Makes this assignment transactional: the policy works on a copy of the
+	 * variables, which are written only if the assignment completes. If it
+	 * times out or fails, the variables keep their previous value and any
+	 * late write is discarded. If another Thread changes one of the variables
+	 * while the policy is running, the assignment is retried on the new
+	 * content instead of overwriting it.
+	 *
+	 * @return this object.
+	 */
+	public Assignables transactional() {
+		this.transactional = true;
+		return this;
+	}
+
 	/**
 	 * Sets the timeout for the parallel processing.
 	 *
@@ -190,6 +396,40 @@ public class Assignables {
 		return this;
 	}
 
+	/**
+	 * Hedges the parallel processing: if the policy hasn't completed within
+	 * the given percentile of its observed latency, a second execution is
+	 * started and the first one to complete wins. Only pure policies are
+	 * hedged, since the policy may be executed twice.
+	 *
+	 * @param hedgePercentile
+	 *            the {@link #hedgePercentile}, between 0 (excluded) and 1.
+	 * @return this object.
+	 * @see HedgedAssignmentPolicy
+	 */
+	public Assignables hedge(double hedgePercentile) {
+		if (hedgePercentile <= 0 || hedgePercentile > 1) {
+			throw new IllegalArgumentException(
+					"The percentile must be between 0 (excluded) and 1.");
+		}
+		this.hedgePercentile = hedgePercentile;
+		return this;
+	}
+
+	/**
+	 * Sets the priority of this assignment. Only used by executors which
+	 * schedule the assignments, like
+	 * {@link co.aurasphere.assignables.concurrent.DeadlineAssignmentExecutor}.
+	 *
+	 * @param priority
+	 *            the {@link #priority}.
+	 * @return this object.
+	 */
+	public Assignables priority(int priority) {
+		this.priority = priority;
+		return this;
+	}
+
 	/**
 	 * Sets whether to use a different Thread for the assignment.
 	 *
@@ -212,6 +452,24 @@ public class Assignables {
 		return this;
 	}
 
+	/**
+	 * Sets whether to use a different Thread for the assignment, provided by
+	 * an executor. The executor decides when and how the assignment is
+	 * performed: for instance, a {@link
+	 * co.aurasphere.assignables.concurrent.CoalescingAssignmentExecutor} may
+	 * skip it if a newer one into the same variable is submitted in the
+	 * meantime.
+	 *
+	 * @param assignmentExecutor
+	 *            the {@link #assignmentExecutor}.
+	 * @return this object.
+	 */
+	public Assignables parallelProcessing(AssignmentExecutor assignmentExecutor) {
+		this.parallelProcessing = true;
+		this.assignmentExecutor = assignmentExecutor;
+		return this;
+	}
+
 	/**
 	 * Sets the policy to use for the assignment.
 	 *
@@ -221,19 +479,102 @@ public class Assignables {
 	public void withAssignmentPolicy(AssignmentPolicy assignmentPolicy) {
 		this.assignmentPolicy = assignmentPolicy;
 		try {
+			this.assignmentPolicy = hedged(assignmentPolicy);
+			this.invoker = AssignmentPolicyInvoker.bind(this.assignmentPolicy);
+			if (adaptiveTimeout != null) {
+				this.timeout = adaptiveTimeout
+						.getTimeoutMillis(assignmentPolicy);
+			}
 			dispatchAssignment();
 		} catch (Exception e) {
 			logger.error(
 					"Error while assigning value [{}] into variable [{}].",
-					value, variable, e);
+					value, target(), e);
 			throw new AssignmentException(e);
 		}
 	}
 
+	/**
+	 * Starts an assignment which keeps the variable synchronized, refreshing
+	 * it every {@link #refreshPeriod} or whenever
+	 * {@link ContinuousAssignment#trigger()} is called, on a separate Thread.
+	 * Between two refreshes, the Thread waits according to the
+	 * {@link #waitStrategy}.
+	 *
+	 * @param assignmentPolicy
+	 *            the {@link #assignmentPolicy}.
+	 * @return the handle of the assignment, used to trigger or cancel it.
+	 */
+	public ContinuousAssignment continuously(AssignmentPolicy assignmentPolicy) {
+		this.assignmentPolicy = assignmentPolicy;
+		this.invoker = AssignmentPolicyInvoker.bind(assignmentPolicy);
+		checkSupported();
+		Runnable refresh = new Runnable() {
+			public void run() {
+				doContinuousRefresh();
+			}
+		};
+		logger.debug(
+				"Starting continuous assignment of [{}] into [{}] every [{}] milliseconds.",
+				value, target(), refreshPeriod);
+		return new ContinuousAssignment(refresh, refreshPeriod, waitStrategy)
+				.start();
+	}
+
+	/**
+	 * Wraps a policy in a {@link HedgedAssignmentPolicy} if a parallel
+	 * assignment should be hedged.
+	 *
+	 * @param assignmentPolicy
+	 *            the policy to wrap.
+	 * @return the hedged policy, or the policy itself if it shouldn't be
+	 *         hedged.
+	 */
+	private AssignmentPolicy hedged(AssignmentPolicy assignmentPolicy) {
+		if (hedgePercentile == 0 || !parallelProcessing) {
+			return assignmentPolicy;
+		}
+		if (!AssignmentPolicyCapabilities.of(assignmentPolicy).isPure()) {
+			logger.warn(
+					"Policy [{}] is not pure and can't be executed twice. Assigning without hedging.",
+					assignmentPolicy);
+			return assignmentPolicy;
+		}
+		return HedgedAssignmentPolicy.around(assignmentPolicy)
+				.atPercentile(hedgePercentile).build();
+	}
+
+	/**
+	 * Computes the {@link #capabilities} and rejects the assignment up front
+	 * if the policy can't handle the value.
+	 */
+	private void checkSupported() {
+		capabilities = AssignmentPolicyCapabilities.of(assignmentPolicy);
+		if (!capabilities.accepts(value)) {
+			logger.error(
+					"Policy [{}] doesn't support the assignment of value [{}] into variable [{}].",
+					assignmentPolicy, value, target());
+			throw new UnsupportedAssignmentException("Policy "
+					+ assignmentPolicy
+					+ " doesn't support the assignment of value " + value
+					+ " into variable " + target() + ".");
+		}
+	}
+
 	/**
 	 * Dispatches the assignment.
 	 */
 	private void dispatchAssignment() throws Exception {
+		checkSupported();
+
+		// If the policy doesn't do anything, there's no point in invoking it.
+		if (capabilities.isNoOp()) {
+			logger.debug(
+					"Policy [{}] is a no-op. Skipping assignment of [{}] into [{}].",
+					assignmentPolicy, value, target());
+			return;
+		}
+
 		// If the Thread safety policy is enforced, acquires the lock.
 		if (enforceThreadSafetyPolicy) {
 
@@ -245,17 +586,26 @@ public class Assignables {
 			}
 			logger.warn(
 					"Acquiring current Thread [{}] lock for assigning value [{}] into [{}].",
-					Thread.currentThread().getName(), value, variable);
+					Thread.currentThread().getName(), value, target());
 			lock.lock();
 		}
 
-		// Dispatches the assignment.
-		if (parallelProcessing) {
+		// Dispatches the assignment. Since the current Thread waits for the
+		// result anyway, a non-blocking policy without timeout is performed
+		// here instead of paying for a new Thread. This doesn't apply when an
+		// executor is set, since it may need to see every assignment.
+		if (parallelProcessing && assignmentExecutor == null && timeout == 0
+				&& !capabilities.isBlocking()) {
+			logger.debug(
+					"Policy [{}] is non-blocking and there's no timeout. Assigning [{}] into [{}] on current Thread.",
+					assignmentPolicy, value, target());
+			doAssignment();
+		} else if (parallelProcessing) {
 			doParallelProcessingAssignment();
 		} else {
 			logger.warn(
 					"Starting assignment of [{}] into variable [{}] on current Thread. This may take a while.",
-					value, variable);
+					value, target());
 			doAssignment();
 		}
 
@@ -263,7 +613,7 @@ public class Assignables {
 		if (enforceThreadSafetyPolicy) {
 			logger.warn(
 					"Releasing current Thread [{}] lock for assigning value [{}] into [{}].",
-					Thread.currentThread().getName(), value, variable);
+					Thread.currentThread().getName(), value, target());
 			lock.unlock();
 		}
 	}
@@ -272,6 +622,10 @@ public class Assignables {
 	 * Performs a parallel processing.
 	 */
 	private void doParallelProcessingAssignment() throws Exception {
+		if (assignmentExecutor != null) {
+			doExecutorAssignment();
+			return;
+		}
 		ExecutorService executor = Executors.newSingleThreadExecutor();
 		Future<Void> future = null;
 		Callable<Void> callable = new Callable<Void>() {
@@ -287,42 +641,328 @@ public class Assignables {
 			if (timeout != 0) {
 				logger.debug(
 						"Starting parallelProcessing assignment of [{}] into [{}] on a different Thread with timeout [{}].",
-						value, variable, timeout);
+						value, target(), timeout);
 				future.get(timeout, TimeUnit.MILLISECONDS);
 			} else {
 				logger.debug(
 						"Starting parallelProcessing assignment of [{}] into [{}] on a different Thread.",
-						value, variable);
+						value, target());
 				future.get();
 			}
 		} catch (TimeoutException e) {
-			interrupted = true;
-			logger.error(
-					"Transaction ABEND for [{}]: The assignment of [{}] into [{}] took more than [{}] milliseconds. Aborting and rolling back the value.",
-					value, variable, future, timeout);
-			throw new TimeoutException("Transaction ABEND for " + future
-					+ ": The assignment of " + value + " into " + variable
-					+ " took more than " + timeout
-					+ " milliseconds. Aborting and rolling back the value.");
+			abortOnTimeout(future);
 		} finally {
 			logger.debug("Shutting down the executor service.");
 			executor.shutdownNow();
 		}
 	}
 
+	/**
+	 * Performs a parallel processing through the {@link #assignmentExecutor}.
+	 */
+	private void doExecutorAssignment() throws Exception {
+		Callable<Void> callable = new Callable<Void>() {
+			public Void call() throws Exception {
+				doAssignment();
+				return null;
+			}
+		};
+		AssignmentTask task = new AssignmentTask(value, variable,
+				assignmentPolicy, callable).priority(priority);
+		if (variables != null) {
+			task.variables(variables);
+		}
+		if (timeout != 0) {
+			task.deadline(timeout, TimeUnit.MILLISECONDS);
+		}
+		logger.debug(
+				"Submitting assignment of [{}] into [{}] to executor [{}].",
+				value, target(), assignmentExecutor);
+		assignmentExecutor.execute(task);
+		try {
+			if (timeout != 0) {
+				task.get(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				task.get();
+			}
+		} catch (TimeoutException e) {
+			task.cancel(true);
+			abortOnTimeout(task);
+		}
+	}
+
+	/**
+	 * Aborts an assignment which timed out. If the assignment is transactional
+	 * and has already committed, it's not aborted anymore and this method
+	 * returns normally.
+	 *
+	 * @param execution
+	 *            the execution of the assignment, for logging.
+	 * @throws TimeoutException
+	 *             if the assignment has been aborted.
+	 */
+	private void abortOnTimeout(Object execution) throws TimeoutException {
+		interrupted = true;
+		if (transactional) {
+			// Fences off any write of the running transaction. The worker
+			// checks the interrupted flag after publishing a new one.
+			AssignmentTransaction current = transaction;
+			if (current != null && !current.abort()) {
+				logger.debug(
+						"Assignment of [{}] into [{}] committed right before timing out.",
+						value, target());
+				return;
+			}
+		}
+		recordTimeout();
+		String outcome = transactional ? "Aborting and rolling back the value."
+				: "Aborting. The value may still be written.";
+		logger.error(
+				"Transaction ABEND for [{}]: The assignment of [{}] into [{}] took more than [{}] milliseconds. {}",
+				execution, value, target(), timeout, outcome);
+		throw new TimeoutException("Transaction ABEND for " + execution
+				+ ": The assignment of " + value + " into " + target()
+				+ " took more than " + timeout + " milliseconds. " + outcome);
+	}
+
 	/**
 	 * Performs the assignment.
 	 */
 	private void doAssignment() {
 		logger.debug(
 				"Starting assigment of [{}] into [{}]. Delegating to policy [{}].",
-				value, variable, assignmentPolicy);
+				value, target(), assignmentPolicy);
+		// The hedged policy records the latency of its delegate by itself.
+		boolean measure = adaptiveTimeout != null
+				&& !(assignmentPolicy instanceof HedgedAssignmentPolicy);
+		long next = System.nanoTime();
 		do {
-			this.assignmentPolicy.assign(value, variable);
+			long start = System.nanoTime();
+			if (transactional) {
+				doTransactionalAssignment();
+			} else if (variables == null) {
+				this.invoker.invoke(value, variable);
+			} else {
+				doFanOutAssignment();
+			}
+			if (measure) {
+				recordLatency(System.nanoTime() - start);
+			}
+
+			// Waits for the next refresh instead of spinning on the policy.
+			if (!end && refreshPeriod > 0) {
+				next += TimeUnit.MILLISECONDS.toNanos(refreshPeriod);
+				int attempts = 0;
+				long remaining;
+				while (!interrupted
+						&& (remaining = next - System.nanoTime()) > 0) {
+					waitStrategy.idle(attempts++, remaining);
+				}
+			}
 		} while (!end && !interrupted);
 
 	}
 
+	/**
+	 * Records the latency of an attempt into the {@link #adaptiveTimeout},
+	 * unless the attempt has already been recorded as timed out.
+	 *
+	 * @param nanos
+	 *            the latency, in nanoseconds.
+	 */
+	private void recordLatency(long nanos) {
+		if (!latencyRecorded.compareAndSet(false, true)) {
+			logger.debug(
+					"Assignment of [{}] into [{}] completed after timing out. Not recording its latency.",
+					value, target());
+			return;
+		}
+		adaptiveTimeout.record(assignmentPolicy, nanos);
+		// Each refresh of an assignment which doesn't end is a new attempt.
+		if (!end && !interrupted) {
+			latencyRecorded.set(false);
+		}
+	}
+
+	/**
+	 * Records a timed out assignment into the {@link #adaptiveTimeout}, with
+	 * the timeout as latency, so that a timeout which is too tight grows. If
+	 * the worker has already recorded the attempt, nothing is recorded.
+	 */
+	private void recordTimeout() {
+		if (adaptiveTimeout == null
+				|| !latencyRecorded.compareAndSet(false, true)) {
+			return;
+		}
+		AssignmentPolicy measured = assignmentPolicy;
+		if (measured instanceof HedgedAssignmentPolicy) {
+			measured = ((HedgedAssignmentPolicy) measured).getDelegate();
+		}
+		adaptiveTimeout.record(measured,
+				TimeUnit.MILLISECONDS.toNanos(timeout));
+	}
+
+	/**
+	 * Performs a single refresh of a continuous assignment.
+	 */
+	private void doContinuousRefresh() {
+		if (enforceThreadSafetyPolicy) {
+			if (lock == null) {
+				lock = new ReentrantLock();
+			}
+			lock.lock();
+		}
+		try {
+			if (variables == null) {
+				this.invoker.invoke(value, variable);
+			} else {
+				doFanOutAssignment();
+			}
+		} finally {
+			if (enforceThreadSafetyPolicy) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Performs a transactional assignment. If another Thread changes one of
+	 * the variables while the policy is running, the transaction is retried
+	 * on the new content, up to {@link #MAX_TRANSACTION_ATTEMPTS} times.
+	 */
+	private void doTransactionalAssignment() {
+		for (int attempt = 1;; attempt++) {
+			AssignmentTransaction current = attemptTransaction();
+			if (!current.isConflicted() || interrupted) {
+				return;
+			}
+			if (attempt == MAX_TRANSACTION_ATTEMPTS) {
+				throw new AssignmentException("Assignment of " + value
+						+ " into " + target() + " conflicted with other writes "
+						+ attempt + " times. Giving up.");
+			}
+			logger.debug(
+					"Assignment of [{}] into [{}] conflicted with another write. Retrying.",
+					value, target());
+		}
+	}
+
+	/**
+	 * Performs a single attempt of a transactional assignment. The policy
+	 * assigns the value into a stage for each variable and the stages are
+	 * written into the variables only if the transaction hasn't been aborted
+	 * and the variables haven't changed in the meantime.
+	 *
+	 * @return the transaction of the attempt.
+	 */
+	private AssignmentTransaction attemptTransaction() {
+		Assignable[] targets = variables == null ? new Assignable[] { variable }
+				: variables;
+		AssignmentTransaction current = new AssignmentTransaction(targets);
+		transaction = current;
+		// The Thread which aborts sets the flag before reading the
+		// transaction, so one of the two always sees the other.
+		if (interrupted) {
+			current.abort();
+			return current;
+		}
+
+		StagingAssignable[] stages = current.stages();
+		try {
+			if (targets.length > 1 && computesOnce()) {
+				// Computes the value once, as in a fan-out assignment.
+				StagingAssignable stage = new StagingAssignable(new Object());
+				this.invoker.invoke(value, stage);
+				if (stage.isAssigned()) {
+					for (StagingAssignable target : stages) {
+						target.set(stage.get());
+					}
+				}
+			} else {
+				for (int i = 0; i < targets.length; i++) {
+					this.invoker.invoke(value, stages[i]);
+				}
+			}
+		} catch (RuntimeException e) {
+			current.abort();
+			throw e;
+		} catch (Error e) {
+			current.abort();
+			throw e;
+		}
+		if (!current.commit(stages) && !current.isConflicted()) {
+			logger.warn(
+					"Assignment of [{}] into [{}] completed after being aborted. Discarding it.",
+					value, target());
+		}
+		return current;
+	}
+
+	/**
+	 * Performs the assignment of the value into all the {@link #variables}.
+	 */
+	private void doFanOutAssignment() {
+		if (computesOnce()) {
+			// Computes the value once. The policy doesn't read the variable,
+			// so the stage content is just a placeholder.
+			StagingAssignable stage = new StagingAssignable(new Object());
+			this.invoker.invoke(value, stage);
+			if (!stage.isAssigned()) {
+				logger.debug(
+						"Policy [{}] didn't assign value [{}]. Leaving [{}] untouched.",
+						assignmentPolicy, value, target());
+				return;
+			}
+			logger.debug("Writing value [{}] computed once into [{}].",
+					stage.get(), target());
+			fanOut(stage.get(), new JavaLegacyAssignmentPolicy());
+		} else {
+			fanOut(value, assignmentPolicy);
+		}
+	}
+
+	/**
+	 * Checks whether a fan-out can compute the value once and write it into
+	 * every variable, which is the case for pure policies that don't read the
+	 * content of the variable. The others are invoked for each variable.
+	 *
+	 * @return true if the value can be computed once.
+	 */
+	private boolean computesOnce() {
+		return capabilities.isPure() && !capabilities.isReadsVariable();
+	}
+
+	/**
+	 * Assigns a value into all the {@link #variables}, split in chunks if
+	 * {@link #parallelProcessing} is set.
+	 *
+	 * @param value
+	 *            the value to assign.
+	 * @param policy
+	 *            the policy to use.
+	 */
+	private void fanOut(Object value, AssignmentPolicy policy) {
+		BulkAssignables bulk = BulkAssignables.assignAll(
+				Collections.nCopies(variables.length, value)).into(
+				Arrays.asList(variables));
+		if (parallelProcessing) {
+			bulk.parallelProcessing();
+		}
+		bulk.perform(policy);
+	}
+
+	/**
+	 * Describes the target of this assignment for logging.
+	 *
+	 * @return the {@link #variable} or the number of {@link #variables}.
+	 */
+	private Object target() {
+		if (variables == null) {
+			return variable;
+		}
+		return variables.length + " variables";
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -341,10 +981,25 @@ public class Assignables {
 		result = prime * result + (interrupted ? 1231 : 1237);
 		result = prime * result + ((lock == null) ? 0 : lock.hashCode());
 		result = prime * result + (parallelProcessing ? 1231 : 1237);
+		result = prime * result + (transactional ? 1231 : 1237);
+		result = prime
+				* result
+				+ ((assignmentExecutor == null) ? 0 : assignmentExecutor
+						.hashCode());
 		result = prime * result + (int) (timeout ^ (timeout >>> 32));
+		result = prime * result
+				+ ((adaptiveTimeout == null) ? 0 : adaptiveTimeout.hashCode());
+		result = prime * result + priority;
+		long temp = Double.doubleToLongBits(hedgePercentile);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result
+				+ (int) (refreshPeriod ^ (refreshPeriod >>> 32));
+		result = prime * result
+				+ ((waitStrategy == null) ? 0 : waitStrategy.hashCode());
 		result = prime * result + ((value == null) ? 0 : value.hashCode());
 		result = prime * result
 				+ ((variable == null) ? 0 : variable.hashCode());
+		result = prime * result + Arrays.hashCode(variables);
 		return result;
 	}
 
@@ -382,8 +1037,29 @@ public class Assignables {
 			return false;
 		if (parallelProcessing != other.parallelProcessing)
 			return false;
+		if (transactional != other.transactional)
+			return false;
+		if (assignmentExecutor == null) {
+			if (other.assignmentExecutor != null)
+				return false;
+		} else if (!assignmentExecutor.equals(other.assignmentExecutor))
+			return false;
 		if (timeout != other.timeout)
 			return false;
+		if (adaptiveTimeout == null) {
+			if (other.adaptiveTimeout != null)
+				return false;
+		} else if (!adaptiveTimeout.equals(other.adaptiveTimeout))
+			return false;
+		if (priority != other.priority)
+			return false;
+		if (Double.doubleToLongBits(hedgePercentile) != Double
+				.doubleToLongBits(other.hedgePercentile))
+			return false;
+		if (refreshPeriod != other.refreshPeriod)
+			return false;
+		if (waitStrategy != other.waitStrategy)
+			return false;
 		if (value == null) {
 			if (other.value != null)
 				return false;
@@ -394,6 +1070,8 @@ public class Assignables {
 				return false;
 		} else if (!variable.equals(other.variable))
 			return false;
+		if (!Arrays.equals(variables, other.variables))
+			return false;
 		return true;
 	}
 
@@ -405,9 +1083,17 @@ public class Assignables {
 	@Override
 	public String toString() {
 		return "Assignables [value=" + value + ", variable=" + variable
+				+ ", variables=" + Arrays.toString(variables)
 				+ ", enforceThreadSafetyPolicy=" + enforceThreadSafetyPolicy
 				+ ", end=" + end + ", parallelProcessing=" + parallelProcessing
-				+ ", timeout=" + timeout + ", endAssign=" + endAssign
+				+ ", assignmentExecutor=" + assignmentExecutor
+				+ ", transactional=" + transactional
+				+ ", timeout=" + timeout + ", adaptiveTimeout=" + adaptiveTimeout
+				+ ", priority=" + priority
+				+ ", hedgePercentile=" + hedgePercentile
+				+ ", endAssign=" + endAssign
+				+ ", refreshPeriod=" + refreshPeriod + ", waitStrategy="
+				+ waitStrategy
 				+ ", assignmentPolicy=" + assignmentPolicy + ", lock=" + lock
 				+ ", interrupted=" + interrupted + "]";
 	}
@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single attempt of a transactional assignment. The policy works on
+ * {@link StagingAssignable}s and the variables are written only if the
+ * transaction commits. Commit and abort race on a compare-and-set of the
+ * transaction state, so once a transaction has been aborted no late write can
+ * reach the variables.
+ * <p>
+ * The commit is optimistic: it starts the write of each variable with a
+ * compare-and-set of the variable stamp against the one read when the
+ * transaction began, and gives up without writing anything if another Thread
+ * wrote one of them in the meantime. Stamps never go back to a previous
+ * value, so a variable changed and then restored still counts as changed.
+ * While the commit holds the writes of its variables, any other write of them
+ * waits, so the variables can't change between the check and the write and a
+ * commit which fails midway can restore their previous content.
+ * 
+ * @author Donato Rimenti
+ */
+final class AssignmentTransaction {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(AssignmentTransaction.class);
+
+	/**
+	 * State of a transaction whose policy is still running.
+	 */
+	private static final int RUNNING = 0;
+
+	/**
+	 * State of a transaction which is writing the variables.
+	 */
+	private static final int COMMITTING = 1;
+
+	/**
+	 * State of a transaction which has written the variables.
+	 */
+	private static final int COMMITTED = 2;
+
+	/**
+	 * State of a transaction which will never write the variables.
+	 */
+	private static final int ABORTED = 3;
+
+	/**
+	 * The variables written by this transaction.
+	 */
+	private final Assignable[] variables;
+
+	/**
+	 * The stamps of the {@link #variables} when this transaction began.
+	 */
+	private final long[] stamps;
+
+	/**
+	 * The content of the {@link #variables} when this transaction began.
+	 */
+	private final Object[] previous;
+
+	/**
+	 * The state of this transaction.
+	 */
+	private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+	/**
+	 * Whether this transaction has been aborted because another Thread
+	 * changed one of the {@link #variables}.
+	 */
+	private volatile boolean conflicted;
+
+	/**
+	 * Begins a new transaction, capturing the stamp and the content of the
+	 * variables.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 */
+	AssignmentTransaction(Assignable[] variables) {
+		this.variables = variables;
+		this.stamps = new long[variables.length];
+		this.previous = new Object[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			stamps[i] = variables[i].getStamp();
+			previous[i] = variables[i].get();
+		}
+	}
+
+	/**
+	 * Creates a stage for each variable, holding its content when this
+	 * transaction began.
+	 *
+	 * @return the stages, in the same order as the {@link #variables}.
+	 */
+	StagingAssignable[] stages() {
+		StagingAssignable[] stages = new StagingAssignable[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			stages[i] = new StagingAssignable(previous[i]);
+		}
+		return stages;
+	}
+
+	/**
+	 * Writes the assigned stages into the variables, unless this transaction
+	 * has been aborted or another Thread wrote one of the variables since it
+	 * began. If a write fails, the variables already written are restored
+	 * and the transaction is aborted.
+	 *
+	 * @param stages
+	 *            the stages returned by {@link #stages()}.
+	 * @return true if the transaction has committed, false if it had already
+	 *         been aborted or it conflicted with another write.
+	 */
+	boolean commit(StagingAssignable[] stages) {
+		if (!state.compareAndSet(RUNNING, COMMITTING)) {
+			logger.debug("Transaction [{}] has been aborted. Discarding its writes.",
+					this);
+			return false;
+		}
+		boolean[] started = new boolean[variables.length];
+		boolean committed = false;
+		try {
+			for (int i = 0; i < variables.length; i++) {
+				if (!stages[i].isAssigned() || isStarted(i, started)) {
+					continue;
+				}
+				if (!variables[i].beginWriteAt(stamps[i])) {
+					logger.debug(
+							"Variable [{}] changed during transaction [{}]. Discarding its writes.",
+							variables[i], this);
+					conflicted = true;
+					state.set(ABORTED);
+					return false;
+				}
+				started[i] = true;
+			}
+			int written = 0;
+			try {
+				for (; written < variables.length; written++) {
+					if (stages[written].isAssigned()) {
+						variables[written].set(stages[written].get());
+					}
+				}
+			} catch (RuntimeException e) {
+				rollback(stages, written);
+				throw e;
+			} catch (Error e) {
+				rollback(stages, written);
+				throw e;
+			}
+			committed = true;
+			state.set(COMMITTED);
+			return true;
+		} finally {
+			for (int i = 0; i < variables.length; i++) {
+				if (!started[i]) {
+					continue;
+				}
+				if (committed) {
+					variables[i].endWrite();
+				} else {
+					// Written and restored, or not written at all.
+					variables[i].cancelWrite();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether this transaction has been aborted because another Thread
+	 * changed one of its variables. Such a transaction can be retried.
+	 *
+	 * @return the {@link #conflicted}.
+	 */
+	boolean isConflicted() {
+		return conflicted;
+	}
+
+	/**
+	 * Aborts this transaction. If it's committing, waits for the commit to
+	 * complete instead.
+	 *
+	 * @return true if the transaction has been aborted (or had already been),
+	 *         false if it has committed.
+	 */
+	boolean abort() {
+		if (state.compareAndSet(RUNNING, ABORTED)) {
+			return true;
+		}
+		// The commit is just a few writes, it won't take long.
+		int current;
+		while ((current = state.get()) == COMMITTING) {
+			Thread.yield();
+		}
+		return current == ABORTED;
+	}
+
+	/**
+	 * Restores the content of the first variables and aborts this
+	 * transaction. Since the commit holds the writes of its variables, they
+	 * can't have been written by anyone else in the meantime.
+	 *
+	 * @param stages
+	 *            the stages written.
+	 * @param written
+	 *            the number of variables written.
+	 */
+	private void rollback(StagingAssignable[] stages, int written) {
+		logger.warn("Commit of transaction [{}] failed. Rolling back [{}] variables.",
+				this, written);
+		for (int i = written - 1; i >= 0; i--) {
+			if (stages[i].isAssigned()) {
+				variables[i].set(previous[i]);
+			}
+		}
+		state.set(ABORTED);
+	}
+
+	/**
+	 * Checks whether the write of a variable has already been started for an
+	 * earlier occurrence of the same variable.
+	 *
+	 * @param index
+	 *            the index of the variable.
+	 * @param started
+	 *            whether the write of each variable has been started.
+	 * @return true if the write of the variable has been started.
+	 */
+	private boolean isStarted(int index, boolean[] started) {
+		for (int i = 0; i < index; i++) {
+			if (started[i] && variables[i] == variables[index]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentTransaction [variables=" + variables.length
+				+ ", state=" + state + "]";
+	}
+
+}
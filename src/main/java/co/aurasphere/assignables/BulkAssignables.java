@@ -0,0 +1,429 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+
+/**
+ * Performs the assignment of many values into many variables at once. The
+ * i-th value is assigned into the i-th variable. The policy is bound once and
+ * invoked in a tight loop over the whole batch, the Thread safety lock is
+ * taken once per batch and large batches can be split across a
+ * {@link ForkJoinPool}.
+ * <p>
+ * The Thread safety lock is the one passed to
+ * {@link #enforceThreadSafetyPolicy(Lock)} and is shared by all the batches,
+ * which then run one at a time. A lock private to a single call would guard
+ * nothing, so without an explicit lock the batches run unguarded.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkAssignables {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(BulkAssignables.class);
+
+	/**
+	 * The default maximum number of assignments performed by a single task
+	 * when processing in parallel.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+
+	/**
+	 * The values to assign into the variables.
+	 */
+	private final List<?> values;
+
+	/**
+	 * The variables into which assign the values.
+	 */
+	private List<? extends Assignable> variables;
+
+	/**
+	 * The enforce thread safety policy.
+	 */
+	private boolean enforceThreadSafetyPolicy;
+
+	/**
+	 * The lock used for the Thread safety policy.
+	 */
+	private Lock lock;
+
+	/**
+	 * Defines whether the batch should be split across many Threads.
+	 */
+	private boolean parallelProcessing;
+
+	/**
+	 * The pool used for the parallel processing. If null, a shared pool is
+	 * used.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * The maximum number of assignments performed by a single task when
+	 * processing in parallel.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * The invoker bound to the assignment policy.
+	 */
+	private AssignmentPolicyInvoker invoker;
+
+	/**
+	 * Instantiates a new BulkAssignables.
+	 *
+	 * @param values
+	 *            the {@link #values}.
+	 */
+	private BulkAssignables(List<?> values) {
+		if (values == null) {
+			throw new IllegalArgumentException(
+					"The values to assign can't be null.");
+		}
+		this.values = values;
+	}
+
+	/**
+	 * Defines the values to assign.
+	 *
+	 * @param values
+	 *            the {@link #values}.
+	 * @return this object.
+	 */
+	public static BulkAssignables assignAll(Object... values) {
+		return new BulkAssignables(Arrays.asList(values));
+	}
+
+	/**
+	 * Defines the values to assign. The list should support fast random
+	 * access.
+	 *
+	 * @param values
+	 *            the {@link #values}.
+	 * @return this object.
+	 */
+	public static BulkAssignables assignAll(List<?> values) {
+		return new BulkAssignables(values);
+	}
+
+	/**
+	 * Defines the variables into which assign.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 * @return this object.
+	 */
+	public BulkAssignables into(Assignable... variables) {
+		return into(Arrays.asList(variables));
+	}
+
+	/**
+	 * Defines the variables into which assign. The list should support fast
+	 * random access.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 * @return this object.
+	 */
+	public BulkAssignables into(List<? extends Assignable> variables) {
+		if (variables == null || variables.size() != values.size()) {
+			throw new IllegalArgumentException("Can't assign " + values.size()
+					+ " values into "
+					+ (variables == null ? 0 : variables.size())
+					+ " variables.");
+		}
+		this.variables = variables;
+		return this;
+	}
+
+	/**
+	 * Declares to use a policy that enforces Thread safety. Without a lock
+	 * shared with the other users of the variables there's nothing to take,
+	 * so the batches run unguarded.
+	 * 
+	 * @return this object.
+	 */
+	public BulkAssignables enforceThreadSafetyPolicy() {
+		this.enforceThreadSafetyPolicy = true;
+		return this;
+	}
+
+	/**
+	 * Declares to use a policy that enforces Thread safety. The lock is taken
+	 * once per batch and shared by all the batches.
+	 *
+	 * @param lock
+	 *            the {@link #lock}.
+	 * @return this object.
+	 */
+	public BulkAssignables enforceThreadSafetyPolicy(Lock lock) {
+		this.enforceThreadSafetyPolicy = true;
+		this.lock = lock;
+		return this;
+	}
+
+	/**
+	 * Sets whether to split the batch across a shared {@link ForkJoinPool}.
+	 *
+	 * @return this object.
+	 */
+	public BulkAssignables parallelProcessing() {
+		this.parallelProcessing = true;
+		return this;
+	}
+
+	/**
+	 * Sets whether to split the batch across a {@link ForkJoinPool}.
+	 *
+	 * @param pool
+	 *            the {@link #pool}.
+	 * @return this object.
+	 */
+	public BulkAssignables parallelProcessing(ForkJoinPool pool) {
+		this.parallelProcessing = true;
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of assignments performed by a single task when
+	 * processing in parallel.
+	 *
+	 * @param batchSize
+	 *            the {@link #batchSize}.
+	 * @return this object.
+	 */
+	public BulkAssignables batchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"The batch size must be positive.");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Sets the policy to use for the assignments.
+	 *
+	 * @param assignmentPolicy
+	 *            the policy to use.
+	 */
+	public void withAssignmentPolicy(AssignmentPolicy assignmentPolicy) {
+		try {
+			perform(assignmentPolicy);
+		} catch (Exception e) {
+			logger.error(
+					"Error while assigning [{}] values into [{}] variables.",
+					values.size(), variables == null ? 0 : variables.size(), e);
+			throw new AssignmentException(e);
+		}
+	}
+
+	/**
+	 * Performs the assignments without wrapping the errors.
+	 *
+	 * @param assignmentPolicy
+	 *            the policy to use.
+	 */
+	void perform(AssignmentPolicy assignmentPolicy) {
+		if (variables == null) {
+			throw new IllegalArgumentException(
+					"The variables into which assign haven't been defined.");
+		}
+		this.invoker = AssignmentPolicyInvoker.bind(assignmentPolicy);
+		dispatchAssignment(AssignmentPolicyCapabilities.of(assignmentPolicy));
+	}
+
+	/**
+	 * Dispatches the assignments.
+	 *
+	 * @param capabilities
+	 *            the capabilities of the assignment policy.
+	 */
+	private void dispatchAssignment(AssignmentPolicyCapabilities capabilities) {
+		// Rejects the whole batch up front if the policy can't handle a value.
+		if (!capabilities.acceptsEverything()) {
+			for (int i = 0; i < values.size(); i++) {
+				Object value = values.get(i);
+				if (!capabilities.accepts(value)) {
+					throw new UnsupportedAssignmentException("Policy "
+							+ invoker.getPolicy()
+							+ " doesn't support the assignment of value "
+							+ value + " into variable " + variables.get(i)
+							+ ".");
+				}
+			}
+		}
+
+		// If the policy doesn't do anything, there's no point in invoking it.
+		if (capabilities.isNoOp() || values.isEmpty()) {
+			logger.debug("Policy [{}] is a no-op. Skipping [{}] assignments.",
+					invoker.getPolicy(), values.size());
+			return;
+		}
+
+		ForkJoinPool pool = null;
+		if (parallelProcessing && values.size() > batchSize) {
+			pool = this.pool != null ? this.pool : SharedPoolHolder.POOL;
+		}
+		if (enforceThreadSafetyPolicy && lock == null) {
+			logger.debug("No lock specified for current transaction. Assigning without one.");
+		}
+
+		if (pool != null) {
+			logger.debug(
+					"Starting parallelProcessing assignment of [{}] values in batches of [{}] on pool [{}].",
+					values.size(), batchSize, pool);
+			pool.invoke(new BatchTask(0, values.size()));
+		} else {
+			logger.debug(
+					"Starting assignment of [{}] values on current Thread.",
+					values.size());
+			assignBatch(0, values.size());
+		}
+	}
+
+	/**
+	 * Assigns a batch of values into their variables, holding a lock once for
+	 * the whole batch if the Thread safety policy is enforced.
+	 *
+	 * @param from
+	 *            the index of the first assignment, inclusive.
+	 * @param to
+	 *            the index of the last assignment, exclusive.
+	 */
+	private void assignBatch(int from, int to) {
+		Lock batchLock = enforceThreadSafetyPolicy ? lock : null;
+		if (batchLock != null) {
+			batchLock.lock();
+		}
+		try {
+			for (int i = from; i < to; i++) {
+				invoker.invoke(values.get(i), variables.get(i));
+			}
+		} finally {
+			if (batchLock != null) {
+				batchLock.unlock();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BulkAssignables [values=" + values.size() + ", variables="
+				+ (variables == null ? 0 : variables.size())
+				+ ", enforceThreadSafetyPolicy=" + enforceThreadSafetyPolicy
+				+ ", parallelProcessing=" + parallelProcessing
+				+ ", batchSize=" + batchSize + ", lock=" + lock + "]";
+	}
+
+	/**
+	 * Task which splits a range of assignments until it's small enough to be
+	 * assigned as a single batch.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class BatchTask extends RecursiveAction {
+
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The index of the first assignment, inclusive.
+		 */
+		private final int from;
+
+		/**
+		 * The index of the last assignment, exclusive.
+		 */
+		private final int to;
+
+		/**
+		 * Instantiates a new BatchTask.
+		 *
+		 * @param from
+		 *            the {@link #from}.
+		 * @param to
+		 *            the {@link #to}.
+		 */
+		private BatchTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from <= batchSize) {
+				assignBatch(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchTask(from, middle), new BatchTask(middle, to));
+		}
+	}
+
+	/**
+	 * Lazily creates the pool shared by the parallel bulk assignments.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class SharedPoolHolder {
+
+		/**
+		 * The shared pool.
+		 */
+		private static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+}
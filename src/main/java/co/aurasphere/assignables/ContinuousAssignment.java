@@ -0,0 +1,249 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+
+/**
+ * Handle of an assignment which keeps a variable synchronized, performing the
+ * assignment again on a fixed period or whenever {@link #trigger()} is called.
+ * Between refreshes, the Thread waits according to its {@link WaitStrategy}
+ * instead of invoking the policy over and over.
+ * <p>
+ * Continuous assignments are started through
+ * {@link Assignables#continuously(co.aurasphere.assignables.policy.AssignmentPolicy)}
+ * and run until {@link #cancel()} is called.
+ * 
+ * @author Donato Rimenti
+ */
+public class ContinuousAssignment {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(ContinuousAssignment.class);
+
+	/**
+	 * Counter used to name the Threads.
+	 */
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * Performs the assignment once.
+	 */
+	private final Runnable assignment;
+
+	/**
+	 * The period between refreshes, in nanoseconds. If 0, the assignment is
+	 * refreshed only when triggered.
+	 */
+	private final long periodNanos;
+
+	/**
+	 * How the Thread waits between refreshes.
+	 */
+	private final WaitStrategy waitStrategy;
+
+	/**
+	 * The Thread performing the refreshes.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Whether a refresh has been requested. The first refresh is performed as
+	 * soon as the assignment starts.
+	 */
+	private final AtomicBoolean triggered = new AtomicBoolean(true);
+
+	/**
+	 * The number of refreshes performed.
+	 */
+	private final AtomicLong refreshCount = new AtomicLong();
+
+	/**
+	 * The number of refreshes which failed.
+	 */
+	private final AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * Whether this assignment has been cancelled.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Instantiates a new ContinuousAssignment.
+	 *
+	 * @param assignment
+	 *            the {@link #assignment}.
+	 * @param period
+	 *            the period between refreshes, in milliseconds. If 0, the
+	 *            assignment is refreshed only when triggered.
+	 * @param waitStrategy
+	 *            the {@link #waitStrategy}.
+	 */
+	ContinuousAssignment(Runnable assignment, long period,
+			WaitStrategy waitStrategy) {
+		this.assignment = assignment;
+		this.periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+		this.waitStrategy = waitStrategy;
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				refreshLoop();
+			}
+		}, "assignables-refresh-" + threadCount.getAndIncrement());
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts refreshing the assignment.
+	 *
+	 * @return this object.
+	 */
+	ContinuousAssignment start() {
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * Requests a refresh of the assignment as soon as possible. Requests made
+	 * while a refresh is pending are merged into it.
+	 */
+	public void trigger() {
+		triggered.set(true);
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Stops refreshing the assignment. A refresh already started is completed.
+	 */
+	public void cancel() {
+		cancelled = true;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Stops refreshing the assignment and waits for the last refresh to
+	 * complete.
+	 *
+	 * @throws InterruptedException
+	 *             if the current Thread is interrupted while waiting.
+	 */
+	public void cancelAndWait() throws InterruptedException {
+		cancel();
+		if (Thread.currentThread() != thread) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Checks whether this assignment has been cancelled.
+	 *
+	 * @return the {@link #cancelled}.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Gets the number of refreshes performed.
+	 *
+	 * @return the {@link #refreshCount}.
+	 */
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	/**
+	 * Gets the number of refreshes which failed.
+	 *
+	 * @return the {@link #failedCount}.
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * Refreshes the assignment until cancelled.
+	 */
+	private void refreshLoop() {
+		logger.debug("Starting continuous assignment [{}].", this);
+		long next = System.nanoTime();
+		int attempts = 0;
+		while (!cancelled) {
+			long now = System.nanoTime();
+			boolean due = periodNanos > 0 && now - next >= 0;
+			if (triggered.getAndSet(false) || due) {
+				refresh();
+				attempts = 0;
+				if (periodNanos > 0) {
+					// Triggered refreshes restart the period as well.
+					next = System.nanoTime() + periodNanos;
+				}
+				continue;
+			}
+			long remaining = periodNanos > 0 ? next - now : Long.MAX_VALUE;
+			waitStrategy.idle(attempts++, remaining);
+		}
+		logger.debug("Continuous assignment [{}] cancelled.", this);
+	}
+
+	/**
+	 * Performs the assignment once. Errors are logged and don't stop the
+	 * following refreshes.
+	 */
+	private void refresh() {
+		try {
+			assignment.run();
+			refreshCount.incrementAndGet();
+		} catch (Exception e) {
+			failedCount.incrementAndGet();
+			logger.error("Error while refreshing continuous assignment [{}].",
+					this, e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ContinuousAssignment [thread=" + thread.getName()
+				+ ", periodNanos=" + periodNanos + ", waitStrategy="
+				+ waitStrategy + ", cancelled=" + cancelled + ", refreshCount="
+				+ refreshCount + ", failedCount=" + failedCount + "]";
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables;
+
+/**
+ * {@link Assignable} used as an intermediate stage of an assignment. It keeps
+ * track of whether a value has been set into it, so that the result of a
+ * policy can be inspected before being written into the actual variable.
+ * 
+ * @author Donato Rimenti
+ */
+public class StagingAssignable extends Assignable {
+
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Whether a value has been set since the last reset.
+	 */
+	private boolean assigned;
+
+	/**
+	 * Instantiates a new StagingAssignable.
+	 */
+	public StagingAssignable() {
+	}
+
+	/**
+	 * Instantiates a new StagingAssignable.
+	 *
+	 * @param object
+	 *            the initial content of this stage. Setting it doesn't count
+	 *            as an assignment.
+	 */
+	public StagingAssignable(Object object) {
+		super(object);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+	 */
+	@Override
+	public void set(Object object) {
+		super.set(object);
+		this.assigned = true;
+	}
+
+	/**
+	 * Resets this stage with a new content. Setting it doesn't count as an
+	 * assignment.
+	 *
+	 * @param object
+	 *            the new content of this stage.
+	 */
+	public void reset(Object object) {
+		super.set(object);
+		this.assigned = false;
+	}
+
+	/**
+	 * Checks whether a value has been set since the last reset.
+	 *
+	 * @return the {@link #assigned}.
+	 */
+	public boolean isAssigned() {
+		return assigned;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#toString()
+	 */
+	@Override
+	public String toString() {
+		return "StagingAssignable [object=" + get() + ", assigned="
+				+ assigned + "]";
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+
+/**
+ * Compact binary form of the values of the variables, much smaller and faster
+ * than Java serialization. Each value is written after a type tag: boxed
+ * primitives, strings and arrays of bytes are handled by the codec itself,
+ * with integers in variable length. Other types can be handled by registering
+ * a {@link TypeCodec} under a stable identifier. Any other serializable value
+ * falls back to Java serialization.
+ * <p>
+ * The codec is thread-safe and reuses a buffer per Thread for
+ * {@link #encode(Object)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class BinaryCodec {
+
+	/**
+	 * The charset of the strings.
+	 */
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Tag of null.
+	 */
+	private static final int NULL = 0;
+
+	/**
+	 * Tag of {@link Boolean#TRUE}.
+	 */
+	private static final int TRUE = 1;
+
+	/**
+	 * Tag of {@link Boolean#FALSE}.
+	 */
+	private static final int FALSE = 2;
+
+	/**
+	 * Tag of a {@link Byte}.
+	 */
+	private static final int BYTE = 3;
+
+	/**
+	 * Tag of a {@link Short}.
+	 */
+	private static final int SHORT = 4;
+
+	/**
+	 * Tag of a {@link Character}.
+	 */
+	private static final int CHARACTER = 5;
+
+	/**
+	 * Tag of an {@link Integer}.
+	 */
+	private static final int INTEGER = 6;
+
+	/**
+	 * Tag of a {@link Long}.
+	 */
+	private static final int LONG = 7;
+
+	/**
+	 * Tag of a {@link Float}.
+	 */
+	private static final int FLOAT = 8;
+
+	/**
+	 * Tag of a {@link Double}.
+	 */
+	private static final int DOUBLE = 9;
+
+	/**
+	 * Tag of a {@link String}.
+	 */
+	private static final int STRING = 10;
+
+	/**
+	 * Tag of an array of bytes.
+	 */
+	private static final int BYTES = 11;
+
+	/**
+	 * Tag of a value written with Java serialization.
+	 */
+	private static final int SERIALIZABLE = 12;
+
+	/**
+	 * Tag of the first registered type. Lower tags are reserved.
+	 */
+	private static final int FIRST_REGISTERED = 32;
+
+	/**
+	 * The codec used when none is configured.
+	 */
+	private static final BinaryCodec DEFAULT = new BinaryCodec();
+
+	/**
+	 * The registered codecs, by type.
+	 */
+	private final ConcurrentHashMap<Class<?>, Registration> byType = new ConcurrentHashMap<Class<?>, Registration>();
+
+	/**
+	 * The registered codecs, by tag.
+	 */
+	private final ConcurrentHashMap<Integer, Registration> byTag = new ConcurrentHashMap<Integer, Registration>();
+
+	/**
+	 * The buffer of each Thread used by {@link #encode(Object)}.
+	 */
+	private final ThreadLocal<BinaryWriter> writers = new ThreadLocal<BinaryWriter>() {
+		@Override
+		protected BinaryWriter initialValue() {
+			return new BinaryWriter();
+		}
+	};
+
+	/**
+	 * Gets the codec used when none is configured. Types registered into it
+	 * are known to all its users.
+	 *
+	 * @return the default codec.
+	 */
+	public static BinaryCodec getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Registers the codec of a type. Only values of exactly that type are
+	 * written with it. The identifier is written along with each value, so it
+	 * must not change once values have been stored.
+	 *
+	 * @param type
+	 *            the type.
+	 * @param id
+	 *            the identifier of the type, not negative.
+	 * @param codec
+	 *            the codec of the type.
+	 * @return this object.
+	 */
+	public <T> BinaryCodec register(Class<T> type, int id, TypeCodec<T> codec) {
+		if (type == null || codec == null || id < 0
+				|| id > Integer.MAX_VALUE - FIRST_REGISTERED) {
+			throw new IllegalArgumentException("Invalid registration of type "
+					+ type + " with identifier " + id + " and codec " + codec
+					+ ".");
+		}
+		Registration registration = new Registration(FIRST_REGISTERED + id,
+				codec);
+		if (byTag.putIfAbsent(registration.tag, registration) != null) {
+			throw new IllegalArgumentException("Identifier " + id
+					+ " is already registered.");
+		}
+		if (byType.putIfAbsent(type, registration) != null) {
+			byTag.remove(registration.tag, registration);
+			throw new IllegalArgumentException("Type " + type.getName()
+					+ " is already registered.");
+		}
+		return this;
+	}
+
+	/**
+	 * Encodes a value.
+	 *
+	 * @param value
+	 *            the value.
+	 * @return the encoded value.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value can't be encoded.
+	 */
+	public byte[] encode(Object value) {
+		BinaryWriter out = writers.get().reset();
+		encode(value, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes a value into a writer.
+	 *
+	 * @param value
+	 *            the value.
+	 * @param out
+	 *            where to write the value.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value can't be encoded.
+	 */
+	@SuppressWarnings("unchecked")
+	public void encode(Object value, BinaryWriter out) {
+		if (value == null) {
+			out.writeByte(NULL);
+			return;
+		}
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			out.writeByte(STRING);
+			out.writeString((String) value);
+		} else if (type == Integer.class) {
+			out.writeByte(INTEGER);
+			out.writeZigZag((Integer) value);
+		} else if (type == Long.class) {
+			out.writeByte(LONG);
+			out.writeZigZag((Long) value);
+		} else if (type == Boolean.class) {
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (type == Double.class) {
+			out.writeByte(DOUBLE);
+			out.writeLong(Double.doubleToRawLongBits((Double) value));
+		} else if (type == Float.class) {
+			out.writeByte(FLOAT);
+			out.writeInt(Float.floatToRawIntBits((Float) value));
+		} else if (type == Short.class) {
+			out.writeByte(SHORT);
+			out.writeZigZag((Short) value);
+		} else if (type == Byte.class) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (type == Character.class) {
+			out.writeByte(CHARACTER);
+			out.writeVarInt((Character) value);
+		} else if (type == byte[].class) {
+			out.writeByte(BYTES);
+			out.writeBytes((byte[]) value);
+		} else {
+			Registration registration = byType.get(type);
+			if (registration != null) {
+				out.writeVarInt(registration.tag);
+				((TypeCodec<Object>) registration.codec).write(value, out);
+			} else if (value instanceof Serializable) {
+				out.writeByte(SERIALIZABLE);
+				out.writeBytes(serialize(value));
+			} else {
+				throw new UnsupportedAssignmentException("Value " + value
+						+ " of type " + type.getName()
+						+ " is not serializable and has no codec.");
+			}
+		}
+	}
+
+	/**
+	 * Decodes a value.
+	 *
+	 * @param bytes
+	 *            the encoded value.
+	 * @return the value.
+	 * @throws IllegalStateException
+	 *             if the value can't be decoded.
+	 */
+	public Object decode(byte[] bytes) {
+		return decode(new BinaryReader(bytes));
+	}
+
+	/**
+	 * Decodes a value from a reader.
+	 *
+	 * @param in
+	 *            where to read the value from.
+	 * @return the value.
+	 * @throws IllegalStateException
+	 *             if the value can't be decoded.
+	 */
+	public Object decode(BinaryReader in) {
+		int tag = in.readVarInt();
+		switch (tag) {
+		case NULL:
+			return null;
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case BYTE:
+			return in.readByte();
+		case SHORT:
+			return (short) in.readZigZag();
+		case CHARACTER:
+			return (char) in.readVarInt();
+		case INTEGER:
+			return (int) in.readZigZag();
+		case LONG:
+			return in.readZigZag();
+		case FLOAT:
+			return Float.intBitsToFloat(in.readInt());
+		case DOUBLE:
+			return Double.longBitsToDouble(in.readLong());
+		case STRING:
+			return in.readString();
+		case BYTES:
+			return in.readBytes();
+		case SERIALIZABLE:
+			return deserialize(in.readBytes());
+		default:
+			Registration registration = byTag.get(tag);
+			if (registration == null) {
+				throw new IllegalStateException("No codec registered for tag "
+						+ tag + ".");
+			}
+			return registration.codec.read(in);
+		}
+	}
+
+	/**
+	 * Writes a value with Java serialization.
+	 *
+	 * @param value
+	 *            the value.
+	 * @return the serialized value.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value can't be serialized.
+	 */
+	private static byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UnsupportedAssignmentException("Value " + value
+					+ " can't be serialized: " + e);
+		}
+	}
+
+	/**
+	 * Reads a value written with Java serialization.
+	 *
+	 * @param bytes
+	 *            the serialized value.
+	 * @return the value.
+	 * @throws IllegalStateException
+	 *             if the value can't be deserialized.
+	 */
+	private static Object deserialize(byte[] bytes) {
+		try {
+			return new ObjectInputStream(new ByteArrayInputStream(bytes))
+					.readObject();
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't deserialize value.", e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Can't deserialize value.", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BinaryCodec [registered=" + byType.keySet() + "]";
+	}
+
+	/**
+	 * Codec registered for a type.
+	 *
+	 * @author Donato Rimenti
+	 */
+	private static final class Registration {
+
+		/**
+		 * The tag written before the values.
+		 */
+		private final int tag;
+
+		/**
+		 * The codec of the type.
+		 */
+		private final TypeCodec<?> codec;
+
+		/**
+		 * Instantiates a new Registration.
+		 *
+		 * @param tag
+		 *            the {@link #tag}.
+		 * @param codec
+		 *            the {@link #codec}.
+		 */
+		private Registration(int tag, TypeCodec<?> codec) {
+			this.tag = tag;
+			this.codec = codec;
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.codec;
+
+/**
+ * Reads the values written by a {@link BinaryWriter} from an array of bytes.
+ * A reader can be {@link #reset(byte[], int, int) reset} and reused.
+ * 
+ * @author Donato Rimenti
+ */
+public class BinaryReader {
+
+	/**
+	 * The bytes to read.
+	 */
+	private byte[] buffer;
+
+	/**
+	 * The position of the next byte to read.
+	 */
+	private int position;
+
+	/**
+	 * The position after the last byte to read.
+	 */
+	private int limit;
+
+	/**
+	 * Instantiates a new BinaryReader.
+	 *
+	 * @param buffer
+	 *            the bytes to read.
+	 */
+	public BinaryReader(byte[] buffer) {
+		this(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Instantiates a new BinaryReader.
+	 *
+	 * @param buffer
+	 *            the bytes to read.
+	 * @param offset
+	 *            the offset of the first byte to read.
+	 * @param length
+	 *            the number of bytes to read.
+	 */
+	public BinaryReader(byte[] buffer, int offset, int length) {
+		reset(buffer, offset, length);
+	}
+
+	/**
+	 * Starts reading other bytes.
+	 *
+	 * @param buffer
+	 *            the bytes to read.
+	 * @param offset
+	 *            the offset of the first byte to read.
+	 * @param length
+	 *            the number of bytes to read.
+	 * @return this object.
+	 */
+	public BinaryReader reset(byte[] buffer, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > buffer.length) {
+			throw new IllegalArgumentException("Invalid range [" + offset
+					+ ", " + (offset + length) + ") of " + buffer.length
+					+ " bytes.");
+		}
+		this.buffer = buffer;
+		this.position = offset;
+		this.limit = offset + length;
+		return this;
+	}
+
+	/**
+	 * Reads a byte.
+	 *
+	 * @return the byte.
+	 */
+	public byte readByte() {
+		require(1);
+		return buffer[position++];
+	}
+
+	/**
+	 * Reads an int written in 4 bytes.
+	 *
+	 * @return the int.
+	 */
+	public int readInt() {
+		require(4);
+		int value = ((buffer[position] & 0xFF) << 24)
+				| ((buffer[position + 1] & 0xFF) << 16)
+				| ((buffer[position + 2] & 0xFF) << 8)
+				| (buffer[position + 3] & 0xFF);
+		position += 4;
+		return value;
+	}
+
+	/**
+	 * Reads a long written in 8 bytes.
+	 *
+	 * @return the long.
+	 */
+	public long readLong() {
+		require(8);
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (buffer[position++] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads a non-negative int written in as few bytes as possible.
+	 *
+	 * @return the int.
+	 */
+	public int readVarInt() {
+		long value = readVarLong();
+		if (value > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Variable-length int " + value
+					+ " out of range.");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads a non-negative long written in as few bytes as possible.
+	 *
+	 * @return the long.
+	 */
+	public long readVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte current = readByte();
+			value |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed variable-length long.");
+	}
+
+	/**
+	 * Reads a long written by {@link BinaryWriter#writeZigZag(long)}.
+	 *
+	 * @return the long.
+	 */
+	public long readZigZag() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a string.
+	 *
+	 * @return the string.
+	 */
+	public String readString() {
+		int length = readVarInt();
+		require(length);
+		String value = new String(buffer, position, length, BinaryCodec.UTF_8);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Reads an array of bytes.
+	 *
+	 * @return the bytes.
+	 */
+	public byte[] readBytes() {
+		int length = readVarInt();
+		require(length);
+		byte[] value = new byte[length];
+		System.arraycopy(buffer, position, value, 0, length);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * Skips some bytes.
+	 *
+	 * @param length
+	 *            the number of bytes to skip.
+	 */
+	public void skip(int length) {
+		require(length);
+		position += length;
+	}
+
+	/**
+	 * Gets the position of the next byte to read in the array.
+	 *
+	 * @return the {@link #position}.
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the number of bytes left to read.
+	 *
+	 * @return the number of bytes left.
+	 */
+	public int remaining() {
+		return limit - position;
+	}
+
+	/**
+	 * Checks that there are enough bytes left to read.
+	 *
+	 * @param needed
+	 *            the number of bytes to read.
+	 * @throws IllegalStateException
+	 *             if there aren't enough bytes.
+	 */
+	private void require(int needed) {
+		if (needed > limit - position) {
+			throw new IllegalStateException("Needed " + needed
+					+ " bytes, but only " + (limit - position) + " are left.");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BinaryReader [position=" + position + ", limit=" + limit
+				+ "]";
+	}
+
+}
@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.codec;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer where values are written in binary form. A writer can be
+ * {@link #reset()} and reused, keeping the memory it already allocated.
+ * Numbers are written in big-endian order; the variable-length ones take from
+ * 1 to 10 bytes, 7 bits per byte.
+ * 
+ * @author Donato Rimenti
+ */
+public class BinaryWriter {
+
+	/**
+	 * Default initial capacity of the buffer.
+	 */
+	private static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * The buffer.
+	 */
+	private byte[] buffer;
+
+	/**
+	 * The number of bytes written into the {@link #buffer}.
+	 */
+	private int size;
+
+	/**
+	 * Instantiates a new BinaryWriter.
+	 */
+	public BinaryWriter() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Instantiates a new BinaryWriter.
+	 *
+	 * @param capacity
+	 *            the initial capacity of the buffer.
+	 */
+	public BinaryWriter(int capacity) {
+		this.buffer = new byte[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Discards the bytes written, keeping the buffer.
+	 *
+	 * @return this object.
+	 */
+	public BinaryWriter reset() {
+		size = 0;
+		return this;
+	}
+
+	/**
+	 * Writes a byte.
+	 *
+	 * @param value
+	 *            the byte.
+	 */
+	public void writeByte(int value) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes an int in 4 bytes.
+	 *
+	 * @param value
+	 *            the int.
+	 */
+	public void writeInt(int value) {
+		ensureCapacity(4);
+		putInt(size, value);
+		size += 4;
+	}
+
+	/**
+	 * Writes a long in 8 bytes.
+	 *
+	 * @param value
+	 *            the long.
+	 */
+	public void writeLong(long value) {
+		ensureCapacity(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[size++] = (byte) (value >>> shift);
+		}
+	}
+
+	/**
+	 * Writes a non-negative int in as few bytes as possible.
+	 *
+	 * @param value
+	 *            the int.
+	 */
+	public void writeVarInt(int value) {
+		writeVarLong(value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Writes a non-negative long in as few bytes as possible.
+	 *
+	 * @param value
+	 *            the long.
+	 */
+	public void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+	}
+
+	/**
+	 * Writes a long in as few bytes as possible, small negative numbers
+	 * included.
+	 *
+	 * @param value
+	 *            the long.
+	 */
+	public void writeZigZag(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Writes a string in UTF-8, preceded by its length in bytes.
+	 *
+	 * @param value
+	 *            the string.
+	 */
+	public void writeString(String value) {
+		int length = value.length();
+		boolean ascii = true;
+		for (int i = 0; i < length && ascii; i++) {
+			ascii = value.charAt(i) < 0x80;
+		}
+		if (!ascii) {
+			writeBytes(value.getBytes(BinaryCodec.UTF_8));
+			return;
+		}
+		// ASCII strings are copied without encoding them first.
+		writeVarInt(length);
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			buffer[size++] = (byte) value.charAt(i);
+		}
+	}
+
+	/**
+	 * Writes an array of bytes, preceded by its length.
+	 *
+	 * @param value
+	 *            the bytes.
+	 */
+	public void writeBytes(byte[] value) {
+		writeVarInt(value.length);
+		write(value, 0, value.length);
+	}
+
+	/**
+	 * Writes a portion of an array of bytes as it is.
+	 *
+	 * @param bytes
+	 *            the bytes.
+	 * @param offset
+	 *            the offset of the first byte.
+	 * @param length
+	 *            the number of bytes.
+	 */
+	public void write(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, size, length);
+		size += length;
+	}
+
+	/**
+	 * Overwrites an int in 4 bytes at a position already written.
+	 *
+	 * @param position
+	 *            the position of the int.
+	 * @param value
+	 *            the int.
+	 */
+	public void putInt(int position, int value) {
+		buffer[position] = (byte) (value >>> 24);
+		buffer[position + 1] = (byte) (value >>> 16);
+		buffer[position + 2] = (byte) (value >>> 8);
+		buffer[position + 3] = (byte) value;
+	}
+
+	/**
+	 * Gets the buffer. Only its first {@link #size()} bytes have been
+	 * written.
+	 *
+	 * @return the {@link #buffer}.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Gets the number of bytes written.
+	 *
+	 * @return the {@link #size}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Copies the bytes written.
+	 *
+	 * @return a copy of the bytes written.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * Grows the buffer if it can't hold more bytes.
+	 *
+	 * @param needed
+	 *            the number of bytes to be written.
+	 */
+	private void ensureCapacity(int needed) {
+		if (size + needed > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(buffer.length << 1, size + needed));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BinaryWriter [size=" + size + ", capacity=" + buffer.length
+				+ "]";
+	}
+
+}
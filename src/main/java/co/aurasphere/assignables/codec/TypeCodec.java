@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.codec;
+
+/**
+ * Writes and reads the values of a type not handled by {@link BinaryCodec}
+ * itself. Codecs are registered through
+ * {@link BinaryCodec#register(Class, int, TypeCodec)}.
+ * 
+ * @author Donato Rimenti
+ *
+ * @param <T>
+ *            the type of the values.
+ */
+public interface TypeCodec<T> {
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param value
+	 *            the value to write, never null.
+	 * @param out
+	 *            where to write the value.
+	 */
+	public void write(T value, BinaryWriter out);
+
+	/**
+	 * Reads a value.
+	 *
+	 * @param in
+	 *            where to read the value from.
+	 * @return the value.
+	 */
+	public T read(BinaryReader in);
+}
@@ -0,0 +1,298 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+
+/**
+ * Timeout derived from the observed latency of each policy: a percentile of
+ * the latency distribution times a multiplier, kept between a floor and a
+ * ceiling. Until a policy has enough samples, its timeout is the ceiling.
+ * <p>
+ * Latencies are read from {@link LatencyTracker#forPolicy(AssignmentPolicy)}
+ * and the last timeout computed for each policy is kept for monitoring.
+ * Instances are created through {@link #builder()}.
+ * 
+ * @author Donato Rimenti
+ */
+public class AdaptiveTimeout {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(AdaptiveTimeout.class);
+
+	/**
+	 * The percentile of the latency the timeout is derived from.
+	 */
+	private final double percentile;
+
+	/**
+	 * The multiplier applied to the percentile.
+	 */
+	private final double multiplier;
+
+	/**
+	 * The minimum timeout, in milliseconds.
+	 */
+	private final long floorMillis;
+
+	/**
+	 * The maximum timeout, in milliseconds.
+	 */
+	private final long ceilingMillis;
+
+	/**
+	 * The minimum number of latency samples before the timeout is derived
+	 * from them.
+	 */
+	private final int minimumSamples;
+
+	/**
+	 * The last timeout computed for each policy, in milliseconds, under the
+	 * key of its tracker.
+	 */
+	private final ConcurrentHashMap<Object, Long> computedTimeouts = new ConcurrentHashMap<Object, Long>();
+
+	/**
+	 * Instantiates a new AdaptiveTimeout.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private AdaptiveTimeout(Builder builder) {
+		this.percentile = builder.percentile;
+		this.multiplier = builder.multiplier;
+		this.floorMillis = builder.floorMillis;
+		this.ceilingMillis = builder.ceilingMillis;
+		this.minimumSamples = builder.minimumSamples;
+	}
+
+	/**
+	 * Creates a new builder. By default, the timeout is 3 times the 99th
+	 * percentile, between 10 milliseconds and 10 seconds, after 20 samples.
+	 *
+	 * @return a new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Computes the timeout for an assignment with a policy.
+	 *
+	 * @param policy
+	 *            the policy.
+	 * @return the timeout, in milliseconds.
+	 */
+	public long getTimeoutMillis(AssignmentPolicy policy) {
+		Object key = LatencyTracker.keyOf(policy);
+		LatencyTracker tracker = LatencyTracker.forKey(key);
+		long timeout = ceilingMillis;
+		if (tracker.getCount() >= minimumSamples) {
+			long latencyNanos = tracker.getPercentile(percentile);
+			long derived = (long) Math.ceil(multiplier * latencyNanos
+					/ TimeUnit.MILLISECONDS.toNanos(1));
+			timeout = Math.min(ceilingMillis, Math.max(floorMillis, derived));
+		}
+		Long previous = computedTimeouts.put(key, timeout);
+		if (previous == null || previous.longValue() != timeout) {
+			logger.debug("Timeout for policy [{}] is now [{}] milliseconds.",
+					policy, timeout);
+		}
+		return timeout;
+	}
+
+	/**
+	 * Records the latency of an assignment with a policy. Timed out
+	 * assignments should be recorded too, with the timeout as latency, so that
+	 * a timeout which is too tight grows, but only once: the late completion
+	 * of a timed out assignment must not be recorded again.
+	 *
+	 * @param policy
+	 *            the policy.
+	 * @param nanos
+	 *            the latency, in nanoseconds.
+	 */
+	public void record(AssignmentPolicy policy, long nanos) {
+		LatencyTracker.forPolicy(policy).record(nanos);
+	}
+
+	/**
+	 * Gets the last timeout computed for each policy, under the same key as
+	 * {@link LatencyTracker#forPolicy(AssignmentPolicy)}: the policy itself
+	 * if it defines equals, its class otherwise.
+	 *
+	 * @return a snapshot of the timeouts, in milliseconds.
+	 */
+	public Map<Object, Long> getComputedTimeouts() {
+		return new HashMap<Object, Long>(computedTimeouts);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AdaptiveTimeout [percentile=" + percentile + ", multiplier="
+				+ multiplier + ", floorMillis=" + floorMillis
+				+ ", ceilingMillis=" + ceilingMillis + ", minimumSamples="
+				+ minimumSamples + ", computedTimeouts=" + computedTimeouts
+				+ "]";
+	}
+
+	/**
+	 * Builder for an {@link AdaptiveTimeout}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The percentile of the latency the timeout is derived from.
+		 */
+		private double percentile = 0.99;
+
+		/**
+		 * The multiplier applied to the percentile.
+		 */
+		private double multiplier = 3;
+
+		/**
+		 * The minimum timeout, in milliseconds.
+		 */
+		private long floorMillis = 10;
+
+		/**
+		 * The maximum timeout, in milliseconds.
+		 */
+		private long ceilingMillis = 10000;
+
+		/**
+		 * The minimum number of latency samples before the timeout is derived
+		 * from them.
+		 */
+		private int minimumSamples = 20;
+
+		/**
+		 * Instantiates a new Builder.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * Sets the percentile of the latency the timeout is derived from.
+		 *
+		 * @param percentile
+		 *            the percentile, between 0 (excluded) and 1.
+		 * @return this object.
+		 */
+		public Builder percentile(double percentile) {
+			if (percentile <= 0 || percentile > 1) {
+				throw new IllegalArgumentException(
+						"The percentile must be between 0 (excluded) and 1.");
+			}
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * Sets the multiplier applied to the percentile.
+		 *
+		 * @param multiplier
+		 *            the multiplier.
+		 * @return this object.
+		 */
+		public Builder multiplier(double multiplier) {
+			if (multiplier <= 0) {
+				throw new IllegalArgumentException(
+						"The multiplier must be positive.");
+			}
+			this.multiplier = multiplier;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum timeout.
+		 *
+		 * @param floorMillis
+		 *            the minimum timeout, in milliseconds.
+		 * @return this object.
+		 */
+		public Builder floor(long floorMillis) {
+			this.floorMillis = floorMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum timeout, also used until there are enough samples.
+		 *
+		 * @param ceilingMillis
+		 *            the maximum timeout, in milliseconds.
+		 * @return this object.
+		 */
+		public Builder ceiling(long ceilingMillis) {
+			this.ceilingMillis = ceilingMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum number of latency samples before the timeout is
+		 * derived from them.
+		 *
+		 * @param minimumSamples
+		 *            the minimum number of samples.
+		 * @return this object.
+		 */
+		public Builder minimumSamples(int minimumSamples) {
+			this.minimumSamples = minimumSamples;
+			return this;
+		}
+
+		/**
+		 * Builds the adaptive timeout.
+		 *
+		 * @return the adaptive timeout.
+		 */
+		public AdaptiveTimeout build() {
+			if (floorMillis <= 0 || ceilingMillis < floorMillis) {
+				throw new IllegalArgumentException(
+						"The floor must be positive and not greater than the ceiling.");
+			}
+			return new AdaptiveTimeout(this);
+		}
+	}
+
+}
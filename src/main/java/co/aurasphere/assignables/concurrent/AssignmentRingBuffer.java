@@ -0,0 +1,496 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+
+/**
+ * Pipeline where producers publish assignments into preallocated ring buffers
+ * and a few consumer Threads perform them in batches.
+ * <p>
+ * There's a ring buffer for each consumer and the assignments are routed by
+ * variable, so the assignments into the same variable are performed in
+ * publishing order. Producers claim their slots with a compare-and-set, without
+ * locks, and wait according to the {@link WaitStrategy} while the buffer is
+ * full. Publishing doesn't allocate anything: the slots are reused and each
+ * consumer binds a policy to an invoker only when it changes.
+ * <p>
+ * Instances are created and started through {@link #builder()}.
+ * 
+ * @author Donato Rimenti
+ */
+public class AssignmentRingBuffer {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(AssignmentRingBuffer.class);
+
+	/**
+	 * The ring buffers, one for each consumer.
+	 */
+	private final Shard[] shards;
+
+	/**
+	 * The consumer Threads.
+	 */
+	private final Thread[] consumers;
+
+	/**
+	 * How producers and consumers wait.
+	 */
+	private final WaitStrategy waitStrategy;
+
+	/**
+	 * Whether the consumers should keep running.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Instantiates a new AssignmentRingBuffer.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private AssignmentRingBuffer(Builder builder) {
+		this.waitStrategy = builder.waitStrategy;
+		this.shards = new Shard[builder.consumers];
+		this.consumers = new Thread[builder.consumers];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Shard(builder.capacity);
+			consumers[i] = new Thread(shards[i], "assignables-ring-" + i);
+			consumers[i].setDaemon(true);
+		}
+	}
+
+	/**
+	 * Creates a new builder. By default, there's a single consumer with a
+	 * buffer of 1024 slots which yields while waiting.
+	 *
+	 * @return a new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Publishes an assignment, waiting while the buffer is full.
+	 *
+	 * @param value
+	 *            the value to put into the variable.
+	 * @param variable
+	 *            the variable where to put the value.
+	 * @param assignmentPolicy
+	 *            defines how to perform the assignment.
+	 */
+	public void publish(Object value, Assignable variable,
+			AssignmentPolicy assignmentPolicy) {
+		shardOf(variable, assignmentPolicy).publish(value, variable,
+				assignmentPolicy, true);
+	}
+
+	/**
+	 * Publishes an assignment if there's room for it in the buffer.
+	 *
+	 * @param value
+	 *            the value to put into the variable.
+	 * @param variable
+	 *            the variable where to put the value.
+	 * @param assignmentPolicy
+	 *            defines how to perform the assignment.
+	 * @return true if the assignment has been published, false if the buffer
+	 *         is full.
+	 */
+	public boolean tryPublish(Object value, Assignable variable,
+			AssignmentPolicy assignmentPolicy) {
+		return shardOf(variable, assignmentPolicy).publish(value, variable,
+				assignmentPolicy, false);
+	}
+
+	/**
+	 * Stops accepting assignments and waits for the consumers to perform the
+	 * ones already published. Producers should be stopped first, since an
+	 * assignment published while shutting down may be lost.
+	 *
+	 * @throws InterruptedException
+	 *             if the current Thread is interrupted while waiting.
+	 */
+	public void shutdown() throws InterruptedException {
+		running = false;
+		for (Thread consumer : consumers) {
+			consumer.join();
+		}
+		logger.debug("Ring buffer [{}] shut down.", this);
+	}
+
+	/**
+	 * Gets the number of assignments published so far.
+	 *
+	 * @return the number of published assignments.
+	 */
+	public long getPublishedCount() {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.claimed.get() + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of assignments performed so far, failed ones included.
+	 *
+	 * @return the number of performed assignments.
+	 */
+	public long getProcessedCount() {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.consumed.get() + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of assignments whose policy threw an exception or an
+	 * error.
+	 *
+	 * @return the number of failed assignments.
+	 */
+	public long getFailedCount() {
+		long count = 0;
+		for (Shard shard : shards) {
+			count += shard.failed.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Starts the consumers.
+	 *
+	 * @return this object.
+	 */
+	private AssignmentRingBuffer start() {
+		for (Thread consumer : consumers) {
+			consumer.start();
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the ring buffer for a variable.
+	 *
+	 * @param variable
+	 *            the variable of the assignment.
+	 * @param assignmentPolicy
+	 *            the policy of the assignment.
+	 * @return the ring buffer where to publish the assignment.
+	 */
+	private Shard shardOf(Assignable variable, AssignmentPolicy assignmentPolicy) {
+		if (variable == null || assignmentPolicy == null) {
+			throw new IllegalArgumentException(
+					"Variable and assignment policy can't be null.");
+		}
+		if (!running) {
+			throw new IllegalStateException("The ring buffer is shut down.");
+		}
+		int hash = System.identityHashCode(variable);
+		// Spreads the bits, identity hash codes are often multiples of 8.
+		hash ^= hash >>> 16;
+		return shards[(hash & Integer.MAX_VALUE) % shards.length];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentRingBuffer [consumers=" + consumers.length
+				+ ", waitStrategy=" + waitStrategy + ", running=" + running
+				+ ", published=" + getPublishedCount() + ", processed="
+				+ getProcessedCount() + ", failed=" + getFailedCount() + "]";
+	}
+
+	/**
+	 * Ring buffer with many producers and a single consumer.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class Shard implements Runnable {
+
+		/**
+		 * The values of the slots.
+		 */
+		private final Object[] values;
+
+		/**
+		 * The variables of the slots.
+		 */
+		private final Assignable[] variables;
+
+		/**
+		 * The policies of the slots.
+		 */
+		private final AssignmentPolicy[] policies;
+
+		/**
+		 * The sequence published in each slot. A slot is readable once it
+		 * holds the sequence the consumer is waiting for.
+		 */
+		private final AtomicLongArray published;
+
+		/**
+		 * Mask used to turn a sequence into a slot index.
+		 */
+		private final int mask;
+
+		/**
+		 * The last sequence claimed by a producer.
+		 */
+		private final AtomicLong claimed = new AtomicLong(-1);
+
+		/**
+		 * The last sequence performed by the consumer.
+		 */
+		private final AtomicLong consumed = new AtomicLong(-1);
+
+		/**
+		 * The number of failed assignments.
+		 */
+		private final AtomicLong failed = new AtomicLong();
+
+		/**
+		 * Instantiates a new Shard.
+		 *
+		 * @param capacity
+		 *            the number of slots, a power of two.
+		 */
+		private Shard(int capacity) {
+			this.values = new Object[capacity];
+			this.variables = new Assignable[capacity];
+			this.policies = new AssignmentPolicy[capacity];
+			this.published = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) {
+				published.set(i, -1);
+			}
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * Claims a slot and publishes an assignment into it.
+		 *
+		 * @param value
+		 *            the value to put into the variable.
+		 * @param variable
+		 *            the variable where to put the value.
+		 * @param assignmentPolicy
+		 *            defines how to perform the assignment.
+		 * @param wait
+		 *            whether to wait while the buffer is full.
+		 * @return true if the assignment has been published, false otherwise.
+		 */
+		private boolean publish(Object value, Assignable variable,
+				AssignmentPolicy assignmentPolicy, boolean wait) {
+			long sequence;
+			int attempts = 0;
+			while (true) {
+				long current = claimed.get();
+				sequence = current + 1;
+				// The slot is free once the consumer is done with the
+				// sequence which used it in the previous lap.
+				if (sequence - values.length > consumed.get()) {
+					if (!wait) {
+						return false;
+					}
+					waitStrategy.idle(attempts++);
+					continue;
+				}
+				if (claimed.compareAndSet(current, sequence)) {
+					break;
+				}
+			}
+			int index = (int) sequence & mask;
+			values[index] = value;
+			variables[index] = variable;
+			policies[index] = assignmentPolicy;
+			// The ordered write makes the slot content visible to the
+			// consumer before the sequence.
+			published.lazySet(index, sequence);
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			AssignmentPolicy lastPolicy = null;
+			AssignmentPolicyInvoker invoker = null;
+			long next = 0;
+			int attempts = 0;
+			while (true) {
+				// Finds the end of the batch of contiguous published slots.
+				long last = next - 1;
+				while (last - next + 1 < values.length
+						&& published.get((int) (last + 1) & mask) == last + 1) {
+					last++;
+				}
+				if (last < next) {
+					if (!running && claimed.get() < next) {
+						return;
+					}
+					waitStrategy.idle(attempts++);
+					continue;
+				}
+				attempts = 0;
+
+				for (long sequence = next; sequence <= last; sequence++) {
+					int index = (int) sequence & mask;
+					Object value = values[index];
+					Assignable variable = variables[index];
+					AssignmentPolicy policy = policies[index];
+					// Releases the references, so that they can be collected.
+					values[index] = null;
+					variables[index] = null;
+					policies[index] = null;
+					if (policy != lastPolicy) {
+						invoker = AssignmentPolicyInvoker.bind(policy);
+						lastPolicy = policy;
+					}
+					// Anything thrown, Errors included, only fails the slot:
+					// a dead consumer would block the producers forever.
+					try {
+						invoker.invoke(value, variable);
+					} catch (Throwable e) {
+						failed.incrementAndGet();
+						logger.error(
+								"Error while assigning value [{}] into variable [{}] with policy [{}].",
+								value, variable, policy, e);
+					}
+				}
+				// Frees the whole batch at once.
+				consumed.lazySet(last);
+				next = last + 1;
+			}
+		}
+	}
+
+	/**
+	 * Builder for an {@link AssignmentRingBuffer}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The number of slots of each ring buffer.
+		 */
+		private int capacity = 1024;
+
+		/**
+		 * The number of consumer Threads.
+		 */
+		private int consumers = 1;
+
+		/**
+		 * How producers and consumers wait.
+		 */
+		private WaitStrategy waitStrategy = WaitStrategy.YIELD;
+
+		/**
+		 * Instantiates a new Builder.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * Sets the number of slots of each ring buffer.
+		 *
+		 * @param capacity
+		 *            the number of slots, a power of two.
+		 * @return this object.
+		 */
+		public Builder capacity(int capacity) {
+			if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+				throw new IllegalArgumentException(
+						"The capacity must be a power of two.");
+			}
+			this.capacity = capacity;
+			return this;
+		}
+
+		/**
+		 * Sets the number of consumer Threads, each one with its own ring
+		 * buffer.
+		 *
+		 * @param consumers
+		 *            the number of consumers.
+		 * @return this object.
+		 */
+		public Builder consumers(int consumers) {
+			if (consumers <= 0) {
+				throw new IllegalArgumentException(
+						"The number of consumers must be positive.");
+			}
+			this.consumers = consumers;
+			return this;
+		}
+
+		/**
+		 * Sets how producers and consumers wait.
+		 *
+		 * @param waitStrategy
+		 *            the wait strategy.
+		 * @return this object.
+		 */
+		public Builder waitStrategy(WaitStrategy waitStrategy) {
+			if (waitStrategy == null) {
+				throw new IllegalArgumentException(
+						"The wait strategy can't be null.");
+			}
+			this.waitStrategy = waitStrategy;
+			return this;
+		}
+
+		/**
+		 * Builds the ring buffer and starts its consumers.
+		 *
+		 * @return the started ring buffer.
+		 */
+		public AssignmentRingBuffer start() {
+			return new AssignmentRingBuffer(this).start();
+		}
+	}
+
+}
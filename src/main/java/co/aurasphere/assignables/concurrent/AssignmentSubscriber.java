@@ -0,0 +1,344 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.FlowAdapters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+
+/**
+ * {@link Flow.Subscriber} which assigns each value received into a variable
+ * through a policy. Values are requested in batches and each one is assigned
+ * before the next is processed, so a fast publisher can never get more than a
+ * batch ahead of a slow policy.
+ * <p>
+ * Reactive Streams publishers can be connected through
+ * {@link #toReactiveStreams()}. If a policy fails or doesn't support a value,
+ * the subscription is cancelled and the error is kept by this subscriber.
+ *
+ * @param <T>
+ *            the type of the values received.
+ * @author Donato Rimenti
+ */
+public class AssignmentSubscriber<T> implements Flow.Subscriber<T> {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(AssignmentSubscriber.class);
+
+	/**
+	 * The default number of values requested at once.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 16;
+
+	/**
+	 * The variable where to put the values.
+	 */
+	private final Assignable variable;
+
+	/**
+	 * Defines how to perform the assignments.
+	 */
+	private final AssignmentPolicy assignmentPolicy;
+
+	/**
+	 * The invoker bound to the {@link #assignmentPolicy}.
+	 */
+	private final AssignmentPolicyInvoker invoker;
+
+	/**
+	 * The capabilities of the {@link #assignmentPolicy}.
+	 */
+	private final AssignmentPolicyCapabilities capabilities;
+
+	/**
+	 * The number of values requested at once.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Released once the stream terminates, for any reason.
+	 */
+	private final CountDownLatch terminated = new CountDownLatch(1);
+
+	/**
+	 * The number of values assigned.
+	 */
+	private final AtomicLong assignedCount = new AtomicLong();
+
+	/**
+	 * The current subscription.
+	 */
+	private volatile Flow.Subscription subscription;
+
+	/**
+	 * The number of values received since the last request. Only accessed by
+	 * the signals, which are serial.
+	 */
+	private int received;
+
+	/**
+	 * Whether the stream has terminated.
+	 */
+	private volatile boolean done;
+
+	/**
+	 * The error which terminated the stream, if any.
+	 */
+	private volatile Throwable error;
+
+	/**
+	 * Instantiates a new AssignmentSubscriber which requests
+	 * {@link #DEFAULT_BATCH_SIZE} values at once.
+	 *
+	 * @param variable
+	 *            the {@link #variable}.
+	 * @param assignmentPolicy
+	 *            the {@link #assignmentPolicy}.
+	 */
+	public AssignmentSubscriber(Assignable variable,
+			AssignmentPolicy assignmentPolicy) {
+		this(variable, assignmentPolicy, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Instantiates a new AssignmentSubscriber.
+	 *
+	 * @param variable
+	 *            the {@link #variable}.
+	 * @param assignmentPolicy
+	 *            the {@link #assignmentPolicy}.
+	 * @param batchSize
+	 *            the {@link #batchSize}.
+	 */
+	public AssignmentSubscriber(Assignable variable,
+			AssignmentPolicy assignmentPolicy, int batchSize) {
+		if (variable == null) {
+			throw new IllegalArgumentException("The variable can't be null.");
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"The batch size must be positive.");
+		}
+		this.variable = variable;
+		this.assignmentPolicy = assignmentPolicy;
+		this.invoker = AssignmentPolicyInvoker.bind(assignmentPolicy);
+		this.capabilities = AssignmentPolicyCapabilities.of(assignmentPolicy);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Adapts this subscriber to a Reactive Streams subscriber.
+	 *
+	 * @return a Reactive Streams view of this subscriber.
+	 */
+	public org.reactivestreams.Subscriber<T> toReactiveStreams() {
+		return FlowAdapters.toSubscriber(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * java.util.concurrent.Flow.Subscriber#onSubscribe(java.util.concurrent
+	 * .Flow.Subscription)
+	 */
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (subscription == null) {
+			throw new NullPointerException("The subscription can't be null.");
+		}
+		// A subscriber can only be subscribed once.
+		if (this.subscription != null || done) {
+			logger.warn(
+					"Subscriber [{}] is already subscribed. Cancelling subscription [{}].",
+					this, subscription);
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		logger.debug("Subscribed [{}]. Requesting [{}] values.", this,
+				batchSize);
+		subscription.request(batchSize);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Flow.Subscriber#onNext(java.lang.Object)
+	 */
+	public void onNext(T item) {
+		if (item == null) {
+			throw new NullPointerException("The value can't be null.");
+		}
+		if (done) {
+			return;
+		}
+		try {
+			if (!capabilities.accepts(item)) {
+				throw new UnsupportedAssignmentException("Policy "
+						+ assignmentPolicy
+						+ " doesn't support the assignment of value " + item
+						+ " into variable " + variable + ".");
+			}
+			invoker.invoke(item, variable);
+			assignedCount.incrementAndGet();
+		} catch (Throwable e) {
+			// Subscribers can't throw, not even Errors (Reactive Streams rule
+			// 2.13): the stream is cancelled and fails instead.
+			logger.error(
+					"Error while assigning value [{}] into variable [{}]. Cancelling subscription.",
+					item, variable, e);
+			subscription.cancel();
+			terminate(e);
+			return;
+		}
+
+		// Asks for the next batch once the current one has been assigned.
+		if (++received == batchSize) {
+			received = 0;
+			subscription.request(batchSize);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Flow.Subscriber#onError(java.lang.Throwable)
+	 */
+	public void onError(Throwable throwable) {
+		if (throwable == null) {
+			throw new NullPointerException("The error can't be null.");
+		}
+		logger.error("Stream into variable [{}] failed.", variable, throwable);
+		terminate(throwable);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.util.concurrent.Flow.Subscriber#onComplete()
+	 */
+	public void onComplete() {
+		logger.debug("Stream into variable [{}] completed.", variable);
+		terminate(null);
+	}
+
+	/**
+	 * Cancels the subscription. An assignment already in progress is
+	 * completed, while any value delivered after this call is ignored, since
+	 * publishers may keep signalling for a while after a cancellation.
+	 */
+	public void cancel() {
+		Flow.Subscription current = subscription;
+		if (current != null) {
+			current.cancel();
+		}
+		terminate(null);
+	}
+
+	/**
+	 * Waits for the stream to terminate.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return true if the stream has terminated, false if the timeout elapsed.
+	 * @throws InterruptedException
+	 *             if the current Thread is interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return terminated.await(timeout, unit);
+	}
+
+	/**
+	 * Checks whether the stream has terminated.
+	 *
+	 * @return the {@link #done}.
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Gets the error which terminated the stream.
+	 *
+	 * @return the {@link #error}, or null if the stream hasn't failed.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Gets the number of values assigned.
+	 *
+	 * @return the {@link #assignedCount}.
+	 */
+	public long getAssignedCount() {
+		return assignedCount.get();
+	}
+
+	/**
+	 * Terminates the stream.
+	 *
+	 * @param error
+	 *            the error which terminated the stream, if any.
+	 */
+	private void terminate(Throwable error) {
+		if (done) {
+			return;
+		}
+		this.error = error;
+		this.done = true;
+		terminated.countDown();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentSubscriber [variable=" + variable
+				+ ", assignmentPolicy=" + assignmentPolicy + ", batchSize="
+				+ batchSize + ", assigned=" + assignedCount + ", done=" + done
+				+ "]";
+	}
+
+}
@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+
+/**
+ * Assignment of a value into a variable, to be performed by an
+ * {@link AssignmentExecutor}. The task is also the future of its own result.
+ * 
+ * @author Donato Rimenti
+ */
+public class AssignmentTask extends FutureTask<Void> {
+
+	/**
+	 * The value to assign into the variable.
+	 */
+	private final Object value;
+
+	/**
+	 * The variable to which assign the value. May be null if the task doesn't
+	 * target a single variable.
+	 */
+	private final Assignable variable;
+
+	/**
+	 * The variables to which assign the value, when the task fans it out into
+	 * many of them. May be null.
+	 */
+	private Assignable[] variables;
+
+	/**
+	 * Defines how to perform the assignment.
+	 */
+	private final AssignmentPolicy assignmentPolicy;
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, by which this task
+	 * must be completed. Only meaningful if {@link #hasDeadline}.
+	 */
+	private long deadline;
+
+	/**
+	 * Whether this task has a {@link #deadline}.
+	 */
+	private boolean hasDeadline;
+
+	/**
+	 * The priority of this task. Among tasks with the same deadline, higher
+	 * priority tasks are performed first.
+	 */
+	private int priority;
+
+	/**
+	 * Instantiates a new AssignmentTask which invokes the policy.
+	 *
+	 * @param value
+	 *            the {@link #value}.
+	 * @param variable
+	 *            the {@link #variable}.
+	 * @param assignmentPolicy
+	 *            the {@link #assignmentPolicy}.
+	 */
+	public AssignmentTask(Object value, Assignable variable,
+			AssignmentPolicy assignmentPolicy) {
+		this(value, variable, assignmentPolicy, new InvokingCallable(value,
+				variable, assignmentPolicy));
+	}
+
+	/**
+	 * Instantiates a new AssignmentTask which performs the assignment through
+	 * a custom callable.
+	 *
+	 * @param value
+	 *            the {@link #value}.
+	 * @param variable
+	 *            the {@link #variable}.
+	 * @param assignmentPolicy
+	 *            the {@link #assignmentPolicy}.
+	 * @param callable
+	 *            the callable that performs the assignment.
+	 */
+	public AssignmentTask(Object value, Assignable variable,
+			AssignmentPolicy assignmentPolicy, Callable<Void> callable) {
+		super(callable);
+		this.value = value;
+		this.variable = variable;
+		this.assignmentPolicy = assignmentPolicy;
+	}
+
+	/**
+	 * Sets the time by which this task must be completed, counted from now.
+	 * Must be called before submitting the task.
+	 *
+	 * @param timeout
+	 *            the time available to complete this task.
+	 * @param unit
+	 *            the unit of the timeout.
+	 * @return this object.
+	 */
+	public AssignmentTask deadline(long timeout, TimeUnit unit) {
+		this.deadline = System.nanoTime() + unit.toNanos(timeout);
+		this.hasDeadline = true;
+		return this;
+	}
+
+	/**
+	 * Sets the priority of this task. Must be called before submitting the
+	 * task.
+	 *
+	 * @param priority
+	 *            the {@link #priority}.
+	 * @return this object.
+	 */
+	public AssignmentTask priority(int priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Completes this task without performing it, because a newer assignment
+	 * into the same variable made it useless. Has no effect if the task is
+	 * already completed.
+	 */
+	public void supersede() {
+		set(null);
+	}
+
+	/**
+	 * Completes this task with an error, without performing it. Has no effect
+	 * if the task is already completed.
+	 *
+	 * @param t
+	 *            the error.
+	 */
+	public void fail(Throwable t) {
+		setException(t);
+	}
+
+	/**
+	 * Checks whether this task has a deadline.
+	 *
+	 * @return the {@link #hasDeadline}.
+	 */
+	public boolean hasDeadline() {
+		return hasDeadline;
+	}
+
+	/**
+	 * Gets the {@link #deadline}.
+	 *
+	 * @return the {@link #deadline}.
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Gets the time left before the deadline.
+	 *
+	 * @return the time left in nanoseconds, negative if the deadline has
+	 *         passed or {@link Long#MAX_VALUE} if there's no deadline.
+	 */
+	public long getRemainingNanos() {
+		if (!hasDeadline) {
+			return Long.MAX_VALUE;
+		}
+		return deadline - System.nanoTime();
+	}
+
+	/**
+	 * Gets the {@link #priority}.
+	 *
+	 * @return the {@link #priority}.
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Gets the {@link #value}.
+	 *
+	 * @return the {@link #value}.
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Gets the {@link #variable}.
+	 *
+	 * @return the {@link #variable}.
+	 */
+	public Assignable getVariable() {
+		return variable;
+	}
+
+	/**
+	 * Sets the variables to which the task fans the value out.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 * @return this object.
+	 */
+	public AssignmentTask variables(Assignable... variables) {
+		this.variables = variables.clone();
+		return this;
+	}
+
+	/**
+	 * Gets the {@link #variables}.
+	 *
+	 * @return the {@link #variables}, or null if the task doesn't fan out.
+	 */
+	public Assignable[] getVariables() {
+		return variables == null ? null : variables.clone();
+	}
+
+	/**
+	 * Gets the {@link #assignmentPolicy}.
+	 *
+	 * @return the {@link #assignmentPolicy}.
+	 */
+	public AssignmentPolicy getAssignmentPolicy() {
+		return assignmentPolicy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentTask [value=" + value + ", variable=" + variable
+				+ ", assignmentPolicy=" + assignmentPolicy + ", priority="
+				+ priority + ", done=" + isDone() + "]";
+	}
+
+	/**
+	 * Callable which invokes the policy.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class InvokingCallable implements Callable<Void> {
+
+		/**
+		 * The value to assign into the variable.
+		 */
+		private final Object value;
+
+		/**
+		 * The variable to which assign the value.
+		 */
+		private final Assignable variable;
+
+		/**
+		 * The invoker bound to the policy.
+		 */
+		private final AssignmentPolicyInvoker invoker;
+
+		/**
+		 * Instantiates a new InvokingCallable.
+		 *
+		 * @param value
+		 *            the {@link #value}.
+		 * @param variable
+		 *            the {@link #variable}.
+		 * @param assignmentPolicy
+		 *            the policy to bind.
+		 */
+		private InvokingCallable(Object value, Assignable variable,
+				AssignmentPolicy assignmentPolicy) {
+			this.value = value;
+			this.variable = variable;
+			this.invoker = AssignmentPolicyInvoker.bind(assignmentPolicy);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Void call() throws Exception {
+			invoker.invoke(value, variable);
+			return null;
+		}
+	}
+
+}
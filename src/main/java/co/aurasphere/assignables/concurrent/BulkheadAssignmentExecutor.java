@@ -0,0 +1,488 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentCost;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+
+/**
+ * {@link AssignmentExecutor} which isolates the policies into bulkheads:
+ * separately sized pools, each with a bounded queue. Assignments are routed
+ * by policy class first, then by policy cost and finally to a default
+ * bulkhead, so slow policies can only exhaust their own workers instead of
+ * starving the fast ones. When a bulkhead is full, the assignment fails with a
+ * {@link RejectedAssignmentException}.
+ * <p>
+ * Instances are created through {@link #builder()} and each bulkhead exposes
+ * its own saturation metrics.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkheadAssignmentExecutor implements AssignmentExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(BulkheadAssignmentExecutor.class);
+
+	/**
+	 * The name of the default bulkhead.
+	 */
+	public static final String DEFAULT_BULKHEAD = "default";
+
+	/**
+	 * The bulkheads, by name.
+	 */
+	private final Map<String, Bulkhead> bulkheads;
+
+	/**
+	 * The bulkheads for each policy class.
+	 */
+	private final Map<Class<?>, Bulkhead> classRoutes;
+
+	/**
+	 * The bulkheads for each policy cost.
+	 */
+	private final Map<AssignmentCost, Bulkhead> costRoutes;
+
+	/**
+	 * The bulkhead used when no route matches.
+	 */
+	private final Bulkhead defaultBulkhead;
+
+	/**
+	 * Instantiates a new BulkheadAssignmentExecutor.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private BulkheadAssignmentExecutor(Builder builder) {
+		Map<String, Bulkhead> bulkheads = new LinkedHashMap<String, Bulkhead>();
+		for (Map.Entry<String, int[]> entry : builder.bulkheads.entrySet()) {
+			bulkheads.put(entry.getKey(), new Bulkhead(entry.getKey(),
+					entry.getValue()[0], entry.getValue()[1]));
+		}
+		this.bulkheads = Collections.unmodifiableMap(bulkheads);
+		this.defaultBulkhead = bulkheads.get(DEFAULT_BULKHEAD);
+		this.classRoutes = new HashMap<Class<?>, Bulkhead>();
+		for (Map.Entry<Class<?>, String> entry : builder.classRoutes
+				.entrySet()) {
+			classRoutes.put(entry.getKey(), bulkheads.get(entry.getValue()));
+		}
+		this.costRoutes = new EnumMap<AssignmentCost, Bulkhead>(
+				AssignmentCost.class);
+		for (Map.Entry<AssignmentCost, String> entry : builder.costRoutes
+				.entrySet()) {
+			costRoutes.put(entry.getKey(), bulkheads.get(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Creates a new builder. By default, there's only the
+	 * {@link #DEFAULT_BULKHEAD} with a worker for each available processor and
+	 * a queue of 1024 tasks.
+	 *
+	 * @return a new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.concurrent.AssignmentExecutor#execute(co.aurasphere
+	 * .assignables.concurrent.AssignmentTask)
+	 */
+	public void execute(AssignmentTask task) {
+		route(task.getAssignmentPolicy()).submit(task);
+	}
+
+	/**
+	 * Gets the bulkhead where the assignments with a policy are performed.
+	 *
+	 * @param policy
+	 *            the policy.
+	 * @return the bulkhead for the policy.
+	 */
+	public Bulkhead route(AssignmentPolicy policy) {
+		if (policy == null) {
+			return defaultBulkhead;
+		}
+		Bulkhead bulkhead = classRoutes.get(policy.getClass());
+		if (bulkhead == null) {
+			bulkhead = costRoutes.get(AssignmentPolicyCapabilities.of(policy)
+					.getCost());
+		}
+		return bulkhead == null ? defaultBulkhead : bulkhead;
+	}
+
+	/**
+	 * Gets a bulkhead.
+	 *
+	 * @param name
+	 *            the name of the bulkhead.
+	 * @return the bulkhead, or null if there's none with that name.
+	 */
+	public Bulkhead getBulkhead(String name) {
+		return bulkheads.get(name);
+	}
+
+	/**
+	 * Gets all the bulkheads.
+	 *
+	 * @return the bulkheads.
+	 */
+	public Collection<Bulkhead> getBulkheads() {
+		return bulkheads.values();
+	}
+
+	/**
+	 * Stops accepting tasks. The tasks already submitted are still performed.
+	 */
+	public void shutdown() {
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			bulkhead.pool.shutdown();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BulkheadAssignmentExecutor [bulkheads=" + bulkheads.values()
+				+ "]";
+	}
+
+	/**
+	 * Bounded pool where a group of policies is performed.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	public static final class Bulkhead {
+
+		/**
+		 * The name of this bulkhead.
+		 */
+		private final String name;
+
+		/**
+		 * The maximum number of assignments performed at the same time.
+		 */
+		private final int maxConcurrency;
+
+		/**
+		 * The maximum number of assignments waiting for a worker.
+		 */
+		private final int queueCapacity;
+
+		/**
+		 * The workers of this bulkhead.
+		 */
+		private final ThreadPoolExecutor pool;
+
+		/**
+		 * The number of assignments rejected because this bulkhead was full.
+		 */
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		/**
+		 * Instantiates a new Bulkhead.
+		 *
+		 * @param name
+		 *            the {@link #name}.
+		 * @param maxConcurrency
+		 *            the {@link #maxConcurrency}.
+		 * @param queueCapacity
+		 *            the {@link #queueCapacity}.
+		 */
+		private Bulkhead(final String name, int maxConcurrency,
+				int queueCapacity) {
+			this.name = name;
+			this.maxConcurrency = maxConcurrency;
+			this.queueCapacity = queueCapacity;
+			this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+					0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(queueCapacity),
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"assignables-bulkhead-" + name + "-"
+											+ count.getAndIncrement());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		/**
+		 * Submits a task to this bulkhead, failing it if the bulkhead is
+		 * full.
+		 *
+		 * @param task
+		 *            the task to submit.
+		 */
+		private void submit(AssignmentTask task) {
+			try {
+				pool.execute(task);
+			} catch (RejectedExecutionException e) {
+				rejectedCount.incrementAndGet();
+				logger.warn("Bulkhead [{}] is full. Rejecting task [{}].",
+						this, task);
+				task.fail(new RejectedAssignmentException("Bulkhead " + name
+						+ " is full."));
+			}
+		}
+
+		/**
+		 * Gets the {@link #name}.
+		 *
+		 * @return the {@link #name}.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the {@link #maxConcurrency}.
+		 *
+		 * @return the {@link #maxConcurrency}.
+		 */
+		public int getMaxConcurrency() {
+			return maxConcurrency;
+		}
+
+		/**
+		 * Gets the {@link #queueCapacity}.
+		 *
+		 * @return the {@link #queueCapacity}.
+		 */
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		/**
+		 * Gets the number of assignments being performed.
+		 *
+		 * @return the number of active workers.
+		 */
+		public int getActiveCount() {
+			return pool.getActiveCount();
+		}
+
+		/**
+		 * Gets the number of assignments waiting for a worker.
+		 *
+		 * @return the number of queued assignments.
+		 */
+		public int getQueuedCount() {
+			return pool.getQueue().size();
+		}
+
+		/**
+		 * Gets the number of assignments performed.
+		 *
+		 * @return the number of completed assignments.
+		 */
+		public long getCompletedCount() {
+			return pool.getCompletedTaskCount();
+		}
+
+		/**
+		 * Gets the number of assignments rejected because this bulkhead was
+		 * full.
+		 *
+		 * @return the {@link #rejectedCount}.
+		 */
+		public long getRejectedCount() {
+			return rejectedCount.get();
+		}
+
+		/**
+		 * Gets how full this bulkhead is, counting both the workers and the
+		 * queue.
+		 *
+		 * @return the saturation, from 0 (idle) to 1 (full).
+		 */
+		public double getSaturation() {
+			return (double) (getActiveCount() + getQueuedCount())
+					/ (maxConcurrency + queueCapacity);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "Bulkhead [name=" + name + ", maxConcurrency="
+					+ maxConcurrency + ", queueCapacity=" + queueCapacity
+					+ ", active=" + getActiveCount() + ", queued="
+					+ getQueuedCount() + ", completed=" + getCompletedCount()
+					+ ", rejected=" + getRejectedCount() + "]";
+		}
+	}
+
+	/**
+	 * Builder for a {@link BulkheadAssignmentExecutor}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The size of each bulkhead: maximum concurrency and queue capacity.
+		 */
+		private final Map<String, int[]> bulkheads = new LinkedHashMap<String, int[]>();
+
+		/**
+		 * The bulkhead names for each policy class.
+		 */
+		private final Map<Class<?>, String> classRoutes = new HashMap<Class<?>, String>();
+
+		/**
+		 * The bulkhead names for each policy cost.
+		 */
+		private final Map<AssignmentCost, String> costRoutes = new EnumMap<AssignmentCost, String>(
+				AssignmentCost.class);
+
+		/**
+		 * Instantiates a new Builder.
+		 */
+		private Builder() {
+			bulkheads.put(DEFAULT_BULKHEAD, new int[] {
+					Runtime.getRuntime().availableProcessors(), 1024 });
+		}
+
+		/**
+		 * Adds a bulkhead, or resizes an existing one.
+		 *
+		 * @param name
+		 *            the name of the bulkhead. Use {@link #DEFAULT_BULKHEAD}
+		 *            to resize the default one.
+		 * @param maxConcurrency
+		 *            the maximum number of assignments performed at the same
+		 *            time.
+		 * @param queueCapacity
+		 *            the maximum number of assignments waiting for a worker.
+		 * @return this object.
+		 */
+		public Builder bulkhead(String name, int maxConcurrency,
+				int queueCapacity) {
+			if (name == null) {
+				throw new IllegalArgumentException(
+						"The name of a bulkhead can't be null.");
+			}
+			if (maxConcurrency <= 0 || queueCapacity <= 0) {
+				throw new IllegalArgumentException(
+						"The size of a bulkhead must be positive.");
+			}
+			bulkheads.put(name, new int[] { maxConcurrency, queueCapacity });
+			return this;
+		}
+
+		/**
+		 * Routes the assignments with a policy class to a bulkhead. Only the
+		 * exact class is matched.
+		 *
+		 * @param policyClass
+		 *            the policy class.
+		 * @param bulkhead
+		 *            the name of the bulkhead.
+		 * @return this object.
+		 */
+		public Builder route(Class<? extends AssignmentPolicy> policyClass,
+				String bulkhead) {
+			checkBulkhead(bulkhead);
+			classRoutes.put(policyClass, bulkhead);
+			return this;
+		}
+
+		/**
+		 * Routes the assignments with a policy cost to a bulkhead, unless
+		 * their policy class is routed somewhere else.
+		 *
+		 * @param cost
+		 *            the policy cost.
+		 * @param bulkhead
+		 *            the name of the bulkhead.
+		 * @return this object.
+		 */
+		public Builder route(AssignmentCost cost, String bulkhead) {
+			checkBulkhead(bulkhead);
+			costRoutes.put(cost, bulkhead);
+			return this;
+		}
+
+		/**
+		 * Checks that a bulkhead has been added.
+		 *
+		 * @param bulkhead
+		 *            the name of the bulkhead.
+		 */
+		private void checkBulkhead(String bulkhead) {
+			if (!bulkheads.containsKey(bulkhead)) {
+				throw new IllegalArgumentException("Unknown bulkhead "
+						+ bulkhead + ". Add it before routing to it.");
+			}
+		}
+
+		/**
+		 * Builds the executor.
+		 *
+		 * @return the executor.
+		 */
+		public BulkheadAssignmentExecutor build() {
+			return new BulkheadAssignmentExecutor(this);
+		}
+	}
+
+}
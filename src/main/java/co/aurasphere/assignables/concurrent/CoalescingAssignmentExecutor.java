@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AssignmentExecutor} which coalesces the assignments into the same
+ * variable: pending assignments are keyed by their variable and a newer
+ * assignment replaces the one still queued, which completes without being
+ * performed. A burst of assignments into a variable then costs a single
+ * policy execution, the last writer wins.
+ * <p>
+ * The variables are spread over a number of stripes, each one drained by at
+ * most one Thread at a time, so that assignments into the same variable never
+ * run concurrently. A fan-out is coalesced with the other fan-outs into the
+ * same variables, tasks without any variable are not coalesced.
+ * 
+ * @author Donato Rimenti
+ */
+public class CoalescingAssignmentExecutor implements AssignmentExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(CoalescingAssignmentExecutor.class);
+
+	/**
+	 * Maximum number of assignments performed by a drain before giving the
+	 * Thread back to the underlying executor.
+	 */
+	private static final int DRAIN_BUDGET = 256;
+
+	/**
+	 * The executor where the stripes are drained.
+	 */
+	private final Executor executor;
+
+	/**
+	 * The latest pending assignment for each variable.
+	 */
+	private final ConcurrentHashMap<VariableKey, AssignmentTask> pending = new ConcurrentHashMap<VariableKey, AssignmentTask>();
+
+	/**
+	 * The stripes over which the variables are spread.
+	 */
+	private final Stripe[] stripes;
+
+	/**
+	 * The number of assignments performed.
+	 */
+	private final AtomicLong executedCount = new AtomicLong();
+
+	/**
+	 * The number of assignments superseded by a newer one.
+	 */
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new CoalescingAssignmentExecutor with a stripe for each
+	 * available processor.
+	 *
+	 * @param executor
+	 *            the {@link #executor}.
+	 */
+	public CoalescingAssignmentExecutor(Executor executor) {
+		this(executor, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Instantiates a new CoalescingAssignmentExecutor.
+	 *
+	 * @param executor
+	 *            the {@link #executor}.
+	 * @param stripes
+	 *            the number of stripes, which is the maximum number of
+	 *            assignments performed concurrently.
+	 */
+	public CoalescingAssignmentExecutor(Executor executor, int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException(
+					"The number of stripes must be positive.");
+		}
+		this.executor = executor;
+		this.stripes = new Stripe[stripes];
+		for (int i = 0; i < stripes; i++) {
+			this.stripes[i] = new Stripe();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.concurrent.AssignmentExecutor#execute(co.aurasphere
+	 * .assignables.concurrent.AssignmentTask)
+	 */
+	public void execute(AssignmentTask task) {
+		VariableKey key = VariableKey.of(task);
+		if (key == null) {
+			executor.execute(task);
+			return;
+		}
+
+		AssignmentTask previous = pending.put(key, task);
+		if (previous != null) {
+			// The previous task was still queued: its key is already in a
+			// stripe and the drain will pick up this task instead.
+			logger.debug("Coalescing assignment [{}] into newer assignment [{}].",
+					previous, task);
+			coalescedCount.incrementAndGet();
+			previous.supersede();
+			return;
+		}
+		Stripe stripe = stripes[(key.hashCode() & Integer.MAX_VALUE)
+				% stripes.length];
+		stripe.keys.offer(key);
+		stripe.schedule();
+	}
+
+	/**
+	 * Gets the number of assignments performed.
+	 *
+	 * @return the {@link #executedCount}.
+	 */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	/**
+	 * Gets the number of assignments superseded by a newer one.
+	 *
+	 * @return the {@link #coalescedCount}.
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Gets the number of variables with a pending assignment.
+	 *
+	 * @return the number of pending assignments.
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CoalescingAssignmentExecutor [stripes=" + stripes.length
+				+ ", pending=" + getPendingCount() + ", executed="
+				+ getExecutedCount() + ", coalesced=" + getCoalescedCount()
+				+ "]";
+	}
+
+	/**
+	 * Group of variables drained by at most one Thread at a time.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class Stripe implements Runnable {
+
+		/**
+		 * The variables with a pending assignment, in arrival order.
+		 */
+		private final ConcurrentLinkedQueue<VariableKey> keys = new ConcurrentLinkedQueue<VariableKey>();
+
+		/**
+		 * Whether a drain of this stripe is scheduled or running.
+		 */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * Schedules a drain of this stripe, unless there's one already.
+		 */
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				executor.execute(this);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			int drained = 0;
+			VariableKey key;
+			while (drained < DRAIN_BUDGET && (key = keys.poll()) != null) {
+				// Removing the task means no newer assignment can supersede it
+				// anymore: it will be queued again instead.
+				AssignmentTask task = pending.remove(key);
+				if (task != null) {
+					task.run();
+					executedCount.incrementAndGet();
+					drained++;
+				}
+			}
+			scheduled.set(false);
+
+			// Keys added after the last poll but before releasing the flag
+			// would be stuck without a new drain.
+			if (!keys.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+
+}
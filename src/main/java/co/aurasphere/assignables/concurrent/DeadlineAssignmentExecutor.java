@@ -0,0 +1,380 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+
+/**
+ * {@link AssignmentExecutor} which performs the pending assignments earliest
+ * deadline first. Tasks with the same deadline are ordered by priority and
+ * then by submission order, while tasks without a deadline come after all the
+ * others.
+ * <p>
+ * A task is dropped before running if its deadline has passed or if the time
+ * left is shorter than the median time taken by its policy, since it couldn't
+ * complete in time anyway. Dropped tasks fail with a
+ * {@link RejectedAssignmentException}, so the workers are only spent on
+ * assignments that can still make it.
+ * <p>
+ * The time taken by a policy is tracked by
+ * {@link LatencyTracker#forPolicy(AssignmentPolicy)}, so old samples fade away
+ * with its windows. Since only the tasks which run add samples, a task which would be dropped is still let through if its
+ * policy hasn't run for {@link #RESAMPLE_INTERVAL_MILLIS}, so that a slow run
+ * can't starve the policy forever.
+ * 
+ * @author Donato Rimenti
+ */
+public class DeadlineAssignmentExecutor implements AssignmentExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(DeadlineAssignmentExecutor.class);
+
+	/**
+	 * The percentile of the latency of a policy compared with the time left to
+	 * a task.
+	 */
+	private static final double ESTIMATE_PERCENTILE = 0.5;
+
+	/**
+	 * How long a policy can go without running before a task which would be
+	 * dropped is let through to sample it again, in milliseconds.
+	 */
+	public static final long RESAMPLE_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * The pending tasks, earliest deadline first.
+	 */
+	private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<Entry>();
+
+	/**
+	 * When each policy has last been run or let through, as given by
+	 * {@link System#nanoTime()}, under the key of its tracker.
+	 */
+	private final ConcurrentHashMap<Object, AtomicLong> lastSampled = new ConcurrentHashMap<Object, AtomicLong>();
+
+	/**
+	 * The worker Threads.
+	 */
+	private final Thread[] workers;
+
+	/**
+	 * Generates the submission order of the tasks.
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * The number of tasks performed.
+	 */
+	private final AtomicLong executedCount = new AtomicLong();
+
+	/**
+	 * The number of tasks dropped because they couldn't make their deadline.
+	 */
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	/**
+	 * Whether this executor has been shut down.
+	 */
+	private volatile boolean shutdown;
+
+	/**
+	 * Instantiates a new DeadlineAssignmentExecutor and starts its workers.
+	 *
+	 * @param workers
+	 *            the number of worker Threads.
+	 */
+	public DeadlineAssignmentExecutor(int workers) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException(
+					"The number of workers must be positive.");
+		}
+		this.workers = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			this.workers[i] = new Thread(new Worker(), "assignables-edf-" + i);
+			this.workers[i].setDaemon(true);
+			this.workers[i].start();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.concurrent.AssignmentExecutor#execute(co.aurasphere
+	 * .assignables.concurrent.AssignmentTask)
+	 */
+	public void execute(AssignmentTask task) {
+		if (shutdown) {
+			throw new RejectedExecutionException("Executor " + this
+					+ " has been shut down.");
+		}
+		queue.add(new Entry(task, sequence.getAndIncrement()));
+	}
+
+	/**
+	 * Stops accepting tasks. The tasks already submitted are still performed
+	 * (or dropped) before the workers stop.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		// Tasks without deadline come last, and these come after all of them.
+		for (int i = 0; i < workers.length; i++) {
+			queue.add(new Entry(null, Long.MAX_VALUE));
+		}
+	}
+
+	/**
+	 * Gets the number of tasks waiting to be performed.
+	 *
+	 * @return the number of pending tasks.
+	 */
+	public int getPendingCount() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of tasks performed.
+	 *
+	 * @return the {@link #executedCount}.
+	 */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	/**
+	 * Gets the number of tasks dropped because they couldn't make their
+	 * deadline.
+	 *
+	 * @return the {@link #droppedCount}.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Performs a task, unless it can't make its deadline.
+	 *
+	 * @param task
+	 *            the task to perform.
+	 */
+	private void perform(AssignmentTask task) {
+		// Cancelled or superseded.
+		if (task.isDone()) {
+			return;
+		}
+		AssignmentPolicy policy = task.getAssignmentPolicy();
+		Object key = policy == null ? null : LatencyTracker.keyOf(policy);
+		LatencyTracker tracker = key == null ? null : LatencyTracker
+				.forKey(key);
+		long expected = tracker == null ? 0 : Math.max(0,
+				tracker.getPercentile(ESTIMATE_PERCENTILE));
+		long remaining = task.getRemainingNanos();
+		if (remaining <= 0 || (remaining <= expected && !resample(key))) {
+			droppedCount.incrementAndGet();
+			logger.warn(
+					"Dropping task [{}]: [{}] nanoseconds left, [{}] expected.",
+					task, remaining, expected);
+			task.fail(new RejectedAssignmentException("Task " + task
+					+ " can't complete before its deadline."));
+			return;
+		}
+
+		long start = System.nanoTime();
+		task.run();
+		long end = System.nanoTime();
+		executedCount.incrementAndGet();
+		if (tracker != null) {
+			tracker.record(end - start);
+			sampledAt(key).set(end);
+		}
+	}
+
+	/**
+	 * Checks whether a task which would be dropped should be let through to
+	 * sample its policy again, because the policy hasn't run for
+	 * {@link #RESAMPLE_INTERVAL_MILLIS}. Only one task per interval is let
+	 * through.
+	 *
+	 * @param key
+	 *            the key of the policy tracker.
+	 * @return true if the task should run.
+	 */
+	private boolean resample(Object key) {
+		AtomicLong last = sampledAt(key);
+		long previous = last.get();
+		long now = System.nanoTime();
+		if (now - previous < TimeUnit.MILLISECONDS
+				.toNanos(RESAMPLE_INTERVAL_MILLIS)) {
+			return false;
+		}
+		if (!last.compareAndSet(previous, now)) {
+			return false;
+		}
+		logger.debug(
+				"Policy [{}] hasn't run for [{}] milliseconds. Letting a task through to sample it again.",
+				key, RESAMPLE_INTERVAL_MILLIS);
+		return true;
+	}
+
+	/**
+	 * Gets when a policy has last been run or let through.
+	 *
+	 * @param key
+	 *            the key of the policy tracker.
+	 * @return the time, as given by {@link System#nanoTime()}. Policies never
+	 *         run by this executor are due for a new sample.
+	 */
+	private AtomicLong sampledAt(Object key) {
+		AtomicLong last = lastSampled.get(key);
+		if (last == null) {
+			AtomicLong created = new AtomicLong(System.nanoTime()
+					- TimeUnit.MILLISECONDS.toNanos(RESAMPLE_INTERVAL_MILLIS));
+			last = lastSampled.putIfAbsent(key, created);
+			if (last == null) {
+				last = created;
+			}
+		}
+		return last;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DeadlineAssignmentExecutor [workers=" + workers.length
+				+ ", pending=" + getPendingCount() + ", executed="
+				+ getExecutedCount() + ", dropped=" + getDroppedCount()
+				+ ", shutdown=" + shutdown + "]";
+	}
+
+	/**
+	 * Pending task in the queue.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		/**
+		 * The task. If null, the worker which takes this entry stops.
+		 */
+		private final AssignmentTask task;
+
+		/**
+		 * The submission order of the task.
+		 */
+		private final long sequence;
+
+		/**
+		 * Instantiates a new Entry.
+		 *
+		 * @param task
+		 *            the {@link #task}.
+		 * @param sequence
+		 *            the {@link #sequence}.
+		 */
+		private Entry(AssignmentTask task, long sequence) {
+			this.task = task;
+			this.sequence = sequence;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Entry other) {
+			boolean deadline = task != null && task.hasDeadline();
+			boolean otherDeadline = other.task != null
+					&& other.task.hasDeadline();
+			if (deadline != otherDeadline) {
+				return deadline ? -1 : 1;
+			}
+			if (deadline) {
+				// Deadlines come from System.nanoTime(), which may overflow.
+				long difference = task.getDeadline()
+						- other.task.getDeadline();
+				if (difference != 0) {
+					return difference < 0 ? -1 : 1;
+				}
+			}
+			int priority = task == null ? Integer.MIN_VALUE : task
+					.getPriority();
+			int otherPriority = other.task == null ? Integer.MIN_VALUE
+					: other.task.getPriority();
+			if (priority != otherPriority) {
+				return priority > otherPriority ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1
+					: (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Takes the tasks from the queue and performs them.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class Worker implements Runnable {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			while (true) {
+				Entry entry;
+				try {
+					entry = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if (entry.task == null) {
+					return;
+				}
+				perform(entry.task);
+				// Clears the interrupt left by a task cancelled while running.
+				Thread.interrupted();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,335 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+
+/**
+ * Rolling distribution of latencies. Samples are counted in logarithmic
+ * buckets, each one about 12% wide, so recording a sample is a single atomic
+ * increment and a percentile is computed without keeping the samples around.
+ * <p>
+ * The distribution covers the current window and the previous one: when a
+ * window elapses, the oldest one is discarded, so old samples fade away in at
+ * most two windows.
+ * 
+ * @author Donato Rimenti
+ */
+public class LatencyTracker {
+
+	/**
+	 * The default length of a window, in milliseconds.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 10000;
+
+	/**
+	 * Latencies below this value, in nanoseconds, get a bucket each.
+	 */
+	private static final int LINEAR_BUCKETS = 16;
+
+	/**
+	 * Number of buckets for each power of two above {@link #LINEAR_BUCKETS},
+	 * as a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/**
+	 * Total number of buckets, enough for any positive long.
+	 */
+	private static final int BUCKETS = LINEAR_BUCKETS
+			+ (63 - 4) * (1 << SUB_BUCKET_BITS);
+
+	/**
+	 * Maximum number of trackers kept for policies compared by value. Past
+	 * this, new policies share the tracker of their class, so that policies
+	 * whose equality never matches can't grow {@link #trackers} forever.
+	 */
+	private static final int MAX_VALUE_TRACKERS = 1024;
+
+	/**
+	 * The trackers used so far, by key.
+	 */
+	private static final ConcurrentHashMap<Object, LatencyTracker> trackers = new ConcurrentHashMap<Object, LatencyTracker>();
+
+	/**
+	 * Whether each policy class defines its own equality.
+	 */
+	private static final ConcurrentHashMap<Class<?>, Boolean> valueClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	/**
+	 * The length of a window, in nanoseconds.
+	 */
+	private final long windowNanos;
+
+	/**
+	 * The bucket counts of the current window.
+	 */
+	private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * The bucket counts of the previous window.
+	 */
+	private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * When the current window started, as given by {@link System#nanoTime()}.
+	 */
+	private volatile long windowStart = System.nanoTime();
+
+	/**
+	 * Instantiates a new LatencyTracker with windows of
+	 * {@link #DEFAULT_WINDOW_MILLIS}.
+	 */
+	public LatencyTracker() {
+		this(DEFAULT_WINDOW_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new LatencyTracker.
+	 *
+	 * @param windowMillis
+	 *            the length of a window, in milliseconds.
+	 */
+	public LatencyTracker(long windowMillis) {
+		if (windowMillis <= 0) {
+			throw new IllegalArgumentException(
+					"The window length must be positive.");
+		}
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+	}
+
+	/**
+	 * Gets the tracker shared by all the assignments with a policy. Policies
+	 * which define equals share the tracker with the equal ones, so that a
+	 * policy instantiated for each assignment keeps its samples while
+	 * differently configured policies of the same class don't mix them.
+	 * Policies which don't define equals share the tracker of their class.
+	 *
+	 * @param policy
+	 *            the policy.
+	 * @return the tracker of the policy.
+	 */
+	public static LatencyTracker forPolicy(AssignmentPolicy policy) {
+		return forKey(keyOf(policy));
+	}
+
+	/**
+	 * Gets the tracker shared by all the callers using the same key. Useful
+	 * when the latencies of a policy should be tracked under a key other than
+	 * the one chosen by {@link #forPolicy(AssignmentPolicy)}.
+	 *
+	 * @param key
+	 *            the key of the tracker, compared through equals.
+	 * @return the tracker of the key.
+	 */
+	public static LatencyTracker forKey(Object key) {
+		if (key == null) {
+			throw new IllegalArgumentException("The key can't be null.");
+		}
+		LatencyTracker tracker = trackers.get(key);
+		if (tracker == null) {
+			tracker = new LatencyTracker();
+			LatencyTracker previous = trackers.putIfAbsent(key, tracker);
+			if (previous != null) {
+				tracker = previous;
+			}
+		}
+		return tracker;
+	}
+
+	/**
+	 * Gets the key used by {@link #forPolicy(AssignmentPolicy)} for a policy.
+	 *
+	 * @param policy
+	 *            the policy.
+	 * @return the policy itself if it defines equals, its class otherwise.
+	 */
+	static Object keyOf(AssignmentPolicy policy) {
+		Class<?> policyClass = policy.getClass();
+		if (!definesEquals(policyClass)) {
+			return policyClass;
+		}
+		if (trackers.size() >= MAX_VALUE_TRACKERS
+				&& !trackers.containsKey(policy)) {
+			return policyClass;
+		}
+		return policy;
+	}
+
+	/**
+	 * Checks whether a class overrides {@link Object#equals(Object)}.
+	 *
+	 * @param type
+	 *            the class to check.
+	 * @return true if the class defines its own equality, false otherwise.
+	 */
+	private static boolean definesEquals(Class<?> type) {
+		Boolean defines = valueClasses.get(type);
+		if (defines == null) {
+			try {
+				defines = type.getMethod("equals", Object.class)
+						.getDeclaringClass() != Object.class;
+			} catch (NoSuchMethodException e) {
+				defines = Boolean.FALSE;
+			}
+			valueClasses.putIfAbsent(type, defines);
+		}
+		return defines;
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos
+	 *            the latency, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		rotateIfNeeded();
+		current.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+	}
+
+	/**
+	 * Gets the number of latencies in the distribution.
+	 *
+	 * @return the number of samples.
+	 */
+	public long getCount() {
+		rotateIfNeeded();
+		AtomicLongArray current = this.current;
+		AtomicLongArray previous = this.previous;
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += current.get(i) + previous.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets a percentile of the distribution.
+	 *
+	 * @param percentile
+	 *            the percentile, between 0 and 1.
+	 * @return the latency, in nanoseconds, under which falls the given
+	 *         fraction of the samples, or -1 if there are no samples.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 1) {
+			throw new IllegalArgumentException(
+					"The percentile must be between 0 and 1.");
+		}
+		rotateIfNeeded();
+		AtomicLongArray current = this.current;
+		AtomicLongArray previous = this.previous;
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = current.get(i) + previous.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return -1;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBoundOf(i);
+			}
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+	/**
+	 * Discards the previous window if the current one has elapsed.
+	 */
+	private void rotateIfNeeded() {
+		if (System.nanoTime() - windowStart < windowNanos) {
+			return;
+		}
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (now - windowStart < windowNanos) {
+				return;
+			}
+			// If more than a window went by, the current one is stale too.
+			previous = now - windowStart < 2 * windowNanos ? current
+					: new AtomicLongArray(BUCKETS);
+			current = new AtomicLongArray(BUCKETS);
+			windowStart = now;
+		}
+	}
+
+	/**
+	 * Gets the bucket of a latency.
+	 *
+	 * @param nanos
+	 *            the latency, in nanoseconds.
+	 * @return the index of the bucket.
+	 */
+	private static int bucketOf(long nanos) {
+		if (nanos < LINEAR_BUCKETS) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS))
+				& ((1 << SUB_BUCKET_BITS) - 1);
+		return LINEAR_BUCKETS + (exponent - 4) * (1 << SUB_BUCKET_BITS)
+				+ subBucket;
+	}
+
+	/**
+	 * Gets the highest latency which falls in a bucket.
+	 *
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the latency, in nanoseconds.
+	 */
+	private static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR_BUCKETS) / (1 << SUB_BUCKET_BITS) + 4;
+		int subBucket = (bucket - LINEAR_BUCKETS) % (1 << SUB_BUCKET_BITS);
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		long lower = ((1L << SUB_BUCKET_BITS) + subBucket) * width;
+		return lower + width - 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "LatencyTracker [count=" + getCount() + ", p50="
+				+ getPercentile(0.5) + ", p99=" + getPercentile(0.99) + "]";
+	}
+
+}
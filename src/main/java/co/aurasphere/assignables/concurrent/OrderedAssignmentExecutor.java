@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AssignmentExecutor} which performs the assignments into the same
+ * variable one at a time, in submission order, while assignments into
+ * different variables run concurrently on a shared executor. Ordering is kept
+ * without any global lock, so the throughput grows with the number of
+ * distinct variables.
+ * <p>
+ * Each variable with pending assignments gets its own queue, which is drained
+ * by at most one Thread at a time and discarded as soon as it's empty. A
+ * fan-out is ordered with the other fan-outs into the same variables, tasks
+ * without any variable are not ordered.
+ * 
+ * @author Donato Rimenti
+ */
+public class OrderedAssignmentExecutor implements AssignmentExecutor {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(OrderedAssignmentExecutor.class);
+
+	/**
+	 * Maximum number of assignments performed by a drain before giving the
+	 * Thread back to the underlying executor, so that a busy variable doesn't
+	 * starve the others.
+	 */
+	private static final int DRAIN_BUDGET = 64;
+
+	/**
+	 * The executor where the queues are drained.
+	 */
+	private final Executor executor;
+
+	/**
+	 * The queues of the variables with pending assignments.
+	 */
+	private final ConcurrentHashMap<VariableKey, SerialQueue> queues = new ConcurrentHashMap<VariableKey, SerialQueue>();
+
+	/**
+	 * Instantiates a new OrderedAssignmentExecutor.
+	 *
+	 * @param executor
+	 *            the {@link #executor}.
+	 */
+	public OrderedAssignmentExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.concurrent.AssignmentExecutor#execute(co.aurasphere
+	 * .assignables.concurrent.AssignmentTask)
+	 */
+	public void execute(AssignmentTask task) {
+		VariableKey key = VariableKey.of(task);
+		if (key == null) {
+			executor.execute(task);
+			return;
+		}
+
+		while (true) {
+			SerialQueue queue = queues.get(key);
+			if (queue == null) {
+				queue = new SerialQueue(key);
+				SerialQueue previous = queues.putIfAbsent(key, queue);
+				if (previous != null) {
+					queue = previous;
+				}
+			}
+			// A queue found empty by its drain is retired and a new one must
+			// be created.
+			if (queue.offer(task)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of variables with pending assignments.
+	 *
+	 * @return the number of active queues.
+	 */
+	public int getActiveVariables() {
+		return queues.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "OrderedAssignmentExecutor [executor=" + executor
+				+ ", activeVariables=" + getActiveVariables() + "]";
+	}
+
+	/**
+	 * Queue of the pending assignments into a single variable.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class SerialQueue implements Runnable {
+
+		/**
+		 * The variable of this queue.
+		 */
+		private final VariableKey key;
+
+		/**
+		 * The pending assignments, in submission order.
+		 */
+		private final Queue<AssignmentTask> tasks = new ArrayDeque<AssignmentTask>();
+
+		/**
+		 * Whether a drain of this queue is scheduled or running.
+		 */
+		private boolean running;
+
+		/**
+		 * Whether this queue has been removed from the
+		 * {@link OrderedAssignmentExecutor#queues}.
+		 */
+		private boolean retired;
+
+		/**
+		 * Instantiates a new SerialQueue.
+		 *
+		 * @param key
+		 *            the {@link #key}.
+		 */
+		private SerialQueue(VariableKey key) {
+			this.key = key;
+		}
+
+		/**
+		 * Adds a task to this queue, scheduling a drain if needed.
+		 *
+		 * @param task
+		 *            the task to add.
+		 * @return false if this queue is retired and the task has not been
+		 *         added, true otherwise.
+		 */
+		private boolean offer(AssignmentTask task) {
+			synchronized (this) {
+				if (retired) {
+					return false;
+				}
+				tasks.add(task);
+				if (running) {
+					return true;
+				}
+				running = true;
+			}
+			schedule();
+			return true;
+		}
+
+		/**
+		 * Schedules a drain of this queue. If the executor rejects it, the
+		 * pending tasks are failed and the queue is retired.
+		 */
+		private void schedule() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				logger.error(
+						"Executor [{}] rejected the assignments into [{}]. Failing them.",
+						executor, key, e);
+				AssignmentTask task;
+				synchronized (this) {
+					while ((task = tasks.poll()) != null) {
+						task.fail(e);
+					}
+					retire();
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Removes this queue from the
+		 * {@link OrderedAssignmentExecutor#queues}. Must be called while
+		 * holding the monitor of this queue.
+		 */
+		private void retire() {
+			running = false;
+			retired = true;
+			queues.remove(key, this);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			for (int i = 0; i < DRAIN_BUDGET; i++) {
+				AssignmentTask task;
+				synchronized (this) {
+					task = tasks.poll();
+					if (task == null) {
+						retire();
+						return;
+					}
+				}
+				// Errors are kept by the task and don't stop the queue.
+				task.run();
+			}
+
+			// Out of budget: the queue stays running and is drained again
+			// later.
+			schedule();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "SerialQueue [key=" + key + ", running=" + running
+					+ ", retired=" + retired + "]";
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * Key which identifies an {@link Assignable}, or the group of Assignables of a
+ * fan-out, by identity. Assignables can't be used as keys themselves, since
+ * their hash code changes with their content.
+ * 
+ * @author Donato Rimenti
+ */
+final class VariableKey {
+
+	/**
+	 * The variables identified, in order. A single one unless the key
+	 * identifies a fan-out.
+	 */
+	private final Assignable[] variables;
+
+	/**
+	 * The hash code combining the identity hash codes of the
+	 * {@link #variables}.
+	 */
+	private final int hash;
+
+	/**
+	 * Instantiates a new VariableKey.
+	 *
+	 * @param variables
+	 *            the {@link #variables}.
+	 */
+	private VariableKey(Assignable... variables) {
+		this.variables = variables;
+		int hash = 1;
+		for (Assignable variable : variables) {
+			hash = 31 * hash + System.identityHashCode(variable);
+		}
+		this.hash = hash;
+	}
+
+	/**
+	 * Gets the key of the variables targeted by a task. Fan-outs into the
+	 * same variables share a key, but are not related to the assignments
+	 * into each of those variables.
+	 *
+	 * @param task
+	 *            the task.
+	 * @return the key, or null if the task doesn't target any variable.
+	 */
+	static VariableKey of(AssignmentTask task) {
+		Assignable[] variables = task.getVariables();
+		if (variables != null) {
+			return variables.length == 1 ? new VariableKey(variables[0])
+					: new VariableKey(variables);
+		}
+		if (task.getVariable() != null) {
+			return new VariableKey(task.getVariable());
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		VariableKey other = (VariableKey) obj;
+		if (hash != other.hash || variables.length != other.variables.length)
+			return false;
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i] != other.variables[i])
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		if (variables.length == 1) {
+			return "VariableKey [variable=" + variables[0] + "]";
+		}
+		return "VariableKey [variables=" + variables.length + "]";
+	}
+
+}
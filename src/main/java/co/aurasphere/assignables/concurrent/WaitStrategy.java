@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how a Thread waits for something to do, trading latency for CPU
+ * usage.
+ * 
+ * @author Donato Rimenti
+ */
+public enum WaitStrategy {
+
+	/**
+	 * Keeps spinning, hinting the processor that it's a spin loop. Lowest
+	 * latency, but burns a whole core while waiting: use it only if there's a
+	 * core for each waiting Thread.
+	 */
+	BUSY_SPIN {
+		@Override
+		public void idle(int attempts) {
+			Thread.onSpinWait();
+		}
+	},
+
+	/**
+	 * Spins for a while, then yields the processor to other Threads.
+	 */
+	YIELD {
+		@Override
+		public void idle(int attempts) {
+			if (attempts >= SPIN_TRIES) {
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	},
+
+	/**
+	 * Spins and yields for a while, then parks the Thread for a short time.
+	 * Highest latency, but almost no CPU usage while waiting.
+	 */
+	PARK {
+		@Override
+		public void idle(int attempts) {
+			idle(attempts, PARK_NANOS);
+		}
+
+		@Override
+		public void idle(int attempts, long maxNanos) {
+			if (attempts >= SPIN_TRIES + YIELD_TRIES) {
+				LockSupport.parkNanos(this, maxNanos);
+			} else if (attempts >= SPIN_TRIES) {
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	};
+
+	/**
+	 * Number of attempts spent spinning before yielding.
+	 */
+	private static final int SPIN_TRIES = 100;
+
+	/**
+	 * Number of attempts spent yielding before parking.
+	 */
+	private static final int YIELD_TRIES = 100;
+
+	/**
+	 * How long a parked Thread sleeps before checking again, in nanoseconds.
+	 */
+	private static final long PARK_NANOS = 100000L;
+
+	/**
+	 * Waits once.
+	 *
+	 * @param attempts
+	 *            how many times the caller has already waited without finding
+	 *            anything to do. Should be reset once it does.
+	 */
+	public abstract void idle(int attempts);
+
+	/**
+	 * Waits once, knowing that there's nothing to do for a while. Strategies
+	 * which park the Thread park it for that long: it can be woken up earlier
+	 * through {@link LockSupport#unpark(Thread)}.
+	 *
+	 * @param attempts
+	 *            how many times the caller has already waited without finding
+	 *            anything to do. Should be reset once it does.
+	 * @param maxNanos
+	 *            the maximum time to wait, in nanoseconds.
+	 */
+	public void idle(int attempts, long maxNanos) {
+		idle(attempts);
+	}
+
+}
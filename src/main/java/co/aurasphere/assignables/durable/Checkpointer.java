@@ -0,0 +1,959 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.durable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.codec.BinaryCodec;
+import co.aurasphere.assignables.codec.BinaryReader;
+import co.aurasphere.assignables.codec.BinaryWriter;
+
+/**
+ * Takes checkpoints of the variables of a {@link WriteAheadLog}, so that
+ * opening the log doesn't need to replay its whole history. A checkpoint holds
+ * the content of the variables as of an LSN: when it completes, the segments
+ * before that LSN are deleted and only the records after it are replayed.
+ * <p>
+ * Checkpoints are incremental: only the variables set since the previous
+ * checkpoint are written, and every few checkpoints a full one replaces the
+ * whole chain. The variables are split by identifier into partitions, which
+ * are written with the {@link BinaryCodec} of the log and are written and
+ * loaded in parallel. Checkpoints run on their own Threads
+ * while assignments go on: each variable is held only for the time needed to
+ * read it.
+ * <p>
+ * Checkpointers are created through {@link #of(WriteAheadLog)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class Checkpointer implements Closeable {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(Checkpointer.class);
+
+	/**
+	 * Default number of partitions of a checkpoint.
+	 */
+	public static final int DEFAULT_PARTITIONS = 8;
+
+	/**
+	 * Default number of checkpoints between two full ones, the full one
+	 * included.
+	 */
+	public static final int DEFAULT_FULL_EVERY = 8;
+
+	/**
+	 * Name of the directory of the log holding the checkpoints.
+	 */
+	static final String DIRECTORY = "checkpoints";
+
+	/**
+	 * Prefix of a checkpoint directory, followed by its LSN.
+	 */
+	private static final String PREFIX = "checkpoint-";
+
+	/**
+	 * Suffix of a checkpoint directory still being written.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Name of the file describing a checkpoint, written last.
+	 */
+	private static final String MANIFEST = "manifest";
+
+	/**
+	 * Magic number at the start of a manifest.
+	 */
+	private static final int MAGIC = 0x41534350;
+
+	/**
+	 * Magic number at the start of a partition.
+	 */
+	private static final int PARTITION_MAGIC = 0x41534332;
+
+	/**
+	 * Counter used to name the Threads.
+	 */
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * The log whose variables are checkpointed.
+	 */
+	private final WriteAheadLog log;
+
+	/**
+	 * The directory holding the checkpoints.
+	 */
+	private final Path directory;
+
+	/**
+	 * The number of partitions of a checkpoint.
+	 */
+	private final int partitions;
+
+	/**
+	 * The number of checkpoints between two full ones.
+	 */
+	private final int fullEvery;
+
+	/**
+	 * The Threads writing the partitions.
+	 */
+	private final ExecutorService writers;
+
+	/**
+	 * The Thread taking the periodic checkpoints, if any.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Allows one checkpoint at a time.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The number of incremental checkpoints since the last full one.
+	 */
+	private int sinceFull;
+
+	/**
+	 * Whether the next checkpoint must be a full one.
+	 */
+	private boolean forceFull;
+
+	/**
+	 * The LSN of the last checkpoint, or -1 if there's none.
+	 */
+	private volatile long lastLsn;
+
+	/**
+	 * The number of checkpoints taken.
+	 */
+	private final AtomicLong checkpointCount = new AtomicLong();
+
+	/**
+	 * The number of variables written by the checkpoints.
+	 */
+	private final AtomicLong writtenCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new Checkpointer.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 * @throws IOException
+	 *             if the existing checkpoints can't be read.
+	 */
+	private Checkpointer(Builder builder) throws IOException {
+		this.log = builder.log;
+		this.directory = log.getCheckpointDirectory();
+		this.partitions = builder.partitions;
+		this.fullEvery = builder.fullEvery;
+		this.writers = Executors.newFixedThreadPool(
+				Math.min(partitions, Runtime.getRuntime()
+						.availableProcessors()), daemonThreads());
+
+		// Continues the chain of the existing checkpoints, unless they have a
+		// different partitioning or records have been replayed after them:
+		// the variables rebuilt from those records are not marked as dirty.
+		Files.createDirectories(directory);
+		List<Manifest> chain = chain(directory);
+		if (chain.isEmpty() || chain.get(0).partitions != partitions
+				|| chain.get(chain.size() - 1).lsn < log.getOpenedLsn()) {
+			this.forceFull = true;
+			this.lastLsn = chain.isEmpty() ? -1 : chain
+					.get(chain.size() - 1).lsn;
+		} else {
+			this.sinceFull = chain.size() - 1;
+			this.lastLsn = chain.get(chain.size() - 1).lsn;
+		}
+	}
+
+	/**
+	 * Starts configuring the checkpoints of a log.
+	 *
+	 * @param log
+	 *            the log whose variables are checkpointed.
+	 * @return a new builder.
+	 */
+	public static Builder of(WriteAheadLog log) {
+		if (log == null) {
+			throw new IllegalArgumentException(
+					"Can't checkpoint a null log.");
+		}
+		return new Builder(log);
+	}
+
+	/**
+	 * Takes a checkpoint, waiting for it to complete.
+	 *
+	 * @return the LSN of the checkpoint.
+	 * @throws IOException
+	 *             if the checkpoint can't be written.
+	 */
+	public long checkpoint() throws IOException {
+		lock.lock();
+		try {
+			if (writers.isShutdown()) {
+				throw new IOException("Checkpointer of log "
+						+ log.getDirectory() + " has been closed.");
+			}
+			long lsn = log.nextLsn();
+			if (lsn == lastLsn && !forceFull) {
+				logger.debug("Nothing logged since checkpoint [{}].", lsn);
+				return lsn;
+			}
+			boolean full = forceFull || sinceFull >= fullEvery - 1;
+			try {
+				int written = write(lsn, full);
+				if (full) {
+					deleteBefore(lsn);
+					sinceFull = 0;
+				} else {
+					sinceFull++;
+				}
+				forceFull = false;
+				lastLsn = lsn;
+				checkpointCount.incrementAndGet();
+				writtenCount.addAndGet(written);
+				log.truncateBefore(lsn);
+				logger.debug(
+						"Written {} checkpoint [{}] of log [{}] with [{}] variables.",
+						full ? "full" : "incremental", lsn,
+						log.getDirectory(), written);
+				return lsn;
+			} catch (IOException e) {
+				// The variables marked as clean may not have been written.
+				forceFull = true;
+				throw e;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes a checkpoint into a temporary directory and makes it visible
+	 * once complete.
+	 *
+	 * @param lsn
+	 *            the LSN of the checkpoint.
+	 * @param full
+	 *            whether all the variables should be written.
+	 * @return the number of variables written.
+	 * @throws IOException
+	 *             if the checkpoint can't be written.
+	 */
+	private int write(long lsn, boolean full) throws IOException {
+		final List<Map<String, Object>> parts = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < partitions; i++) {
+			parts.add(new LinkedHashMap<String, Object>());
+		}
+		// Values not claimed by a variable yet are found only in the chain
+		// which a full checkpoint replaces. A variable claims its value
+		// before it's removed, so it's always seen in one place or the other.
+		if (full) {
+			for (Map.Entry<String, Object> entry : log.recoveredValues()
+					.entrySet()) {
+				parts.get(partitionOf(entry.getKey(), partitions)).put(
+						entry.getKey(), entry.getValue());
+			}
+		}
+		// A variable is marked as dirty before its records get an LSN, so
+		// every variable with a record before the checkpoint is written.
+		int written = 0;
+		for (DurableAssignable variable : log.variables()) {
+			if (full || variable.isDirty()) {
+				parts.get(partitionOf(variable.getId(), partitions)).put(
+						variable.getId(), variable.checkpoint());
+				written++;
+			}
+		}
+
+		final Path temporary = directory.resolve(nameOf(lsn)
+				+ TEMPORARY_SUFFIX);
+		deleteDirectory(temporary);
+		Files.createDirectory(temporary);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < partitions; i++) {
+				final int partition = i;
+				futures.add(writers.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						writePartition(temporary.resolve(partitionName(partition)),
+								parts.get(partition), log.getCodec());
+						return null;
+					}
+				}));
+			}
+			awaitAll(futures);
+			writeManifest(temporary.resolve(MANIFEST), new Manifest(lsn,
+					full, partitions));
+			// The entries of the files and of the rename must be durable
+			// before the log they replace is truncated.
+			WriteAheadLog.syncDirectory(temporary);
+			Files.move(temporary, directory.resolve(nameOf(lsn)),
+					StandardCopyOption.ATOMIC_MOVE);
+			WriteAheadLog.syncDirectory(directory);
+		} finally {
+			deleteDirectory(temporary);
+		}
+		return written;
+	}
+
+	/**
+	 * Writes a partition of a checkpoint and syncs it.
+	 *
+	 * @param path
+	 *            the file of the partition.
+	 * @param values
+	 *            the values of the partition, by identifier.
+	 * @param codec
+	 *            writes the values.
+	 * @throws IOException
+	 *             if the partition can't be written.
+	 */
+	private static void writePartition(Path path, Map<String, Object> values,
+			BinaryCodec codec) throws IOException {
+		BinaryWriter out = new BinaryWriter();
+		out.writeInt(PARTITION_MAGIC);
+		out.writeVarInt(values.size());
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			out.writeString(entry.getKey());
+			codec.encode(entry.getValue(), out);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(out.getBuffer(), 0, out.size());
+		out.writeLong(crc.getValue());
+
+		FileOutputStream file = new FileOutputStream(path.toFile());
+		try {
+			file.write(out.getBuffer(), 0, out.size());
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Reads a partition of a checkpoint into a map.
+	 *
+	 * @param path
+	 *            the file of the partition.
+	 * @param values
+	 *            the map where to put the values.
+	 * @param codec
+	 *            reads the values.
+	 * @throws IOException
+	 *             if the partition can't be read or is corrupted.
+	 */
+	private static void readPartition(Path path, Map<String, Object> values,
+			BinaryCodec codec) throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		int length = bytes.length - 8;
+		CRC32 crc = new CRC32();
+		if (length >= 0) {
+			crc.update(bytes, 0, length);
+		}
+		if (length < 0 || ByteBuffer.wrap(bytes, length, 8).getLong() != crc
+				.getValue()) {
+			throw new IOException("Checkpoint partition " + path
+					+ " is corrupted.");
+		}
+		BinaryReader in = new BinaryReader(bytes, 0, length);
+		try {
+			if (in.readInt() != PARTITION_MAGIC) {
+				throw new IOException(path + " is not a checkpoint partition.");
+			}
+			int count = in.readVarInt();
+			for (int i = 0; i < count; i++) {
+				String id = in.readString();
+				values.put(id, codec.decode(in));
+			}
+		} catch (IllegalStateException e) {
+			throw new IOException("Can't read checkpoint partition " + path
+					+ ".", e);
+		}
+	}
+
+	/**
+	 * Loads the latest checkpoint, reading its partitions in parallel.
+	 *
+	 * @param directory
+	 *            the directory holding the checkpoints.
+	 * @param values
+	 *            the map where to put the values, by identifier.
+	 * @param threads
+	 *            the maximum number of Threads reading the partitions.
+	 * @param codec
+	 *            reads the values.
+	 * @return the LSN of the checkpoint, or 0 if there's none.
+	 * @throws IOException
+	 *             if the checkpoint can't be read.
+	 */
+	static long load(Path directory, Map<String, Object> values,
+			int threads, final BinaryCodec codec) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return 0;
+		}
+		final List<Manifest> chain = chain(directory);
+		if (chain.isEmpty()) {
+			return 0;
+		}
+		final Path root = directory;
+		int partitions = chain.get(0).partitions;
+		ExecutorService readers = Executors.newFixedThreadPool(
+				Math.min(threads, partitions), daemonThreads());
+		try {
+			// The partitions are independent: each one is rebuilt by applying
+			// the chain in order.
+			List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>();
+			for (int i = 0; i < partitions; i++) {
+				final String name = partitionName(i);
+				futures.add(readers.submit(new Callable<Map<String, Object>>() {
+					public Map<String, Object> call() throws IOException {
+						Map<String, Object> partition = new HashMap<String, Object>();
+						for (Manifest manifest : chain) {
+							readPartition(
+									root.resolve(nameOf(manifest.lsn)).resolve(
+											name), partition, codec);
+						}
+						return partition;
+					}
+				}));
+			}
+			for (Map<String, Object> partition : awaitAll(futures)) {
+				values.putAll(partition);
+			}
+		} finally {
+			readers.shutdown();
+		}
+		long lsn = chain.get(chain.size() - 1).lsn;
+		logger.debug("Loaded checkpoint [{}] with [{}] variables from [{}].",
+				lsn, values.size(), directory);
+		return lsn;
+	}
+
+	/**
+	 * Gets the chain of the latest checkpoint: the last full checkpoint and
+	 * the incremental ones after it, oldest first. Checkpoints left
+	 * incomplete by a crash are deleted.
+	 *
+	 * @param directory
+	 *            the directory holding the checkpoints.
+	 * @return the manifests of the chain.
+	 * @throws IOException
+	 *             if the checkpoints can't be read.
+	 */
+	private static List<Manifest> chain(Path directory) throws IOException {
+		List<Manifest> manifests = new ArrayList<Manifest>();
+		for (Path path : list(directory)) {
+			if (path.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+				deleteDirectory(path);
+			} else {
+				manifests.add(readManifest(path.resolve(MANIFEST)));
+			}
+		}
+		int start = manifests.size();
+		while (start > 0 && !manifests.get(start - 1).full) {
+			start--;
+		}
+		if (start == 0) {
+			return Collections.emptyList();
+		}
+		return manifests.subList(start - 1, manifests.size());
+	}
+
+	/**
+	 * Deletes the checkpoints before an LSN.
+	 *
+	 * @param lsn
+	 *            the LSN of the first checkpoint to keep.
+	 * @throws IOException
+	 *             if a checkpoint can't be deleted.
+	 */
+	private void deleteBefore(long lsn) throws IOException {
+		for (Path path : list(directory)) {
+			String name = path.getFileName().toString();
+			if (!name.endsWith(TEMPORARY_SUFFIX)
+					&& Long.parseLong(name.substring(PREFIX.length())) < lsn) {
+				deleteDirectory(path);
+			}
+		}
+	}
+
+	/**
+	 * Writes the manifest of a checkpoint and syncs it.
+	 *
+	 * @param path
+	 *            the file of the manifest.
+	 * @param manifest
+	 *            the manifest.
+	 * @throws IOException
+	 *             if the manifest can't be written.
+	 */
+	private static void writeManifest(Path path, Manifest manifest)
+			throws IOException {
+		FileOutputStream file = new FileOutputStream(path.toFile());
+		try {
+			DataOutputStream out = new DataOutputStream(file);
+			out.writeInt(MAGIC);
+			out.writeLong(manifest.lsn);
+			out.writeBoolean(manifest.full);
+			out.writeInt(manifest.partitions);
+			out.flush();
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Reads the manifest of a checkpoint.
+	 *
+	 * @param path
+	 *            the file of the manifest.
+	 * @return the manifest.
+	 * @throws IOException
+	 *             if the manifest can't be read.
+	 */
+	private static Manifest readManifest(Path path) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				Files.readAllBytes(path)));
+		if (in.readInt() != MAGIC) {
+			throw new IOException(path + " is not a checkpoint manifest.");
+		}
+		return new Manifest(in.readLong(), in.readBoolean(), in.readInt());
+	}
+
+	/**
+	 * Lists the checkpoint directories, oldest first.
+	 *
+	 * @param directory
+	 *            the directory holding the checkpoints.
+	 * @return the checkpoint directories.
+	 * @throws IOException
+	 *             if the directory can't be read.
+	 */
+	private static List<Path> list(Path directory) throws IOException {
+		List<Path> paths = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+				PREFIX + "*");
+		try {
+			for (Path path : stream) {
+				paths.add(path);
+			}
+		} finally {
+			stream.close();
+		}
+		Collections.sort(paths);
+		return paths;
+	}
+
+	/**
+	 * Deletes a checkpoint directory, if it exists.
+	 *
+	 * @param path
+	 *            the checkpoint directory.
+	 * @throws IOException
+	 *             if the directory can't be deleted.
+	 */
+	private static void deleteDirectory(Path path) throws IOException {
+		if (!Files.isDirectory(path)) {
+			return;
+		}
+		DirectoryStream<Path> stream = Files.newDirectoryStream(path);
+		try {
+			for (Path file : stream) {
+				Files.delete(file);
+			}
+		} finally {
+			stream.close();
+		}
+		Files.delete(path);
+	}
+
+	/**
+	 * Waits for some tasks to complete.
+	 *
+	 * @param futures
+	 *            the tasks.
+	 * @return the results of the tasks.
+	 * @throws IOException
+	 *             if a task failed.
+	 */
+	private static <T> List<T> awaitAll(List<Future<T>> futures)
+			throws IOException {
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the checkpoint.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		return results;
+	}
+
+	/**
+	 * Gets the partition of a variable.
+	 *
+	 * @param id
+	 *            the identifier of the variable.
+	 * @param partitions
+	 *            the number of partitions.
+	 * @return the partition of the variable.
+	 */
+	private static int partitionOf(String id, int partitions) {
+		return (id.hashCode() & Integer.MAX_VALUE) % partitions;
+	}
+
+	/**
+	 * Gets the name of a checkpoint directory.
+	 *
+	 * @param lsn
+	 *            the LSN of the checkpoint.
+	 * @return the name of the directory.
+	 */
+	private static String nameOf(long lsn) {
+		return String.format("%s%020d", PREFIX, lsn);
+	}
+
+	/**
+	 * Gets the name of a partition file.
+	 *
+	 * @param partition
+	 *            the partition.
+	 * @return the name of the file.
+	 */
+	private static String partitionName(int partition) {
+		return "part-" + partition + ".bin";
+	}
+
+	/**
+	 * Creates daemon Threads for reading and writing checkpoints.
+	 *
+	 * @return the Thread factory.
+	 */
+	private static ThreadFactory daemonThreads() {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "assignables-checkpoint-"
+						+ threadCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Starts taking checkpoints periodically.
+	 *
+	 * @param period
+	 *            the time between the end of a checkpoint and the start of
+	 *            the next one.
+	 * @param unit
+	 *            the unit of the period.
+	 * @return this object.
+	 */
+	private Checkpointer every(long period, TimeUnit unit) {
+		scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads());
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					checkpoint();
+				} catch (IOException e) {
+					logger.error("Error while checkpointing log [{}].",
+							log.getDirectory(), e);
+				}
+			}
+		}, period, period, unit);
+		return this;
+	}
+
+	/**
+	 * Stops taking checkpoints, waiting for the running one to complete. This
+	 * doesn't take a last checkpoint.
+	 *
+	 * @throws IOException
+	 *             if interrupted while waiting.
+	 */
+	public void close() throws IOException {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			try {
+				while (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
+					logger.debug("Waiting for the running checkpoint of log [{}].",
+							log.getDirectory());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Interrupted while waiting for the running checkpoint.");
+			}
+		}
+		lock.lock();
+		try {
+			writers.shutdown();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the LSN of the last checkpoint.
+	 *
+	 * @return the {@link #lastLsn}, or -1 if there's no checkpoint.
+	 */
+	public long getLastLsn() {
+		return lastLsn;
+	}
+
+	/**
+	 * Gets the number of checkpoints taken.
+	 *
+	 * @return the {@link #checkpointCount}.
+	 */
+	public long getCheckpointCount() {
+		return checkpointCount.get();
+	}
+
+	/**
+	 * Gets the number of variables written by the checkpoints.
+	 *
+	 * @return the {@link #writtenCount}.
+	 */
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Checkpointer [log=" + log + ", partitions=" + partitions
+				+ ", fullEvery=" + fullEvery + ", lastLsn=" + lastLsn + "]";
+	}
+
+	/**
+	 * Description of a checkpoint.
+	 *
+	 * @author Donato Rimenti
+	 */
+	private static final class Manifest {
+
+		/**
+		 * The LSN of the first record not included in the checkpoint.
+		 */
+		private final long lsn;
+
+		/**
+		 * Whether the checkpoint holds all the variables.
+		 */
+		private final boolean full;
+
+		/**
+		 * The number of partitions of the checkpoint.
+		 */
+		private final int partitions;
+
+		/**
+		 * Instantiates a new Manifest.
+		 *
+		 * @param lsn
+		 *            the {@link #lsn}.
+		 * @param full
+		 *            the {@link #full}.
+		 * @param partitions
+		 *            the {@link #partitions}.
+		 */
+		private Manifest(long lsn, boolean full, int partitions) {
+			this.lsn = lsn;
+			this.full = full;
+			this.partitions = partitions;
+		}
+	}
+
+	/**
+	 * Builder for a {@link Checkpointer}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The log whose variables are checkpointed.
+		 */
+		private final WriteAheadLog log;
+
+		/**
+		 * The number of partitions of a checkpoint.
+		 */
+		private int partitions = DEFAULT_PARTITIONS;
+
+		/**
+		 * The number of checkpoints between two full ones.
+		 */
+		private int fullEvery = DEFAULT_FULL_EVERY;
+
+		/**
+		 * The time between periodic checkpoints. If 0, checkpoints are taken
+		 * only through {@link Checkpointer#checkpoint()}.
+		 */
+		private long period;
+
+		/**
+		 * The unit of the {@link #period}.
+		 */
+		private TimeUnit unit = TimeUnit.MILLISECONDS;
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param log
+		 *            the log whose variables are checkpointed.
+		 */
+		private Builder(WriteAheadLog log) {
+			this.log = log;
+		}
+
+		/**
+		 * Sets the number of partitions of a checkpoint. Changing it makes
+		 * the next checkpoint a full one.
+		 *
+		 * @param partitions
+		 *            the number of partitions.
+		 * @return this object.
+		 */
+		public Builder partitions(int partitions) {
+			if (partitions < 1) {
+				throw new IllegalArgumentException(
+						"Invalid number of partitions " + partitions + ".");
+			}
+			this.partitions = partitions;
+			return this;
+		}
+
+		/**
+		 * Sets how often a full checkpoint is taken.
+		 *
+		 * @param fullEvery
+		 *            the number of checkpoints between two full ones, the
+		 *            full one included. If 1, all the checkpoints are full.
+		 * @return this object.
+		 */
+		public Builder fullEvery(int fullEvery) {
+			if (fullEvery < 1) {
+				throw new IllegalArgumentException(
+						"Invalid number of checkpoints between full ones "
+								+ fullEvery + ".");
+			}
+			this.fullEvery = fullEvery;
+			return this;
+		}
+
+		/**
+		 * Takes a checkpoint periodically on a background Thread.
+		 *
+		 * @param period
+		 *            the time between the end of a checkpoint and the start
+		 *            of the next one.
+		 * @param unit
+		 *            the unit of the period.
+		 * @return this object.
+		 */
+		public Builder every(long period, TimeUnit unit) {
+			if (period <= 0) {
+				throw new IllegalArgumentException("Invalid period " + period
+						+ " " + unit + ".");
+			}
+			this.period = period;
+			this.unit = unit;
+			return this;
+		}
+
+		/**
+		 * Builds the checkpointer, starting the periodic checkpoints if
+		 * configured.
+		 *
+		 * @return the checkpointer.
+		 * @throws IOException
+		 *             if the existing checkpoints can't be read.
+		 */
+		public Checkpointer start() throws IOException {
+			Checkpointer checkpointer = new Checkpointer(this);
+			if (period > 0) {
+				checkpointer.every(period, unit);
+			}
+			return checkpointer;
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.durable;
+
+import java.io.IOException;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.AssignmentException;
+
+/**
+ * {@link Assignable} whose assignments survive a crash. Each value set into
+ * the variable, as produced by the assignment policy, is appended to a
+ * {@link WriteAheadLog} and the assignment returns only once the log has been
+ * synced to disk. When the log is opened again, the variable gets back the
+ * last value logged.
+ * <p>
+ * Durable variables are created through {@link WriteAheadLog#variable(String)}.
+ * They also keep track of whether they've changed since the last
+ * {@link Checkpointer checkpoint}.
+ * 
+ * @author Donato Rimenti
+ */
+public class DurableAssignable extends Assignable {
+
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The identifier of this variable in the log.
+	 */
+	private final String id;
+
+	/**
+	 * The log where the assignments are appended.
+	 */
+	private final transient WriteAheadLog log;
+
+	/**
+	 * Whether this variable has been set since the last checkpoint.
+	 */
+	private transient volatile boolean dirty;
+
+	/**
+	 * Instantiates a new DurableAssignable.
+	 *
+	 * @param id
+	 *            the {@link #id}.
+	 * @param object
+	 *            the initial content of this variable.
+	 * @param log
+	 *            the {@link #log}.
+	 */
+	DurableAssignable(String id, Object object, WriteAheadLog log) {
+		super(object);
+		this.id = id;
+		this.log = log;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+	 */
+	@Override
+	public void set(Object object) {
+		long lsn;
+		try {
+			// Logging and setting together keeps the log in the same order as
+			// the variable. The value is visible before being durable. The
+			// variable is marked as dirty before the record gets its LSN, so
+			// a checkpoint taken after that LSN always finds it dirty and
+			// waits on the monitor for its content. The write is started
+			// before taking the monitor, which a transaction committing into
+			// this variable needs while holding the write.
+			boolean started = beginWrite();
+			try {
+				synchronized (this) {
+					dirty = true;
+					lsn = log.append(id, object);
+					super.set(object);
+				}
+			} finally {
+				if (started) {
+					endWrite();
+				}
+			}
+			log.awaitDurable(lsn);
+		} catch (IOException e) {
+			throw new AssignmentException(e);
+		}
+	}
+
+	/**
+	 * Gets the content of this variable for a checkpoint, marking it as
+	 * clean. Since assignments hold the same monitor, the content includes
+	 * every assignment logged before.
+	 *
+	 * @return the content of this variable.
+	 */
+	synchronized Object checkpoint() {
+		dirty = false;
+		return get();
+	}
+
+	/**
+	 * Checks whether this variable has been set since the last checkpoint.
+	 *
+	 * @return the {@link #dirty}.
+	 */
+	boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Gets the {@link #id}.
+	 *
+	 * @return the {@link #id}.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#toString()
+	 */
+	@Override
+	public String toString() {
+		return "DurableAssignable [id=" + id + ", object=" + get() + "]";
+	}
+
+}
@@ -0,0 +1,1145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.durable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.codec.BinaryCodec;
+import co.aurasphere.assignables.codec.BinaryReader;
+import co.aurasphere.assignables.codec.BinaryWriter;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+
+/**
+ * Append-only log of the assignments into {@link DurableAssignable}s, split in
+ * segment files. Each record holds the identifier of a variable and the value
+ * set into it, written by a {@link BinaryCodec}, and is numbered by a log
+ * sequence number (LSN).
+ * <p>
+ * Records are synced to disk in groups: a background Thread writes all the
+ * records appended while the previous sync was running, waiting up to a
+ * configurable delay for a batch to fill, so the cost of a sync is shared by
+ * all the assignments in the batch. When opened, the log loads the latest
+ * {@link Checkpointer checkpoint} and replays the records after it, so each
+ * variable gets back the last value logged for it. A record torn by a crash
+ * at the end of the log is discarded.
+ * <p>
+ * Each segment starts with a magic number and the version of its format:
+ * segments written by an incompatible version of the log are rejected when
+ * opening it.
+ * <p>
+ * Logs are opened through {@link #at(Path)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class WriteAheadLog implements Closeable {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(WriteAheadLog.class);
+
+	/**
+	 * Default maximum number of records synced together.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 128;
+
+	/**
+	 * Default time waited for a batch to fill, in microseconds.
+	 */
+	public static final long DEFAULT_MAX_DELAY_MICROS = 200;
+
+	/**
+	 * Default size after which a new segment is started, in bytes.
+	 */
+	public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+	/**
+	 * Prefix of the segment files, followed by the LSN of their first record.
+	 */
+	static final String SEGMENT_PREFIX = "wal-";
+
+	/**
+	 * Suffix of the segment files.
+	 */
+	static final String SEGMENT_SUFFIX = ".log";
+
+	/**
+	 * Size of the header of a record: the length and the checksum of its
+	 * payload.
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * Magic number at the start of a segment.
+	 */
+	private static final int SEGMENT_MAGIC = 0x4153574C;
+
+	/**
+	 * Version of the format of the segments, after their magic number.
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Size of the header of a segment: the magic number and the format
+	 * version.
+	 */
+	private static final int SEGMENT_HEADER_SIZE = 8;
+
+	/**
+	 * The directory holding the segments.
+	 */
+	private final Path directory;
+
+	/**
+	 * Maximum number of records synced together.
+	 */
+	private final int maxBatch;
+
+	/**
+	 * Time waited for a batch to fill, in nanoseconds.
+	 */
+	private final long maxDelayNanos;
+
+	/**
+	 * Size after which a new segment is started, in bytes.
+	 */
+	private final long segmentSize;
+
+	/**
+	 * The number of Threads loading the checkpoint when the log is opened.
+	 */
+	private final int recoveryThreads;
+
+	/**
+	 * Writes and reads the values of the records.
+	 */
+	private final BinaryCodec codec;
+
+	/**
+	 * The buffer of each Thread where its records are encoded.
+	 */
+	private final ThreadLocal<BinaryWriter> records = new ThreadLocal<BinaryWriter>() {
+		@Override
+		protected BinaryWriter initialValue() {
+			return new BinaryWriter();
+		}
+	};
+
+	/**
+	 * The variables of this log, by identifier.
+	 */
+	private final ConcurrentHashMap<String, DurableAssignable> variables = new ConcurrentHashMap<String, DurableAssignable>();
+
+	/**
+	 * The last values replayed from the log, by identifier, not yet claimed by
+	 * a variable.
+	 */
+	private final Map<String, Object> recovered = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * Guards the {@link #pending} records.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signaled when records are appended or the log is closed.
+	 */
+	private final Condition appended = lock.newCondition();
+
+	/**
+	 * Signaled when a batch has been synced.
+	 */
+	private final Condition synced = lock.newCondition();
+
+	/**
+	 * The records appended but not yet written.
+	 */
+	private BinaryWriter pending = new BinaryWriter(64 * 1024);
+
+	/**
+	 * The buffer swapped with {@link #pending} while a batch is written.
+	 */
+	private BinaryWriter spare = new BinaryWriter(64 * 1024);
+
+	/**
+	 * The number of {@link #pending} records.
+	 */
+	private int pendingCount;
+
+	/**
+	 * The LSN of the next record.
+	 */
+	private long nextLsn;
+
+	/**
+	 * The LSN of the first record appended after the log was opened.
+	 */
+	private long openedLsn;
+
+	/**
+	 * The LSN of the last record synced to disk.
+	 */
+	private volatile long durableLsn;
+
+	/**
+	 * The segment being written. Used only by the {@link #flusher}.
+	 */
+	private FileChannel segment;
+
+	/**
+	 * The LSN of the first record of the {@link #segment}.
+	 */
+	private long segmentLsn;
+
+	/**
+	 * The error which made the log unusable, if any.
+	 */
+	private volatile IOException failure;
+
+	/**
+	 * Whether this log has been closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The Thread syncing the records.
+	 */
+	private final Thread flusher;
+
+	/**
+	 * The number of records appended.
+	 */
+	private final AtomicLong appendedCount = new AtomicLong();
+
+	/**
+	 * The number of syncs performed.
+	 */
+	private final AtomicLong syncCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new WriteAheadLog.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private WriteAheadLog(Builder builder) {
+		this.directory = builder.directory;
+		this.maxBatch = builder.maxBatch;
+		this.maxDelayNanos = builder.maxDelayNanos;
+		this.segmentSize = builder.segmentSize;
+		this.recoveryThreads = builder.recoveryThreads;
+		this.codec = builder.codec;
+		this.flusher = new Thread(new Runnable() {
+			public void run() {
+				flushLoop();
+			}
+		}, "assignables-wal-" + directory.getFileName());
+		this.flusher.setDaemon(true);
+	}
+
+	/**
+	 * Starts configuring a log stored in a directory.
+	 *
+	 * @param directory
+	 *            the directory holding the segments. It's created if it
+	 *            doesn't exist.
+	 * @return a new builder.
+	 */
+	public static Builder at(Path directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException(
+					"The directory of the log can't be null.");
+		}
+		return new Builder(directory);
+	}
+
+	/**
+	 * Gets the durable variable with an identifier, creating it if needed. A
+	 * new variable starts with the last value logged for it, if any.
+	 *
+	 * @param id
+	 *            the identifier of the variable.
+	 * @return the variable.
+	 */
+	public DurableAssignable variable(String id) {
+		if (id == null) {
+			throw new IllegalArgumentException(
+					"The identifier of a variable can't be null.");
+		}
+		DurableAssignable variable = variables.get(id);
+		if (variable == null) {
+			DurableAssignable created = new DurableAssignable(id,
+					recovered.get(id), this);
+			variable = variables.putIfAbsent(id, created);
+			if (variable == null) {
+				variable = created;
+				recovered.remove(id);
+			}
+		}
+		return variable;
+	}
+
+	/**
+	 * Appends an assignment to the log, without waiting for it to be synced.
+	 *
+	 * @param id
+	 *            the identifier of the variable.
+	 * @param value
+	 *            the value set into the variable.
+	 * @return the LSN of the record.
+	 * @throws IOException
+	 *             if the log has failed.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value can't be encoded.
+	 */
+	long append(String id, Object value) throws IOException {
+		BinaryWriter record = encode(id, value);
+		lock.lock();
+		try {
+			checkUsable();
+			pending.write(record.getBuffer(), 0, record.size());
+			long lsn = nextLsn++;
+			if (++pendingCount == 1 || pendingCount == maxBatch) {
+				appended.signal();
+			}
+			appendedCount.incrementAndGet();
+			return lsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until a record has been synced to disk.
+	 *
+	 * @param lsn
+	 *            the LSN of the record.
+	 * @throws IOException
+	 *             if the log failed before syncing the record.
+	 */
+	void awaitDurable(long lsn) throws IOException {
+		if (durableLsn >= lsn) {
+			return;
+		}
+		lock.lock();
+		try {
+			while (durableLsn < lsn) {
+				if (failure != null) {
+					throw new IOException("Log " + directory
+							+ " failed before syncing record " + lsn + ".",
+							failure);
+				}
+				if (closed && !flusher.isAlive()) {
+					throw new IOException("Log " + directory
+							+ " closed before syncing record " + lsn + ".");
+				}
+				synced.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for record "
+					+ lsn + " to be synced.");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Throws if the log can't accept records anymore. Must be called while
+	 * holding the {@link #lock}.
+	 *
+	 * @throws IOException
+	 *             if the log has failed or has been closed.
+	 */
+	private void checkUsable() throws IOException {
+		if (failure != null) {
+			throw new IOException("Log " + directory + " has failed.", failure);
+		}
+		if (closed) {
+			throw new IOException("Log " + directory + " has been closed.");
+		}
+	}
+
+	/**
+	 * Writes and syncs the pending records in batches until the log is
+	 * closed.
+	 */
+	private void flushLoop() {
+		while (true) {
+			BinaryWriter batch;
+			int batchCount;
+			long lastLsn;
+			lock.lock();
+			try {
+				while (pendingCount == 0 && !closed) {
+					appended.awaitUninterruptibly();
+				}
+				if (pendingCount == 0) {
+					return;
+				}
+				// Gives the batch some time to fill.
+				long remaining = maxDelayNanos;
+				while (pendingCount < maxBatch && remaining > 0 && !closed) {
+					try {
+						remaining = appended.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						remaining = 0;
+					}
+				}
+				batch = pending;
+				batchCount = pendingCount;
+				lastLsn = nextLsn - 1;
+				pending = spare;
+				pendingCount = 0;
+			} finally {
+				lock.unlock();
+			}
+
+			IOException error = null;
+			try {
+				write(batch, lastLsn - batchCount + 1);
+				segment.force(false);
+				syncCount.incrementAndGet();
+			} catch (IOException e) {
+				logger.error("Error while syncing log [{}].", directory, e);
+				error = e;
+			}
+			batch.reset();
+
+			lock.lock();
+			try {
+				spare = batch;
+				if (error != null) {
+					failure = error;
+				} else {
+					durableLsn = lastLsn;
+				}
+				synced.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (error != null) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes a batch of records, starting a new segment first if the current
+	 * one is full.
+	 *
+	 * @param batch
+	 *            the records to write.
+	 * @param firstLsn
+	 *            the LSN of the first record of the batch.
+	 * @throws IOException
+	 *             if the batch can't be written.
+	 */
+	private void write(BinaryWriter batch, long firstLsn)
+			throws IOException {
+		if (segment.size() >= segmentSize) {
+			segment.close();
+			segment = openSegment(firstLsn);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(batch.getBuffer(), 0, batch.size());
+		while (buffer.hasRemaining()) {
+			segment.write(buffer);
+		}
+	}
+
+	/**
+	 * Creates a new segment, writing its header. The header is synced with
+	 * the first batch of the segment.
+	 *
+	 * @param firstLsn
+	 *            the LSN of the first record of the segment.
+	 * @return the channel of the segment.
+	 * @throws IOException
+	 *             if the segment can't be created.
+	 */
+	private FileChannel openSegment(long firstLsn) throws IOException {
+		segmentLsn = firstLsn;
+		FileChannel channel = FileChannel.open(segmentPath(firstLsn),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		try {
+			if (channel.size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+				header.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).flip();
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+				// Forcing the records doesn't make the new entry of the
+				// directory durable.
+				syncDirectory(directory);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * Forces the entries of a directory to the storage device, so that the
+	 * files created, renamed or deleted in it survive a crash.
+	 *
+	 * @param directory
+	 *            the directory.
+	 * @throws IOException
+	 *             if the directory can't be forced.
+	 */
+	static void syncDirectory(Path directory) throws IOException {
+		FileChannel channel = FileChannel.open(directory,
+				StandardOpenOption.READ);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Gets the path of a segment.
+	 *
+	 * @param firstLsn
+	 *            the LSN of the first record of the segment.
+	 * @return the path of the segment.
+	 */
+	private Path segmentPath(long firstLsn) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX,
+				firstLsn, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Loads the latest checkpoint and replays the segments after it,
+	 * collecting the last value of each variable into the {@link #recovered}
+	 * values.
+	 *
+	 * @throws IOException
+	 *             if the checkpoint can't be loaded or a segment can't be read
+	 *             or is corrupted before its end.
+	 */
+	private void replay() throws IOException {
+		Map<String, Object> values = new HashMap<String, Object>();
+		long checkpointLsn = Checkpointer.load(getCheckpointDirectory(),
+				values, recoveryThreads, codec);
+		List<Path> segments = listSegments();
+		for (int i = 0; i < segments.size(); i++) {
+			Path path = segments.get(i);
+			long lsn = lsnOf(path);
+			if (lsn < nextLsn) {
+				throw new IOException("Segment " + path
+						+ " overlaps the previous one.");
+			}
+			nextLsn = lsn;
+			boolean last = i == segments.size() - 1;
+			nextLsn += replaySegment(path, values, last, nextLsn,
+					checkpointLsn);
+		}
+		nextLsn = Math.max(nextLsn, checkpointLsn);
+		openedLsn = nextLsn;
+		recovered.putAll(values);
+		durableLsn = nextLsn - 1;
+		logger.debug("Replayed [{}] records of [{}] variables from log [{}].",
+				nextLsn, values.size(), directory);
+	}
+
+	/**
+	 * Replays a segment.
+	 *
+	 * @param path
+	 *            the segment.
+	 * @param values
+	 *            the last value of each variable, updated by the records of
+	 *            the segment.
+	 * @param last
+	 *            whether this is the last segment, which may end with a torn
+	 *            record.
+	 * @param firstLsn
+	 *            the LSN of the first record of the segment.
+	 * @param fromLsn
+	 *            the LSN of the first record not included in the checkpoint.
+	 *            The records before it are skipped.
+	 * @return the number of records of the segment.
+	 * @throws IOException
+	 *             if the segment can't be read or is corrupted.
+	 */
+	private long replaySegment(Path path, Map<String, Object> values,
+			boolean last, long firstLsn, long fromLsn) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			// A crash right after creating the last segment may tear its
+			// header, but then it holds no records.
+			if (last && size < SEGMENT_HEADER_SIZE) {
+				logger.warn("Discarding segment [{}] with a torn header.",
+						path);
+				channel.close();
+				Files.delete(path);
+				return 0;
+			}
+			checkSegmentHeader(channel, path);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			long position = SEGMENT_HEADER_SIZE;
+			long count = 0;
+			while (position < size) {
+				Object[] record = readRecord(channel, position, header);
+				if (record == null) {
+					if (!last) {
+						throw new IOException("Segment " + path
+								+ " is corrupted at position " + position
+								+ ".");
+					}
+					logger.warn(
+							"Discarding torn record at position [{}] of segment [{}].",
+							position, path);
+					channel.truncate(position);
+					break;
+				}
+				if (firstLsn + count >= fromLsn) {
+					values.put((String) record[0], record[1]);
+				}
+				position += HEADER_SIZE + (Integer) record[2];
+				count++;
+			}
+			return count;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Checks that a segment starts with a header of the current format.
+	 *
+	 * @param channel
+	 *            the segment.
+	 * @param path
+	 *            the path of the segment, for the error messages.
+	 * @throws IOException
+	 *             if the segment can't be read or has a different format.
+	 */
+	private static void checkSegmentHeader(FileChannel channel, Path path)
+			throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+		if (!readFully(channel, header, 0)
+				|| header.getInt(0) != SEGMENT_MAGIC) {
+			throw new IOException("Segment " + path
+					+ " has no header: it was written by an older version of"
+					+ " the log, or is not a segment. Logs written before"
+					+ " format version " + FORMAT_VERSION
+					+ " can't be replayed.");
+		}
+		int version = header.getInt(4);
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Segment " + path + " has format version "
+					+ version + ", but this log reads version "
+					+ FORMAT_VERSION + ".");
+		}
+	}
+
+	/**
+	 * Reads a record.
+	 *
+	 * @param channel
+	 *            the segment.
+	 * @param position
+	 *            the position of the record.
+	 * @param header
+	 *            buffer for the header of the record.
+	 * @return the identifier, the value and the payload length of the record,
+	 *         or null if the record is incomplete or corrupted.
+	 * @throws IOException
+	 *             if the segment can't be read.
+	 */
+	private Object[] readRecord(FileChannel channel, long position,
+			ByteBuffer header) throws IOException {
+		header.clear();
+		if (!readFully(channel, header, position)) {
+			return null;
+		}
+		header.flip();
+		int length = header.getInt();
+		int checksum = header.getInt();
+		if (length < 0 || position + HEADER_SIZE + length > channel.size()) {
+			return null;
+		}
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		if (!readFully(channel, payload, position + HEADER_SIZE)) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload.array(), 0, length);
+		if ((int) crc.getValue() != checksum) {
+			return null;
+		}
+		BinaryReader in = new BinaryReader(payload.array());
+		try {
+			String id = in.readString();
+			return new Object[] { id, codec.decode(in), length };
+		} catch (IllegalStateException e) {
+			throw new IOException("Can't read record at position " + position
+					+ ".", e);
+		}
+	}
+
+	/**
+	 * Fills a buffer from a channel.
+	 *
+	 * @param channel
+	 *            the channel to read.
+	 * @param buffer
+	 *            the buffer to fill.
+	 * @param position
+	 *            the position where to start reading.
+	 * @return false if the channel ended before filling the buffer.
+	 * @throws IOException
+	 *             if the channel can't be read.
+	 */
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				return false;
+			}
+			position += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Encodes a record into the buffer of the current Thread.
+	 *
+	 * @param id
+	 *            the identifier of the variable.
+	 * @param value
+	 *            the value set into the variable.
+	 * @return the buffer holding the record, header included.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value can't be encoded.
+	 */
+	private BinaryWriter encode(String id, Object value) {
+		BinaryWriter record = records.get().reset();
+		record.writeInt(0);
+		record.writeInt(0);
+		record.writeString(id);
+		codec.encode(value, record);
+
+		int length = record.size() - HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		crc.update(record.getBuffer(), HEADER_SIZE, length);
+		record.putInt(0, length);
+		record.putInt(4, (int) crc.getValue());
+		return record;
+	}
+
+	/**
+	 * Lists the segments of the log, oldest first.
+	 *
+	 * @return the segments.
+	 * @throws IOException
+	 *             if the directory can't be read.
+	 */
+	List<Path> listSegments() throws IOException {
+		List<Path> segments = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX);
+		try {
+			for (Path path : stream) {
+				segments.add(path);
+			}
+		} finally {
+			stream.close();
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * Deletes the segments holding only records before an LSN. The segment
+	 * being written is never deleted.
+	 *
+	 * @param lsn
+	 *            the LSN of the first record to keep.
+	 * @throws IOException
+	 *             if a segment can't be deleted.
+	 */
+	void truncateBefore(long lsn) throws IOException {
+		List<Path> segments = listSegments();
+		// A segment ends where the next one begins.
+		for (int i = 0; i < segments.size() - 1; i++) {
+			if (lsnOf(segments.get(i + 1)) > lsn) {
+				break;
+			}
+			Files.delete(segments.get(i));
+			logger.debug("Deleted segment [{}] before checkpoint [{}].",
+					segments.get(i), lsn);
+		}
+	}
+
+	/**
+	 * Gets the LSN the next record will have.
+	 *
+	 * @return the {@link #nextLsn}.
+	 */
+	long nextLsn() {
+		lock.lock();
+		try {
+			return nextLsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the LSN of the first record appended after the log was opened.
+	 * The records before it and after the checkpoint have been replayed.
+	 *
+	 * @return the {@link #openedLsn}.
+	 */
+	long getOpenedLsn() {
+		return openedLsn;
+	}
+
+	/**
+	 * Gets the variables of this log.
+	 *
+	 * @return the {@link #variables}.
+	 */
+	Collection<DurableAssignable> variables() {
+		return variables.values();
+	}
+
+	/**
+	 * Gets the values replayed from the log and not yet claimed by a
+	 * variable.
+	 *
+	 * @return the {@link #recovered} values.
+	 */
+	Map<String, Object> recoveredValues() {
+		return recovered;
+	}
+
+	/**
+	 * Gets the {@link #codec}.
+	 *
+	 * @return the {@link #codec}.
+	 */
+	public BinaryCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Gets the directory holding the checkpoints of this log.
+	 *
+	 * @return the directory of the checkpoints.
+	 */
+	Path getCheckpointDirectory() {
+		return directory.resolve(Checkpointer.DIRECTORY);
+	}
+
+	/**
+	 * Gets the LSN of the first record of a segment.
+	 *
+	 * @param segment
+	 *            the segment.
+	 * @return the LSN of its first record.
+	 */
+	static long lsnOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+				name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Replays the log and starts syncing.
+	 *
+	 * @return this object.
+	 * @throws IOException
+	 *             if the log can't be replayed.
+	 */
+	private WriteAheadLog open() throws IOException {
+		Files.createDirectories(directory);
+		replay();
+		segment = openSegment(nextLsn);
+		flusher.start();
+		return this;
+	}
+
+	/**
+	 * Syncs the pending records and closes the log. Assignments into its
+	 * variables fail afterwards.
+	 *
+	 * @throws IOException
+	 *             if the log failed before syncing all the records.
+	 */
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			appended.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while closing log " + directory + ".");
+		} finally {
+			lock.lock();
+			try {
+				synced.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		boolean empty = segment.size() <= SEGMENT_HEADER_SIZE;
+		segment.close();
+		// Doesn't leave behind segments without records.
+		if (empty) {
+			Files.delete(segmentPath(segmentLsn));
+		}
+		if (failure != null) {
+			throw new IOException("Log " + directory + " has failed.", failure);
+		}
+	}
+
+	/**
+	 * Gets the LSN of the last record synced to disk.
+	 *
+	 * @return the {@link #durableLsn}, or -1 if no record has been synced.
+	 */
+	public long getDurableLsn() {
+		return durableLsn;
+	}
+
+	/**
+	 * Gets the number of records appended since the log was opened.
+	 *
+	 * @return the {@link #appendedCount}.
+	 */
+	public long getAppendedCount() {
+		return appendedCount.get();
+	}
+
+	/**
+	 * Gets the number of syncs performed since the log was opened.
+	 *
+	 * @return the {@link #syncCount}.
+	 */
+	public long getSyncCount() {
+		return syncCount.get();
+	}
+
+	/**
+	 * Gets the {@link #directory}.
+	 *
+	 * @return the {@link #directory}.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WriteAheadLog [directory=" + directory + ", durableLsn="
+				+ durableLsn + ", maxBatch=" + maxBatch + ", closed="
+				+ closed + "]";
+	}
+
+	/**
+	 * Builder for a {@link WriteAheadLog}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The directory holding the segments.
+		 */
+		private final Path directory;
+
+		/**
+		 * Maximum number of records synced together.
+		 */
+		private int maxBatch = DEFAULT_MAX_BATCH;
+
+		/**
+		 * Time waited for a batch to fill, in nanoseconds.
+		 */
+		private long maxDelayNanos = TimeUnit.MICROSECONDS
+				.toNanos(DEFAULT_MAX_DELAY_MICROS);
+
+		/**
+		 * Size after which a new segment is started, in bytes.
+		 */
+		private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+		/**
+		 * The number of Threads loading the checkpoint.
+		 */
+		private int recoveryThreads = Runtime.getRuntime()
+				.availableProcessors();
+
+		/**
+		 * Writes and reads the values of the records.
+		 */
+		private BinaryCodec codec = BinaryCodec.getDefault();
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param directory
+		 *            the directory holding the segments.
+		 */
+		private Builder(Path directory) {
+			this.directory = directory;
+		}
+
+		/**
+		 * Configures the group commit. A sync starts as soon as a batch is
+		 * full or the delay has passed since the first record of the batch
+		 * was appended. A delay of 0 syncs right away whatever has been
+		 * appended while the previous sync was running.
+		 *
+		 * @param maxBatch
+		 *            the maximum number of records synced together.
+		 * @param maxDelay
+		 *            the time waited for a batch to fill.
+		 * @param unit
+		 *            the unit of the delay.
+		 * @return this object.
+		 */
+		public Builder groupCommit(int maxBatch, long maxDelay, TimeUnit unit) {
+			if (maxBatch < 1 || maxDelay < 0) {
+				throw new IllegalArgumentException("Invalid group commit of "
+						+ maxBatch + " records within " + maxDelay + " "
+						+ unit + ".");
+			}
+			this.maxBatch = maxBatch;
+			this.maxDelayNanos = unit.toNanos(maxDelay);
+			return this;
+		}
+
+		/**
+		 * Sets the size after which a new segment is started.
+		 *
+		 * @param segmentSize
+		 *            the size of a segment, in bytes.
+		 * @return this object.
+		 */
+		public Builder segmentSize(long segmentSize) {
+			if (segmentSize < 1) {
+				throw new IllegalArgumentException("Invalid segment size "
+						+ segmentSize + ".");
+			}
+			this.segmentSize = segmentSize;
+			return this;
+		}
+
+		/**
+		 * Sets the number of Threads loading the checkpoint when the log is
+		 * opened.
+		 *
+		 * @param recoveryThreads
+		 *            the number of Threads.
+		 * @return this object.
+		 */
+		public Builder recoveryThreads(int recoveryThreads) {
+			if (recoveryThreads < 1) {
+				throw new IllegalArgumentException(
+						"Invalid number of recovery Threads " + recoveryThreads
+								+ ".");
+			}
+			this.recoveryThreads = recoveryThreads;
+			return this;
+		}
+
+		/**
+		 * Sets the codec writing and reading the values of the records and
+		 * of the checkpoints. A log must always be opened with a codec which
+		 * knows the types it holds.
+		 *
+		 * @param codec
+		 *            the codec.
+		 * @return this object.
+		 */
+		public Builder codec(BinaryCodec codec) {
+			if (codec == null) {
+				throw new IllegalArgumentException(
+						"The codec of the log can't be null.");
+			}
+			this.codec = codec;
+			return this;
+		}
+
+		/**
+		 * Opens the log, replaying its segments.
+		 *
+		 * @return the log.
+		 * @throws IOException
+		 *             if the log can't be replayed.
+		 */
+		public WriteAheadLog open() throws IOException {
+			return new WriteAheadLog(this).open();
+		}
+	}
+
+}
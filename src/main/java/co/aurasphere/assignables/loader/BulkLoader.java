@@ -0,0 +1,1040 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.BulkAssignables;
+import co.aurasphere.assignables.codec.BinaryCodec;
+import co.aurasphere.assignables.codec.BinaryReader;
+import co.aurasphere.assignables.codec.BinaryWriter;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+
+/**
+ * Loads the records of a file into variables, in batches assigned through a
+ * {@link BulkAssignables} on many Threads. Each record has a key, which a
+ * {@link VariableResolver} turns into a variable, and a value. The file is
+ * read through bounded buffers, so the memory used doesn't depend on its
+ * size.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>CSV, a record per line with the key in the first field and the value in
+ * the second one. The file is split into a range of lines per Thread, each
+ * parsed on its own: keys and numbers are parsed straight from the bytes,
+ * without creating a string for each field. Fields can be quoted, but can't
+ * contain line breaks.</li>
+ * <li>binary, as written by
+ * {@link #writeRecord(BinaryWriter, String, Object, BinaryCodec)}. A single
+ * Thread reads the file and finds where the records end, handing buffers of
+ * whole records over to the others, which parse and assign them.</li>
+ * </ul>
+ * Loaders are created through {@link #csv(Path)} or {@link #binary(Path)} and
+ * start loading when the assignment policy is set.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkLoader {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(BulkLoader.class);
+
+	/**
+	 * The default size of the buffer of each Thread, in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Counter used to name the Threads.
+	 */
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * The file to load.
+	 */
+	private final Path file;
+
+	/**
+	 * Whether the file is a CSV one rather than a binary one.
+	 */
+	private final boolean csv;
+
+	/**
+	 * Finds the variables of the records.
+	 */
+	private VariableResolver resolver;
+
+	/**
+	 * The type of the values of a CSV file.
+	 */
+	private ValueType valueType = ValueType.STRING;
+
+	/**
+	 * The field delimiter of a CSV file.
+	 */
+	private byte delimiter = ',';
+
+	/**
+	 * Whether the first line of a CSV file is a header to skip.
+	 */
+	private boolean skipHeader;
+
+	/**
+	 * The codec of the values of a binary file.
+	 */
+	private BinaryCodec codec = BinaryCodec.getDefault();
+
+	/**
+	 * The number of Threads loading the file.
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The number of records assigned at once.
+	 */
+	private int batchSize = BulkAssignables.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * The size of the buffer of each Thread, in bytes. A record can't be
+	 * larger than this.
+	 */
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	/**
+	 * The policy used for the assignments.
+	 */
+	private AssignmentPolicy assignmentPolicy;
+
+	/**
+	 * The number of records assigned.
+	 */
+	private final AtomicLong loadedCount = new AtomicLong();
+
+	/**
+	 * The number of records skipped since their key had no variable.
+	 */
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new BulkLoader.
+	 *
+	 * @param file
+	 *            the {@link #file}.
+	 * @param csv
+	 *            the {@link #csv}.
+	 */
+	private BulkLoader(Path file, boolean csv) {
+		if (file == null) {
+			throw new IllegalArgumentException(
+					"The file to load can't be null.");
+		}
+		this.file = file;
+		this.csv = csv;
+	}
+
+	/**
+	 * Loads a CSV file.
+	 *
+	 * @param file
+	 *            the {@link #file}.
+	 * @return a new BulkLoader.
+	 */
+	public static BulkLoader csv(Path file) {
+		return new BulkLoader(file, true);
+	}
+
+	/**
+	 * Loads a binary file.
+	 *
+	 * @param file
+	 *            the {@link #file}.
+	 * @return a new BulkLoader.
+	 */
+	public static BulkLoader binary(Path file) {
+		return new BulkLoader(file, false);
+	}
+
+	/**
+	 * Writes a record of a binary file: its length as 4 bytes, the key as a
+	 * string and the value encoded by the codec.
+	 *
+	 * @param out
+	 *            where to write the record.
+	 * @param key
+	 *            the key of the record.
+	 * @param value
+	 *            the value of the record.
+	 * @param codec
+	 *            the codec of the value.
+	 */
+	public static void writeRecord(BinaryWriter out, String key, Object value,
+			BinaryCodec codec) {
+		int start = out.size();
+		out.writeInt(0);
+		out.writeString(key);
+		codec.encode(value, out);
+		out.putInt(start, out.size() - start - 4);
+	}
+
+	/**
+	 * Resolves the keys as the indexes of the variables in a list. The keys
+	 * are parsed without creating a string.
+	 *
+	 * @param variables
+	 *            the variables.
+	 * @return the resolver.
+	 */
+	public static VariableResolver indexed(
+			final List<? extends Assignable> variables) {
+		return new VariableResolver() {
+			public Assignable resolve(CharSequence key) {
+				long index;
+				try {
+					index = ValueType.parseLong(key);
+				} catch (NumberFormatException e) {
+					return null;
+				}
+				if (index < 0 || index >= variables.size()) {
+					return null;
+				}
+				return variables.get((int) index);
+			}
+		};
+	}
+
+	/**
+	 * Resolves the keys as the names of the variables in a map.
+	 *
+	 * @param variables
+	 *            the variables by name.
+	 * @return the resolver.
+	 */
+	public static VariableResolver named(
+			final Map<String, ? extends Assignable> variables) {
+		return new VariableResolver() {
+			public Assignable resolve(CharSequence key) {
+				return variables.get(key.toString());
+			}
+		};
+	}
+
+	/**
+	 * Sets how the variables of the records are found.
+	 *
+	 * @param resolver
+	 *            the {@link #resolver}.
+	 * @return this object.
+	 */
+	public BulkLoader into(VariableResolver resolver) {
+		this.resolver = resolver;
+		return this;
+	}
+
+	/**
+	 * Sets the type of the values of a CSV file. By default, they're loaded as
+	 * strings.
+	 *
+	 * @param valueType
+	 *            the {@link #valueType}.
+	 * @return this object.
+	 */
+	public BulkLoader values(ValueType valueType) {
+		if (valueType == null) {
+			throw new IllegalArgumentException("The value type can't be null.");
+		}
+		this.valueType = valueType;
+		return this;
+	}
+
+	/**
+	 * Sets the field delimiter of a CSV file. By default, it's a comma.
+	 *
+	 * @param delimiter
+	 *            the {@link #delimiter}.
+	 * @return this object.
+	 */
+	public BulkLoader delimiter(char delimiter) {
+		if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n'
+				|| delimiter == '\r') {
+			throw new IllegalArgumentException("Invalid delimiter "
+					+ delimiter + ".");
+		}
+		this.delimiter = (byte) delimiter;
+		return this;
+	}
+
+	/**
+	 * Skips the first line of a CSV file.
+	 *
+	 * @return this object.
+	 */
+	public BulkLoader skipHeader() {
+		this.skipHeader = true;
+		return this;
+	}
+
+	/**
+	 * Sets the codec of the values of a binary file.
+	 *
+	 * @param codec
+	 *            the {@link #codec}.
+	 * @return this object.
+	 */
+	public BulkLoader codec(BinaryCodec codec) {
+		if (codec == null) {
+			throw new IllegalArgumentException("The codec can't be null.");
+		}
+		this.codec = codec;
+		return this;
+	}
+
+	/**
+	 * Sets the number of Threads loading the file. By default, there's one
+	 * per processor.
+	 *
+	 * @param threads
+	 *            the {@link #threads}.
+	 * @return this object.
+	 */
+	public BulkLoader threads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException(
+					"The number of Threads must be positive.");
+		}
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Sets the number of records assigned at once.
+	 *
+	 * @param batchSize
+	 *            the {@link #batchSize}.
+	 * @return this object.
+	 */
+	public BulkLoader batchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"The batch size must be positive.");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Sets the size of the buffer of each Thread, which bounds the size of a
+	 * record.
+	 *
+	 * @param bufferSize
+	 *            the {@link #bufferSize}.
+	 * @return this object.
+	 */
+	public BulkLoader bufferSize(int bufferSize) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException(
+					"The buffer size must be at least 16 bytes.");
+		}
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	/**
+	 * Sets the policy to use for the assignments and loads the file, waiting
+	 * for all the records to be assigned.
+	 *
+	 * @param assignmentPolicy
+	 *            the policy to use.
+	 */
+	public void withAssignmentPolicy(AssignmentPolicy assignmentPolicy) {
+		if (resolver == null) {
+			throw new IllegalArgumentException(
+					"The variables into which load haven't been defined.");
+		}
+		this.assignmentPolicy = assignmentPolicy;
+		long start = System.nanoTime();
+		try {
+			if (csv) {
+				loadCsv();
+			} else {
+				loadBinary();
+			}
+		} catch (Exception e) {
+			logger.error("Error while loading file [{}].", file, e);
+			throw e instanceof AssignmentException ? (AssignmentException) e
+					: new AssignmentException(e);
+		}
+		logger.debug("Loaded [{}] records from [{}] in [{}] ms.",
+				loadedCount, file, (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * Gets the number of records assigned.
+	 *
+	 * @return the {@link #loadedCount}.
+	 */
+	public long getLoadedCount() {
+		return loadedCount.get();
+	}
+
+	/**
+	 * Gets the number of records skipped since their key had no variable.
+	 *
+	 * @return the {@link #skippedCount}.
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	/**
+	 * Loads a CSV file, splitting it into a range per Thread. Ranges are
+	 * split at any byte: each Thread loads the lines starting in its range.
+	 *
+	 * @throws Exception
+	 *             if the file can't be loaded.
+	 */
+	private void loadCsv() throws Exception {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		ExecutorService executor = null;
+		try {
+			long size = channel.size();
+			// Ranges smaller than a buffer aren't worth a Thread.
+			int ranges = (int) Math.max(1,
+					Math.min(threads, size / bufferSize));
+			logger.debug("Loading CSV file [{}] of [{}] bytes in [{}] ranges.",
+					file, size, ranges);
+			executor = newExecutor(ranges);
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < ranges; i++) {
+				final long from = size * i / ranges;
+				final long to = size * (i + 1) / ranges;
+				final FileChannel source = channel;
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						loadCsvRange(source, from, to);
+						return null;
+					}
+				}));
+			}
+			awaitAll(futures);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			channel.close();
+		}
+	}
+
+	/**
+	 * Loads the lines of a CSV file starting in a range of bytes.
+	 *
+	 * @param channel
+	 *            the file.
+	 * @param from
+	 *            the offset of the first byte of the range, inclusive.
+	 * @param to
+	 *            the offset of the last byte of the range, exclusive.
+	 * @throws IOException
+	 *             if the file can't be read or a line is malformed.
+	 */
+	private void loadCsvRange(FileChannel channel, long from, long to)
+			throws IOException {
+		byte[] buffer = new byte[bufferSize];
+		Batch batch = new Batch(batchSize);
+		ByteSequence key = new ByteSequence();
+		ByteSequence value = new ByteSequence();
+
+		// Unless the range starts a line, the line in progress belongs to the
+		// previous range. Starting one byte early tells whether it does.
+		boolean skipping = from > 0 || skipHeader;
+		long base = from > 0 ? from - 1 : 0;
+		int position = 0;
+		int limit = 0;
+		boolean eof = false;
+		while (true) {
+			int newline = indexOf(buffer, position, limit, (byte) '\n');
+			if (newline < 0) {
+				if (skipping) {
+					position = limit;
+				}
+				if (eof) {
+					if (!skipping && position < limit && base + position < to) {
+						parseLine(buffer, position, limit, base, key, value,
+								batch);
+					}
+					break;
+				}
+				// Moves the partial line to the start and reads the rest.
+				if (position > 0) {
+					System.arraycopy(buffer, position, buffer, 0, limit
+							- position);
+					base += position;
+					limit -= position;
+					position = 0;
+				}
+				if (limit == buffer.length) {
+					throw new IOException("Line at offset " + base
+							+ " is longer than the buffer of " + buffer.length
+							+ " bytes.");
+				}
+				int read = channel.read(
+						ByteBuffer.wrap(buffer, limit, buffer.length - limit),
+						base + limit);
+				if (read < 0) {
+					eof = true;
+				} else {
+					limit += read;
+				}
+				continue;
+			}
+			if (skipping) {
+				skipping = false;
+			} else if (base + position >= to) {
+				break;
+			} else {
+				parseLine(buffer, position, newline, base, key, value, batch);
+			}
+			position = newline + 1;
+		}
+		assign(batch);
+	}
+
+	/**
+	 * Parses a line of a CSV file and adds its record to a batch, assigning
+	 * the batch once full. Empty lines are ignored.
+	 *
+	 * @param buffer
+	 *            the buffer holding the line.
+	 * @param from
+	 *            the index of the first byte of the line, inclusive.
+	 * @param to
+	 *            the index of the line break, exclusive.
+	 * @param base
+	 *            the offset in the file of the start of the buffer.
+	 * @param key
+	 *            the sequence to reuse for the key.
+	 * @param value
+	 *            the sequence to reuse for the value.
+	 * @param batch
+	 *            the batch in progress.
+	 * @throws IOException
+	 *             if the line is malformed.
+	 */
+	private void parseLine(byte[] buffer, int from, int to, long base,
+			ByteSequence key, ByteSequence value, Batch batch)
+			throws IOException {
+		if (to > from && buffer[to - 1] == '\r') {
+			to--;
+		}
+		if (to == from) {
+			return;
+		}
+		int keyEnd = fieldEnd(buffer, from, to, base);
+		if (keyEnd == to) {
+			throw new IOException("Line at offset " + (base + from)
+					+ " has no value.");
+		}
+		int valueEnd = fieldEnd(buffer, keyEnd + 1, to, base);
+
+		CharSequence keyText = field(buffer, from, keyEnd, key);
+		Assignable variable = resolver.resolve(keyText);
+		if (variable == null) {
+			skippedCount.incrementAndGet();
+			return;
+		}
+		Object parsed = null;
+		if (valueEnd > keyEnd + 1) {
+			CharSequence valueText = field(buffer, keyEnd + 1, valueEnd, value);
+			try {
+				parsed = valueType.parse(valueText);
+			} catch (NumberFormatException e) {
+				throw new IOException("Line at offset " + (base + from)
+						+ " has an invalid value.", e);
+			}
+		}
+		if (batch.add(parsed, variable)) {
+			assign(batch);
+		}
+	}
+
+	/**
+	 * Finds the end of a field of a CSV line, skipping the delimiters in
+	 * quotes.
+	 *
+	 * @param buffer
+	 *            the buffer holding the line.
+	 * @param from
+	 *            the index of the first byte of the field.
+	 * @param to
+	 *            the index of the end of the line.
+	 * @param base
+	 *            the offset in the file of the start of the buffer.
+	 * @return the index of the delimiter after the field, or the end of the
+	 *         line.
+	 * @throws IOException
+	 *             if a quote is never closed.
+	 */
+	private int fieldEnd(byte[] buffer, int from, int to, long base)
+			throws IOException {
+		if (from < to && buffer[from] == '"') {
+			int i = from + 1;
+			while (true) {
+				if (i >= to) {
+					throw new IOException("Unclosed quote at offset "
+							+ (base + from) + ".");
+				}
+				if (buffer[i] == '"') {
+					if (i + 1 < to && buffer[i + 1] == '"') {
+						i += 2;
+						continue;
+					}
+					if (i + 1 < to && buffer[i + 1] != delimiter) {
+						throw new IOException(
+								"Unexpected character after quote at offset "
+										+ (base + i) + ".");
+					}
+					return i + 1;
+				}
+				i++;
+			}
+		}
+		int end = indexOf(buffer, from, to, delimiter);
+		return end < 0 ? to : end;
+	}
+
+	/**
+	 * Gets the text of a field of a CSV line. Quoted fields are unescaped
+	 * into a string, the others are viewed in place.
+	 *
+	 * @param buffer
+	 *            the buffer holding the line.
+	 * @param from
+	 *            the index of the first byte of the field, inclusive.
+	 * @param to
+	 *            the index of the last byte of the field, exclusive.
+	 * @param sequence
+	 *            the sequence to reuse for the view.
+	 * @return the text of the field.
+	 */
+	private static CharSequence field(byte[] buffer, int from, int to,
+			ByteSequence sequence) {
+		if (from == to || buffer[from] != '"') {
+			return sequence.reset(buffer, from, to);
+		}
+		String quoted = sequence.reset(buffer, from + 1, to - 1).toString();
+		return quoted.indexOf('"') < 0 ? quoted : quoted.replace("\"\"", "\"");
+	}
+
+	/**
+	 * Loads a binary file. The current Thread reads the file into a pool of
+	 * buffers and only finds where the records end: each buffer of whole
+	 * records is parsed and assigned on the other Threads, while the next one
+	 * is read. The partial record at the end of a buffer is moved to the next
+	 * one.
+	 *
+	 * @throws Exception
+	 *             if the file can't be loaded.
+	 */
+	private void loadBinary() throws Exception {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		ExecutorService executor = newExecutor(threads);
+		// A buffer for each Thread parsing and one being read.
+		final BlockingQueue<byte[]> free = new ArrayBlockingQueue<byte[]>(
+				threads + 1);
+		for (int i = 0; i <= threads; i++) {
+			free.add(new byte[bufferSize]);
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			logger.debug("Loading binary file [{}] of [{}] bytes.", file,
+					channel.size());
+			byte[] buffer = free.take();
+			long base = 0;
+			int limit = 0;
+			boolean eof = false;
+			while (!eof) {
+				while (limit < buffer.length) {
+					int read = channel.read(ByteBuffer.wrap(buffer, limit,
+							buffer.length - limit));
+					if (read < 0) {
+						eof = true;
+						break;
+					}
+					limit += read;
+				}
+				int end = frameRecords(buffer, limit, base);
+				if (eof && end < limit) {
+					throw new IOException("Truncated record at offset "
+							+ (base + end) + ".");
+				}
+				if (end == 0) {
+					continue;
+				}
+				byte[] next = free.take();
+				System.arraycopy(buffer, end, next, 0, limit - end);
+				futures.add(submitChunk(executor, free, buffer, end, base));
+				base += end;
+				limit -= end;
+				buffer = next;
+				checkFailed(futures);
+			}
+			awaitAll(futures);
+		} finally {
+			executor.shutdownNow();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Finds the end of the last whole record in a buffer of a binary file.
+	 *
+	 * @param buffer
+	 *            the buffer, starting with a record.
+	 * @param limit
+	 *            the number of bytes read into the buffer.
+	 * @param base
+	 *            the offset in the file of the start of the buffer.
+	 * @return the index after the last whole record.
+	 * @throws IOException
+	 *             if a record has a negative length or doesn't fit into the
+	 *             buffer.
+	 */
+	private static int frameRecords(byte[] buffer, int limit, long base)
+			throws IOException {
+		int position = 0;
+		while (limit - position >= 4) {
+			int length = ((buffer[position] & 0xFF) << 24)
+					| ((buffer[position + 1] & 0xFF) << 16)
+					| ((buffer[position + 2] & 0xFF) << 8)
+					| (buffer[position + 3] & 0xFF);
+			if (length < 0) {
+				throw new IOException("Record at offset " + (base + position)
+						+ " has a negative length.");
+			}
+			if (length > buffer.length - 4) {
+				throw new IOException("Record at offset " + (base + position)
+						+ " is longer than the buffer of " + buffer.length
+						+ " bytes.");
+			}
+			if (limit - position < 4 + length) {
+				break;
+			}
+			position += 4 + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Submits a buffer of whole records of a binary file to be parsed and
+	 * assigned. The buffer goes back to the pool once done.
+	 *
+	 * @param executor
+	 *            the Threads parsing the records.
+	 * @param free
+	 *            the pool of buffers.
+	 * @param buffer
+	 *            the buffer holding the records.
+	 * @param length
+	 *            the number of bytes of the records.
+	 * @param base
+	 *            the offset in the file of the start of the buffer.
+	 * @return the future of the task.
+	 */
+	private Future<?> submitChunk(ExecutorService executor,
+			final BlockingQueue<byte[]> free, final byte[] buffer,
+			final int length, final long base) {
+		try {
+			return executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					try {
+						loadBinaryChunk(buffer, length, base);
+					} finally {
+						free.add(buffer);
+					}
+					return null;
+				}
+			});
+		} catch (RuntimeException e) {
+			free.add(buffer);
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses the records of a buffer of a binary file and assigns them.
+	 *
+	 * @param buffer
+	 *            the buffer holding the records.
+	 * @param length
+	 *            the number of bytes of the records.
+	 * @param base
+	 *            the offset in the file of the start of the buffer.
+	 * @throws IOException
+	 *             if a record is malformed.
+	 */
+	private void loadBinaryChunk(byte[] buffer, int length, long base)
+			throws IOException {
+		BinaryReader in = new BinaryReader(buffer, 0, 0);
+		ByteSequence key = new ByteSequence();
+		Batch batch = new Batch(batchSize);
+		int position = 0;
+		while (position < length) {
+			int recordLength = in.reset(buffer, position, 4).readInt();
+			in.reset(buffer, position + 4, recordLength);
+			try {
+				int keyLength = in.readVarInt();
+				in.skip(keyLength);
+				int keyEnd = in.getPosition();
+				Assignable variable = resolver.resolve(key.reset(buffer,
+						keyEnd - keyLength, keyEnd));
+				if (variable == null) {
+					skippedCount.incrementAndGet();
+				} else if (batch.add(codec.decode(in), variable)) {
+					assign(batch);
+				}
+			} catch (IllegalStateException e) {
+				throw new IOException("Can't read record at offset "
+						+ (base + position) + ".", e);
+			}
+			position += 4 + recordLength;
+		}
+		assign(batch);
+	}
+
+	/**
+	 * Assigns the records of a batch and empties it.
+	 *
+	 * @param batch
+	 *            the batch.
+	 */
+	private void assign(Batch batch) {
+		if (batch.size == 0) {
+			return;
+		}
+		List<Object> values = Arrays.asList(batch.values);
+		List<Assignable> variables = Arrays.asList(batch.variables);
+		if (batch.size < batch.values.length) {
+			values = values.subList(0, batch.size);
+			variables = variables.subList(0, batch.size);
+		}
+		BulkAssignables.assignAll(values).into(variables)
+				.batchSize(batchSize).withAssignmentPolicy(assignmentPolicy);
+		loadedCount.addAndGet(batch.size);
+		batch.clear();
+	}
+
+	/**
+	 * Rethrows the error of the first failed assignment, if any, so that
+	 * parsing stops early.
+	 *
+	 * @param futures
+	 *            the futures of the assignments.
+	 * @throws Exception
+	 *             the error of the failed assignment.
+	 */
+	private static void checkFailed(List<Future<?>> futures) throws Exception {
+		for (Future<?> future : futures) {
+			if (future.isDone()) {
+				await(future);
+			}
+		}
+		// Completed futures don't need to be kept.
+		for (int i = futures.size() - 1; i >= 0; i--) {
+			if (futures.get(i).isDone()) {
+				futures.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Waits for some tasks to complete.
+	 *
+	 * @param futures
+	 *            the futures of the tasks.
+	 * @throws Exception
+	 *             the error of the first failed task.
+	 */
+	private static void awaitAll(List<Future<?>> futures) throws Exception {
+		for (Future<?> future : futures) {
+			await(future);
+		}
+	}
+
+	/**
+	 * Waits for a task to complete.
+	 *
+	 * @param future
+	 *            the future of the task.
+	 * @throws Exception
+	 *             the error of the task.
+	 */
+	private static void await(Future<?> future) throws Exception {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Finds a byte in a range of an array.
+	 *
+	 * @param buffer
+	 *            the array.
+	 * @param from
+	 *            the start of the range, inclusive.
+	 * @param to
+	 *            the end of the range, exclusive.
+	 * @param target
+	 *            the byte to find.
+	 * @return the index of the byte, or -1 if not found.
+	 */
+	private static int indexOf(byte[] buffer, int from, int to, byte target) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Creates the Threads loading a file.
+	 *
+	 * @param threads
+	 *            the number of Threads.
+	 * @return the Threads.
+	 */
+	private static ExecutorService newExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "assignables-loader-"
+						+ threadCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BulkLoader [file=" + file + ", csv=" + csv + ", valueType="
+				+ valueType + ", threads=" + threads + ", batchSize="
+				+ batchSize + ", bufferSize=" + bufferSize + ", loadedCount="
+				+ loadedCount + ", skippedCount=" + skippedCount + "]";
+	}
+
+	/**
+	 * Records waiting to be assigned together.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class Batch {
+
+		/**
+		 * The values of the records.
+		 */
+		private final Object[] values;
+
+		/**
+		 * The variables of the records.
+		 */
+		private final Assignable[] variables;
+
+		/**
+		 * The number of records in the batch.
+		 */
+		private int size;
+
+		/**
+		 * Instantiates a new Batch.
+		 *
+		 * @param capacity
+		 *            the maximum number of records.
+		 */
+		private Batch(int capacity) {
+			this.values = new Object[capacity];
+			this.variables = new Assignable[capacity];
+		}
+
+		/**
+		 * Adds a record.
+		 *
+		 * @param value
+		 *            the value of the record.
+		 * @param variable
+		 *            the variable of the record.
+		 * @return true if the batch is now full.
+		 */
+		private boolean add(Object value, Assignable variable) {
+			values[size] = value;
+			variables[size] = variable;
+			return ++size == values.length;
+		}
+
+		/**
+		 * Empties the batch, releasing its records.
+		 */
+		private void clear() {
+			Arrays.fill(values, 0, size, null);
+			Arrays.fill(variables, 0, size, null);
+			size = 0;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.loader;
+
+import java.nio.charset.Charset;
+
+/**
+ * Reusable view of a range of bytes of UTF-8 text as characters, so that
+ * fields can be looked at without creating a string for each of them. As long
+ * as the bytes are ASCII, each byte is a character and is read in place;
+ * otherwise, the bytes are decoded once and the characters are read from the
+ * decoded text.
+ * 
+ * @author Donato Rimenti
+ */
+final class ByteSequence implements CharSequence {
+
+	/**
+	 * The charset of the text.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The charset of ASCII text, decoded a byte per character.
+	 */
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * The bytes viewed.
+	 */
+	private byte[] bytes;
+
+	/**
+	 * The offset of the first byte viewed.
+	 */
+	private int offset;
+
+	/**
+	 * The number of bytes viewed.
+	 */
+	private int length;
+
+	/**
+	 * Whether the bytes have been checked to be ASCII.
+	 */
+	private boolean checked;
+
+	/**
+	 * The decoded text, if the bytes are not ASCII.
+	 */
+	private String decoded;
+
+	/**
+	 * Views another range of bytes.
+	 *
+	 * @param bytes
+	 *            the bytes.
+	 * @param from
+	 *            the index of the first byte, inclusive.
+	 * @param to
+	 *            the index of the last byte, exclusive.
+	 * @return this object.
+	 */
+	ByteSequence reset(byte[] bytes, int from, int to) {
+		this.bytes = bytes;
+		this.offset = from;
+		this.length = to - from;
+		this.checked = false;
+		this.decoded = null;
+		return this;
+	}
+
+	/**
+	 * Gets the decoded text if the bytes are not ASCII. The bytes are checked
+	 * only the first time.
+	 *
+	 * @return the decoded text, or null if the bytes are ASCII.
+	 */
+	private String decoded() {
+		if (!checked) {
+			checked = true;
+			for (int i = offset; i < offset + length; i++) {
+				if (bytes[i] < 0) {
+					decoded = new String(bytes, offset, length, UTF_8);
+					break;
+				}
+			}
+		}
+		return decoded;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.CharSequence#length()
+	 */
+	public int length() {
+		String text = decoded();
+		return text == null ? length : text.length();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.CharSequence#charAt(int)
+	 */
+	public char charAt(int index) {
+		String text = decoded();
+		if (text != null) {
+			return text.charAt(index);
+		}
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of a sequence of length " + length + ".");
+		}
+		return (char) bytes[offset + index];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.CharSequence#subSequence(int, int)
+	 */
+	public CharSequence subSequence(int start, int end) {
+		String text = decoded();
+		if (text != null) {
+			return text.subSequence(start, end);
+		}
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", "
+					+ end + ") out of a sequence of length " + length + ".");
+		}
+		return new ByteSequence().reset(bytes, offset + start, offset + end);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String text = decoded();
+		return text == null ? new String(bytes, offset, length, ISO_8859_1)
+				: text;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.loader;
+
+/**
+ * Type of the values of a CSV file loaded by a {@link BulkLoader}. Integers
+ * and booleans are parsed straight from the bytes of the file.
+ * 
+ * @author Donato Rimenti
+ */
+public enum ValueType {
+
+	/**
+	 * Values loaded as they are, as a {@link String}.
+	 */
+	STRING {
+		@Override
+		Object parse(CharSequence text) {
+			return text.toString();
+		}
+	},
+
+	/**
+	 * Values loaded as an {@link Integer}.
+	 */
+	INTEGER {
+		@Override
+		Object parse(CharSequence text) {
+			long value = parseLong(text);
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("Integer " + text
+						+ " out of range.");
+			}
+			return (int) value;
+		}
+	},
+
+	/**
+	 * Values loaded as a {@link Long}.
+	 */
+	LONG {
+		@Override
+		Object parse(CharSequence text) {
+			return parseLong(text);
+		}
+	},
+
+	/**
+	 * Values loaded as a {@link Double}.
+	 */
+	DOUBLE {
+		@Override
+		Object parse(CharSequence text) {
+			return Double.parseDouble(text.toString());
+		}
+	},
+
+	/**
+	 * Values loaded as a {@link Boolean}: true, false, 1 or 0, ignoring the
+	 * case.
+	 */
+	BOOLEAN {
+		@Override
+		Object parse(CharSequence text) {
+			if (matches(text, "true") || matches(text, "1")) {
+				return Boolean.TRUE;
+			}
+			if (matches(text, "false") || matches(text, "0")) {
+				return Boolean.FALSE;
+			}
+			throw new NumberFormatException("Invalid boolean " + text + ".");
+		}
+	};
+
+	/**
+	 * Parses a value. An empty field is loaded as null.
+	 *
+	 * @param text
+	 *            the text of the value, not empty.
+	 * @return the value.
+	 * @throws NumberFormatException
+	 *             if the value is malformed.
+	 */
+	abstract Object parse(CharSequence text);
+
+	/**
+	 * Parses a long without creating a string.
+	 *
+	 * @param text
+	 *            the text of the long.
+	 * @return the long.
+	 * @throws NumberFormatException
+	 *             if the long is malformed or out of range.
+	 */
+	static long parseLong(CharSequence text) {
+		int length = text.length();
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+			negative = text.charAt(0) == '-';
+			i++;
+		}
+		if (i == length) {
+			throw new NumberFormatException("Invalid number " + text + ".");
+		}
+		// Accumulates negatively, since the minimum has no positive.
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long value = 0;
+		for (; i < length; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || value < limit / 10
+					|| value * 10 < limit + digit) {
+				throw new NumberFormatException("Invalid number " + text
+						+ ".");
+			}
+			value = value * 10 - digit;
+		}
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Compares a text with a lowercase word, ignoring the case.
+	 *
+	 * @param text
+	 *            the text.
+	 * @param word
+	 *            the lowercase word.
+	 * @return true if they match.
+	 */
+	private static boolean matches(CharSequence text, String word) {
+		if (text.length() != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (Character.toLowerCase(text.charAt(i)) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.loader;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * Finds the variable into which a record loaded by a {@link BulkLoader} is
+ * assigned, given the key of the record.
+ * 
+ * @author Donato Rimenti
+ */
+public interface VariableResolver {
+
+	/**
+	 * Finds the variable of a key. The key is a view over the buffer of the
+	 * loader: it's valid only during this call and must be copied, for
+	 * instance through {@link CharSequence#toString()}, to be kept.
+	 *
+	 * @param key
+	 *            the key of the record.
+	 * @return the variable, or null to skip the record.
+	 */
+	public Assignable resolve(CharSequence key);
+}
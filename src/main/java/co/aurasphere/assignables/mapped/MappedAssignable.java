@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.mapped;
+
+import java.nio.ByteBuffer;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * {@link Assignable} stored in a slot of a {@link MappedAssignableStore}.
+ * Values are written straight into the mapped file, so they survive a restart
+ * of the JVM as soon as they're set, and a crash while setting a value leaves
+ * the previous one. Reads are served from memory: the slot is
+ * decoded the first time the variable is read and never again.
+ * <p>
+ * Slots can hold null, boxed primitives and strings which fit into them.
+ * Mapped variables are created through {@link MappedAssignableStore#slot(int)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class MappedAssignable extends Assignable {
+
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Placeholder for a content not yet read from the slot.
+	 */
+	private static final Object UNREAD = new Object();
+
+	/**
+	 * The mapped region holding the slot.
+	 */
+	private final transient ByteBuffer buffer;
+
+	/**
+	 * The offset of the slot in the {@link #buffer}.
+	 */
+	private final int offset;
+
+	/**
+	 * The size of the slot.
+	 */
+	private final int size;
+
+	/**
+	 * The index of the slot.
+	 */
+	private final int index;
+
+	/**
+	 * The content of the slot, decoded.
+	 */
+	private volatile Object cached = UNREAD;
+
+	/**
+	 * Instantiates a new MappedAssignable.
+	 *
+	 * @param buffer
+	 *            the {@link #buffer}.
+	 * @param offset
+	 *            the {@link #offset}.
+	 * @param size
+	 *            the {@link #size}.
+	 * @param index
+	 *            the {@link #index}.
+	 */
+	MappedAssignable(ByteBuffer buffer, int offset, int size, int index) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+		this.index = index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#get()
+	 */
+	@Override
+	public Object get() {
+		Object object = cached;
+		if (object == UNREAD) {
+			synchronized (this) {
+				object = cached;
+				if (object == UNREAD) {
+					object = SlotCodec.read(buffer, offset, size);
+					cached = object;
+				}
+			}
+		}
+		return object;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+	 */
+	@Override
+	public void set(Object object) {
+		// The write is started before taking the monitor, which a transaction
+		// committing into this variable needs while holding the write.
+		boolean started = beginWrite();
+		try {
+			synchronized (this) {
+				SlotCodec.write(buffer, offset, size, object);
+				super.set(object);
+				cached = object;
+			}
+		} finally {
+			if (started) {
+				endWrite();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// The content of the slot may not have been read yet.
+		Object object = get();
+		return 31 + (object == null ? 0 : object.hashCode());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Object object = get();
+		Object other = ((MappedAssignable) obj).get();
+		if (object == null) {
+			if (other != null)
+				return false;
+		} else if (!object.equals(other))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Gets the {@link #index}.
+	 *
+	 * @return the {@link #index}.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MappedAssignable [index=" + index + ", object=" + get() + "]";
+	}
+
+}
@@ -0,0 +1,366 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store of {@link MappedAssignable}s backed by a memory-mapped file split in
+ * fixed-size slots. Writes go straight into the page cache, so they survive a
+ * crash of the JVM without any sync, and {@link #force()} makes them survive a
+ * crash of the machine too. A write never overwrites the value it replaces,
+ * so a crash in the middle of it leaves the previous value in the slot.
+ * Opening an existing store just maps the file again: each slot is decoded
+ * only when its variable is first read.
+ * <p>
+ * A store is owned by a single process, which holds a lock on the file while
+ * it's open.
+ * <p>
+ * Stores are opened through {@link #at(Path)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class MappedAssignableStore implements Closeable {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(MappedAssignableStore.class);
+
+	/**
+	 * Default number of slots.
+	 */
+	public static final int DEFAULT_SLOTS = 1024;
+
+	/**
+	 * Default size of a slot, in bytes. Each of its two copies holds values
+	 * up to 48 bytes long.
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 128;
+
+	/**
+	 * Minimum size of a slot, in bytes: two copies holding a long each.
+	 */
+	static final int MIN_SLOT_SIZE = SlotCodec.MIN_SIZE;
+
+	/**
+	 * Size of the header of the file, in bytes. The slots start on a cache
+	 * line.
+	 */
+	static final int FILE_HEADER_SIZE = 64;
+
+	/**
+	 * Magic number at the start of the file.
+	 */
+	private static final int MAGIC = 0x4153534D;
+
+	/**
+	 * Version of the layout of the slots, after the magic number, the number
+	 * of slots and their size. Files written before slots had two copies
+	 * hold 0.
+	 */
+	static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The mapped file.
+	 */
+	private final Path file;
+
+	/**
+	 * The number of slots.
+	 */
+	private final int slots;
+
+	/**
+	 * The size of a slot, in bytes.
+	 */
+	private final int slotSize;
+
+	/**
+	 * The channel of the {@link #file}.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The lock held on the {@link #file}.
+	 */
+	private FileLock fileLock;
+
+	/**
+	 * The mapped region.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * The variables created so far, by slot.
+	 */
+	private final AtomicReferenceArray<MappedAssignable> variables;
+
+	/**
+	 * Instantiates a new MappedAssignableStore.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private MappedAssignableStore(Builder builder) {
+		this.file = builder.file;
+		this.slots = builder.slots;
+		this.slotSize = builder.slotSize;
+		this.variables = new AtomicReferenceArray<MappedAssignable>(slots);
+	}
+
+	/**
+	 * Starts configuring a store backed by a file.
+	 *
+	 * @param file
+	 *            the file backing the store. It's created if it doesn't
+	 *            exist.
+	 * @return a new builder.
+	 */
+	public static Builder at(Path file) {
+		if (file == null) {
+			throw new IllegalArgumentException(
+					"The file of the store can't be null.");
+		}
+		return new Builder(file);
+	}
+
+	/**
+	 * Gets the variable stored in a slot.
+	 *
+	 * @param index
+	 *            the index of the slot.
+	 * @return the variable.
+	 */
+	public MappedAssignable slot(int index) {
+		if (index < 0 || index >= slots) {
+			throw new IllegalArgumentException("Slot " + index
+					+ " out of the " + slots + " slots of store " + file
+					+ ".");
+		}
+		MappedAssignable variable = variables.get(index);
+		if (variable == null) {
+			variable = new MappedAssignable(buffer, FILE_HEADER_SIZE + index
+					* slotSize, slotSize, index);
+			if (!variables.compareAndSet(index, null, variable)) {
+				variable = variables.get(index);
+			}
+		}
+		return variable;
+	}
+
+	/**
+	 * Writes the content of the slots to disk.
+	 */
+	public void force() {
+		buffer.force();
+	}
+
+	/**
+	 * Maps the file, checking its header if it already exists.
+	 *
+	 * @return this object.
+	 * @throws IOException
+	 *             if the file can't be mapped or has a different layout.
+	 */
+	private MappedAssignableStore open() throws IOException {
+		long length = FILE_HEADER_SIZE + (long) slots * slotSize;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A store of " + slots
+					+ " slots of " + slotSize
+					+ " bytes doesn't fit into a single mapping.");
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			try {
+				fileLock = channel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				fileLock = null;
+			}
+			if (fileLock == null) {
+				throw new IOException("Store " + file + " is already open.");
+			}
+			boolean created = channel.size() == 0;
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.nativeOrder());
+			if (created) {
+				buffer.putInt(4, slots);
+				buffer.putInt(8, slotSize);
+				buffer.putInt(12, FORMAT_VERSION);
+				buffer.putInt(0, MAGIC);
+				logger.debug("Created store [{}] with [{}] slots of [{}] bytes.",
+						file, slots, slotSize);
+			} else if (buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != slots
+					|| buffer.getInt(8) != slotSize) {
+				throw new IOException("File " + file
+						+ " is not a store of " + slots + " slots of "
+						+ slotSize + " bytes.");
+			} else if (buffer.getInt(12) != FORMAT_VERSION) {
+				throw new IOException("Store " + file + " has format version "
+						+ buffer.getInt(12) + ", but version " + FORMAT_VERSION
+						+ " is required. Recreate the store.");
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the content of the slots to disk and closes the store.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed.
+	 */
+	public void close() throws IOException {
+		buffer.force();
+		fileLock.release();
+		channel.close();
+	}
+
+	/**
+	 * Gets the {@link #slots}.
+	 *
+	 * @return the {@link #slots}.
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Gets the {@link #slotSize}.
+	 *
+	 * @return the {@link #slotSize}.
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "MappedAssignableStore [file=" + file + ", slots=" + slots
+				+ ", slotSize=" + slotSize + "]";
+	}
+
+	/**
+	 * Builder for a {@link MappedAssignableStore}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The file backing the store.
+		 */
+		private final Path file;
+
+		/**
+		 * The number of slots.
+		 */
+		private int slots = DEFAULT_SLOTS;
+
+		/**
+		 * The size of a slot, in bytes.
+		 */
+		private int slotSize = DEFAULT_SLOT_SIZE;
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param file
+		 *            the file backing the store.
+		 */
+		private Builder(Path file) {
+			this.file = file;
+		}
+
+		/**
+		 * Sets the number of slots.
+		 *
+		 * @param slots
+		 *            the number of slots.
+		 * @return this object.
+		 */
+		public Builder slots(int slots) {
+			if (slots < 1) {
+				throw new IllegalArgumentException("Invalid number of slots "
+						+ slots + ".");
+			}
+			this.slots = slots;
+			return this;
+		}
+
+		/**
+		 * Sets the size of a slot. It's rounded up to a multiple of 8, so
+		 * that the values are aligned. A slot holds two copies of its value,
+		 * each with a 16 bytes header.
+		 *
+		 * @param slotSize
+		 *            the size of a slot, in bytes, header included.
+		 * @return this object.
+		 */
+		public Builder slotSize(int slotSize) {
+			if (slotSize < MIN_SLOT_SIZE) {
+				throw new IllegalArgumentException("Invalid slot size "
+						+ slotSize + ". A slot takes at least "
+						+ MIN_SLOT_SIZE + " bytes.");
+			}
+			this.slotSize = (slotSize + 7) & ~7;
+			return this;
+		}
+
+		/**
+		 * Opens the store, mapping its file.
+		 *
+		 * @return the store.
+		 * @throws IOException
+		 *             if the file can't be mapped or has a different layout.
+		 */
+		public MappedAssignableStore open() throws IOException {
+			return new MappedAssignableStore(this).open();
+		}
+	}
+
+}
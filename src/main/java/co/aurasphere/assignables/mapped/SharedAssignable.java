@@ -0,0 +1,361 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.mapped;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+import co.aurasphere.assignables.exception.AssignmentException;
+
+/**
+ * {@link Assignable} stored in a slot of a {@link SharedAssignableStore},
+ * visible to all the processes which map the same file. Each slot is guarded
+ * by a sequence lock: a writer makes the sequence odd, writes the value and
+ * makes it even again, while a reader retries until it reads the same even
+ * sequence before and after the value. Neither of them makes a system call.
+ * <p>
+ * Reads are served from memory as long as the sequence doesn't change, so a
+ * variable which is read often and written rarely is decoded once per write.
+ * <p>
+ * A writer which dies in the middle of a write leaves the sequence odd.
+ * Readers and writers waiting on the same odd sequence for longer than the
+ * maximum wait of the store fail with an {@link AssignmentException}: once
+ * the writer is known to be dead, {@link #repair()} releases the slot, which
+ * keeps the last value committed before the crash.
+ * Slots can hold null, boxed primitives and strings which fit into them.
+ * Shared variables are created through {@link SharedAssignableStore#slot(int)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class SharedAssignable extends Assignable {
+
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(SharedAssignable.class);
+
+	/**
+	 * Size of the sequence at the start of a slot.
+	 */
+	static final int SEQUENCE_SIZE = 8;
+
+	/**
+	 * Accesses the sequence of a slot with memory ordering.
+	 */
+	private static final VarHandle SEQUENCE = MethodHandles
+			.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	/**
+	 * The mapped region holding the slot.
+	 */
+	private final transient ByteBuffer buffer;
+
+	/**
+	 * The offset of the slot in the {@link #buffer}. The sequence comes
+	 * first, followed by the value.
+	 */
+	private final int offset;
+
+	/**
+	 * The size of the slot, sequence included.
+	 */
+	private final int size;
+
+	/**
+	 * The index of the slot.
+	 */
+	private final int index;
+
+	/**
+	 * How long to wait for a writer to release the slot, in nanoseconds.
+	 */
+	private final long maxWaitNanos;
+
+	/**
+	 * The last value decoded from the slot, with its sequence.
+	 */
+	private transient volatile Decoded decoded;
+
+	/**
+	 * Instantiates a new SharedAssignable.
+	 *
+	 * @param buffer
+	 *            the {@link #buffer}.
+	 * @param offset
+	 *            the {@link #offset}.
+	 * @param size
+	 *            the {@link #size}.
+	 * @param index
+	 *            the {@link #index}.
+	 * @param maxWaitNanos
+	 *            the {@link #maxWaitNanos}.
+	 */
+	SharedAssignable(ByteBuffer buffer, int offset, int size, int index,
+			long maxWaitNanos) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+		this.index = index;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#get()
+	 */
+	@Override
+	public Object get() {
+		Decoded current = decoded;
+		int attempts = 0;
+		long held = 0;
+		long heldSince = 0;
+		while (true) {
+			long before = (long) SEQUENCE.getAcquire(buffer, offset);
+			if (current != null && current.sequence == before) {
+				return current.value;
+			}
+			if ((before & 1) != 0) {
+				if (before != held) {
+					held = before;
+					heldSince = System.nanoTime();
+				} else if (System.nanoTime() - heldSince > maxWaitNanos) {
+					throw stuck(before);
+				}
+			} else {
+				Object value = null;
+				boolean torn = false;
+				try {
+					value = SlotCodec.read(buffer, offset + SEQUENCE_SIZE, size
+							- SEQUENCE_SIZE);
+				} catch (IllegalStateException e) {
+					// The value may be read while being written.
+					torn = true;
+				}
+				// The value must be read before checking the sequence again.
+				VarHandle.loadLoadFence();
+				long after = (long) SEQUENCE.getAcquire(buffer, offset);
+				if (before == after) {
+					if (torn) {
+						throw new IllegalStateException("Slot " + index
+								+ " is corrupted.");
+					}
+					current = new Decoded(before, value);
+					decoded = current;
+					return value;
+				}
+			}
+			WaitStrategy.YIELD.idle(attempts++);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+	 */
+	@Override
+	public void set(Object object) {
+		// Only the writes of this process are stamped: the ones of other
+		// processes are fenced by the sequence alone.
+		boolean started = beginWrite();
+		try {
+			long sequence;
+			int attempts = 0;
+			long held = 0;
+			long heldSince = 0;
+			// The sequence is odd while a writer of any process holds it.
+			while (((sequence = (long) SEQUENCE.getVolatile(buffer, offset)) & 1) != 0
+					|| !SEQUENCE.compareAndSet(buffer, offset, sequence,
+							sequence + 1)) {
+				if ((sequence & 1) != 0) {
+					if (sequence != held) {
+						held = sequence;
+						heldSince = System.nanoTime();
+					} else if (System.nanoTime() - heldSince > maxWaitNanos) {
+						throw stuck(sequence);
+					}
+				}
+				WaitStrategy.YIELD.idle(attempts++);
+			}
+			try {
+				SlotCodec.write(buffer, offset + SEQUENCE_SIZE, size
+						- SEQUENCE_SIZE, object);
+			} finally {
+				SEQUENCE.setRelease(buffer, offset, sequence + 2);
+			}
+		} finally {
+			if (started) {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Releases the slot left held by a writer which died in the middle of a
+	 * write. The slot keeps the last value committed before the crash.
+	 * <p>
+	 * This must be called only once the writer is known to be dead, for
+	 * instance after its process has exited: releasing the slot while the
+	 * writer is still running lets other writers overwrite the copy it's
+	 * writing.
+	 *
+	 * @return true if the slot was held and has been released, false if no
+	 *         writer held it.
+	 */
+	public boolean repair() {
+		long sequence = (long) SEQUENCE.getVolatile(buffer, offset);
+		if ((sequence & 1) == 0
+				|| !SEQUENCE.compareAndSet(buffer, offset, sequence,
+						sequence + 1)) {
+			return false;
+		}
+		logger.warn("Released slot [{}] held by writer at sequence [{}].",
+				index, sequence);
+		return true;
+	}
+
+	/**
+	 * Creates the exception thrown when a writer holds the slot for too long.
+	 *
+	 * @param sequence
+	 *            the sequence of the slot.
+	 * @return the exception.
+	 */
+	private AssignmentException stuck(long sequence) {
+		return new AssignmentException("Slot " + index
+				+ " has been held by a writer at sequence " + sequence
+				+ " for more than " + maxWaitNanos
+				+ " ns. If the writer has died, call repair() to release it.");
+	}
+
+	/**
+	 * Gets the number of writes into the slot since it was created, in any
+	 * process.
+	 *
+	 * @return the number of writes.
+	 */
+	public long getWriteCount() {
+		return ((long) SEQUENCE.getAcquire(buffer, offset) + 1) >>> 1;
+	}
+
+	/**
+	 * Gets the {@link #index}.
+	 *
+	 * @return the {@link #index}.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		// The content is only in the slot, where other processes change it.
+		Object object = get();
+		return 31 + (object == null ? 0 : object.hashCode());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Object object = get();
+		Object other = ((SharedAssignable) obj).get();
+		if (object == null) {
+			if (other != null)
+				return false;
+		} else if (!object.equals(other))
+			return false;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#toString()
+	 */
+	@Override
+	public String toString() {
+		return "SharedAssignable [index=" + index + ", object=" + get() + "]";
+	}
+
+	/**
+	 * Value decoded from a slot.
+	 *
+	 * @author Donato Rimenti
+	 */
+	private static final class Decoded {
+
+		/**
+		 * The sequence of the slot when the value was read.
+		 */
+		private final long sequence;
+
+		/**
+		 * The value.
+		 */
+		private final Object value;
+
+		/**
+		 * Instantiates a new Decoded.
+		 *
+		 * @param sequence
+		 *            the {@link #sequence}.
+		 * @param value
+		 *            the {@link #value}.
+		 */
+		private Decoded(long sequence, Object value) {
+			this.sequence = sequence;
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,416 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+
+/**
+ * Store of {@link SharedAssignable}s backed by a memory-mapped file which
+ * several processes on the same host map at the same time, such as a file
+ * under <code>/dev/shm</code>. A value assigned by a process is seen by the
+ * others as soon as they read the variable, without any system call.
+ * <p>
+ * All the processes must open the store with the same number and size of
+ * slots. The first one to open the file claims its header and lays it out,
+ * while the others wait for it, up to the maximum wait, and then check the
+ * layout against their own. A process which dies
+ * while writing a slot leaves it held: the others fail after the maximum
+ * wait, until the slot is released through {@link SharedAssignable#repair()}.
+ * <p>
+ * Stores are opened through {@link #at(Path)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class SharedAssignableStore implements Closeable {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(SharedAssignableStore.class);
+
+	/**
+	 * Default number of slots.
+	 */
+	public static final int DEFAULT_SLOTS = 4096;
+
+	/**
+	 * Default size of a slot, in bytes. It fills two cache lines, so that
+	 * writing a slot doesn't slow down the readers of its neighbours, and
+	 * each of its two copies holds values up to 40 bytes long.
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 128;
+
+	/**
+	 * Default time waited for a writer to release a slot, in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 1000;
+
+	/**
+	 * Minimum size of a slot, in bytes: a sequence and two copies of a long.
+	 */
+	static final int MIN_SLOT_SIZE = SharedAssignable.SEQUENCE_SIZE
+			+ MappedAssignableStore.MIN_SLOT_SIZE;
+
+	/**
+	 * Magic number at the start of the file.
+	 */
+	private static final int MAGIC = 0x41535348;
+
+	/**
+	 * Value of the magic number while a process is laying out the file.
+	 */
+	private static final int LAYING_OUT = 0x4153534C;
+
+	/**
+	 * Accesses the magic number with memory ordering, so that a process
+	 * reading it sees the layout written before it.
+	 */
+	private static final VarHandle HEADER = MethodHandles
+			.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+	/**
+	 * The mapped file.
+	 */
+	private final Path file;
+
+	/**
+	 * The number of slots.
+	 */
+	private final int slots;
+
+	/**
+	 * The size of a slot, in bytes.
+	 */
+	private final int slotSize;
+
+	/**
+	 * How long to wait for a writer to release a slot, in nanoseconds.
+	 */
+	private final long maxWaitNanos;
+
+	/**
+	 * The channel of the {@link #file}.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The mapped region.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * The variables created so far, by slot.
+	 */
+	private final AtomicReferenceArray<SharedAssignable> variables;
+
+	/**
+	 * Instantiates a new SharedAssignableStore.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private SharedAssignableStore(Builder builder) {
+		this.file = builder.file;
+		this.slots = builder.slots;
+		this.slotSize = builder.slotSize;
+		this.maxWaitNanos = builder.maxWaitNanos;
+		this.variables = new AtomicReferenceArray<SharedAssignable>(slots);
+	}
+
+	/**
+	 * Starts configuring a store backed by a file.
+	 *
+	 * @param file
+	 *            the file backing the store. It's created if it doesn't
+	 *            exist.
+	 * @return a new builder.
+	 */
+	public static Builder at(Path file) {
+		if (file == null) {
+			throw new IllegalArgumentException(
+					"The file of the store can't be null.");
+		}
+		return new Builder(file);
+	}
+
+	/**
+	 * Gets the variable stored in a slot.
+	 *
+	 * @param index
+	 *            the index of the slot.
+	 * @return the variable.
+	 */
+	public SharedAssignable slot(int index) {
+		if (index < 0 || index >= slots) {
+			throw new IllegalArgumentException("Slot " + index
+					+ " out of the " + slots + " slots of store " + file
+					+ ".");
+		}
+		SharedAssignable variable = variables.get(index);
+		if (variable == null) {
+			variable = new SharedAssignable(buffer,
+					MappedAssignableStore.FILE_HEADER_SIZE + index * slotSize,
+					slotSize, index, maxWaitNanos);
+			if (!variables.compareAndSet(index, null, variable)) {
+				variable = variables.get(index);
+			}
+		}
+		return variable;
+	}
+
+	/**
+	 * Maps the file, laying it out if no other process did it before.
+	 *
+	 * @return this object.
+	 * @throws IOException
+	 *             if the file can't be mapped or has a different layout.
+	 */
+	private SharedAssignableStore open() throws IOException {
+		long length = MappedAssignableStore.FILE_HEADER_SIZE + (long) slots
+				* slotSize;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A store of " + slots
+					+ " slots of " + slotSize
+					+ " bytes doesn't fit into a single mapping.");
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.nativeOrder());
+			// Only the process which claims the header lays out the file.
+			if (HEADER.compareAndSet(buffer, 0, 0, LAYING_OUT)) {
+				buffer.putInt(4, slots);
+				buffer.putInt(8, slotSize);
+				buffer.putInt(12, MappedAssignableStore.FORMAT_VERSION);
+				HEADER.setRelease(buffer, 0, MAGIC);
+				logger.debug("Laid out store [{}] with [{}] slots of [{}] bytes.",
+						file, slots, slotSize);
+			} else if (awaitLayout() != MAGIC
+					|| buffer.getInt(4) != slots
+					|| buffer.getInt(8) != slotSize) {
+				throw new IOException("File " + file
+						+ " is not a shared store of " + slots + " slots of "
+						+ slotSize + " bytes.");
+			} else if (buffer.getInt(12) != MappedAssignableStore
+					.FORMAT_VERSION) {
+				throw new IOException("Shared store " + file
+						+ " has format version " + buffer.getInt(12)
+						+ ", but version "
+						+ MappedAssignableStore.FORMAT_VERSION
+						+ " is required. Recreate the store.");
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * Waits for the process which claimed the header to lay out the file, up
+	 * to the {@link #maxWaitNanos}.
+	 *
+	 * @return the magic number once the file has been laid out.
+	 * @throws IOException
+	 *             if the file is still being laid out after the maximum wait,
+	 *             such as when the process laying it out died.
+	 */
+	private int awaitLayout() throws IOException {
+		int magic;
+		int attempts = 0;
+		long start = System.nanoTime();
+		while ((magic = (int) HEADER.getAcquire(buffer, 0)) == LAYING_OUT) {
+			if (System.nanoTime() - start > maxWaitNanos) {
+				throw new IOException("File " + file
+						+ " is still being laid out after " + maxWaitNanos
+						+ " nanoseconds. The process laying it out may have"
+						+ " died: recreate the store.");
+			}
+			WaitStrategy.YIELD.idle(attempts++);
+		}
+		return magic;
+	}
+
+	/**
+	 * Closes the store. The values stay in the file for the other processes.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed.
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Gets the {@link #slots}.
+	 *
+	 * @return the {@link #slots}.
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Gets the {@link #slotSize}.
+	 *
+	 * @return the {@link #slotSize}.
+	 */
+	public int getSlotSize() {
+		return slotSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "SharedAssignableStore [file=" + file + ", slots=" + slots
+				+ ", slotSize=" + slotSize + "]";
+	}
+
+	/**
+	 * Builder for a {@link SharedAssignableStore}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The file backing the store.
+		 */
+		private final Path file;
+
+		/**
+		 * The number of slots.
+		 */
+		private int slots = DEFAULT_SLOTS;
+
+		/**
+		 * The size of a slot, in bytes.
+		 */
+		private int slotSize = DEFAULT_SLOT_SIZE;
+
+		/**
+		 * How long to wait for a writer to release a slot, in nanoseconds.
+		 */
+		private long maxWaitNanos = TimeUnit.MILLISECONDS
+				.toNanos(DEFAULT_MAX_WAIT_MILLIS);
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param file
+		 *            the file backing the store.
+		 */
+		private Builder(Path file) {
+			this.file = file;
+		}
+
+		/**
+		 * Sets the number of slots.
+		 *
+		 * @param slots
+		 *            the number of slots.
+		 * @return this object.
+		 */
+		public Builder slots(int slots) {
+			if (slots < 1) {
+				throw new IllegalArgumentException("Invalid number of slots "
+						+ slots + ".");
+			}
+			this.slots = slots;
+			return this;
+		}
+
+		/**
+		 * Sets the size of a slot. It's rounded up to a multiple of 8, so
+		 * that the sequences are aligned. After the sequence, a slot holds two
+		 * copies of its value, each with a 16 bytes header.
+		 *
+		 * @param slotSize
+		 *            the size of a slot, in bytes, sequence included.
+		 * @return this object.
+		 */
+		public Builder slotSize(int slotSize) {
+			if (slotSize < MIN_SLOT_SIZE) {
+				throw new IllegalArgumentException("Invalid slot size "
+						+ slotSize + ". A slot takes at least "
+						+ MIN_SLOT_SIZE + " bytes.");
+			}
+			this.slotSize = (slotSize + 7) & ~7;
+			return this;
+		}
+
+		/**
+		 * Sets how long readers and writers wait for a writer to release a
+		 * slot before failing. It should be much longer than a write, since a
+		 * slot held that long is assumed to belong to a dead writer.
+		 *
+		 * @param maxWait
+		 *            the maximum time to wait.
+		 * @param unit
+		 *            the unit of the time.
+		 * @return this object.
+		 */
+		public Builder maxWait(long maxWait, TimeUnit unit) {
+			if (maxWait < 1) {
+				throw new IllegalArgumentException("Invalid maximum wait "
+						+ maxWait + " " + unit + ".");
+			}
+			this.maxWaitNanos = unit.toNanos(maxWait);
+			return this;
+		}
+
+		/**
+		 * Opens the store, mapping its file.
+		 *
+		 * @return the store.
+		 * @throws IOException
+		 *             if the file can't be mapped or has a different layout.
+		 */
+		public SharedAssignableStore open() throws IOException {
+			return new SharedAssignableStore(this).open();
+		}
+	}
+
+}
@@ -0,0 +1,404 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.mapped;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+
+/**
+ * Writes values into fixed-size slots of a buffer and reads them back. Values
+ * are never written in place: a slot holds two copies and each write goes
+ * into the one not holding the latest value, so a crash in the middle of a
+ * write leaves the previous value readable.
+ * <p>
+ * A copy starts with a commit word, which holds the generation of the copy
+ * and the checksum of the rest of it and is written last. The rest is a type
+ * tag, the length of the value and the value itself: primitives (boxed) are
+ * written as they are and strings in UTF-8, as long as they fit into the
+ * copy. Reads return the value of the valid copy with the latest generation.
+ * A slot which has never been written holds null.
+ * 
+ * @author Donato Rimenti
+ */
+final class SlotCodec {
+
+	/**
+	 * Size of the header of a copy: the commit word, the type tag, padding
+	 * and the length.
+	 */
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Minimum size of a slot: two copies holding a long each.
+	 */
+	static final int MIN_SIZE = 2 * (HEADER_SIZE + 8);
+
+	/**
+	 * Tag of an empty slot.
+	 */
+	private static final byte NULL = 0;
+
+	/**
+	 * Tag of a {@link Boolean}.
+	 */
+	private static final byte BOOLEAN = 1;
+
+	/**
+	 * Tag of a {@link Byte}.
+	 */
+	private static final byte BYTE = 2;
+
+	/**
+	 * Tag of a {@link Short}.
+	 */
+	private static final byte SHORT = 3;
+
+	/**
+	 * Tag of a {@link Character}.
+	 */
+	private static final byte CHARACTER = 4;
+
+	/**
+	 * Tag of an {@link Integer}.
+	 */
+	private static final byte INTEGER = 5;
+
+	/**
+	 * Tag of a {@link Long}.
+	 */
+	private static final byte LONG = 6;
+
+	/**
+	 * Tag of a {@link Float}.
+	 */
+	private static final byte FLOAT = 7;
+
+	/**
+	 * Tag of a {@link Double}.
+	 */
+	private static final byte DOUBLE = 8;
+
+	/**
+	 * Tag of a {@link String}.
+	 */
+	private static final byte STRING = 9;
+
+	/**
+	 * The charset of the strings.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Instantiates a new SlotCodec.
+	 */
+	private SlotCodec() {
+	}
+
+	/**
+	 * Writes a value into a slot.
+	 *
+	 * @param buffer
+	 *            the buffer holding the slot.
+	 * @param offset
+	 *            the offset of the slot.
+	 * @param size
+	 *            the size of the slot.
+	 * @param value
+	 *            the value to write.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value has an unsupported type or doesn't fit into
+	 *             the slot.
+	 */
+	static void write(ByteBuffer buffer, int offset, int size, Object value) {
+		int copySize = copySize(size);
+		int latest = latest(buffer, offset, copySize);
+		int generation = 1;
+		if (latest >= 0) {
+			generation = generationOf(buffer.getLong(offset + latest
+					* copySize)) + 1;
+			// Generation 0 marks a copy never written.
+			if (generation == 0) {
+				generation = 1;
+			}
+		}
+		int copy = offset + (latest == 0 ? copySize : 0);
+		int payload = copy + HEADER_SIZE;
+		byte tag;
+		int length;
+		if (value == null) {
+			tag = NULL;
+			length = 0;
+		} else if (value instanceof Boolean) {
+			tag = BOOLEAN;
+			length = 1;
+			buffer.put(payload, (byte) (((Boolean) value) ? 1 : 0));
+		} else if (value instanceof Byte) {
+			tag = BYTE;
+			length = 1;
+			buffer.put(payload, (Byte) value);
+		} else if (value instanceof Short) {
+			tag = SHORT;
+			length = 2;
+			buffer.putShort(payload, (Short) value);
+		} else if (value instanceof Character) {
+			tag = CHARACTER;
+			length = 2;
+			buffer.putChar(payload, (Character) value);
+		} else if (value instanceof Integer) {
+			tag = INTEGER;
+			length = 4;
+			buffer.putInt(payload, (Integer) value);
+		} else if (value instanceof Long) {
+			tag = LONG;
+			length = 8;
+			buffer.putLong(payload, (Long) value);
+		} else if (value instanceof Float) {
+			tag = FLOAT;
+			length = 4;
+			buffer.putFloat(payload, (Float) value);
+		} else if (value instanceof Double) {
+			tag = DOUBLE;
+			length = 8;
+			buffer.putDouble(payload, (Double) value);
+		} else if (value instanceof String) {
+			byte[] bytes = ((String) value).getBytes(UTF_8);
+			checkFits(bytes.length, size, value);
+			tag = STRING;
+			length = bytes.length;
+			for (int i = 0; i < length; i++) {
+				buffer.put(payload + i, bytes[i]);
+			}
+		} else {
+			throw new UnsupportedAssignmentException("Value " + value
+					+ " of type " + value.getClass().getName()
+					+ " can't be written into a slot.");
+		}
+		checkFits(length, size, value);
+		buffer.put(copy + 8, tag);
+		buffer.putInt(copy + 12, length);
+		int checksum = checksum(buffer, copy, length, generation);
+		// The copy must be complete before it's committed.
+		VarHandle.releaseFence();
+		buffer.putLong(copy, ((long) generation << 32)
+				| (checksum & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Reads the value of a slot.
+	 *
+	 * @param buffer
+	 *            the buffer holding the slot.
+	 * @param offset
+	 *            the offset of the slot.
+	 * @param size
+	 *            the size of the slot.
+	 * @return the value of the slot.
+	 * @throws IllegalStateException
+	 *             if the slot is corrupted.
+	 */
+	static Object read(ByteBuffer buffer, int offset, int size) {
+		int copySize = copySize(size);
+		int latest = latest(buffer, offset, copySize);
+		if (latest < 0) {
+			// A crash during the first write leaves the commit words empty.
+			if (buffer.getLong(offset) == 0
+					&& buffer.getLong(offset + copySize) == 0) {
+				return null;
+			}
+			throw new IllegalStateException("Corrupted slot at offset "
+					+ offset + ": no valid copy.");
+		}
+		int copy = offset + latest * copySize;
+		int payload = copy + HEADER_SIZE;
+		byte tag = buffer.get(copy + 8);
+		switch (tag) {
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return buffer.get(payload) != 0;
+		case BYTE:
+			return buffer.get(payload);
+		case SHORT:
+			return buffer.getShort(payload);
+		case CHARACTER:
+			return buffer.getChar(payload);
+		case INTEGER:
+			return buffer.getInt(payload);
+		case LONG:
+			return buffer.getLong(payload);
+		case FLOAT:
+			return buffer.getFloat(payload);
+		case DOUBLE:
+			return buffer.getDouble(payload);
+		case STRING:
+			int length = buffer.getInt(copy + 12);
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(payload + i);
+			}
+			return new String(bytes, UTF_8);
+		default:
+			throw new IllegalStateException("Corrupted slot at offset "
+					+ offset + ": unknown tag " + tag + ".");
+		}
+	}
+
+	/**
+	 * Gets the largest value which fits into a slot.
+	 *
+	 * @param size
+	 *            the size of the slot.
+	 * @return the maximum length of a value, in bytes.
+	 */
+	static int capacity(int size) {
+		return copySize(size) - HEADER_SIZE;
+	}
+
+	/**
+	 * Gets the size of each of the copies of a slot, rounded down to a
+	 * multiple of 8 so that the commit words are aligned.
+	 *
+	 * @param size
+	 *            the size of the slot.
+	 * @return the size of a copy.
+	 */
+	private static int copySize(int size) {
+		return (size / 2) & ~7;
+	}
+
+	/**
+	 * Finds the valid copy of a slot with the latest generation.
+	 *
+	 * @param buffer
+	 *            the buffer holding the slot.
+	 * @param offset
+	 *            the offset of the slot.
+	 * @param copySize
+	 *            the size of a copy.
+	 * @return the index of the copy, or -1 if no copy is valid.
+	 */
+	private static int latest(ByteBuffer buffer, int offset, int copySize) {
+		int first = generationOf(buffer.getLong(offset));
+		int second = generationOf(buffer.getLong(offset + copySize));
+		// Generations wrap around.
+		int newer = second != 0 && (first == 0 || second - first > 0) ? 1
+				: 0;
+		if (isValid(buffer, offset + newer * copySize, copySize)) {
+			return newer;
+		}
+		if (isValid(buffer, offset + (1 - newer) * copySize, copySize)) {
+			return 1 - newer;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether a copy has been committed and not overwritten since.
+	 *
+	 * @param buffer
+	 *            the buffer holding the copy.
+	 * @param copy
+	 *            the offset of the copy.
+	 * @param copySize
+	 *            the size of the copy.
+	 * @return true if the copy matches its commit word.
+	 */
+	private static boolean isValid(ByteBuffer buffer, int copy, int copySize) {
+		long commit = buffer.getLong(copy);
+		int generation = generationOf(commit);
+		if (generation == 0) {
+			return false;
+		}
+		// The commit word must be read before the copy.
+		VarHandle.acquireFence();
+		int length = buffer.getInt(copy + 12);
+		if (length < 0 || length > copySize - HEADER_SIZE) {
+			return false;
+		}
+		return checksum(buffer, copy, length, generation) == (int) commit;
+	}
+
+	/**
+	 * Computes the checksum of a copy: its tag, length, value and
+	 * generation.
+	 *
+	 * @param buffer
+	 *            the buffer holding the copy.
+	 * @param copy
+	 *            the offset of the copy.
+	 * @param length
+	 *            the length of the value.
+	 * @param generation
+	 *            the generation of the copy.
+	 * @return the checksum.
+	 */
+	private static int checksum(ByteBuffer buffer, int copy, int length,
+			int generation) {
+		ByteBuffer content = buffer.duplicate();
+		content.limit(copy + HEADER_SIZE + length);
+		content.position(copy + 8);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			crc.update(generation >>> shift);
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Gets the generation held by a commit word.
+	 *
+	 * @param commit
+	 *            the commit word.
+	 * @return the generation, or 0 if the copy has never been committed.
+	 */
+	private static int generationOf(long commit) {
+		return (int) (commit >>> 32);
+	}
+
+	/**
+	 * Checks that a value fits into a slot.
+	 *
+	 * @param length
+	 *            the length of the value.
+	 * @param size
+	 *            the size of the slot.
+	 * @param value
+	 *            the value, for the error message.
+	 * @throws UnsupportedAssignmentException
+	 *             if the value doesn't fit.
+	 */
+	private static void checkFits(int length, int size, Object value) {
+		if (length > capacity(size)) {
+			throw new UnsupportedAssignmentException("Value " + value
+					+ " takes " + length + " bytes, but a slot holds at most "
+					+ capacity(size) + ".");
+		}
+	}
+
+}
@@ -34,7 +34,8 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class AssignIfNotAlreadyThereAssigmentPolicy implements AssignmentPolicy {
+public class AssignIfNotAlreadyThereAssigmentPolicy implements
+		DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -42,6 +43,15 @@ public class AssignIfNotAlreadyThereAssigmentPolicy implements AssignmentPolicy
 	private final static Logger logger = LoggerFactory
 			.getLogger(AssignIfNotAlreadyThereAssigmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: pure, idempotent and cheap, but it reads
+	 * the variable to skip the value already there.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(true).idempotent(true)
+			.readingVariable(true).blocking(false)
+			.cost(AssignmentCost.CHEAP).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -50,7 +60,8 @@ public class AssignIfNotAlreadyThereAssigmentPolicy implements AssignmentPolicy
 	 * , java.lang.Object)
 	 */
 	public void assign(Object value, Assignable variable) {
-		if (!variable.equals(value)) {
+		Object current = variable.get();
+		if (current == null ? value != null : !current.equals(value)) {
 			logger.debug(
 					"Value [{}] is different from variable [{}]. Assigning.",
 					value, variable);
@@ -62,6 +73,16 @@ public class AssignIfNotAlreadyThereAssigmentPolicy implements AssignmentPolicy
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
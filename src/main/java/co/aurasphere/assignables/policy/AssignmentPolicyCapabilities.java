@@ -0,0 +1,480 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.Arrays;
+
+/**
+ * Describes what an {@link AssignmentPolicy} can do: which values it accepts,
+ * whether it's pure, idempotent or blocking and how much it costs. Instances
+ * are immutable and are created through {@link #builder()}.
+ * 
+ * @author Donato Rimenti
+ */
+public final class AssignmentPolicyCapabilities {
+
+	/**
+	 * Capabilities used for policies that don't declare any. They assume the
+	 * worst about the policy, except that it accepts any value.
+	 */
+	public static final AssignmentPolicyCapabilities UNKNOWN = builder()
+			.build();
+
+	/**
+	 * The types of the values accepted by the policy. An empty array means
+	 * that the policy doesn't accept any value.
+	 */
+	private final Class<?>[] acceptedTypes;
+
+	/**
+	 * Whether the policy accepts null values.
+	 */
+	private final boolean acceptsNull;
+
+	/**
+	 * Whether the policy has no side effects other than setting the variable
+	 * and the variable content depends only on the value assigned.
+	 */
+	private final boolean pure;
+
+	/**
+	 * Whether assigning the same value more than once has the same effect as
+	 * assigning it once.
+	 */
+	private final boolean idempotent;
+
+	/**
+	 * Whether the policy may block the current Thread.
+	 */
+	private final boolean blocking;
+
+	/**
+	 * Whether the policy doesn't do anything at all.
+	 */
+	private final boolean noOp;
+
+	/**
+	 * Whether the policy always sets the value as it is, without transforming
+	 * or filtering it.
+	 */
+	private final boolean identity;
+
+	/**
+	 * Whether what the policy does depends on the current content of the
+	 * variable, for instance to skip the values already there.
+	 */
+	private final boolean readsVariable;
+
+	/**
+	 * The expected cost of the policy.
+	 */
+	private final AssignmentCost cost;
+
+	/**
+	 * Instantiates a new AssignmentPolicyCapabilities.
+	 *
+	 * @param builder
+	 *            the builder holding the capabilities.
+	 */
+	private AssignmentPolicyCapabilities(Builder builder) {
+		this.acceptedTypes = builder.acceptedTypes;
+		this.acceptsNull = builder.acceptsNull;
+		this.pure = builder.pure;
+		this.idempotent = builder.idempotent;
+		this.blocking = builder.blocking;
+		this.noOp = builder.noOp;
+		this.identity = builder.identity;
+		this.readsVariable = builder.readsVariable;
+		this.cost = builder.cost;
+	}
+
+	/**
+	 * Creates a new builder. By default, the capabilities accept any value
+	 * (null included) and describe a policy which is not pure, not idempotent,
+	 * blocking, reading the variable and with an unknown cost.
+	 *
+	 * @return a new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Gets the capabilities of a policy. If the policy doesn't declare them,
+	 * {@link #UNKNOWN} is returned.
+	 *
+	 * @param policy
+	 *            the policy whose capabilities to get.
+	 * @return the capabilities of the policy.
+	 */
+	public static AssignmentPolicyCapabilities of(AssignmentPolicy policy) {
+		if (policy instanceof DescribedAssignmentPolicy) {
+			AssignmentPolicyCapabilities capabilities = ((DescribedAssignmentPolicy) policy)
+					.getCapabilities();
+			if (capabilities != null) {
+				return capabilities;
+			}
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Checks whether the policy accepts a value.
+	 *
+	 * @param value
+	 *            the value to check.
+	 * @return true if the value is accepted, false otherwise.
+	 */
+	public boolean accepts(Object value) {
+		if (value == null) {
+			return acceptsNull;
+		}
+		for (Class<?> type : acceptedTypes) {
+			if (type.isInstance(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the policy accepts at least a value.
+	 *
+	 * @return true if the policy accepts at least a value, false otherwise.
+	 */
+	public boolean acceptsAnything() {
+		return acceptsNull || acceptedTypes.length > 0;
+	}
+
+	/**
+	 * Checks whether the policy accepts any value, null included. If so,
+	 * there's no need to check the values one by one.
+	 *
+	 * @return true if the policy accepts any value, false otherwise.
+	 */
+	public boolean acceptsEverything() {
+		if (!acceptsNull) {
+			return false;
+		}
+		for (Class<?> type : acceptedTypes) {
+			if (type == Object.class) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the {@link #acceptedTypes}.
+	 *
+	 * @return the {@link #acceptedTypes}.
+	 */
+	public Class<?>[] getAcceptedTypes() {
+		return acceptedTypes.clone();
+	}
+
+	/**
+	 * Gets the {@link #acceptsNull}.
+	 *
+	 * @return the {@link #acceptsNull}.
+	 */
+	public boolean isAcceptsNull() {
+		return acceptsNull;
+	}
+
+	/**
+	 * Gets the {@link #pure}.
+	 *
+	 * @return the {@link #pure}.
+	 */
+	public boolean isPure() {
+		return pure;
+	}
+
+	/**
+	 * Gets the {@link #idempotent}.
+	 *
+	 * @return the {@link #idempotent}.
+	 */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	/**
+	 * Gets the {@link #blocking}.
+	 *
+	 * @return the {@link #blocking}.
+	 */
+	public boolean isBlocking() {
+		return blocking;
+	}
+
+	/**
+	 * Gets the {@link #noOp}.
+	 *
+	 * @return the {@link #noOp}.
+	 */
+	public boolean isNoOp() {
+		return noOp;
+	}
+
+	/**
+	 * Gets the {@link #identity}.
+	 *
+	 * @return the {@link #identity}.
+	 */
+	public boolean isIdentity() {
+		return identity;
+	}
+
+	/**
+	 * Gets the {@link #readsVariable}.
+	 *
+	 * @return the {@link #readsVariable}.
+	 */
+	public boolean isReadsVariable() {
+		return readsVariable;
+	}
+
+	/**
+	 * Gets the {@link #cost}.
+	 *
+	 * @return the {@link #cost}.
+	 */
+	public AssignmentCost getCost() {
+		return cost;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentPolicyCapabilities [acceptedTypes="
+				+ Arrays.toString(acceptedTypes) + ", acceptsNull="
+				+ acceptsNull + ", pure=" + pure + ", idempotent="
+				+ idempotent + ", blocking=" + blocking + ", noOp=" + noOp
+				+ ", identity=" + identity + ", readsVariable="
+				+ readsVariable + ", cost=" + cost + "]";
+	}
+
+	/**
+	 * Builder for {@link AssignmentPolicyCapabilities}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The types of the values accepted by the policy.
+		 */
+		private Class<?>[] acceptedTypes = new Class<?>[] { Object.class };
+
+		/**
+		 * Whether the policy accepts null values.
+		 */
+		private boolean acceptsNull = true;
+
+		/**
+		 * Whether the policy is pure.
+		 */
+		private boolean pure;
+
+		/**
+		 * Whether the policy is idempotent.
+		 */
+		private boolean idempotent;
+
+		/**
+		 * Whether the policy may block the current Thread.
+		 */
+		private boolean blocking = true;
+
+		/**
+		 * Whether the policy doesn't do anything at all.
+		 */
+		private boolean noOp;
+
+		/**
+		 * Whether the policy sets the value as it is.
+		 */
+		private boolean identity;
+
+		/**
+		 * Whether the policy depends on the content of the variable.
+		 */
+		private boolean readsVariable = true;
+
+		/**
+		 * The expected cost of the policy.
+		 */
+		private AssignmentCost cost = AssignmentCost.UNKNOWN;
+
+		/**
+		 * Instantiates a new Builder.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * Sets the types of the values accepted by the policy. Calling this
+		 * method with no arguments means that the policy doesn't accept any
+		 * non-null value.
+		 *
+		 * @param acceptedTypes
+		 *            the accepted types.
+		 * @return this object.
+		 */
+		public Builder accepting(Class<?>... acceptedTypes) {
+			this.acceptedTypes = acceptedTypes.clone();
+			return this;
+		}
+
+		/**
+		 * Sets whether the policy accepts null values.
+		 *
+		 * @param acceptsNull
+		 *            true if null values are accepted.
+		 * @return this object.
+		 */
+		public Builder acceptingNull(boolean acceptsNull) {
+			this.acceptsNull = acceptsNull;
+			return this;
+		}
+
+		/**
+		 * Declares that the policy doesn't accept any value.
+		 *
+		 * @return this object.
+		 */
+		public Builder acceptingNothing() {
+			this.acceptedTypes = new Class<?>[0];
+			this.acceptsNull = false;
+			return this;
+		}
+
+		/**
+		 * Sets whether the policy is pure.
+		 *
+		 * @param pure
+		 *            true if the policy is pure.
+		 * @return this object.
+		 */
+		public Builder pure(boolean pure) {
+			this.pure = pure;
+			return this;
+		}
+
+		/**
+		 * Sets whether the policy is idempotent.
+		 *
+		 * @param idempotent
+		 *            true if the policy is idempotent.
+		 * @return this object.
+		 */
+		public Builder idempotent(boolean idempotent) {
+			this.idempotent = idempotent;
+			return this;
+		}
+
+		/**
+		 * Sets whether the policy may block the current Thread.
+		 *
+		 * @param blocking
+		 *            true if the policy may block.
+		 * @return this object.
+		 */
+		public Builder blocking(boolean blocking) {
+			this.blocking = blocking;
+			return this;
+		}
+
+		/**
+		 * Declares that the policy doesn't do anything at all. A no-op policy
+		 * is also pure, idempotent, non-blocking and free.
+		 *
+		 * @return this object.
+		 */
+		public Builder noOp() {
+			this.noOp = true;
+			this.pure = true;
+			this.idempotent = true;
+			this.blocking = false;
+			this.readsVariable = false;
+			this.cost = AssignmentCost.FREE;
+			return this;
+		}
+
+		/**
+		 * Sets whether the policy always sets the value as it is, without
+		 * transforming or filtering it.
+		 *
+		 * @param identity
+		 *            true if the policy sets the value as it is.
+		 * @return this object.
+		 */
+		public Builder identity(boolean identity) {
+			this.identity = identity;
+			return this;
+		}
+
+		/**
+		 * Sets whether what the policy does depends on the current content of
+		 * the variable. A pure policy which doesn't read the variable computes
+		 * the same content for any variable.
+		 *
+		 * @param readsVariable
+		 *            true if the policy reads the variable.
+		 * @return this object.
+		 */
+		public Builder readingVariable(boolean readsVariable) {
+			this.readsVariable = readsVariable;
+			return this;
+		}
+
+		/**
+		 * Sets the expected cost of the policy.
+		 *
+		 * @param cost
+		 *            the expected cost.
+		 * @return this object.
+		 */
+		public Builder cost(AssignmentCost cost) {
+			this.cost = cost;
+			return this;
+		}
+
+		/**
+		 * Builds the capabilities.
+		 *
+		 * @return the capabilities.
+		 */
+		public AssignmentPolicyCapabilities build() {
+			return new AssignmentPolicyCapabilities(this);
+		}
+	}
+
+}
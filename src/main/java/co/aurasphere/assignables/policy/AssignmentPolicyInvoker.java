@@ -0,0 +1,328 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * Invokes an {@link AssignmentPolicy} bound once through
+ * {@link #bind(AssignmentPolicy)}.
+ * <p>
+ * Calling {@link AssignmentPolicy#assign(Object, Assignable)} from a single
+ * place with many different policies makes that call site megamorphic, so the
+ * JIT stops inlining it. When bound, each built-in policy gets its own call
+ * site with an exact receiver type, which stays monomorphic no matter how many
+ * policies are used. Other policies are invoked through the interface.
+ * <p>
+ * The call sites are a switch rather than a {@link java.lang.invoke.MethodHandle}
+ * per policy: the JIT constant-folds method handles only when they're held in
+ * static final fields, so one held by each invoker would still be an opaque
+ * indirect call. New built-in policies must be added to the switch, which
+ * {@link #isSpecialized(Class)} lets tests check.
+ * 
+ * @author Donato Rimenti
+ */
+public final class AssignmentPolicyInvoker {
+
+	/**
+	 * Kind of a policy invoked through the {@link AssignmentPolicy} interface.
+	 */
+	private static final int GENERIC = 0;
+
+	/**
+	 * Kind of an {@link AssignIfNotAlreadyThereAssigmentPolicy}.
+	 */
+	private static final int ASSIGN_IF_NOT_ALREADY_THERE = 1;
+
+	/**
+	 * Kind of a {@link ChangeDetectingAssignmentPolicy}.
+	 */
+	private static final int CHANGE_DETECTING = 2;
+
+	/**
+	 * Kind of a {@link CircuitBreakerAssignmentPolicy}.
+	 */
+	private static final int CIRCUIT_BREAKER = 3;
+
+	/**
+	 * Kind of a {@link CleanAssignmentPolicy}.
+	 */
+	private static final int CLEAN = 4;
+
+	/**
+	 * Kind of a {@link CompositeAssignmentPolicy}.
+	 */
+	private static final int COMPOSITE = 5;
+
+	/**
+	 * Kind of a {@link DoAfterDelayAssignmentPolicy}.
+	 */
+	private static final int DO_AFTER_DELAY = 6;
+
+	/**
+	 * Kind of an {@link ExplosiveAssignmentPolicy}.
+	 */
+	private static final int EXPLOSIVE = 7;
+
+	/**
+	 * Kind of a {@link HedgedAssignmentPolicy}.
+	 */
+	private static final int HEDGED = 8;
+
+	/**
+	 * Kind of a {@link JavaLegacyAssignmentPolicy}.
+	 */
+	private static final int JAVA_LEGACY = 9;
+
+	/**
+	 * Kind of a {@link LoggingAssignmentPolicy}.
+	 */
+	private static final int LOGGING = 10;
+
+	/**
+	 * Kind of an {@link MD5AssignmentPolicy}.
+	 */
+	private static final int MD5 = 11;
+
+	/**
+	 * Kind of a {@link NopeAssignmentPolicy}.
+	 */
+	private static final int NOPE = 12;
+
+	/**
+	 * Kind of an {@link OptionalAssignmentPolicy}.
+	 */
+	private static final int OPTIONAL = 13;
+
+	/**
+	 * Kind of a {@link PerformanceMonitorAssignmentPolicy}.
+	 */
+	private static final int PERFORMANCE_MONITOR = 14;
+
+	/**
+	 * Kind of a {@link SafeAssignmentPolicy}.
+	 */
+	private static final int SAFE = 15;
+
+	/**
+	 * Kind of a {@link StochasticAssignmentPolicy}.
+	 */
+	private static final int STOCHASTIC = 16;
+
+	/**
+	 * Kind of an {@link UnsupportedAssignmentPolicy}.
+	 */
+	private static final int UNSUPPORTED = 17;
+
+	/**
+	 * The policy bound to this invoker.
+	 */
+	private final AssignmentPolicy policy;
+
+	/**
+	 * The kind of the {@link #policy}, which selects its call site.
+	 */
+	private final int kind;
+
+	/**
+	 * Instantiates a new AssignmentPolicyInvoker.
+	 *
+	 * @param policy
+	 *            the {@link #policy}.
+	 * @param kind
+	 *            the {@link #kind}.
+	 */
+	private AssignmentPolicyInvoker(AssignmentPolicy policy, int kind) {
+		this.policy = policy;
+		this.kind = kind;
+	}
+
+	/**
+	 * Binds a policy to a new invoker. Only policies whose class is exactly
+	 * one of the built-in ones get a dedicated call site, since a subclass may
+	 * override their behavior.
+	 *
+	 * @param policy
+	 *            the policy to bind.
+	 * @return an invoker for the policy.
+	 */
+	public static AssignmentPolicyInvoker bind(AssignmentPolicy policy) {
+		if (policy == null) {
+			throw new IllegalArgumentException(
+					"Can't bind a null assignment policy.");
+		}
+		return new AssignmentPolicyInvoker(policy,
+				kindOf(policy.getClass()));
+	}
+
+	/**
+	 * Checks whether the instances of a class get a dedicated call site when
+	 * bound. Every built-in policy should.
+	 *
+	 * @param type
+	 *            the class of a policy.
+	 * @return true if the class has a dedicated call site.
+	 */
+	public static boolean isSpecialized(
+			Class<? extends AssignmentPolicy> type) {
+		return kindOf(type) != GENERIC;
+	}
+
+	/**
+	 * Gets the kind of a policy class.
+	 *
+	 * @param type
+	 *            the exact class of the policy.
+	 * @return the kind of the policy.
+	 */
+	private static int kindOf(Class<?> type) {
+		if (type == AssignIfNotAlreadyThereAssigmentPolicy.class) {
+			return ASSIGN_IF_NOT_ALREADY_THERE;
+		} else if (type == ChangeDetectingAssignmentPolicy.class) {
+			return CHANGE_DETECTING;
+		} else if (type == CircuitBreakerAssignmentPolicy.class) {
+			return CIRCUIT_BREAKER;
+		} else if (type == CleanAssignmentPolicy.class) {
+			return CLEAN;
+		} else if (type == CompositeAssignmentPolicy.class) {
+			return COMPOSITE;
+		} else if (type == DoAfterDelayAssignmentPolicy.class) {
+			return DO_AFTER_DELAY;
+		} else if (type == ExplosiveAssignmentPolicy.class) {
+			return EXPLOSIVE;
+		} else if (type == HedgedAssignmentPolicy.class) {
+			return HEDGED;
+		} else if (type == JavaLegacyAssignmentPolicy.class) {
+			return JAVA_LEGACY;
+		} else if (type == LoggingAssignmentPolicy.class) {
+			return LOGGING;
+		} else if (type == MD5AssignmentPolicy.class) {
+			return MD5;
+		} else if (type == NopeAssignmentPolicy.class) {
+			return NOPE;
+		} else if (type == OptionalAssignmentPolicy.class) {
+			return OPTIONAL;
+		} else if (type == PerformanceMonitorAssignmentPolicy.class) {
+			return PERFORMANCE_MONITOR;
+		} else if (type == SafeAssignmentPolicy.class) {
+			return SAFE;
+		} else if (type == StochasticAssignmentPolicy.class) {
+			return STOCHASTIC;
+		} else if (type == UnsupportedAssignmentPolicy.class) {
+			return UNSUPPORTED;
+		}
+		return GENERIC;
+	}
+
+	/**
+	 * Invokes the bound policy.
+	 *
+	 * @param value
+	 *            the value to put into the variable.
+	 * @param variable
+	 *            the variable where to put the value.
+	 */
+	public void invoke(Object value, Assignable variable) {
+		// Each case is a separate call site with an exact receiver type.
+		switch (kind) {
+		case ASSIGN_IF_NOT_ALREADY_THERE:
+			((AssignIfNotAlreadyThereAssigmentPolicy) policy).assign(value,
+					variable);
+			break;
+		case CHANGE_DETECTING:
+			((ChangeDetectingAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case CIRCUIT_BREAKER:
+			((CircuitBreakerAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case CLEAN:
+			((CleanAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case COMPOSITE:
+			((CompositeAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case DO_AFTER_DELAY:
+			((DoAfterDelayAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case EXPLOSIVE:
+			((ExplosiveAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case HEDGED:
+			((HedgedAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case JAVA_LEGACY:
+			((JavaLegacyAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case LOGGING:
+			((LoggingAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case MD5:
+			((MD5AssignmentPolicy) policy).assign(value, variable);
+			break;
+		case NOPE:
+			((NopeAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case OPTIONAL:
+			((OptionalAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case PERFORMANCE_MONITOR:
+			((PerformanceMonitorAssignmentPolicy) policy).assign(value,
+					variable);
+			break;
+		case SAFE:
+			((SafeAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case STOCHASTIC:
+			((StochasticAssignmentPolicy) policy).assign(value, variable);
+			break;
+		case UNSUPPORTED:
+			((UnsupportedAssignmentPolicy) policy).assign(value, variable);
+			break;
+		default:
+			policy.assign(value, variable);
+			break;
+		}
+	}
+
+	/**
+	 * Gets the policy bound to this invoker.
+	 *
+	 * @return the {@link #policy}.
+	 */
+	public AssignmentPolicy getPolicy() {
+		return policy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AssignmentPolicyInvoker [policy=" + policy + ", kind=" + kind
+				+ "]";
+	}
+
+}
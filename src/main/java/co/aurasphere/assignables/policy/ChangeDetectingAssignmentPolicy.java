@@ -0,0 +1,327 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * {@link AssignmentPolicy} that writes a value into a variable only if it's
+ * different from the current content of the variable. Arrays are compared by
+ * content. Skipping redundant writes keeps the variable from being dirtied
+ * when it's rewritten with identical data.
+ * <p>
+ * An optional {@link Fingerprint} can be used as a fast path for large values:
+ * when the fingerprints differ, the values are different and the full
+ * comparison is skipped. The fingerprint of the last value applied is kept,
+ * so that only the incoming value is fingerprinted while the variable still
+ * holds it. The number of skipped and applied writes is counted.
+ * 
+ * @author Donato Rimenti
+ */
+public class ChangeDetectingAssignmentPolicy implements
+		DescribedAssignmentPolicy {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(ChangeDetectingAssignmentPolicy.class);
+
+	/**
+	 * The capabilities of this policy: pure, idempotent and cheap, but it reads
+	 * the variable to skip the values already there.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(true).idempotent(true).readingVariable(true)
+			.blocking(false).cost(AssignmentCost.CHEAP).build();
+
+	/**
+	 * {@link Fingerprint} which uses {@link Object#hashCode()}, or the content
+	 * hash for arrays. It's cheap for values which cache their hash, like
+	 * {@link String}.
+	 */
+	public static final Fingerprint HASH_CODE = new Fingerprint() {
+		public long of(Object value) {
+			if (value.getClass().isArray()) {
+				return Arrays.deepHashCode(new Object[] { value });
+			}
+			return value.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "HASH_CODE";
+		}
+	};
+
+	/**
+	 * Number of counter stripes. Must be a power of two.
+	 */
+	private static final int STRIPES = 16;
+
+	/**
+	 * Distance between two stripes, so that each stripe has its own cache
+	 * line.
+	 */
+	private static final int STRIPE_PADDING = 8;
+
+	/**
+	 * Offset of the skipped writes counter inside a stripe.
+	 */
+	private static final int SKIPPED = 0;
+
+	/**
+	 * Offset of the applied writes counter inside a stripe.
+	 */
+	private static final int APPLIED = 1;
+
+	/**
+	 * The fingerprint used as fast path. May be null.
+	 */
+	private final Fingerprint fingerprint;
+
+	/**
+	 * Counters of skipped and applied writes, striped by Thread so that
+	 * counting doesn't become a contention point itself.
+	 */
+	private final AtomicLongArray counters = new AtomicLongArray(STRIPES
+			* STRIPE_PADDING);
+
+	/**
+	 * The last value applied, with its fingerprint.
+	 */
+	private volatile Fingerprinted lastApplied;
+
+	/**
+	 * Instantiates a new ChangeDetectingAssignmentPolicy without fingerprint.
+	 */
+	public ChangeDetectingAssignmentPolicy() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a new ChangeDetectingAssignmentPolicy.
+	 *
+	 * @param fingerprint
+	 *            the {@link #fingerprint}.
+	 */
+	public ChangeDetectingAssignmentPolicy(Fingerprint fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang.Object
+	 * , co.aurasphere.assignables.Assignable)
+	 */
+	public void assign(Object value, Assignable variable) {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1))
+				* STRIPE_PADDING;
+		Object current = variable.get();
+		Fingerprinted incoming = null;
+		if (fingerprint != null && current != value && current != null
+				&& value != null) {
+			incoming = new Fingerprinted(value, fingerprint.of(value));
+		}
+		if (isUnchanged(current, value, incoming)) {
+			logger.debug(
+					"Value [{}] is already inside variable [{}]. Skipping assignment.",
+					value, variable);
+			counters.incrementAndGet(stripe + SKIPPED);
+		} else {
+			logger.debug(
+					"Value [{}] is different from variable [{}]. Assigning.",
+					value, variable);
+			variable.set(value);
+			if (incoming != null) {
+				lastApplied = incoming;
+			}
+			counters.incrementAndGet(stripe + APPLIED);
+		}
+	}
+
+	/**
+	 * Checks whether the value to assign is the same as the current content
+	 * of the variable.
+	 *
+	 * @param current
+	 *            the current content of the variable.
+	 * @param value
+	 *            the value to assign.
+	 * @param incoming
+	 *            the value to assign with its fingerprint, or null if there's
+	 *            no need for it.
+	 * @return true if the content wouldn't change.
+	 */
+	private boolean isUnchanged(Object current, Object value,
+			Fingerprinted incoming) {
+		if (current == value) {
+			return true;
+		}
+		if (current == null || value == null) {
+			return false;
+		}
+		// Different fingerprints always mean different values.
+		if (incoming != null
+				&& fingerprintOf(current) != incoming.fingerprint) {
+			return false;
+		}
+		if (current.getClass().isArray() && value.getClass().isArray()) {
+			return Arrays.deepEquals(new Object[] { current },
+					new Object[] { value });
+		}
+		return current.equals(value);
+	}
+
+	/**
+	 * Gets the fingerprint of the content of a variable, computing it only if
+	 * the content is not the last value applied. If that value has been
+	 * mutated since, its fingerprint is stale, which can only cause a
+	 * redundant write.
+	 *
+	 * @param current
+	 *            the content of the variable, not null.
+	 * @return the fingerprint of the content.
+	 */
+	private long fingerprintOf(Object current) {
+		Fingerprinted last = lastApplied;
+		if (last != null && last.value == current) {
+			return last.fingerprint;
+		}
+		return fingerprint.of(current);
+	}
+
+	/**
+	 * Gets the number of writes skipped because the value was already there.
+	 *
+	 * @return the number of skipped writes.
+	 */
+	public long getSkippedCount() {
+		return sum(SKIPPED);
+	}
+
+	/**
+	 * Gets the number of writes actually performed.
+	 *
+	 * @return the number of applied writes.
+	 */
+	public long getAppliedCount() {
+		return sum(APPLIED);
+	}
+
+	/**
+	 * Sums a counter across all the stripes.
+	 *
+	 * @param offset
+	 *            the offset of the counter inside a stripe.
+	 * @return the sum of the counter.
+	 */
+	private long sum(int offset) {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += counters.get(i * STRIPE_PADDING + offset);
+		}
+		return sum;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ChangeDetectingAssignmentPolicy [fingerprint=" + fingerprint
+				+ ", skipped=" + getSkippedCount() + ", applied="
+				+ getAppliedCount() + "]";
+	}
+
+	/**
+	 * A value with its fingerprint.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class Fingerprinted {
+
+		/**
+		 * The value.
+		 */
+		private final Object value;
+
+		/**
+		 * The fingerprint of the value.
+		 */
+		private final long fingerprint;
+
+		/**
+		 * Instantiates a new Fingerprinted.
+		 *
+		 * @param value
+		 *            the {@link #value}.
+		 * @param fingerprint
+		 *            the {@link #fingerprint}.
+		 */
+		private Fingerprinted(Object value, long fingerprint) {
+			this.value = value;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	/**
+	 * Computes a cheap fingerprint of a value. Equal values must have the same
+	 * fingerprint, while different values should have different ones.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	public interface Fingerprint {
+
+		/**
+		 * Computes the fingerprint of a value.
+		 *
+		 * @param value
+		 *            the value, never null.
+		 * @return the fingerprint of the value.
+		 */
+		public long of(Object value);
+	}
+
+}
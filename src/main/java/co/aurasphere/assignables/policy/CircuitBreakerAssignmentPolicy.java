@@ -0,0 +1,598 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+
+/**
+ * {@link AssignmentPolicy} that protects a delegate policy with a circuit
+ * breaker. The outcome of the last assignments is tracked in a sliding window
+ * and, when the failure rate goes over a threshold, the circuit opens: the
+ * assignments are shed without invoking the delegate. After a while, a few
+ * probe assignments are let through and, if they succeed, the circuit closes
+ * again.
+ * <p>
+ * Like {@link SafeAssignmentPolicy}, failures are swallowed by default and
+ * logged at most once per interval, with a summary of the ones suppressed in
+ * between. With {@link Builder#propagateFailures()}, failures are rethrown and
+ * shed assignments throw a {@link RejectedAssignmentException} instead.
+ * Circuits are created through {@link #around(AssignmentPolicy)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class CircuitBreakerAssignmentPolicy implements
+		DescribedAssignmentPolicy {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(CircuitBreakerAssignmentPolicy.class);
+
+	/**
+	 * The policy protected by this circuit.
+	 */
+	private final AssignmentPolicy delegate;
+
+	/**
+	 * The invoker bound to the {@link #delegate}.
+	 */
+	private final AssignmentPolicyInvoker invoker;
+
+	/**
+	 * The minimum number of outcomes in the window before the failure rate is
+	 * evaluated.
+	 */
+	private final int minimumCalls;
+
+	/**
+	 * The failure rate, between 0 and 1, over which the circuit opens.
+	 */
+	private final double failureRateThreshold;
+
+	/**
+	 * How long the circuit stays open before letting probes through, in
+	 * milliseconds.
+	 */
+	private final long openMillis;
+
+	/**
+	 * The number of successful probes needed to close the circuit.
+	 */
+	private final int halfOpenProbes;
+
+	/**
+	 * Whether failures and shed assignments are thrown to the caller.
+	 */
+	private final boolean propagateFailures;
+
+	/**
+	 * The capabilities of this policy, derived from the delegate ones.
+	 */
+	private final AssignmentPolicyCapabilities capabilities;
+
+	/**
+	 * The logger used for failures and shed assignments, limited
+	 * independently from the other circuits.
+	 */
+	private final RateLimitedErrorLogger errorLogger;
+
+	/**
+	 * The outcomes in the sliding window, true for a failure.
+	 */
+	private final boolean[] window;
+
+	/**
+	 * The position of the next outcome in the {@link #window}.
+	 */
+	private int windowIndex;
+
+	/**
+	 * The number of outcomes in the {@link #window}.
+	 */
+	private int windowCount;
+
+	/**
+	 * The number of failures in the {@link #window}.
+	 */
+	private int windowFailures;
+
+	/**
+	 * The current state of the circuit.
+	 */
+	private State state = State.CLOSED;
+
+	/**
+	 * When the circuit has been opened, in nanoseconds.
+	 */
+	private long openedAt;
+
+	/**
+	 * The probes let through while half-open.
+	 */
+	private int probesStarted;
+
+	/**
+	 * The probes succeeded while half-open.
+	 */
+	private int probesSucceeded;
+
+	/**
+	 * The number of assignments shed while the circuit was not closed.
+	 */
+	private final AtomicLong shedCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new CircuitBreakerAssignmentPolicy.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private CircuitBreakerAssignmentPolicy(Builder builder) {
+		this.delegate = builder.delegate;
+		this.invoker = AssignmentPolicyInvoker.bind(builder.delegate);
+		this.window = new boolean[builder.windowSize];
+		this.minimumCalls = builder.minimumCalls;
+		this.failureRateThreshold = builder.failureRateThreshold;
+		this.openMillis = builder.openMillis;
+		this.halfOpenProbes = builder.halfOpenProbes;
+		this.propagateFailures = builder.propagateFailures;
+		this.errorLogger = RateLimitedErrorLogger.of(logger,
+				"circuit around " + delegate, builder.errorLogIntervalMillis);
+
+		AssignmentPolicyCapabilities delegateCapabilities = AssignmentPolicyCapabilities
+				.of(delegate);
+		this.capabilities = AssignmentPolicyCapabilities.builder()
+				.accepting(delegateCapabilities.getAcceptedTypes())
+				.acceptingNull(delegateCapabilities.isAcceptsNull())
+				.pure(false).idempotent(delegateCapabilities.isIdempotent())
+				.blocking(delegateCapabilities.isBlocking())
+				.cost(delegateCapabilities.getCost()).build();
+	}
+
+	/**
+	 * Starts building a circuit around a policy.
+	 *
+	 * @param delegate
+	 *            the policy to protect.
+	 * @return a builder for the circuit.
+	 */
+	public static Builder around(AssignmentPolicy delegate) {
+		if (delegate == null) {
+			throw new IllegalArgumentException(
+					"The policy protected by a circuit can't be null.");
+		}
+		return new Builder(delegate);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang.Object
+	 * , co.aurasphere.assignables.Assignable)
+	 */
+	public void assign(Object value, Assignable variable) {
+		if (!acquirePermission()) {
+			shedCount.incrementAndGet();
+			errorLogger
+					.error("Circuit around [{}] is open. Shedding assignment of value [{}] into variable [{}].",
+							delegate, value, variable);
+			if (propagateFailures) {
+				throw new RejectedAssignmentException("Circuit around "
+						+ delegate + " is open. Shedding assignment of value "
+						+ value + " into variable " + variable + ".");
+			}
+			return;
+		}
+
+		try {
+			invoker.invoke(value, variable);
+		} catch (RuntimeException e) {
+			onFailure(value, variable, e);
+			if (propagateFailures) {
+				throw e;
+			}
+			return;
+		} catch (Error e) {
+			onFailure(value, variable, e);
+			if (propagateFailures) {
+				throw e;
+			}
+			return;
+		}
+		onSuccess();
+	}
+
+	/**
+	 * Checks whether an assignment can go through, moving the circuit from
+	 * open to half-open once {@link #openMillis} have elapsed.
+	 *
+	 * @return true if the assignment can go through.
+	 */
+	private synchronized boolean acquirePermission() {
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openMillis * 1000000L) {
+				return false;
+			}
+			logger.info("Circuit around [{}] is half-open. Probing.",
+					delegate);
+			state = State.HALF_OPEN;
+			probesStarted = 0;
+			probesSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesStarted >= halfOpenProbes) {
+				return false;
+			}
+			probesStarted++;
+		}
+		return true;
+	}
+
+	/**
+	 * Records a successful assignment.
+	 */
+	private synchronized void onSuccess() {
+		// Another probe may have failed in the meantime.
+		if (state == State.OPEN) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			probesSucceeded++;
+			if (probesSucceeded >= halfOpenProbes) {
+				logger.info("Circuit around [{}] is closed.", delegate);
+				errorLogger.flush();
+				state = State.CLOSED;
+				resetWindow();
+			}
+			return;
+		}
+		record(false);
+	}
+
+	/**
+	 * Records a failed assignment.
+	 *
+	 * @param value
+	 *            the value assigned.
+	 * @param variable
+	 *            the variable.
+	 * @param t
+	 *            the failure.
+	 */
+	private void onFailure(Object value, Assignable variable, Throwable t) {
+		errorLogger.error(
+				"An error has occurred in circuit around [{}] while setting value [{}] into variable [{}].",
+				delegate, value, variable, t);
+		synchronized (this) {
+			if (state == State.HALF_OPEN) {
+				open();
+				return;
+			}
+			record(true);
+			if (state == State.CLOSED && windowCount >= minimumCalls
+					&& getFailureRate() >= failureRateThreshold) {
+				open();
+			}
+		}
+	}
+
+	/**
+	 * Adds an outcome to the sliding window, evicting the oldest one.
+	 *
+	 * @param failure
+	 *            true if the assignment failed.
+	 */
+	private void record(boolean failure) {
+		if (windowCount == window.length) {
+			if (window[windowIndex]) {
+				windowFailures--;
+			}
+		} else {
+			windowCount++;
+		}
+		window[windowIndex] = failure;
+		if (failure) {
+			windowFailures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+	}
+
+	/**
+	 * Opens the circuit.
+	 */
+	private void open() {
+		logger.warn(
+				"Opening circuit around [{}] for [{}] milliseconds after [{}] failures out of [{}] assignments.",
+				delegate, openMillis, windowFailures, windowCount);
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		resetWindow();
+	}
+
+	/**
+	 * Clears the sliding window.
+	 */
+	private void resetWindow() {
+		windowIndex = 0;
+		windowCount = 0;
+		windowFailures = 0;
+	}
+
+	/**
+	 * Gets the current state of the circuit.
+	 *
+	 * @return the {@link #state}.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Gets the failure rate in the current sliding window.
+	 *
+	 * @return the failure rate, between 0 and 1.
+	 */
+	public synchronized double getFailureRate() {
+		return windowCount == 0 ? 0 : (double) windowFailures / windowCount;
+	}
+
+	/**
+	 * Gets the number of assignments shed because the circuit was not closed.
+	 *
+	 * @return the {@link #shedCount}.
+	 */
+	public long getShedCount() {
+		return shedCount.get();
+	}
+
+	/**
+	 * Gets the number of errors of this circuit suppressed since the last one
+	 * logged or summarized.
+	 *
+	 * @return the number of errors suppressed.
+	 */
+	public long getSuppressedCount() {
+		return errorLogger.getSuppressed();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return capabilities;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CircuitBreakerAssignmentPolicy [delegate=" + delegate
+				+ ", state=" + getState() + ", failureRate="
+				+ getFailureRate() + ", shedCount=" + getShedCount() + "]";
+	}
+
+	/**
+	 * State of a circuit.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	public enum State {
+
+		/**
+		 * Assignments go through and their outcome is tracked.
+		 */
+		CLOSED,
+
+		/**
+		 * Assignments are shed.
+		 */
+		OPEN,
+
+		/**
+		 * A limited number of probe assignments go through.
+		 */
+		HALF_OPEN;
+	}
+
+	/**
+	 * Builder for a {@link CircuitBreakerAssignmentPolicy}.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The policy to protect.
+		 */
+		private final AssignmentPolicy delegate;
+
+		/**
+		 * The number of outcomes tracked.
+		 */
+		private int windowSize = 100;
+
+		/**
+		 * The minimum number of outcomes before evaluating the failure rate.
+		 */
+		private int minimumCalls = 20;
+
+		/**
+		 * The failure rate over which the circuit opens.
+		 */
+		private double failureRateThreshold = 0.5;
+
+		/**
+		 * How long the circuit stays open, in milliseconds.
+		 */
+		private long openMillis = 5000;
+
+		/**
+		 * The number of successful probes needed to close the circuit.
+		 */
+		private int halfOpenProbes = 3;
+
+		/**
+		 * The minimum interval between two errors logged, in milliseconds.
+		 */
+		private long errorLogIntervalMillis = SafeAssignmentPolicy.DEFAULT_ERROR_LOG_INTERVAL_MILLIS;
+
+		/**
+		 * Whether failures are thrown to the caller.
+		 */
+		private boolean propagateFailures;
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param delegate
+		 *            the {@link #delegate}.
+		 */
+		private Builder(AssignmentPolicy delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets how many of the last assignments are tracked. Defaults to 100.
+		 *
+		 * @param windowSize
+		 *            the number of outcomes tracked.
+		 * @return this object.
+		 */
+		public Builder slidingWindow(int windowSize) {
+			if (windowSize <= 0) {
+				throw new IllegalArgumentException(
+						"The sliding window size must be positive.");
+			}
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum number of assignments tracked before the circuit
+		 * can open. Defaults to 20.
+		 *
+		 * @param minimumCalls
+		 *            the minimum number of assignments.
+		 * @return this object.
+		 */
+		public Builder minimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+			return this;
+		}
+
+		/**
+		 * Sets the failure rate over which the circuit opens. Defaults to 0.5.
+		 *
+		 * @param failureRateThreshold
+		 *            the failure rate, between 0 and 1.
+		 * @return this object.
+		 */
+		public Builder failureRateThreshold(double failureRateThreshold) {
+			if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+				throw new IllegalArgumentException(
+						"The failure rate threshold must be between 0 (excluded) and 1.");
+			}
+			this.failureRateThreshold = failureRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets how long the circuit stays open before probing. Defaults to 5
+		 * seconds.
+		 *
+		 * @param openMillis
+		 *            the time the circuit stays open, in milliseconds.
+		 * @return this object.
+		 */
+		public Builder openFor(long openMillis) {
+			this.openMillis = openMillis;
+			return this;
+		}
+
+		/**
+		 * Sets how many successful probes are needed to close the circuit.
+		 * Defaults to 3.
+		 *
+		 * @param halfOpenProbes
+		 *            the number of probes.
+		 * @return this object.
+		 */
+		public Builder halfOpenProbes(int halfOpenProbes) {
+			if (halfOpenProbes <= 0) {
+				throw new IllegalArgumentException(
+						"The number of half-open probes must be positive.");
+			}
+			this.halfOpenProbes = halfOpenProbes;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum interval between two errors logged. Defaults to
+		 * {@link SafeAssignmentPolicy#DEFAULT_ERROR_LOG_INTERVAL_MILLIS}.
+		 *
+		 * @param errorLogIntervalMillis
+		 *            the interval, in milliseconds.
+		 * @return this object.
+		 */
+		public Builder errorLogInterval(long errorLogIntervalMillis) {
+			this.errorLogIntervalMillis = errorLogIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * Declares to throw failures to the caller, instead of swallowing them.
+		 * Shed assignments throw a {@link RejectedAssignmentException}.
+		 *
+		 * @return this object.
+		 */
+		public Builder propagateFailures() {
+			this.propagateFailures = true;
+			return this;
+		}
+
+		/**
+		 * Builds the circuit.
+		 *
+		 * @return the circuit.
+		 */
+		public CircuitBreakerAssignmentPolicy build() {
+			return new CircuitBreakerAssignmentPolicy(this);
+		}
+	}
+
+}
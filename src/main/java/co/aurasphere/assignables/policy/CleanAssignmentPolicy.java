@@ -34,7 +34,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class CleanAssignmentPolicy implements AssignmentPolicy {
+public class CleanAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -42,6 +42,14 @@ public class CleanAssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(CleanAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: blocking and expensive, since it runs
+	 * the garbage collector.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false).idempotent(true).identity(true)
+			.blocking(true).cost(AssignmentCost.EXPENSIVE).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -61,6 +69,16 @@ public class CleanAssignmentPolicy implements AssignmentPolicy {
 		System.gc();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
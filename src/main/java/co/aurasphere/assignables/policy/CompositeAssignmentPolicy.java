@@ -0,0 +1,319 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.StagingAssignable;
+
+/**
+ * {@link AssignmentPolicy} that chains other policies. Each stage receives the
+ * value produced by the previous one and the variable is written only once, at
+ * the end of the chain. If a stage doesn't set any value (for instance,
+ * {@link OptionalAssignmentPolicy} with a null value), the chain stops there
+ * and the variable is left untouched.
+ * <p>
+ * Chains are created through {@link #first(AssignmentPolicy)} and are fused
+ * when built: nested chains are flattened, pure and non-blocking identity
+ * stages are dropped, stages after a no-op are never executed and chains
+ * reduced to a single stage are replaced by that stage.
+ * 
+ * @author Donato Rimenti
+ */
+public class CompositeAssignmentPolicy implements DescribedAssignmentPolicy {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(CompositeAssignmentPolicy.class);
+
+	/**
+	 * The stages of this chain, in execution order.
+	 */
+	private final AssignmentPolicy[] stages;
+
+	/**
+	 * The invokers bound to the {@link #stages}.
+	 */
+	private final AssignmentPolicyInvoker[] invokers;
+
+	/**
+	 * The capabilities of this chain, derived from the ones of its stages.
+	 */
+	private final AssignmentPolicyCapabilities capabilities;
+
+	/**
+	 * Instantiates a new CompositeAssignmentPolicy.
+	 *
+	 * @param stages
+	 *            the {@link #stages}.
+	 */
+	private CompositeAssignmentPolicy(AssignmentPolicy[] stages) {
+		this.stages = stages;
+		// Each stage gets its own call site through an invoker, which is
+		// enough for the JIT to inline it: a class generated per chain would
+		// only save the loop over the stages.
+		this.invokers = new AssignmentPolicyInvoker[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			this.invokers[i] = AssignmentPolicyInvoker.bind(stages[i]);
+		}
+		this.capabilities = combineCapabilities(stages);
+	}
+
+	/**
+	 * Starts a new chain.
+	 *
+	 * @param policy
+	 *            the first stage of the chain.
+	 * @return a builder for the chain.
+	 */
+	public static Builder first(AssignmentPolicy policy) {
+		return new Builder().then(policy);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang.Object
+	 * , co.aurasphere.assignables.Assignable)
+	 */
+	public void assign(Object value, Assignable variable) {
+		Object original = variable.get();
+		StagingAssignable stage = new StagingAssignable();
+		Object current = value;
+		for (int i = 0; i < stages.length; i++) {
+			// Each stage sees the actual content of the variable.
+			stage.reset(original);
+			invokers[i].invoke(current, stage);
+			if (!stage.isAssigned()) {
+				logger.debug(
+						"Stage [{}] didn't assign value [{}]. Leaving variable [{}] untouched.",
+						stages[i], current, variable);
+				return;
+			}
+			current = stage.get();
+		}
+		variable.set(current);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return capabilities;
+	}
+
+	/**
+	 * Gets the stages of this chain.
+	 *
+	 * @return a copy of the {@link #stages}.
+	 */
+	public AssignmentPolicy[] getStages() {
+		return stages.clone();
+	}
+
+	/**
+	 * Derives the capabilities of a chain from the ones of its stages.
+	 *
+	 * @param stages
+	 *            the stages of the chain.
+	 * @return the capabilities of the chain.
+	 */
+	private static AssignmentPolicyCapabilities combineCapabilities(
+			AssignmentPolicy[] stages) {
+		AssignmentPolicyCapabilities first = AssignmentPolicyCapabilities
+				.of(stages[0]);
+		boolean pure = true;
+		boolean idempotent = true;
+		boolean blocking = false;
+		boolean readsVariable = false;
+		AssignmentCost cost = AssignmentCost.FREE;
+		for (AssignmentPolicy stage : stages) {
+			AssignmentPolicyCapabilities current = AssignmentPolicyCapabilities
+					.of(stage);
+			pure &= current.isPure();
+			idempotent &= current.isIdempotent();
+			blocking |= current.isBlocking();
+			readsVariable |= current.isReadsVariable();
+			if (current.getCost().compareTo(cost) > 0) {
+				cost = current.getCost();
+			}
+		}
+		// Only the first stage sees the value as it's passed to the chain.
+		return AssignmentPolicyCapabilities.builder()
+				.accepting(first.getAcceptedTypes())
+				.acceptingNull(first.isAcceptsNull()).pure(pure)
+				.idempotent(idempotent).readingVariable(readsVariable)
+				.blocking(blocking).cost(cost).build();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(stages);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		CompositeAssignmentPolicy other = (CompositeAssignmentPolicy) obj;
+		if (!Arrays.equals(stages, other.stages))
+			return false;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CompositeAssignmentPolicy [stages=" + Arrays.toString(stages)
+				+ "]";
+	}
+
+	/**
+	 * Builder for a chain of policies.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The stages added so far.
+		 */
+		private final List<AssignmentPolicy> stages = new ArrayList<AssignmentPolicy>();
+
+		/**
+		 * Instantiates a new Builder.
+		 */
+		private Builder() {
+		}
+
+		/**
+		 * Adds a stage at the end of the chain.
+		 *
+		 * @param policy
+		 *            the stage to add.
+		 * @return this object.
+		 */
+		public Builder then(AssignmentPolicy policy) {
+			if (policy == null) {
+				throw new IllegalArgumentException(
+						"The stage of a chain can't be null.");
+			}
+			// Nested chains are flattened.
+			if (policy instanceof CompositeAssignmentPolicy) {
+				for (AssignmentPolicy stage : ((CompositeAssignmentPolicy) policy).stages) {
+					stages.add(stage);
+				}
+			} else {
+				stages.add(policy);
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the chain, fusing its stages.
+		 *
+		 * @return the fused chain. It may not be a CompositeAssignmentPolicy
+		 *         if the chain can be reduced to a single policy.
+		 */
+		public AssignmentPolicy build() {
+			List<AssignmentPolicy> fused = new ArrayList<AssignmentPolicy>();
+			boolean sideEffects = false;
+			for (AssignmentPolicy stage : stages) {
+				AssignmentPolicyCapabilities capabilities = AssignmentPolicyCapabilities
+						.of(stage);
+
+				// Nothing after a no-op is ever executed. If nothing before
+				// it has side effects, the whole chain is a no-op.
+				if (capabilities.isNoOp()) {
+					if (!sideEffects) {
+						logger.debug(
+								"Chain {} contains a no-op with no side effects before it. Fusing it into a no-op.",
+								stages);
+						return stage;
+					}
+					fused.add(stage);
+					break;
+				}
+
+				// A stage that just passes the value along does nothing, as
+				// long as it doesn't take any time doing it.
+				if (capabilities.isIdentity() && capabilities.isPure()
+						&& !capabilities.isBlocking()) {
+					logger.debug("Dropping identity stage [{}] from chain {}.",
+							stage, stages);
+					continue;
+				}
+				// Stages which reject values count as side effects.
+				sideEffects |= !capabilities.isPure()
+						|| !capabilities.acceptsAnything();
+				fused.add(stage);
+			}
+
+			// Since the variable is written at the end of the chain anyway, an
+			// empty chain is a plain assignment.
+			if (fused.isEmpty()) {
+				return new JavaLegacyAssignmentPolicy();
+			}
+			if (fused.size() == 1) {
+				return fused.get(0);
+			}
+			return new CompositeAssignmentPolicy(
+					fused.toArray(new AssignmentPolicy[fused.size()]));
+		}
+	}
+
+}
@@ -34,7 +34,8 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class DoAfterDelayAssignmentPolicy implements AssignmentPolicy {
+public class DoAfterDelayAssignmentPolicy implements
+		DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -47,6 +48,13 @@ public class DoAfterDelayAssignmentPolicy implements AssignmentPolicy {
 	 */
 	private long delayMillisec;
 
+	/**
+	 * The capabilities of this policy: pure and idempotent, but blocking and
+	 * expensive unless there's no delay at all. It's not an identity, since
+	 * the delay is the whole point of it.
+	 */
+	private AssignmentPolicyCapabilities capabilities;
+
 	/**
 	 * Instantiates a new DoAfterDelayAssignmentPolicy.
 	 *
@@ -55,6 +63,15 @@ public class DoAfterDelayAssignmentPolicy implements AssignmentPolicy {
 	 */
 	public DoAfterDelayAssignmentPolicy(long delayMillisec) {
 		this.delayMillisec = delayMillisec;
+		boolean delayed = delayMillisec > 0;
+		this.capabilities = AssignmentPolicyCapabilities
+				.builder()
+				.pure(true)
+				.idempotent(true)
+				.readingVariable(false)
+				.blocking(delayed)
+				.cost(delayed ? AssignmentCost.EXPENSIVE
+						: AssignmentCost.CHEAP).build();
 	}
 
 	/*
@@ -79,6 +96,16 @@ public class DoAfterDelayAssignmentPolicy implements AssignmentPolicy {
 		;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return capabilities;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
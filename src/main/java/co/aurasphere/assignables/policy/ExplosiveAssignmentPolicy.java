@@ -35,7 +35,7 @@ import co.aurasphere.assignables.exception.AssignmentException;
  * 
  * @author Donato Rimenti
  */
-public class ExplosiveAssignmentPolicy implements AssignmentPolicy {
+public class ExplosiveAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -43,6 +43,14 @@ public class ExplosiveAssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(ExplosiveAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: idempotent and cheap, but not pure since
+	 * it always throws.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false).idempotent(true)
+			.blocking(false).cost(AssignmentCost.CHEAP).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -58,6 +66,16 @@ public class ExplosiveAssignmentPolicy implements AssignmentPolicy {
 				+ "] into variable [" + variable + "].");
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
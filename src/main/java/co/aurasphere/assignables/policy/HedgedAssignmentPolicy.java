@@ -0,0 +1,506 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.StagingAssignable;
+import co.aurasphere.assignables.concurrent.LatencyTracker;
+import co.aurasphere.assignables.exception.AssignmentException;
+
+/**
+ * {@link AssignmentPolicy} that hedges a slow delegate policy. The delegate is
+ * executed on a separate Thread and, if it doesn't complete within a
+ * percentile of its observed latency, a second execution is started on
+ * another Thread. The first execution to complete wins and is the only one
+ * written into the variable, while the other is cancelled.
+ * <p>
+ * Since the delegate may be executed twice, only pure policies can be hedged.
+ * Each execution works on its own {@link StagingAssignable}, so the variable
+ * is written once. Hedges are created through
+ * {@link #around(AssignmentPolicy)}.
+ * 
+ * @author Donato Rimenti
+ */
+public class HedgedAssignmentPolicy implements DescribedAssignmentPolicy {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory
+			.getLogger(HedgedAssignmentPolicy.class);
+
+	/**
+	 * The hedged policy.
+	 */
+	private final AssignmentPolicy delegate;
+
+	/**
+	 * The invoker bound to the {@link #delegate}.
+	 */
+	private final AssignmentPolicyInvoker invoker;
+
+	/**
+	 * The percentile of the delegate latency after which the second execution
+	 * starts.
+	 */
+	private final double percentile;
+
+	/**
+	 * The minimum number of latency samples before the {@link #percentile} is
+	 * used.
+	 */
+	private final int minimumSamples;
+
+	/**
+	 * The delay after which the second execution starts while there are not
+	 * enough samples, in nanoseconds.
+	 */
+	private final long initialDelayNanos;
+
+	/**
+	 * The latencies of the delegate.
+	 */
+	private final LatencyTracker tracker;
+
+	/**
+	 * The executor where the delegate is executed.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The capabilities of this policy, derived from the delegate ones.
+	 */
+	private final AssignmentPolicyCapabilities capabilities;
+
+	/**
+	 * The number of assignments where a second execution was started.
+	 */
+	private final AtomicLong hedgedCount = new AtomicLong();
+
+	/**
+	 * The number of assignments won by the second execution.
+	 */
+	private final AtomicLong hedgeWinCount = new AtomicLong();
+
+	/**
+	 * Instantiates a new HedgedAssignmentPolicy.
+	 *
+	 * @param builder
+	 *            the builder holding the configuration.
+	 */
+	private HedgedAssignmentPolicy(Builder builder) {
+		this.delegate = builder.delegate;
+		this.invoker = AssignmentPolicyInvoker.bind(builder.delegate);
+		this.percentile = builder.percentile;
+		this.minimumSamples = builder.minimumSamples;
+		this.initialDelayNanos = TimeUnit.MILLISECONDS
+				.toNanos(builder.initialDelayMillis);
+		this.tracker = builder.tracker != null ? builder.tracker
+				: LatencyTracker.forPolicy(builder.delegate);
+		this.executor = builder.executor != null ? builder.executor
+				: SharedExecutorHolder.EXECUTOR;
+		AssignmentPolicyCapabilities delegateCapabilities = AssignmentPolicyCapabilities
+				.of(delegate);
+		this.capabilities = AssignmentPolicyCapabilities.builder()
+				.accepting(delegateCapabilities.getAcceptedTypes())
+				.acceptingNull(delegateCapabilities.isAcceptsNull())
+				.pure(true).idempotent(delegateCapabilities.isIdempotent())
+				.readingVariable(delegateCapabilities.isReadsVariable())
+				.blocking(true).cost(delegateCapabilities.getCost()).build();
+	}
+
+	/**
+	 * Starts building a hedge around a pure policy.
+	 *
+	 * @param delegate
+	 *            the policy to hedge.
+	 * @return a builder for the hedge.
+	 */
+	public static Builder around(AssignmentPolicy delegate) {
+		return new Builder(delegate);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang.Object
+	 * , co.aurasphere.assignables.Assignable)
+	 */
+	public void assign(Object value, Assignable variable) {
+		Object original = variable.get();
+		CompletionService<StagingAssignable> completion = new ExecutorCompletionService<StagingAssignable>(
+				executor);
+		List<Future<StagingAssignable>> executions = new ArrayList<Future<StagingAssignable>>(
+				2);
+		List<Execution> callables = new ArrayList<Execution>(2);
+		try {
+			callables.add(new Execution(value, original));
+			executions.add(completion.submit(callables.get(0)));
+			Future<StagingAssignable> winner = completion.poll(
+					getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+			if (winner == null) {
+				logger.debug(
+						"Assignment of value [{}] into variable [{}] is slow. Hedging it.",
+						value, variable);
+				hedgedCount.incrementAndGet();
+				callables.add(new Execution(value, original));
+				executions.add(completion.submit(callables.get(1)));
+				winner = completion.take();
+			}
+
+			StagingAssignable stage;
+			try {
+				stage = winner.get();
+			} catch (ExecutionException e) {
+				if (executions.size() == 1) {
+					throw e;
+				}
+				// The other execution may still succeed.
+				logger.warn(
+						"Execution of policy [{}] failed. Waiting for the other one.",
+						delegate, e.getCause());
+				winner = completion.take();
+				stage = winner.get();
+			}
+			// Only the winner is timed: the loser is cut short when cancelled.
+			int winnerIndex = executions.indexOf(winner);
+			tracker.record(callables.get(winnerIndex).elapsed);
+			if (winnerIndex != 0) {
+				hedgeWinCount.incrementAndGet();
+			}
+			if (stage.isAssigned()) {
+				variable.set(stage.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AssignmentException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new AssignmentException(e);
+		} finally {
+			// Cancels the loser, if any.
+			for (Future<StagingAssignable> execution : executions) {
+				execution.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Gets the time after which a second execution is started.
+	 *
+	 * @return the delay, in nanoseconds.
+	 */
+	public long getHedgeDelayNanos() {
+		if (tracker.getCount() < minimumSamples) {
+			return initialDelayNanos;
+		}
+		return tracker.getPercentile(percentile);
+	}
+
+	/**
+	 * Gets the number of assignments where a second execution was started.
+	 *
+	 * @return the {@link #hedgedCount}.
+	 */
+	public long getHedgedCount() {
+		return hedgedCount.get();
+	}
+
+	/**
+	 * Gets the number of assignments won by the second execution.
+	 *
+	 * @return the {@link #hedgeWinCount}.
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWinCount.get();
+	}
+
+	/**
+	 * Gets the hedged policy.
+	 *
+	 * @return the {@link #delegate}.
+	 */
+	public AssignmentPolicy getDelegate() {
+		return delegate;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return capabilities;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "HedgedAssignmentPolicy [delegate=" + delegate
+				+ ", percentile=" + percentile + ", hedged=" + hedgedCount
+				+ ", hedgeWins=" + hedgeWinCount + "]";
+	}
+
+	/**
+	 * Single execution of the delegate on its own stage.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private final class Execution implements Callable<StagingAssignable> {
+
+		/**
+		 * The value to assign.
+		 */
+		private final Object value;
+
+		/**
+		 * The content of the variable before the assignment.
+		 */
+		private final Object original;
+
+		/**
+		 * How long the delegate took, in nanoseconds. Set before the
+		 * execution completes.
+		 */
+		private volatile long elapsed;
+
+		/**
+		 * Instantiates a new Execution.
+		 *
+		 * @param value
+		 *            the {@link #value}.
+		 * @param original
+		 *            the {@link #original}.
+		 */
+		private Execution(Object value, Object original) {
+			this.value = value;
+			this.original = original;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public StagingAssignable call() throws Exception {
+			StagingAssignable stage = new StagingAssignable(original);
+			long start = System.nanoTime();
+			invoker.invoke(value, stage);
+			elapsed = System.nanoTime() - start;
+			return stage;
+		}
+	}
+
+	/**
+	 * Lazy holder of the executor shared by the hedges which don't specify
+	 * one.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class SharedExecutorHolder {
+
+		/**
+		 * The shared executor. Its Threads are daemons, so it never has to be
+		 * shut down.
+		 */
+		private static final ExecutorService EXECUTOR = Executors
+				.newCachedThreadPool(new ThreadFactory() {
+					private final AtomicLong count = new AtomicLong();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"assignables-hedge-" + count.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Builder for a {@link HedgedAssignmentPolicy}.
+	 *
+	 * @author Donato Rimenti
+	 */
+	public static final class Builder {
+
+		/**
+		 * The policy to hedge.
+		 */
+		private final AssignmentPolicy delegate;
+
+		/**
+		 * The percentile of the delegate latency after which the second
+		 * execution starts.
+		 */
+		private double percentile = 0.95;
+
+		/**
+		 * The minimum number of latency samples before the percentile is used.
+		 */
+		private int minimumSamples = 20;
+
+		/**
+		 * The delay after which the second execution starts while there are
+		 * not enough samples, in milliseconds.
+		 */
+		private long initialDelayMillis = 10;
+
+		/**
+		 * The latencies of the delegate.
+		 */
+		private LatencyTracker tracker;
+
+		/**
+		 * The executor where the delegate is executed.
+		 */
+		private ExecutorService executor;
+
+		/**
+		 * Instantiates a new Builder.
+		 *
+		 * @param delegate
+		 *            the {@link #delegate}.
+		 */
+		private Builder(AssignmentPolicy delegate) {
+			if (delegate == null) {
+				throw new IllegalArgumentException(
+						"Can't hedge a null assignment policy.");
+			}
+			if (!AssignmentPolicyCapabilities.of(delegate).isPure()) {
+				throw new IllegalArgumentException("Policy " + delegate
+						+ " is not pure and can't be executed twice.");
+			}
+			this.delegate = delegate;
+		}
+
+		/**
+		 * Sets the percentile of the delegate latency after which the second
+		 * execution starts.
+		 *
+		 * @param percentile
+		 *            the percentile, between 0 and 1.
+		 * @return this object.
+		 */
+		public Builder atPercentile(double percentile) {
+			if (percentile <= 0 || percentile > 1) {
+				throw new IllegalArgumentException(
+						"The percentile must be between 0 (excluded) and 1.");
+			}
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum number of latency samples before the percentile is
+		 * used.
+		 *
+		 * @param minimumSamples
+		 *            the minimum number of samples.
+		 * @return this object.
+		 */
+		public Builder minimumSamples(int minimumSamples) {
+			this.minimumSamples = minimumSamples;
+			return this;
+		}
+
+		/**
+		 * Sets the delay after which the second execution starts while there
+		 * are not enough samples.
+		 *
+		 * @param initialDelayMillis
+		 *            the delay, in milliseconds.
+		 * @return this object.
+		 */
+		public Builder initialDelay(long initialDelayMillis) {
+			this.initialDelayMillis = initialDelayMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the tracker of the delegate latencies. By default, the one
+		 * returned by {@link LatencyTracker#forPolicy(AssignmentPolicy)} is
+		 * used.
+		 *
+		 * @param tracker
+		 *            the tracker.
+		 * @return this object.
+		 */
+		public Builder tracker(LatencyTracker tracker) {
+			this.tracker = tracker;
+			return this;
+		}
+
+		/**
+		 * Sets the executor where the delegate is executed. It should have
+		 * at least two Threads available, or the second execution can't start
+		 * while the first one is running.
+		 *
+		 * @param executor
+		 *            the executor.
+		 * @return this object.
+		 */
+		public Builder executor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Builds the hedge.
+		 *
+		 * @return the hedge.
+		 */
+		public HedgedAssignmentPolicy build() {
+			return new HedgedAssignmentPolicy(this);
+		}
+	}
+
+}
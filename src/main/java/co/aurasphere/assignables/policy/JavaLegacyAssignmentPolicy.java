@@ -30,7 +30,15 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class JavaLegacyAssignmentPolicy implements AssignmentPolicy {
+public class JavaLegacyAssignmentPolicy implements DescribedAssignmentPolicy {
+
+	/**
+	 * The capabilities of this policy: pure, idempotent and cheap.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(true).idempotent(true).identity(true)
+			.readingVariable(false).blocking(false)
+			.cost(AssignmentCost.CHEAP).build();
 
 	/*
 	 * (non-Javadoc)
@@ -43,6 +51,16 @@ public class JavaLegacyAssignmentPolicy implements AssignmentPolicy {
 		variable.set(value);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -33,7 +33,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class LoggingAssignmentPolicy implements AssignmentPolicy {
+public class LoggingAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -41,6 +41,13 @@ public class LoggingAssignmentPolicy implements AssignmentPolicy {
 	private static final Logger logger = LoggerFactory
 			.getLogger(LoggingAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: idempotent, but not pure since it logs.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false).idempotent(true).identity(true)
+			.blocking(false).cost(AssignmentCost.MODERATE).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -53,6 +60,16 @@ public class LoggingAssignmentPolicy implements AssignmentPolicy {
 		variable.set(value);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -39,7 +39,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class MD5AssignmentPolicy implements AssignmentPolicy {
+public class MD5AssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -47,6 +47,16 @@ public class MD5AssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(MD5AssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: pure and idempotent, but expensive.
+	 * Null values can't be hashed.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().accepting(Object.class)
+			.acceptingNull(false).pure(true).idempotent(true).blocking(false)
+			.readingVariable(false)
+			.cost(AssignmentCost.EXPENSIVE).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -76,6 +86,16 @@ public class MD5AssignmentPolicy implements AssignmentPolicy {
 		variable.set(hash);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
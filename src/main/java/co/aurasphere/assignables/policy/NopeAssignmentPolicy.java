@@ -33,7 +33,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class NopeAssignmentPolicy implements AssignmentPolicy {
+public class NopeAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -41,6 +41,12 @@ public class NopeAssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(NopeAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: a no-op.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().noOp().build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -53,6 +59,16 @@ public class NopeAssignmentPolicy implements AssignmentPolicy {
 		logger.debug("Inside NopeAssignmentPolicy, doing nothing.");
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -34,7 +34,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class OptionalAssignmentPolicy implements AssignmentPolicy {
+public class OptionalAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -42,6 +42,14 @@ public class OptionalAssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(OptionalAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: pure, idempotent and cheap.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(true).idempotent(true)
+			.readingVariable(false).blocking(false)
+			.cost(AssignmentCost.CHEAP).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -61,6 +69,16 @@ public class OptionalAssignmentPolicy implements AssignmentPolicy {
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -33,7 +33,8 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class PerformanceMonitorAssignmentPolicy implements AssignmentPolicy {
+public class PerformanceMonitorAssignmentPolicy implements
+		DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -41,6 +42,13 @@ public class PerformanceMonitorAssignmentPolicy implements AssignmentPolicy {
 	private static final Logger logger = LoggerFactory
 			.getLogger(PerformanceMonitorAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: idempotent, but not pure since it logs.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false).idempotent(true).identity(true)
+			.blocking(false).cost(AssignmentCost.MODERATE).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -57,6 +65,16 @@ public class PerformanceMonitorAssignmentPolicy implements AssignmentPolicy {
 				value, variable, elapsed);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,264 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.policy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+/**
+ * Logs assignment errors at most once per interval. The errors occurred in
+ * between are counted and reported as a single summary at the end of the
+ * interval, so that a failing policy doesn't flood the logs and the summary
+ * is not lost if no other error follows.
+ * <p>
+ * Stateless policies share their logger through {@link #of(Logger, long)},
+ * since they are often created for a single assignment and a limiter per
+ * instance would never limit anything. Long-lived policies which protect a
+ * resource get their own through {@link #of(Logger, Object, long)}, so that a
+ * noisy resource doesn't hide the errors of the others.
+ * 
+ * @author Donato Rimenti
+ */
+final class RateLimitedErrorLogger {
+
+	/**
+	 * The shared loggers, by logger name and interval.
+	 */
+	private static final ConcurrentMap<String, RateLimitedErrorLogger> sharedLoggers = new ConcurrentHashMap<String, RateLimitedErrorLogger>();
+
+	/**
+	 * The logger to which the errors are written.
+	 */
+	private final Logger logger;
+
+	/**
+	 * What the errors are about, included in the summaries. May be null.
+	 */
+	private final Object scope;
+
+	/**
+	 * The minimum interval between two errors logged, in milliseconds.
+	 */
+	private final long intervalMillis;
+
+	/**
+	 * When the last error has been logged, in nanoseconds.
+	 */
+	private long lastLogged;
+
+	/**
+	 * Whether an error has been logged yet.
+	 */
+	private boolean started;
+
+	/**
+	 * The number of errors suppressed since the last one logged.
+	 */
+	private long suppressed;
+
+	/**
+	 * Whether a {@link #flush()} of the suppressed errors is scheduled.
+	 */
+	private boolean flushScheduled;
+
+	/**
+	 * Instantiates a new RateLimitedErrorLogger.
+	 *
+	 * @param logger
+	 *            the {@link #logger}.
+	 * @param scope
+	 *            the {@link #scope}.
+	 * @param intervalMillis
+	 *            the {@link #intervalMillis}.
+	 */
+	private RateLimitedErrorLogger(Logger logger, Object scope,
+			long intervalMillis) {
+		this.logger = logger;
+		this.scope = scope;
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Gets the rate-limited logger shared by all the users of a logger with
+	 * the same interval.
+	 *
+	 * @param logger
+	 *            the logger to which the errors are written.
+	 * @param intervalMillis
+	 *            the minimum interval between two errors logged, in
+	 *            milliseconds.
+	 * @return the shared rate-limited logger.
+	 */
+	static RateLimitedErrorLogger of(Logger logger, long intervalMillis) {
+		String key = logger.getName() + "@" + intervalMillis;
+		RateLimitedErrorLogger shared = sharedLoggers.get(key);
+		if (shared == null) {
+			RateLimitedErrorLogger created = new RateLimitedErrorLogger(
+					logger, null, intervalMillis);
+			shared = sharedLoggers.putIfAbsent(key, created);
+			if (shared == null) {
+				shared = created;
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Creates a rate-limited logger for the errors about a single scope,
+	 * which is limited independently from the others.
+	 *
+	 * @param logger
+	 *            the logger to which the errors are written.
+	 * @param scope
+	 *            what the errors are about, included in the summaries.
+	 * @param intervalMillis
+	 *            the minimum interval between two errors logged, in
+	 *            milliseconds.
+	 * @return a new rate-limited logger.
+	 */
+	static RateLimitedErrorLogger of(Logger logger, Object scope,
+			long intervalMillis) {
+		return new RateLimitedErrorLogger(logger, scope, intervalMillis);
+	}
+
+	/**
+	 * Logs an error occurred while assigning a value into a variable, unless
+	 * another error has been logged in the current interval.
+	 *
+	 * @param message
+	 *            the message, with a placeholder for each argument.
+	 * @param arguments
+	 *            the arguments of the message, usually the value assigned and
+	 *            the variable, followed by the error if any.
+	 */
+	void error(String message, Object... arguments) {
+		long previouslySuppressed;
+		synchronized (this) {
+			long now = System.nanoTime();
+			long elapsed = now - lastLogged;
+			if (started && elapsed < intervalMillis * 1000000L) {
+				suppressed++;
+				if (!flushScheduled) {
+					flushScheduled = true;
+					scheduleFlush(intervalMillis * 1000000L - elapsed);
+				}
+				return;
+			}
+			previouslySuppressed = suppressed;
+			suppressed = 0;
+			lastLogged = now;
+			started = true;
+		}
+		logSuppressed(previouslySuppressed);
+		logger.error(message, arguments);
+	}
+
+	/**
+	 * Logs the summary of the errors suppressed since the last one logged, if
+	 * any.
+	 */
+	void flush() {
+		long previouslySuppressed;
+		synchronized (this) {
+			previouslySuppressed = suppressed;
+			suppressed = 0;
+		}
+		logSuppressed(previouslySuppressed);
+	}
+
+	/**
+	 * Schedules a {@link #flush()} at the end of the current interval.
+	 *
+	 * @param delayNanos
+	 *            the time left in the current interval, in nanoseconds.
+	 */
+	private void scheduleFlush(long delayNanos) {
+		Flusher.SCHEDULER.schedule(new Runnable() {
+			public void run() {
+				synchronized (RateLimitedErrorLogger.this) {
+					flushScheduled = false;
+				}
+				flush();
+			}
+		}, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Logs how many errors have been suppressed.
+	 *
+	 * @param count
+	 *            the number of errors suppressed.
+	 */
+	private void logSuppressed(long count) {
+		if (count == 0) {
+			return;
+		}
+		if (scope == null) {
+			logger.error(
+					"[{}] more errors have been suppressed in the last [{}] milliseconds.",
+					count, intervalMillis);
+		} else {
+			logger.error(
+					"[{}] more errors about [{}] have been suppressed in the last [{}] milliseconds.",
+					count, scope, intervalMillis);
+		}
+	}
+
+	/**
+	 * Gets the number of errors suppressed since the last one logged.
+	 *
+	 * @return the {@link #suppressed}.
+	 */
+	synchronized long getSuppressed() {
+		return suppressed;
+	}
+
+	/**
+	 * Holds the scheduler of the summaries, created on first use.
+	 *
+	 * @author Donato Rimenti
+	 */
+	private static final class Flusher {
+
+		/**
+		 * The shared scheduler. Its Thread is a daemon, so it never has to be
+		 * shut down.
+		 */
+		private static final ScheduledExecutorService SCHEDULER = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"assignables-error-summary");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+}
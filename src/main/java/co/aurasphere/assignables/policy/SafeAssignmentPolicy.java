@@ -29,11 +29,14 @@ import org.slf4j.LoggerFactory;
 import co.aurasphere.assignables.Assignable;
 
 /**
- * {@link AssignmentPolicy} that does an assignment safely.
+ * {@link AssignmentPolicy} that does an assignment safely. Errors are logged at
+ * most once per interval, the others are summarized. The interval is shared
+ * by all the policies with the same one, so that creating a policy for each
+ * assignment doesn't defeat it.
  * 
  * @author Donato Rimenti
  */
-public class SafeAssignmentPolicy implements AssignmentPolicy {
+public class SafeAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -41,6 +44,45 @@ public class SafeAssignmentPolicy implements AssignmentPolicy {
 	private final static Logger logger = LoggerFactory
 			.getLogger(SafeAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: idempotent and cheap.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false).idempotent(true).identity(true)
+			.blocking(false).cost(AssignmentCost.CHEAP).build();
+
+	/**
+	 * The default minimum interval between two errors logged, in
+	 * milliseconds.
+	 */
+	public static final long DEFAULT_ERROR_LOG_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * The logger used for the errors, shared with the other policies with the
+	 * same interval.
+	 */
+	private final RateLimitedErrorLogger errorLogger;
+
+	/**
+	 * Instantiates a new SafeAssignmentPolicy which logs at most an error per
+	 * {@link #DEFAULT_ERROR_LOG_INTERVAL_MILLIS}.
+	 */
+	public SafeAssignmentPolicy() {
+		this(DEFAULT_ERROR_LOG_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new SafeAssignmentPolicy.
+	 *
+	 * @param errorLogIntervalMillis
+	 *            the minimum interval between two errors logged, in
+	 *            milliseconds.
+	 */
+	public SafeAssignmentPolicy(long errorLogIntervalMillis) {
+		this.errorLogger = RateLimitedErrorLogger.of(logger,
+				errorLogIntervalMillis);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -54,12 +96,32 @@ public class SafeAssignmentPolicy implements AssignmentPolicy {
 					value, variable);
 			variable.set(value);
 		} catch (Throwable t) {
-			logger.error(
-					"An error has occurred while setting value [{}] into variable [{}].",
-					value, variable, t);
+			errorLogger
+					.error("An error has occurred while setting value [{}] into variable [{}].",
+							value, variable, t);
 		}
 	}
 
+	/**
+	 * Gets the number of errors suppressed since the last one logged, by all
+	 * the policies sharing the interval of this one.
+	 *
+	 * @return the number of errors suppressed.
+	 */
+	public long getSuppressedCount() {
+		return errorLogger.getSuppressed();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -35,7 +35,7 @@ import co.aurasphere.assignables.Assignable;
  * 
  * @author Donato Rimenti
  */
-public class StochasticAssignmentPolicy implements AssignmentPolicy {
+public class StochasticAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -43,6 +43,14 @@ public class StochasticAssignmentPolicy implements AssignmentPolicy {
 	private static final Logger logger = LoggerFactory
 			.getLogger(StochasticAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: neither pure nor idempotent, for obvious
+	 * reasons.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().pure(false)
+			.idempotent(false).blocking(false).cost(AssignmentCost.UNKNOWN).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -102,6 +110,16 @@ public class StochasticAssignmentPolicy implements AssignmentPolicy {
 		tryAssignmentRoute();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -34,7 +34,7 @@ import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
  * 
  * @author Donato Rimenti
  */
-public class UnsupportedAssignmentPolicy implements AssignmentPolicy {
+public class UnsupportedAssignmentPolicy implements DescribedAssignmentPolicy {
 
 	/**
 	 * The logger.
@@ -42,6 +42,14 @@ public class UnsupportedAssignmentPolicy implements AssignmentPolicy {
 	private static final Logger logger = LoggerFactory
 			.getLogger(UnsupportedAssignmentPolicy.class);
 
+	/**
+	 * The capabilities of this policy: doesn't accept any value.
+	 */
+	private static final AssignmentPolicyCapabilities CAPABILITIES = AssignmentPolicyCapabilities
+			.builder().acceptingNothing().pure(true).idempotent(true)
+			.readingVariable(false).blocking(false)
+			.cost(AssignmentCost.FREE).build();
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -58,6 +66,16 @@ public class UnsupportedAssignmentPolicy implements AssignmentPolicy {
 						+ "] into variable [" + variable + "] yet!");
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+	 * getCapabilities()
+	 */
+	public AssignmentPolicyCapabilities getCapabilities() {
+		return CAPABILITIES;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consistent point-in-time view of all the {@link TransactionalAssignable}s.
+ * Reads return the content the variables had when the snapshot was opened,
+ * no matter what has been committed since, and never block writers.
+ * <p>
+ * The variables retain their old versions while an open snapshot may read
+ * them, so snapshots should be closed as soon as they're not needed anymore.
+ * 
+ * @author Donato Rimenti
+ */
+public final class Snapshot implements Closeable, Comparable<Snapshot> {
+
+	/**
+	 * The open snapshots, oldest first.
+	 */
+	private static final ConcurrentSkipListSet<Snapshot> openSnapshots = new ConcurrentSkipListSet<Snapshot>();
+
+	/**
+	 * Generates the identifiers of the snapshots.
+	 */
+	private static final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * The version of the clock this snapshot reads at.
+	 */
+	private final long version;
+
+	/**
+	 * Identifier of this snapshot, to tell apart snapshots with the same
+	 * version.
+	 */
+	private final long id;
+
+	/**
+	 * Whether this snapshot has been closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Instantiates a new Snapshot.
+	 *
+	 * @param version
+	 *            the {@link #version}.
+	 */
+	private Snapshot(long version) {
+		this.version = version;
+		this.id = sequence.getAndIncrement();
+	}
+
+	/**
+	 * Opens a snapshot of the last committed state.
+	 *
+	 * @return a new snapshot.
+	 */
+	public static Snapshot open() {
+		// Holds back the pruning while the clock is read, so that the
+		// versions this snapshot needs can't be dropped before it's open.
+		Snapshot pin = new Snapshot(0);
+		openSnapshots.add(pin);
+		Snapshot snapshot = new Snapshot(Stm.currentVersion());
+		openSnapshots.add(snapshot);
+		openSnapshots.remove(pin);
+		return snapshot;
+	}
+
+	/**
+	 * Reads a variable as it was when this snapshot was opened.
+	 *
+	 * @param variable
+	 *            the variable to read.
+	 * @return the content of the variable.
+	 */
+	public Object read(TransactionalAssignable variable) {
+		if (closed) {
+			throw new IllegalStateException("Snapshot " + this
+					+ " has been closed.");
+		}
+		return variable.readAt(version);
+	}
+
+	/**
+	 * Gets the version of the clock this snapshot reads at.
+	 *
+	 * @return the {@link #version}.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Closes this snapshot, allowing the versions it retains to be dropped.
+	 */
+	public void close() {
+		if (!closed) {
+			closed = true;
+			openSnapshots.remove(this);
+		}
+	}
+
+	/**
+	 * Gets the number of open snapshots.
+	 *
+	 * @return the number of open snapshots.
+	 */
+	public static int getOpenCount() {
+		return openSnapshots.size();
+	}
+
+	/**
+	 * Gets the oldest version of the clock an open snapshot may read at.
+	 *
+	 * @return the oldest version read, or {@link Long#MAX_VALUE} if there are
+	 *         no open snapshots.
+	 */
+	static long horizon() {
+		Iterator<Snapshot> oldest = openSnapshots.iterator();
+		return oldest.hasNext() ? oldest.next().version : Long.MAX_VALUE;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	public int compareTo(Snapshot other) {
+		if (version != other.version) {
+			return version < other.version ? -1 : 1;
+		}
+		return id < other.id ? -1 : (id == other.id ? 0 : 1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Snapshot [version=" + version + ", closed=" + closed + "]";
+	}
+
+}
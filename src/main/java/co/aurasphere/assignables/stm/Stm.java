@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+import co.aurasphere.assignables.exception.AssignmentException;
+
+/**
+ * Software transactional memory over {@link TransactionalAssignable}s. A
+ * transaction reads and writes many variables and either commits all of its
+ * writes at once or none of them, so readers never see a half-applied state.
+ * <p>
+ * Transactions are optimistic: they don't lock anything while running and are
+ * validated at commit against a global version clock, retrying on conflict.
+ * Only the variables written are locked, and only while committing, so
+ * transactions over disjoint variables commit in parallel.
+ * 
+ * @author Donato Rimenti
+ */
+public final class Stm {
+
+	/**
+	 * The logger.
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(Stm.class);
+
+	/**
+	 * The global version clock, incremented by each commit.
+	 */
+	private static final AtomicLong clock = new AtomicLong();
+
+	/**
+	 * The number of transactions committed.
+	 */
+	private static final AtomicLong commitCount = new AtomicLong();
+
+	/**
+	 * The number of transaction attempts retried because of a conflict.
+	 */
+	private static final AtomicLong conflictCount = new AtomicLong();
+
+	/**
+	 * The transaction running on the current Thread, if any.
+	 */
+	private static final ThreadLocal<Transaction> current = new ThreadLocal<Transaction>();
+
+	/**
+	 * Instantiates a new Stm.
+	 */
+	private Stm() {
+	}
+
+	/**
+	 * Executes a body in a transaction, retrying it until it commits. If
+	 * called inside another transaction, the body becomes part of it.
+	 *
+	 * @param <T>
+	 *            the type of the result.
+	 * @param body
+	 *            the body to execute.
+	 * @return the result of the body.
+	 * @throws AssignmentException
+	 *             if the body throws a checked exception.
+	 */
+	public static <T> T atomically(TransactionBody<T> body) {
+		return atomically(body, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Executes a body in a transaction, retrying it until it commits or the
+	 * maximum number of attempts is reached. If called inside another
+	 * transaction, the body becomes part of it.
+	 *
+	 * @param <T>
+	 *            the type of the result.
+	 * @param body
+	 *            the body to execute.
+	 * @param maxAttempts
+	 *            the maximum number of attempts.
+	 * @return the result of the body.
+	 * @throws AssignmentException
+	 *             if the body throws a checked exception or the transaction
+	 *             still conflicts after the maximum number of attempts.
+	 */
+	public static <T> T atomically(TransactionBody<T> body, int maxAttempts) {
+		Transaction outer = current.get();
+		if (outer != null) {
+			return run(body, outer);
+		}
+
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			Transaction transaction = new Transaction(clock.get());
+			current.set(transaction);
+			try {
+				T result = run(body, transaction);
+				transaction.commit();
+				commitCount.incrementAndGet();
+				return result;
+			} catch (ConflictException e) {
+				conflictCount.incrementAndGet();
+				logger.trace("Transaction [{}] conflicted. Retrying.",
+						transaction);
+				backOff(attempt);
+			} finally {
+				current.remove();
+			}
+		}
+		throw new AssignmentException("Transaction still conflicting after "
+				+ maxAttempts + " attempts.");
+	}
+
+	/**
+	 * Executes a body, wrapping its checked exceptions.
+	 *
+	 * @param <T>
+	 *            the type of the result.
+	 * @param body
+	 *            the body to execute.
+	 * @param transaction
+	 *            the transaction.
+	 * @return the result of the body.
+	 */
+	private static <T> T run(TransactionBody<T> body, Transaction transaction) {
+		try {
+			return body.run(transaction);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new AssignmentException(e);
+		}
+	}
+
+	/**
+	 * Gets the number of transactions committed.
+	 *
+	 * @return the {@link #commitCount}.
+	 */
+	public static long getCommitCount() {
+		return commitCount.get();
+	}
+
+	/**
+	 * Gets the number of transaction attempts retried because of a conflict.
+	 *
+	 * @return the {@link #conflictCount}.
+	 */
+	public static long getConflictCount() {
+		return conflictCount.get();
+	}
+
+	/**
+	 * Gets the current version of the global clock.
+	 *
+	 * @return the version of the last commit.
+	 */
+	public static long currentVersion() {
+		return clock.get();
+	}
+
+	/**
+	 * Advances the global clock for a commit.
+	 *
+	 * @return the version of the commit.
+	 */
+	static long nextVersion() {
+		return clock.incrementAndGet();
+	}
+
+	/**
+	 * Waits a little before retrying after a conflict, longer after each
+	 * attempt.
+	 *
+	 * @param attempts
+	 *            the number of attempts already made.
+	 */
+	static void backOff(int attempts) {
+		WaitStrategy.PARK.idle(attempts);
+	}
+
+}
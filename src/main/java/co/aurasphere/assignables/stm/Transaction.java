@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.aurasphere.assignables.StagingAssignable;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+
+/**
+ * Attempt of a transaction started by {@link Stm#atomically(TransactionBody)}.
+ * Reads see the variables as of the beginning of the transaction, writes are
+ * buffered and published all together at commit, after validating that
+ * nothing read has been written in the meantime.
+ * <p>
+ * Variables are tracked by identity, since the equality of an
+ * {@link co.aurasphere.assignables.Assignable} depends on its content.
+ * 
+ * @author Donato Rimenti
+ */
+public final class Transaction {
+
+	/**
+	 * The version of the variables seen by this transaction.
+	 */
+	private final long readVersion;
+
+	/**
+	 * The variables read by this transaction.
+	 */
+	private final List<TransactionalAssignable> reads = new ArrayList<TransactionalAssignable>();
+
+	/**
+	 * The values written by this transaction, by variable.
+	 */
+	private final Map<TransactionalAssignable, Object> writes = new IdentityHashMap<TransactionalAssignable, Object>();
+
+	/**
+	 * Instantiates a new Transaction.
+	 *
+	 * @param readVersion
+	 *            the {@link #readVersion}.
+	 */
+	Transaction(long readVersion) {
+		this.readVersion = readVersion;
+	}
+
+	/**
+	 * Reads a variable.
+	 *
+	 * @param variable
+	 *            the variable to read.
+	 * @return the content of the variable, including the writes of this
+	 *         transaction.
+	 */
+	public Object read(TransactionalAssignable variable) {
+		if (writes.containsKey(variable)) {
+			return writes.get(variable);
+		}
+		Object object = variable.read(readVersion);
+		reads.add(variable);
+		return object;
+	}
+
+	/**
+	 * Writes a variable. The write is visible to the other Threads only once
+	 * the transaction commits.
+	 *
+	 * @param variable
+	 *            the variable to write.
+	 * @param object
+	 *            the new content of the variable.
+	 */
+	public void write(TransactionalAssignable variable, Object object) {
+		writes.put(variable, object);
+	}
+
+	/**
+	 * Assigns a value into a variable through a policy, as part of this
+	 * transaction. The policy sees the content of the variable as read by
+	 * this transaction.
+	 *
+	 * @param value
+	 *            the value to assign.
+	 * @param variable
+	 *            the variable where to put the value.
+	 * @param assignmentPolicy
+	 *            defines how to perform the assignment.
+	 */
+	public void assign(Object value, TransactionalAssignable variable,
+			AssignmentPolicy assignmentPolicy) {
+		StagingAssignable stage = new StagingAssignable(read(variable));
+		AssignmentPolicyInvoker.bind(assignmentPolicy).invoke(value, stage);
+		if (stage.isAssigned()) {
+			write(variable, stage.get());
+		}
+	}
+
+	/**
+	 * Commits this transaction.
+	 *
+	 * @throws ConflictException
+	 *             if this transaction conflicts with another one.
+	 */
+	void commit() {
+		// Every read was consistent with the read version when it was made.
+		if (writes.isEmpty()) {
+			return;
+		}
+
+		Map<TransactionalAssignable, Long> locked = new IdentityHashMap<TransactionalAssignable, Long>(
+				writes.size());
+		try {
+			for (TransactionalAssignable variable : writes.keySet()) {
+				long word = variable.tryLock();
+				if (word == -1) {
+					throw ConflictException.INSTANCE;
+				}
+				locked.put(variable, word);
+			}
+
+			long writeVersion = Stm.nextVersion();
+			// If nobody committed since this transaction began, the reads
+			// are still valid.
+			if (writeVersion != readVersion + 1) {
+				validate(locked);
+			}
+
+			for (Map.Entry<TransactionalAssignable, Object> write : writes
+					.entrySet()) {
+				write.getKey().write(write.getValue(), writeVersion);
+			}
+			for (TransactionalAssignable variable : writes.keySet()) {
+				variable.unlock(writeVersion);
+			}
+			locked.clear();
+		} finally {
+			// Releases the locks if the commit failed.
+			for (Map.Entry<TransactionalAssignable, Long> entry : locked
+					.entrySet()) {
+				entry.getKey().release(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Checks that no variable read by this transaction has been written by
+	 * another one since this transaction began.
+	 *
+	 * @param locked
+	 *            the variables locked by this transaction, with their lock
+	 *            word before locking.
+	 * @throws ConflictException
+	 *             if a variable read has been written.
+	 */
+	private void validate(Map<TransactionalAssignable, Long> locked) {
+		for (TransactionalAssignable variable : reads) {
+			Long own = locked.get(variable);
+			long word = own != null ? own.longValue() : variable.lockWord();
+			if ((own == null && (word & TransactionalAssignable.LOCKED) != 0)
+					|| TransactionalAssignable.versionOf(word) > readVersion) {
+				throw ConflictException.INSTANCE;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Transaction [readVersion=" + readVersion + ", reads="
+				+ reads.size() + ", writes=" + writes.size() + "]";
+	}
+
+}
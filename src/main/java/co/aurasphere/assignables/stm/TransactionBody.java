@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+/**
+ * Code executed inside a transaction by {@link Stm#atomically(TransactionBody)}.
+ * The body may be executed more than once, so it should have no side effects
+ * other than the ones on the {@link Transaction}.
+ *
+ * @param <T>
+ *            the type of the result.
+ * @author Donato Rimenti
+ */
+public interface TransactionBody<T> {
+
+	/**
+	 * Executes the body.
+	 *
+	 * @param transaction
+	 *            the transaction where to read and write the variables.
+	 * @return the result of the transaction.
+	 * @throws Exception
+	 *             if the body fails. The transaction is rolled back.
+	 */
+	public T run(Transaction transaction) throws Exception;
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.aurasphere.assignables.Assignable;
+
+/**
+ * {@link Assignable} which can take part in the transactions of
+ * {@link Stm#atomically(TransactionBody)}. Each variable has a versioned lock:
+ * the version of the last transaction which wrote it and a bit set while a
+ * transaction is committing into it.
+ * <p>
+ * The variable can also be read and written outside of a transaction: a plain
+ * write counts as a transaction of its own, so the transactions which read
+ * the variable before it will retry.
+ * <p>
+ * Each write also keeps the versions it replaces for as long as an open
+ * {@link Snapshot} may read them. Versions come from the clock of the current
+ * JVM, so only the content is serialized: a deserialized variable starts
+ * over from version 0, visible to any transaction or snapshot.
+ * 
+ * @author Donato Rimenti
+ */
+public class TransactionalAssignable extends Assignable {
+
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The lock bit of the {@link #lock}.
+	 */
+	static final long LOCKED = 1L;
+
+	/**
+	 * The version of the last write, shifted by one, and the {@link #LOCKED}
+	 * bit.
+	 */
+	private final AtomicLong lock = new AtomicLong();
+
+	/**
+	 * The last committed version of this variable, linked to the older ones
+	 * still retained. Rebuilt on deserialization.
+	 */
+	private transient volatile Version history;
+
+	/**
+	 * Instantiates a new TransactionalAssignable.
+	 */
+	public TransactionalAssignable() {
+		this.history = new Version(null, 0, null);
+	}
+
+	/**
+	 * Instantiates a new TransactionalAssignable.
+	 *
+	 * @param object
+	 *            the initial content of this variable.
+	 */
+	public TransactionalAssignable(Object object) {
+		super(object);
+		this.history = new Version(object, 0, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#get()
+	 */
+	@Override
+	public Object get() {
+		// Reading the lock makes the last committed write visible.
+		lock.get();
+		return super.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+	 */
+	@Override
+	public void set(Object object) {
+		// The write of the base class is started first, as the commits do.
+		boolean started = beginWrite();
+		try {
+			long word;
+			int attempts = 0;
+			while (((word = lock.get()) & LOCKED) != 0
+					|| !lock.compareAndSet(word, word | LOCKED)) {
+				Stm.backOff(attempts++);
+			}
+			long version = Stm.nextVersion();
+			write(object, version);
+			lock.set(version << 1);
+		} finally {
+			if (started) {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Gets the current lock word.
+	 *
+	 * @return the {@link #lock} word.
+	 */
+	long lockWord() {
+		return lock.get();
+	}
+
+	/**
+	 * Reads the content of this variable as of a version, without locking.
+	 *
+	 * @param readVersion
+	 *            the version of the reading transaction.
+	 * @return the content of this variable.
+	 * @throws ConflictException
+	 *             if the variable is locked or has been written after the
+	 *             read version.
+	 */
+	Object read(long readVersion) {
+		long before = lock.get();
+		Object object = super.get();
+		// The content must be read before checking the lock again.
+		VarHandle.loadLoadFence();
+		long after = lock.get();
+		if ((before & LOCKED) != 0 || before != after
+				|| versionOf(before) > readVersion) {
+			throw ConflictException.INSTANCE;
+		}
+		return object;
+	}
+
+	/**
+	 * Reads the content this variable had at a version of the clock. If a
+	 * commit is in progress, waits for it to complete, since it may have a
+	 * version not after the requested one.
+	 *
+	 * @param version
+	 *            the version of the clock.
+	 * @return the content of this variable.
+	 */
+	Object readAt(long version) {
+		int attempts = 0;
+		while ((lock.get() & LOCKED) != 0) {
+			Stm.backOff(attempts++);
+		}
+		Version visible = history.visibleAt(version);
+		if (visible == null) {
+			throw new IllegalStateException("Version " + version
+					+ " of variable " + this + " is no longer retained.");
+		}
+		return visible.object;
+	}
+
+	/**
+	 * Tries to lock this variable for a commit. The write of the base class
+	 * is started as well, so that plain writes and transactional assignments
+	 * wait for the commit.
+	 *
+	 * @return the lock word before locking, or -1 if the variable is already
+	 *         locked.
+	 */
+	long tryLock() {
+		long word = lock.get();
+		if ((word & LOCKED) != 0 || !lock.compareAndSet(word, word | LOCKED)) {
+			return -1;
+		}
+		if (!tryBeginWrite()) {
+			lock.set(word);
+			return -1;
+		}
+		return word;
+	}
+
+	/**
+	 * Writes the content of this variable. Must be called while holding the
+	 * lock.
+	 *
+	 * @param object
+	 *            the new content.
+	 * @param version
+	 *            the version of the commit.
+	 */
+	void write(Object object, long version) {
+		super.set(object);
+		Version current = new Version(object, version, history);
+		current.prune(Snapshot.horizon());
+		this.history = current;
+	}
+
+	/**
+	 * Counts the versions of this variable currently retained.
+	 *
+	 * @return the number of retained versions.
+	 */
+	public int getRetainedVersions() {
+		int count = 0;
+		for (Version current = history; current != null; current = current.previous) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Unlocks this variable, setting its version.
+	 *
+	 * @param version
+	 *            the new version.
+	 */
+	void unlock(long version) {
+		lock.set(version << 1);
+		endWrite();
+	}
+
+	/**
+	 * Unlocks this variable, restoring the lock word it had before locking.
+	 *
+	 * @param word
+	 *            the lock word returned by {@link #tryLock()}.
+	 */
+	void release(long word) {
+		lock.set(word);
+		endWrite();
+	}
+
+	/**
+	 * Gets the version from a lock word.
+	 *
+	 * @param word
+	 *            the lock word.
+	 * @return the version.
+	 */
+	static long versionOf(long word) {
+		return word >>> 1;
+	}
+
+	/**
+	 * Restores the versions of this variable after deserialization. The
+	 * version of the serialized content is meaningless in this JVM, so it's
+	 * reset to 0.
+	 *
+	 * @param in
+	 *            the stream to read from.
+	 * @throws IOException
+	 *             if the stream can't be read.
+	 * @throws ClassNotFoundException
+	 *             if the class of the content can't be found.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		lock.set(0);
+		this.history = new Version(super.get(), 0, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.assignables.Assignable#toString()
+	 */
+	@Override
+	public String toString() {
+		return "TransactionalAssignable [object=" + get() + ", version="
+				+ versionOf(lock.get()) + "]";
+	}
+
+}
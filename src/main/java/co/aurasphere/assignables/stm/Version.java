@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.stm;
+
+/**
+ * Committed content of a {@link TransactionalAssignable}, linked to the one
+ * it replaced. Older versions are dropped once no {@link Snapshot} needs them
+ * anymore.
+ * 
+ * @author Donato Rimenti
+ */
+final class Version {
+
+	/**
+	 * The content of the variable.
+	 */
+	final Object object;
+
+	/**
+	 * The version of the commit which wrote the {@link #object}.
+	 */
+	final long version;
+
+	/**
+	 * The version replaced by this one, or null if it has been dropped.
+	 */
+	volatile Version previous;
+
+	/**
+	 * Instantiates a new Version.
+	 *
+	 * @param object
+	 *            the {@link #object}.
+	 * @param version
+	 *            the {@link #version}.
+	 * @param previous
+	 *            the {@link #previous}.
+	 */
+	Version(Object object, long version, Version previous) {
+		this.object = object;
+		this.version = version;
+		this.previous = previous;
+	}
+
+	/**
+	 * Finds the newest version visible at a given version of the clock.
+	 *
+	 * @param at
+	 *            the version of the clock.
+	 * @return the newest version not after the given one, or null if it has
+	 *         been dropped.
+	 */
+	Version visibleAt(long at) {
+		Version current = this;
+		while (current != null && current.version > at) {
+			current = current.previous;
+		}
+		return current;
+	}
+
+	/**
+	 * Drops the versions which are not visible at a given version of the
+	 * clock or after it.
+	 *
+	 * @param horizon
+	 *            the oldest version of the clock still read.
+	 */
+	void prune(long horizon) {
+		Version oldest = visibleAt(horizon);
+		if (oldest != null) {
+			oldest.previous = null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Version [object=" + object + ", version=" + version + "]";
+	}
+
+}
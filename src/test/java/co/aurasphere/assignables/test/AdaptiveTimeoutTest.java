@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.concurrent.AdaptiveTimeout;
+import co.aurasphere.assignables.concurrent.LatencyTracker;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.policy.DoAfterDelayAssignmentPolicy;
+
+/**
+ * Checks that {@link AdaptiveTimeout} derives the timeout from the latency of
+ * each policy and that a timed out assignment is sampled only once.
+ * 
+ * @author Donato Rimenti
+ */
+public class AdaptiveTimeoutTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		AdaptiveTimeout adaptive = AdaptiveTimeout.builder().percentile(0.99)
+				.multiplier(2).floor(10).ceiling(1000).minimumSamples(5)
+				.build();
+
+		// The ceiling is used until there are enough samples.
+		DoAfterDelayAssignmentPolicy slow = new DoAfterDelayAssignmentPolicy(7);
+		Check.equal(1000L, adaptive.getTimeoutMillis(slow), "Without samples");
+		for (int i = 0; i < 5; i++) {
+			adaptive.record(slow, TimeUnit.MILLISECONDS.toNanos(20));
+		}
+		long derived = adaptive.getTimeoutMillis(slow);
+		Check.that(derived >= 40 && derived <= 50, "Derived timeout "
+				+ derived);
+
+		// Equal policies share the samples, different ones don't.
+		Check.equal(derived,
+				adaptive.getTimeoutMillis(new DoAfterDelayAssignmentPolicy(7)),
+				"Equal policy");
+		DoAfterDelayAssignmentPolicy fast = new DoAfterDelayAssignmentPolicy(8);
+		for (int i = 0; i < 5; i++) {
+			adaptive.record(fast, 1000);
+		}
+		Check.equal(10L, adaptive.getTimeoutMillis(fast), "Floor");
+		Check.equal(derived, adaptive.getComputedTimeouts().get(slow),
+				"Computed timeout of the slow policy");
+		Check.equal(10L, adaptive.getComputedTimeouts().get(fast),
+				"Computed timeout of the fast policy");
+
+		// A timed out assignment is recorded once, with the timeout, even if
+		// the worker completes later.
+		final AdaptiveTimeout tight = AdaptiveTimeout.builder().floor(10)
+				.ceiling(50).minimumSamples(1000).build();
+		final DoAfterDelayAssignmentPolicy late = new DoAfterDelayAssignmentPolicy(
+				300);
+		final Assignable variable = new Assignable(0);
+		Check.fails(AssignmentException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(variable).parallelProcessing()
+						.timeout(tight).end().withAssignmentPolicy(late);
+			}
+		}, "Timed out assignment");
+		// Gives the interrupted worker time to complete.
+		Thread.sleep(400);
+		LatencyTracker tracker = LatencyTracker.forPolicy(late);
+		Check.equal(1L, tracker.getCount(), "Samples of a timed out assignment");
+		long sampled = TimeUnit.NANOSECONDS.toMillis(tracker
+				.getPercentile(1));
+		Check.that(sampled >= 50 && sampled < 60, "Timeout sample " + sampled);
+
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				AdaptiveTimeout.builder().floor(100).ceiling(10).build();
+			}
+		}, "Ceiling below the floor");
+
+		Check.passed(AdaptiveTimeoutTest.class);
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.File;
+import java.lang.reflect.Modifier;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.policy.AssignIfNotAlreadyThereAssigmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyInvoker;
+import co.aurasphere.assignables.policy.CompositeAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+import co.aurasphere.assignables.policy.NopeAssignmentPolicy;
+import co.aurasphere.assignables.policy.OptionalAssignmentPolicy;
+
+/**
+ * Checks that an {@link AssignmentPolicyInvoker} behaves exactly like the
+ * policy it's bound to.
+ * 
+ * @author Donato Rimenti
+ */
+public class AssignmentPolicyInvokerTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the built-in policies can't be listed.
+	 */
+	public static void main(String[] args) throws Exception {
+		Assignable variable = new Assignable(0);
+		AssignmentPolicyInvoker.bind(new JavaLegacyAssignmentPolicy()).invoke(
+				1, variable);
+		Check.equal(1, variable.get(), "Built-in policy");
+
+		AssignmentPolicyInvoker.bind(new NopeAssignmentPolicy()).invoke(2,
+				variable);
+		Check.equal(1, variable.get(), "Variable after a no-op");
+
+		AssignmentPolicyInvoker.bind(new OptionalAssignmentPolicy()).invoke(
+				null, variable);
+		Check.equal(1, variable.get(), "Variable after a null optional");
+
+		AssignmentPolicyInvoker.bind(
+				new AssignIfNotAlreadyThereAssigmentPolicy()).invoke(3,
+				variable);
+		Check.equal(3, variable.get(), "Variable after a new value");
+
+		AssignmentPolicyInvoker.bind(
+				CompositeAssignmentPolicy.first(new OptionalAssignmentPolicy())
+						.then(new NopeAssignmentPolicy()).build()).invoke(4,
+				variable);
+		Check.equal(3, variable.get(), "Variable after a fused chain");
+
+		// Subclasses of built-in policies keep their overrides.
+		AssignmentPolicyInvoker.bind(new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				super.assign((Integer) value * 10, variable);
+			}
+		}).invoke(5, variable);
+		Check.equal(50, variable.get(), "Overridden built-in policy");
+
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				AssignmentPolicyInvoker.bind(null);
+			}
+		}, "Binding a null policy");
+
+		// Every built-in policy has its own call site.
+		File directory = new File(AssignmentPolicy.class.getResource("")
+				.toURI());
+		int builtIn = 0;
+		for (String name : directory.list()) {
+			if (!name.endsWith(".class") || name.indexOf('$') >= 0) {
+				continue;
+			}
+			Class<?> type = Class.forName(AssignmentPolicy.class.getPackage()
+					.getName() + "." + name.substring(0, name.length() - 6));
+			if (AssignmentPolicy.class.isAssignableFrom(type)
+					&& !type.isInterface()
+					&& !Modifier.isAbstract(type.getModifiers())) {
+				Check.that(AssignmentPolicyInvoker.isSpecialized(type
+						.asSubclass(AssignmentPolicy.class)), type
+						.getSimpleName() + " has a call site");
+				builtIn++;
+			}
+		}
+		Check.that(builtIn >= 17, "Built-in policies found: " + builtIn);
+
+		Check.passed(AssignmentPolicyInvokerTest.class);
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.AssignmentRingBuffer;
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link AssignmentRingBuffer} performs the published assignments
+ * in order and survives policies which throw.
+ * 
+ * @author Donato Rimenti
+ */
+public class AssignmentRingBufferTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the ring buffer fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final List<Object> order = new ArrayList<Object>();
+		AssignmentPolicy recording = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				order.add(value);
+				super.assign(value, variable);
+			}
+		};
+
+		// Assignments into a variable are performed in publishing order, even
+		// when the buffer wraps around many times.
+		AssignmentRingBuffer ring = AssignmentRingBuffer.builder()
+				.capacity(8).consumers(2).waitStrategy(WaitStrategy.YIELD)
+				.start();
+		Assignable variable = new Assignable(0);
+		for (int i = 1; i <= 1000; i++) {
+			ring.publish(i, variable, recording);
+		}
+		ring.shutdown();
+		Check.equal(1000L, ring.getPublishedCount(), "Published");
+		Check.equal(1000L, ring.getProcessedCount(), "Processed");
+		Check.equal(0L, ring.getFailedCount(), "Failed");
+		for (int i = 0; i < order.size(); i++) {
+			Check.equal(i + 1, order.get(i), "Publishing order");
+		}
+		Check.equal(1000, variable.get(), "Last writer");
+
+		// An Error thrown by a policy only fails its slot: the consumer keeps
+		// going, so the producers never block on a full buffer.
+		AssignmentPolicy failing = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				if (((Integer) value) % 10 == 0) {
+					throw new StackOverflowError("Policy error");
+				}
+				super.assign(value, variable);
+			}
+		};
+		ring = AssignmentRingBuffer.builder().capacity(4)
+				.waitStrategy(WaitStrategy.PARK).start();
+		Assignable survivor = new Assignable(0);
+		for (int i = 1; i <= 200; i++) {
+			ring.publish(i, survivor, failing);
+		}
+		ring.shutdown();
+		Check.equal(200L, ring.getProcessedCount(), "Processed with errors");
+		Check.equal(20L, ring.getFailedCount(), "Failed slots");
+		Check.equal(199, survivor.get(), "Last successful writer");
+
+		// Shut down buffers reject new assignments.
+		final AssignmentRingBuffer closed = ring;
+		Check.fails(IllegalStateException.class, new Runnable() {
+			public void run() {
+				closed.publish(1, new Assignable(0),
+						new JavaLegacyAssignmentPolicy());
+			}
+		}, "Publish after shutdown");
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				AssignmentRingBuffer.builder().capacity(10);
+			}
+		}, "Capacity not a power of two");
+
+		Check.passed(AssignmentRingBufferTest.class);
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.AssignmentSubscriber;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.DescribedAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link AssignmentSubscriber} assigns the values of a stream
+ * with backpressure and never throws from its signals.
+ * 
+ * @author Donato Rimenti
+ */
+public class AssignmentSubscriberTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the stream fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		// Values are requested in batches, once the previous one is assigned.
+		Assignable variable = new Assignable(0);
+		AssignmentSubscriber<Integer> subscriber = new AssignmentSubscriber<Integer>(
+				variable, new JavaLegacyAssignmentPolicy(), 2);
+		RecordingSubscription subscription = new RecordingSubscription();
+		subscriber.onSubscribe(subscription);
+		Check.equal(2L, subscription.requested, "First request");
+		subscriber.onNext(1);
+		Check.equal(2L, subscription.requested, "Requested mid-batch");
+		subscriber.onNext(2);
+		Check.equal(4L, subscription.requested, "Second request");
+		Check.equal(2, variable.get(), "Assigned value");
+
+		// A second subscription is cancelled right away.
+		RecordingSubscription duplicate = new RecordingSubscription();
+		subscriber.onSubscribe(duplicate);
+		Check.that(duplicate.cancelled, "Duplicate subscription cancelled");
+
+		// After a cancel, late values are ignored.
+		subscriber.cancel();
+		Check.that(subscription.cancelled, "Subscription cancelled");
+		Check.that(subscriber.isDone(), "Done after cancel");
+		subscriber.onNext(3);
+		Check.equal(2, variable.get(), "Value after cancel");
+		Check.equal(2L, subscriber.getAssignedCount(), "Assigned values");
+		Check.equal(null, subscriber.getError(), "Error after cancel");
+
+		// An Error thrown by the policy doesn't escape onNext: the
+		// subscription is cancelled and the subscriber fails.
+		AssignmentPolicy failing = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				throw new AssertionError("Policy error");
+			}
+		};
+		AssignmentSubscriber<Integer> failed = new AssignmentSubscriber<Integer>(
+				new Assignable(0), failing);
+		RecordingSubscription failedSubscription = new RecordingSubscription();
+		failed.onSubscribe(failedSubscription);
+		failed.onNext(1);
+		Check.that(failedSubscription.cancelled, "Cancelled on error");
+		Check.that(failed.isDone(), "Done on error");
+		Check.that(failed.getError() instanceof AssertionError,
+				"Error kept by the subscriber");
+
+		// Values not supported by the policy fail the stream as well.
+		final List<Object> values = new ArrayList<Object>();
+		AssignmentSubscriber<Object> rejecting = new AssignmentSubscriber<Object>(
+				new Assignable(0), new RecordingPolicy(values));
+		rejecting.onSubscribe(new RecordingSubscription());
+		rejecting.onNext("not a number");
+		Check.that(rejecting.getError() != null, "Unsupported value");
+		Check.that(values.isEmpty(), "Unsupported value not assigned");
+
+		// End to end with an asynchronous publisher.
+		Assignable streamed = new Assignable(0);
+		AssignmentSubscriber<Integer> async = new AssignmentSubscriber<Integer>(
+				streamed, new JavaLegacyAssignmentPolicy(), 4);
+		SubmissionPublisher<Integer> publisher = new SubmissionPublisher<Integer>();
+		publisher.subscribe(async);
+		for (int i = 1; i <= 100; i++) {
+			publisher.submit(i);
+		}
+		publisher.close();
+		Check.that(async.awaitTermination(10, TimeUnit.SECONDS),
+				"Stream terminated");
+		Check.equal(100L, async.getAssignedCount(), "Streamed values");
+		Check.equal(100, streamed.get(), "Last streamed value");
+
+		Check.passed(AssignmentSubscriberTest.class);
+	}
+
+	/**
+	 * Subscription which records the signals received.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static class RecordingSubscription implements Flow.Subscription {
+
+		/**
+		 * The number of values requested so far.
+		 */
+		private long requested;
+
+		/**
+		 * Whether the subscription has been cancelled.
+		 */
+		private boolean cancelled;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Flow.Subscription#request(long)
+		 */
+		public void request(long n) {
+			requested += n;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.Flow.Subscription#cancel()
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * Policy which accepts only numbers and records them.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static class RecordingPolicy implements DescribedAssignmentPolicy {
+
+		/**
+		 * The values assigned.
+		 */
+		private final List<Object> values;
+
+		/**
+		 * Instantiates a new RecordingPolicy.
+		 *
+		 * @param values
+		 *            the {@link #values}.
+		 */
+		private RecordingPolicy(List<Object> values) {
+			this.values = values;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang
+		 * .Object, co.aurasphere.assignables.Assignable)
+		 */
+		public void assign(Object value, Assignable variable) {
+			values.add(value);
+			variable.set(value);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+		 * getCapabilities()
+		 */
+		public AssignmentPolicyCapabilities getCapabilities() {
+			return AssignmentPolicyCapabilities.builder()
+					.accepting(Number.class).build();
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import co.aurasphere.assignables.codec.BinaryCodec;
+import co.aurasphere.assignables.codec.BinaryReader;
+import co.aurasphere.assignables.codec.BinaryWriter;
+import co.aurasphere.assignables.codec.TypeCodec;
+
+/**
+ * Checks that {@link BinaryCodec} round-trips the values of every type it
+ * handles and rejects conflicting registrations and unknown tags.
+ * 
+ * @author Donato Rimenti
+ */
+public class BinaryCodecTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		final BinaryCodec codec = new BinaryCodec();
+
+		// Zig-zag encoding keeps the extremes and the negative values.
+		Object[] values = { null, true, false, (byte) -128, Short.MIN_VALUE,
+				Short.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0,
+				Long.MIN_VALUE, Long.MAX_VALUE, -1L, 'a', '\u00e8',
+				Character.MAX_VALUE, 1.5f, -0.0d, Double.MAX_VALUE, "",
+				"ascii", "caff\u00e8 \u4e2d\u6587 \ud83d\ude00",
+				new BigDecimal("3.14") };
+		for (Object value : values) {
+			Check.equal(value, roundTrip(codec, value), "Round trip of "
+					+ value);
+		}
+		Check.equal(Integer.class, roundTrip(codec, 1).getClass(),
+				"Type of an integer");
+		Check.equal(Short.class, roundTrip(codec, (short) 1).getClass(),
+				"Type of a short");
+
+		// NaNs keep their exact bits.
+		float floatNaN = Float.intBitsToFloat(0x7fc00001);
+		Check.equal(Float.floatToRawIntBits(floatNaN),
+				Float.floatToRawIntBits((Float) roundTrip(codec, floatNaN)),
+				"Bits of a float NaN");
+		double doubleNaN = Double.longBitsToDouble(0x7ff8000000000001L);
+		Check.equal(Double.doubleToRawLongBits(doubleNaN), Double
+				.doubleToRawLongBits((Double) roundTrip(codec, doubleNaN)),
+				"Bits of a double NaN");
+
+		// Non-ASCII strings are written in UTF-8, preceded by their length
+		// in bytes.
+		BinaryWriter out = new BinaryWriter();
+		out.writeString("\u00e8");
+		Check.that(Arrays.equals(new byte[] { 2, (byte) 0xc3, (byte) 0xa8 },
+				out.toByteArray()), "UTF-8 encoding");
+
+		byte[] bytes = { 0, -1, 127, -128 };
+		Check.that(Arrays.equals(bytes, (byte[]) roundTrip(codec, bytes)),
+				"Round trip of bytes");
+
+		// Registered types are written with their codec.
+		codec.register(Point.class, 1, new PointCodec());
+		Point point = (Point) roundTrip(codec, new Point(-3, 4));
+		Check.equal(-3, point.x, "Registered x");
+		Check.equal(4, point.y, "Registered y");
+
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				codec.register(String.class, 1, new TypeCodec<String>() {
+					public void write(String value, BinaryWriter out) {
+					}
+
+					public String read(BinaryReader in) {
+						return null;
+					}
+				});
+			}
+		}, "Duplicate identifier");
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				codec.register(Point.class, 2, new PointCodec());
+			}
+		}, "Duplicate type");
+		Check.fails(IllegalStateException.class, new Runnable() {
+			public void run() {
+				// The tag of identifier 2, whose registration failed.
+				codec.decode(new byte[] { 34 });
+			}
+		}, "Unknown tag");
+
+		Check.passed(BinaryCodecTest.class);
+	}
+
+	/**
+	 * Encodes and decodes a value.
+	 *
+	 * @param codec
+	 *            the codec.
+	 * @param value
+	 *            the value.
+	 * @return the decoded value.
+	 */
+	private static Object roundTrip(BinaryCodec codec, Object value) {
+		return codec.decode(codec.encode(value));
+	}
+
+	/**
+	 * Type without Java serialization, written by a {@link PointCodec}.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class Point {
+
+		/**
+		 * The horizontal coordinate.
+		 */
+		private final int x;
+
+		/**
+		 * The vertical coordinate.
+		 */
+		private final int y;
+
+		/**
+		 * Instantiates a new Point.
+		 *
+		 * @param x
+		 *            the {@link #x}.
+		 * @param y
+		 *            the {@link #y}.
+		 */
+		private Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * Codec of a {@link Point}.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class PointCodec implements TypeCodec<Point> {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * co.aurasphere.assignables.codec.TypeCodec#write(java.lang.Object,
+		 * co.aurasphere.assignables.codec.BinaryWriter)
+		 */
+		public void write(Point value, BinaryWriter out) {
+			out.writeZigZag(value.x);
+			out.writeZigZag(value.y);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * co.aurasphere.assignables.codec.TypeCodec#read(co.aurasphere.assignables
+		 * .codec.BinaryReader)
+		 */
+		public Point read(BinaryReader in) {
+			return new Point((int) in.readZigZag(), (int) in.readZigZag());
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.BulkAssignables;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks the batched assignments of {@link BulkAssignables}.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkAssignablesTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		int size = 100000;
+		List<Integer> values = new ArrayList<Integer>();
+		List<Assignable> variables = new ArrayList<Assignable>();
+		for (int i = 0; i < size; i++) {
+			values.add(i);
+			variables.add(new Assignable());
+		}
+		BulkAssignables.assignAll(values).into(variables).parallelProcessing()
+				.batchSize(1000)
+				.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+		for (int i = 0; i < size; i++) {
+			Check.equal(i, variables.get(i).get(), "Variable " + i);
+		}
+
+		// Without an explicit lock, the batches still run in parallel.
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Check.that(maxConcurrentBatches(pool, null) > 1,
+				"Batches without a lock run in parallel");
+		Check.equal(1, maxConcurrentBatches(pool, new ReentrantLock()),
+				"Batches sharing a lock");
+		pool.shutdown();
+
+		// Missing variables are reported as such.
+		IllegalArgumentException missing = Check.fails(
+				IllegalArgumentException.class, new Runnable() {
+					public void run() {
+						BulkAssignables.assignAll(1, 2).withAssignmentPolicy(
+								new JavaLegacyAssignmentPolicy());
+					}
+				}, "Assignment without variables");
+		Check.that(missing.getMessage().contains("variables"),
+				"Message of the missing variables");
+		Check.fails(AssignmentException.class, new Runnable() {
+			public void run() {
+				BulkAssignables.assignAll(1, 2).withAssignmentPolicy(
+						new JavaLegacyAssignmentPolicy());
+			}
+		}, "Wrapped error");
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				BulkAssignables.assignAll(1, 2).into(new Assignable());
+			}
+		}, "Mismatched sizes");
+
+		Check.passed(BulkAssignablesTest.class);
+	}
+
+	/**
+	 * Runs a parallel bulk assignment with the Thread safety policy and
+	 * measures how many batches run at the same time.
+	 *
+	 * @param pool
+	 *            the pool running the batches.
+	 * @param lock
+	 *            the explicit lock, or null for none.
+	 * @return the maximum number of batches run at the same time.
+	 */
+	private static int maxConcurrentBatches(ForkJoinPool pool,
+			ReentrantLock lock) {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		AssignmentPolicy slow = new AssignmentPolicy() {
+			public void assign(Object value, Assignable variable) {
+				int now = running.incrementAndGet();
+				while (true) {
+					int current = max.get();
+					if (now <= current || max.compareAndSet(current, now)) {
+						break;
+					}
+				}
+				try {
+					Thread.sleep(2);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				variable.set(value);
+				running.decrementAndGet();
+			}
+		};
+		List<Integer> values = new ArrayList<Integer>();
+		List<Assignable> variables = new ArrayList<Assignable>();
+		for (int i = 0; i < 80; i++) {
+			values.add(i);
+			variables.add(new Assignable());
+		}
+		BulkAssignables bulk = BulkAssignables.assignAll(values)
+				.into(variables).parallelProcessing(pool).batchSize(10);
+		if (lock != null) {
+			bulk.enforceThreadSafetyPolicy(lock);
+		} else {
+			bulk.enforceThreadSafetyPolicy();
+		}
+		bulk.withAssignmentPolicy(slow);
+		return max.get();
+	}
+
+}
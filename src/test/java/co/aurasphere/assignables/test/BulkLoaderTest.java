@@ -0,0 +1,217 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.codec.BinaryCodec;
+import co.aurasphere.assignables.codec.BinaryWriter;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.loader.BulkLoader;
+import co.aurasphere.assignables.loader.ValueType;
+import co.aurasphere.assignables.loader.VariableResolver;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that a {@link BulkLoader} assigns every record of CSV and binary
+ * files split across many buffers and Threads, and that keys which aren't
+ * ASCII read the same through the characters and the string.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkLoaderTest {
+
+	/**
+	 * The number of records of each file.
+	 */
+	private static final int RECORDS = 2000;
+
+	/**
+	 * The charset of the files.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if a file can't be written.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("assignables-loader");
+		try {
+			checkCsv(directory.resolve("records.csv"));
+			checkBinary(directory.resolve("records.bin"));
+			checkText(directory.resolve("text.csv"));
+		} finally {
+			Check.delete(directory);
+		}
+		Check.passed(BulkLoaderTest.class);
+	}
+
+	/**
+	 * Checks that a CSV file split into many ranges is loaded.
+	 *
+	 * @param file
+	 *            the file to write and load.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	private static void checkCsv(Path file) throws IOException {
+		StringBuilder csv = new StringBuilder("key,value\n");
+		for (int i = 0; i < RECORDS; i++) {
+			csv.append(i).append(',').append(i * 3).append('\n');
+		}
+		csv.append(RECORDS).append(",0\n");
+		Files.write(file, csv.toString().getBytes(UTF_8));
+
+		List<Assignable> variables = variables(RECORDS);
+		BulkLoader loader = BulkLoader.csv(file)
+				.into(BulkLoader.indexed(variables)).values(ValueType.INTEGER)
+				.skipHeader().threads(4).bufferSize(256).batchSize(7);
+		loader.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+		Check.equal((long) RECORDS, loader.getLoadedCount(), "CSV records");
+		Check.equal(1L, loader.getSkippedCount(), "CSV key out of range");
+		for (int i = 0; i < RECORDS; i++) {
+			Check.equal(i * 3, variables.get(i).get(), "CSV record " + i);
+		}
+	}
+
+	/**
+	 * Checks that a binary file split into many buffers is loaded, and that
+	 * a truncated one is rejected.
+	 *
+	 * @param file
+	 *            the file to write and load.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	private static void checkBinary(final Path file) throws IOException {
+		BinaryWriter out = new BinaryWriter();
+		for (int i = 0; i < RECORDS; i++) {
+			BulkLoader.writeRecord(out, String.valueOf(i), "value-" + i,
+					BinaryCodec.getDefault());
+		}
+		BulkLoader.writeRecord(out, "missing", 0, BinaryCodec.getDefault());
+		Files.write(file, out.toByteArray());
+
+		List<Assignable> variables = variables(RECORDS);
+		BulkLoader loader = BulkLoader.binary(file)
+				.into(BulkLoader.indexed(variables)).threads(4)
+				.bufferSize(100).batchSize(7);
+		loader.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+		Check.equal((long) RECORDS, loader.getLoadedCount(), "Binary records");
+		Check.equal(1L, loader.getSkippedCount(), "Binary key not a number");
+		for (int i = 0; i < RECORDS; i++) {
+			Check.equal("value-" + i, variables.get(i).get(), "Binary record "
+					+ i);
+		}
+
+		Files.write(file, Arrays.copyOf(out.toByteArray(),
+				out.size() - 3));
+		final List<Assignable> truncated = variables(RECORDS);
+		AssignmentException e = Check.fails(AssignmentException.class,
+				new Runnable() {
+					public void run() {
+						BulkLoader.binary(file)
+								.into(BulkLoader.indexed(truncated))
+								.threads(2).bufferSize(100)
+								.withAssignmentPolicy(
+										new JavaLegacyAssignmentPolicy());
+					}
+				}, "Truncated binary file");
+		Check.that(e.getCause().getMessage().contains("Truncated record"),
+				"Message names the cause: " + e.getCause().getMessage());
+	}
+
+	/**
+	 * Checks that keys and values which aren't ASCII are decoded as UTF-8,
+	 * whether read as characters or as a string.
+	 *
+	 * @param file
+	 *            the file to write and load.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	private static void checkText(Path file) throws IOException {
+		Files.write(file, "citt\u00e0,na\u00efve\nplain,ascii\n\"caff\u00e8\",\"x\"\"y\"\n"
+				.getBytes(UTF_8));
+		final Map<String, Assignable> variables = new HashMap<String, Assignable>();
+		for (String name : new String[] { "citt\u00e0", "plain", "caff\u00e8" }) {
+			variables.put(name, new Assignable());
+		}
+		final List<String> mismatches = new ArrayList<String>();
+		BulkLoader loader = BulkLoader.csv(file).into(new VariableResolver() {
+			public Assignable resolve(CharSequence key) {
+				String text = key.toString();
+				StringBuilder chars = new StringBuilder();
+				for (int i = 0; i < key.length(); i++) {
+					chars.append(key.charAt(i));
+				}
+				if (!text.equals(chars.toString())
+						|| !text.equals(key.subSequence(0, key.length())
+								.toString())) {
+					synchronized (mismatches) {
+						mismatches.add(text);
+					}
+				}
+				return variables.get(text);
+			}
+		});
+		loader.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+		Check.equal(3L, loader.getLoadedCount(), "Text records");
+		Check.that(mismatches.isEmpty(), "Characters match the string: "
+				+ mismatches);
+		Check.equal("na\u00efve", variables.get("citt\u00e0").get(), "UTF-8 value");
+		Check.equal("ascii", variables.get("plain").get(), "ASCII value");
+		Check.equal("x\"y", variables.get("caff\u00e8").get(), "Quoted value");
+	}
+
+	/**
+	 * Creates empty variables.
+	 *
+	 * @param count
+	 *            the number of variables.
+	 * @return the variables.
+	 */
+	private static List<Assignable> variables(int count) {
+		List<Assignable> variables = new ArrayList<Assignable>();
+		for (int i = 0; i < count; i++) {
+			variables.add(new Assignable());
+		}
+		return variables;
+	}
+
+}
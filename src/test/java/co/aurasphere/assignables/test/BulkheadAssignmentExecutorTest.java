@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.BulkheadAssignmentExecutor;
+import co.aurasphere.assignables.concurrent.BulkheadAssignmentExecutor.Bulkhead;
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentCost;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.DoAfterDelayAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+import co.aurasphere.assignables.policy.MD5AssignmentPolicy;
+
+/**
+ * Checks that {@link BulkheadAssignmentExecutor} routes the policies to their
+ * bulkheads and that a full bulkhead doesn't affect the others.
+ * 
+ * @author Donato Rimenti
+ */
+public class BulkheadAssignmentExecutorTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		AssignmentPolicy blocking = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.assign(value, variable);
+			}
+		};
+		BulkheadAssignmentExecutor executor = BulkheadAssignmentExecutor
+				.builder().bulkhead("slow", 1, 1).bulkhead("expensive", 2, 4)
+				.route(blocking.getClass(), "slow")
+				.route(DoAfterDelayAssignmentPolicy.class, "slow")
+				.route(AssignmentCost.EXPENSIVE, "expensive").build();
+
+		// Class routes come before cost routes.
+		Bulkhead slow = executor.getBulkhead("slow");
+		Bulkhead expensive = executor.getBulkhead("expensive");
+		Bulkhead fallback = executor
+				.getBulkhead(BulkheadAssignmentExecutor.DEFAULT_BULKHEAD);
+		Check.equal(slow, executor.route(new DoAfterDelayAssignmentPolicy(10)),
+				"Class route");
+		Check.equal(expensive, executor.route(new MD5AssignmentPolicy()),
+				"Cost route");
+		Check.equal(fallback, executor.route(new JavaLegacyAssignmentPolicy()),
+				"Default route");
+		Check.equal(fallback, executor.route(null), "Null policy route");
+		Check.equal(3, executor.getBulkheads().size(), "Bulkheads");
+
+		// A full bulkhead rejects its assignments.
+		AssignmentTask running = new AssignmentTask(1, new Assignable(0),
+				blocking);
+		executor.execute(running);
+		Check.that(started.await(10, TimeUnit.SECONDS), "Slow worker busy");
+		AssignmentTask queued = new AssignmentTask(2, new Assignable(0),
+				blocking);
+		executor.execute(queued);
+		final AssignmentTask rejected = new AssignmentTask(3,
+				new Assignable(0), blocking);
+		executor.execute(rejected);
+		Check.equal(1.0, slow.getSaturation(), "Slow saturation");
+		Check.equal(1L, slow.getRejectedCount(), "Rejected tasks");
+		Check.fails(RejectedAssignmentException.class, new Runnable() {
+			public void run() {
+				try {
+					rejected.get();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "Rejected task");
+
+		// The other bulkheads keep working meanwhile.
+		Assignable fast = new Assignable(0);
+		AssignmentTask isolated = new AssignmentTask(4, fast,
+				new JavaLegacyAssignmentPolicy());
+		executor.execute(isolated);
+		isolated.get(10, TimeUnit.SECONDS);
+		Check.equal(4, fast.get(), "Isolated assignment");
+		Check.equal(0L, fallback.getRejectedCount(), "Default rejections");
+
+		release.countDown();
+		running.get(10, TimeUnit.SECONDS);
+		queued.get(10, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				BulkheadAssignmentExecutor.builder().route(
+						AssignmentCost.CHEAP, "missing");
+			}
+		}, "Route to an unknown bulkhead");
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				BulkheadAssignmentExecutor.builder().bulkhead("empty", 0, 1);
+			}
+		}, "Empty bulkhead");
+
+		Check.passed(BulkheadAssignmentExecutorTest.class);
+	}
+
+}
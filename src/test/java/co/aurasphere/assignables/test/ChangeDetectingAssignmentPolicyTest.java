@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.policy.AssignIfNotAlreadyThereAssigmentPolicy;
+import co.aurasphere.assignables.policy.ChangeDetectingAssignmentPolicy;
+import co.aurasphere.assignables.policy.ChangeDetectingAssignmentPolicy.Fingerprint;
+
+/**
+ * Checks that {@link ChangeDetectingAssignmentPolicy} skips redundant writes
+ * and fingerprints only the incoming values.
+ * 
+ * @author Donato Rimenti
+ */
+public class ChangeDetectingAssignmentPolicyTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		final AtomicInteger fingerprinted = new AtomicInteger();
+		ChangeDetectingAssignmentPolicy policy = new ChangeDetectingAssignmentPolicy(
+				new Fingerprint() {
+					public long of(Object value) {
+						fingerprinted.incrementAndGet();
+						return ChangeDetectingAssignmentPolicy.HASH_CODE
+								.of(value);
+					}
+				});
+		Assignable variable = new Assignable(new int[] { 0 });
+
+		// The first write fingerprints both the content and the value.
+		policy.assign(new int[] { 1, 2, 3 }, variable);
+		Check.equal(1L, policy.getAppliedCount(), "Applied writes");
+		Check.equal(2, fingerprinted.get(), "Fingerprints of the first write");
+
+		// Then only the incoming values are fingerprinted.
+		for (int i = 0; i < 10; i++) {
+			policy.assign(new int[] { 1, 2, 3 }, variable);
+		}
+		Check.equal(10L, policy.getSkippedCount(), "Skipped writes");
+		Check.equal(12, fingerprinted.get(), "Fingerprints of the same data");
+
+		policy.assign(new int[] { 4 }, variable);
+		Check.equal(2L, policy.getAppliedCount(), "Applied writes");
+		Check.that(Arrays.equals(new int[] { 4 }, (int[]) variable.get()),
+				"Changed array");
+		Check.equal(13, fingerprinted.get(), "Fingerprints of a change");
+
+		// Without fingerprint, values are compared by content.
+		ChangeDetectingAssignmentPolicy plain = new ChangeDetectingAssignmentPolicy();
+		Assignable text = new Assignable("a");
+		plain.assign(new String("a"), text);
+		plain.assign(null, text);
+		plain.assign(null, text);
+		Check.equal(2L, plain.getSkippedCount(), "Skipped plain writes");
+		Check.equal(1L, plain.getAppliedCount(), "Applied plain writes");
+		Check.equal(null, text.get(), "Variable after null");
+
+		// The value is assigned only when it's not already there.
+		Assignable once = new Assignable(1);
+		new AssignIfNotAlreadyThereAssigmentPolicy().assign(2, once);
+		Check.equal(2, once.get(), "Variable after a new value");
+
+		Check.passed(ChangeDetectingAssignmentPolicyTest.class);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Assertions and helpers used by the behavior checks. Each check is a class
+ * with a main method which fails with an {@link AssertionError} at the first
+ * wrong behavior.
+ * 
+ * @author Donato Rimenti
+ */
+final class Check {
+
+	/**
+	 * Instantiates a new Check.
+	 */
+	private Check() {
+	}
+
+	/**
+	 * Checks that a condition holds.
+	 *
+	 * @param condition
+	 *            the condition.
+	 * @param message
+	 *            what the condition means.
+	 */
+	static void that(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * Checks that two objects are equal.
+	 *
+	 * @param expected
+	 *            the expected object.
+	 * @param actual
+	 *            the actual object.
+	 * @param message
+	 *            what the objects are.
+	 */
+	static void equal(Object expected, Object actual, String message) {
+		if (expected == null ? actual != null : !expected.equals(actual)) {
+			throw new AssertionError(message + ": expected [" + expected
+					+ "] but was [" + actual + "].");
+		}
+	}
+
+	/**
+	 * Checks that an action fails with an exception of a type, anywhere in
+	 * the chain of causes.
+	 *
+	 * @param type
+	 *            the type of the exception.
+	 * @param action
+	 *            the action.
+	 * @param message
+	 *            what the action is.
+	 * @return the exception.
+	 */
+	static <T extends Throwable> T fails(Class<T> type, Runnable action,
+			String message) {
+		try {
+			action.run();
+		} catch (Throwable e) {
+			for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if (type.isInstance(cause)) {
+					return type.cast(cause);
+				}
+			}
+			throw new AssertionError(message + ": expected " + type.getName()
+					+ " but got " + e + ".", e);
+		}
+		throw new AssertionError(message + ": expected " + type.getName()
+				+ " but nothing was thrown.");
+	}
+
+	/**
+	 * Prints that a check passed.
+	 *
+	 * @param check
+	 *            the class of the check.
+	 */
+	static void passed(Class<?> check) {
+		System.out.println(check.getSimpleName() + " passed.");
+	}
+
+	/**
+	 * Deletes a directory with its content.
+	 *
+	 * @param path
+	 *            the directory.
+	 * @throws IOException
+	 *             if the directory can't be deleted.
+	 */
+	static void delete(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			DirectoryStream<Path> stream = Files.newDirectoryStream(path);
+			try {
+				for (Path child : stream) {
+					delete(child);
+				}
+			} finally {
+				stream.close();
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+}
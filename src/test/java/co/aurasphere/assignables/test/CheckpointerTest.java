@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import co.aurasphere.assignables.durable.Checkpointer;
+import co.aurasphere.assignables.durable.DurableAssignable;
+import co.aurasphere.assignables.durable.WriteAheadLog;
+
+/**
+ * Checks that a {@link Checkpointer} writes only the variables changed since
+ * the previous checkpoint and that a log recovered after a crash holds every
+ * acknowledged assignment, even when checkpoints run while assigning.
+ * 
+ * @author Donato Rimenti
+ */
+public class CheckpointerTest {
+
+	/**
+	 * The number of variables assigned during the checkpoints.
+	 */
+	private static final int VARIABLES = 4;
+
+	/**
+	 * The number of checkpoints taken while assigning.
+	 */
+	private static final int CHECKPOINTS = 200;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the log can't be used.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("assignables-checkpoint");
+		try {
+			checkIncremental(directory.resolve("incremental"));
+			checkCrashRecovery(directory.resolve("crash"),
+					directory.resolve("recovered"));
+		} finally {
+			Check.delete(directory);
+		}
+		Check.passed(CheckpointerTest.class);
+	}
+
+	/**
+	 * Checks that incremental checkpoints write only the dirty variables.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws IOException
+	 *             if the log can't be used.
+	 */
+	private static void checkIncremental(Path directory) throws IOException {
+		WriteAheadLog log = WriteAheadLog.at(directory).open();
+		Checkpointer checkpointer = Checkpointer.of(log).partitions(2)
+				.fullEvery(4).start();
+		try {
+			for (int i = 0; i < VARIABLES; i++) {
+				log.variable("v" + i).set(i);
+			}
+			long first = checkpointer.checkpoint();
+			Check.equal(4L, first, "LSN of the first checkpoint");
+			Check.equal((long) VARIABLES, checkpointer.getWrittenCount(),
+					"Written by the full checkpoint");
+			Check.equal(first, checkpointer.checkpoint(),
+					"Checkpoint without records");
+			Check.equal(1L, checkpointer.getCheckpointCount(),
+					"Checkpoints taken");
+
+			log.variable("v1").set("changed");
+			checkpointer.checkpoint();
+			Check.equal(VARIABLES + 1L, checkpointer.getWrittenCount(),
+					"Written by the incremental checkpoint");
+		} finally {
+			checkpointer.close();
+			log.close();
+		}
+
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(0, log.variable("v0").get(), "From the full checkpoint");
+			Check.equal("changed", log.variable("v1").get(),
+					"From the incremental checkpoint");
+			Check.equal(3, log.variable("v3").get(), "Last variable");
+		} finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * Checks that checkpoints taken while assigning don't lose acknowledged
+	 * assignments. The crash is simulated by copying the files of the log
+	 * while it's still open.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @param copy
+	 *            the directory where the log is copied.
+	 * @throws Exception
+	 *             if the log can't be used.
+	 */
+	private static void checkCrashRecovery(Path directory, Path copy)
+			throws Exception {
+		final WriteAheadLog log = WriteAheadLog.at(directory)
+				.segmentSize(256).open();
+		Checkpointer checkpointer = Checkpointer.of(log).partitions(2)
+				.fullEvery(3).start();
+		final AtomicIntegerArray acknowledged = new AtomicIntegerArray(
+				VARIABLES);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread[] writers = new Thread[VARIABLES];
+		try {
+			for (int i = 0; i < VARIABLES; i++) {
+				final int index = i;
+				final DurableAssignable variable = log.variable("v" + i);
+				writers[i] = new Thread(new Runnable() {
+					public void run() {
+						for (int j = 1; running.get(); j++) {
+							variable.set(j);
+							acknowledged.set(index, j);
+						}
+					}
+				});
+				writers[i].start();
+			}
+			for (int i = 0; i < CHECKPOINTS; i++) {
+				checkpointer.checkpoint();
+			}
+			running.set(false);
+			for (Thread writer : writers) {
+				writer.join();
+			}
+			checkpointer.checkpoint();
+			copy(directory, copy);
+		} finally {
+			running.set(false);
+			checkpointer.close();
+			log.close();
+		}
+		Check.that(checkpointer.getCheckpointCount() > 1,
+				"Checkpoints taken while assigning");
+
+		WriteAheadLog recovered = WriteAheadLog.at(copy).open();
+		try {
+			for (int i = 0; i < VARIABLES; i++) {
+				Check.equal(acknowledged.get(i), recovered.variable("v" + i)
+						.get(), "Recovered v" + i);
+			}
+		} finally {
+			recovered.close();
+		}
+	}
+
+	/**
+	 * Copies a directory with its content.
+	 *
+	 * @param source
+	 *            the directory to copy.
+	 * @param target
+	 *            the copy.
+	 * @throws IOException
+	 *             if the directory can't be copied.
+	 */
+	private static void copy(Path source, Path target) throws IOException {
+		Files.createDirectories(target);
+		DirectoryStream<Path> stream = Files.newDirectoryStream(source);
+		try {
+			for (Path child : stream) {
+				Path copied = target.resolve(child.getFileName().toString());
+				if (Files.isDirectory(child)) {
+					copy(child, copied);
+				} else {
+					Files.copy(child, copied);
+				}
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.CircuitBreakerAssignmentPolicy;
+import co.aurasphere.assignables.policy.CircuitBreakerAssignmentPolicy.State;
+import co.aurasphere.assignables.policy.SafeAssignmentPolicy;
+
+/**
+ * Checks the states of {@link CircuitBreakerAssignmentPolicy} and the error
+ * rate limiting of {@link SafeAssignmentPolicy}.
+ * 
+ * @author Donato Rimenti
+ */
+public class CircuitBreakerAssignmentPolicyTest {
+
+	/**
+	 * Whether the policy used by the circuit fails.
+	 */
+	private static volatile boolean failing = true;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the circuit.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		// Errors are rate limited even with a new policy per assignment.
+		Assignable broken = new Assignable() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void set(Object object) {
+				throw new IllegalStateException("Broken variable.");
+			}
+		};
+		for (int i = 0; i < 100; i++) {
+			new SafeAssignmentPolicy(60000).assign(i, broken);
+		}
+		Check.equal(99L, new SafeAssignmentPolicy(60000).getSuppressedCount(),
+				"Errors suppressed across policies");
+
+		AssignmentPolicy flaky = new AssignmentPolicy() {
+			public void assign(Object value, Assignable variable) {
+				if (failing) {
+					throw new IllegalStateException("Failing policy.");
+				}
+				variable.set(value);
+			}
+		};
+		CircuitBreakerAssignmentPolicy circuit = CircuitBreakerAssignmentPolicy
+				.around(flaky).slidingWindow(10).minimumCalls(5)
+				.failureRateThreshold(0.5).openFor(100).halfOpenProbes(1)
+				.build();
+		Assignable variable = new Assignable(0);
+		for (int i = 0; i < 5; i++) {
+			circuit.assign(i, variable);
+		}
+		Check.equal(State.OPEN, circuit.getState(), "State after failures");
+
+		failing = false;
+		circuit.assign(1, variable);
+		Check.equal(0, variable.get(), "Variable while open");
+		Check.equal(1L, circuit.getShedCount(), "Shed assignments");
+
+		Thread.sleep(150);
+		circuit.assign(2, variable);
+		Check.equal(State.CLOSED, circuit.getState(), "State after a probe");
+		Check.equal(2, variable.get(), "Variable after a probe");
+
+		// Each circuit is rate limited on its own and the summary of the
+		// errors suppressed is logged even if no other error follows.
+		CircuitBreakerAssignmentPolicy noisy = CircuitBreakerAssignmentPolicy
+				.around(flaky).minimumCalls(1000).errorLogInterval(200)
+				.build();
+		CircuitBreakerAssignmentPolicy quiet = CircuitBreakerAssignmentPolicy
+				.around(flaky).minimumCalls(1000).errorLogInterval(200)
+				.build();
+		failing = true;
+		for (int i = 0; i < 10; i++) {
+			noisy.assign(i, variable);
+		}
+		quiet.assign(0, variable);
+		Check.equal(9L, noisy.getSuppressedCount(), "Noisy circuit suppressed");
+		Check.equal(0L, quiet.getSuppressedCount(), "Quiet circuit suppressed");
+		Thread.sleep(400);
+		Check.equal(0L, noisy.getSuppressedCount(),
+				"Noisy circuit suppressed after the interval");
+
+		// Failures can also be thrown to the caller.
+		failing = true;
+		final CircuitBreakerAssignmentPolicy propagating = CircuitBreakerAssignmentPolicy
+				.around(flaky).slidingWindow(2).minimumCalls(2)
+				.failureRateThreshold(1).openFor(60000).propagateFailures()
+				.build();
+		for (int i = 0; i < 2; i++) {
+			Check.fails(IllegalStateException.class, new Runnable() {
+				public void run() {
+					propagating.assign(0, new Assignable());
+				}
+			}, "Propagated failure");
+		}
+		Check.fails(RejectedAssignmentException.class, new Runnable() {
+			public void run() {
+				propagating.assign(0, new Assignable());
+			}
+		}, "Propagated shedding");
+
+		Check.passed(CircuitBreakerAssignmentPolicyTest.class);
+	}
+
+}
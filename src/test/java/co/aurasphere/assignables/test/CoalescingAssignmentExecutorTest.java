@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.CoalescingAssignmentExecutor;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link CoalescingAssignmentExecutor} performs only the last of
+ * a burst of assignments into a variable.
+ * 
+ * @author Donato Rimenti
+ */
+public class CoalescingAssignmentExecutorTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		CoalescingAssignmentExecutor executor = new CoalescingAssignmentExecutor(
+				new Executor() {
+					public void execute(Runnable command) {
+						queued.add(command);
+					}
+				}, 2);
+		final AtomicInteger performed = new AtomicInteger();
+		AssignmentPolicy counting = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				performed.incrementAndGet();
+				super.assign(value, variable);
+			}
+		};
+
+		// A burst into a variable is performed once, with the last value.
+		Assignable variable = new Assignable(0);
+		List<AssignmentTask> burst = new ArrayList<AssignmentTask>();
+		for (int i = 1; i <= 100; i++) {
+			AssignmentTask task = new AssignmentTask(i, variable, counting);
+			burst.add(task);
+			executor.execute(task);
+		}
+		Assignable other = new Assignable(0);
+		executor.execute(new AssignmentTask(-1, other, counting));
+		Check.equal(99L, executor.getCoalescedCount(), "Coalesced tasks");
+		Check.equal(2, executor.getPendingCount(), "Pending variables");
+		for (int i = 0; i < 99; i++) {
+			Check.that(burst.get(i).isDone(), "Superseded tasks are done");
+		}
+		for (int i = 0; i < queued.size(); i++) {
+			queued.get(i).run();
+		}
+		Check.equal(2, performed.get(), "Policy executions");
+		Check.equal(100, variable.get(), "Last writer");
+		Check.equal(-1, other.get(), "Other variable");
+		Check.that(burst.get(99).isDone(), "Last task is done");
+
+		// Works as the executor of a parallel assignment.
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		CoalescingAssignmentExecutor parallel = new CoalescingAssignmentExecutor(
+				pool);
+		try {
+			Assignable target = new Assignable(0);
+			Assignables.assign(5).into(target).parallelProcessing(parallel)
+					.end().withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+			Check.equal(5, target.get(), "Parallel assignment");
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		// The count is updated once the task is done, so it's checked after
+		// the pool has drained.
+		Check.equal(1L, parallel.getExecutedCount(), "Executed tasks");
+
+		Check.passed(CoalescingAssignmentExecutorTest.class);
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.CompositeAssignmentPolicy;
+import co.aurasphere.assignables.policy.DoAfterDelayAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+import co.aurasphere.assignables.policy.NopeAssignmentPolicy;
+import co.aurasphere.assignables.policy.OptionalAssignmentPolicy;
+
+/**
+ * Checks the chaining and the fusion of {@link CompositeAssignmentPolicy}.
+ * 
+ * @author Donato Rimenti
+ */
+public class CompositeAssignmentPolicyTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		// Each stage receives the value of the previous one.
+		AssignmentPolicy increment = new AssignmentPolicy() {
+			public void assign(Object value, Assignable variable) {
+				variable.set((Integer) value + 1);
+			}
+		};
+		Assignable chained = new Assignable(0);
+		CompositeAssignmentPolicy.first(increment).then(increment)
+				.then(increment).build().assign(1, chained);
+		Check.equal(4, chained.get(), "Chained value");
+
+		// Plain assignments are fused away.
+		AssignmentPolicy fused = CompositeAssignmentPolicy
+				.first(new JavaLegacyAssignmentPolicy()).then(increment)
+				.then(new JavaLegacyAssignmentPolicy()).build();
+		Check.that(fused == increment, "Identity stages are dropped");
+
+		// A delay blocks, so it's not an identity and its wait is kept.
+		DoAfterDelayAssignmentPolicy delay = new DoAfterDelayAssignmentPolicy(
+				50);
+		AssignmentPolicy delayed = CompositeAssignmentPolicy.first(delay)
+				.then(new JavaLegacyAssignmentPolicy()).build();
+		Check.that(delayed == delay, "Delays are kept");
+		Assignable late = new Assignable(0);
+		long start = System.nanoTime();
+		CompositeAssignmentPolicy.first(delay).then(increment).build()
+				.assign(1, late);
+		Check.that(System.nanoTime() - start >= 50000000L,
+				"The chain waits for the delay");
+		Check.equal(2, late.get(), "Delayed value");
+
+		// A no-op with nothing before it fuses the chain into a no-op.
+		Check.that(CompositeAssignmentPolicy.first(new NopeAssignmentPolicy())
+				.then(increment).build() instanceof NopeAssignmentPolicy,
+				"Chains starting with a no-op are no-ops");
+
+		// A stage which doesn't assign stops the chain.
+		Assignable untouched = new Assignable(7);
+		CompositeAssignmentPolicy.first(new OptionalAssignmentPolicy())
+				.then(increment).build().assign(null, untouched);
+		Check.equal(7, untouched.get(), "Variable after a stopped chain");
+
+		Check.passed(CompositeAssignmentPolicyTest.class);
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.ContinuousAssignment;
+import co.aurasphere.assignables.concurrent.WaitStrategy;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that a {@link ContinuousAssignment} refreshes the variable when
+ * triggered or on its period, and stops when cancelled.
+ * 
+ * @author Donato Rimenti
+ */
+public class ContinuousAssignmentTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final AtomicInteger refreshes = new AtomicInteger();
+		AssignmentPolicy counting = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				super.assign(refreshes.incrementAndGet(), variable);
+			}
+		};
+
+		// Without a period, the assignment is refreshed only when triggered.
+		Assignable triggered = new Assignable(0);
+		ContinuousAssignment onDemand = Assignables.assign("value")
+				.into(triggered).waitStrategy(WaitStrategy.PARK)
+				.continuously(counting);
+		awaitRefreshes(onDemand, 1);
+		Thread.sleep(50);
+		Check.equal(1L, onDemand.getRefreshCount(), "Refreshes before trigger");
+		onDemand.trigger();
+		awaitRefreshes(onDemand, 2);
+		onDemand.cancelAndWait();
+		Check.that(onDemand.isCancelled(), "Cancelled");
+		Check.equal(2, triggered.get(), "Triggered value");
+		onDemand.trigger();
+		Thread.sleep(20);
+		Check.equal(2L, onDemand.getRefreshCount(), "Refreshes after cancel");
+
+		// With a period, the assignment keeps refreshing on its own.
+		refreshes.set(0);
+		Assignable periodic = new Assignable(0);
+		ContinuousAssignment timed = Assignables.assign("value")
+				.into(periodic).refreshEvery(5).continuously(counting);
+		awaitRefreshes(timed, 3);
+		timed.cancelAndWait();
+		long count = timed.getRefreshCount();
+		Thread.sleep(30);
+		Check.equal(count, timed.getRefreshCount(), "Stopped refreshing");
+
+		// Failed refreshes are counted and don't stop the following ones.
+		final AtomicInteger attempts = new AtomicInteger();
+		AssignmentPolicy flaky = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				if (attempts.incrementAndGet() == 1) {
+					throw new IllegalStateException("First refresh fails");
+				}
+				super.assign(value, variable);
+			}
+		};
+		Assignable recovering = new Assignable(0);
+		ContinuousAssignment failing = Assignables.assign(7).into(recovering)
+				.continuously(flaky);
+		while (failing.getFailedCount() == 0) {
+			Thread.sleep(1);
+		}
+		failing.trigger();
+		awaitRefreshes(failing, 1);
+		failing.cancelAndWait();
+		Check.equal(1L, failing.getFailedCount(), "Failed refreshes");
+		Check.equal(7, recovering.get(), "Value after a failure");
+
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(new Assignable(0)).refreshEvery(-1);
+			}
+		}, "Negative period");
+
+		Check.passed(ContinuousAssignmentTest.class);
+	}
+
+	/**
+	 * Waits until an assignment has been refreshed a number of times.
+	 *
+	 * @param assignment
+	 *            the assignment.
+	 * @param refreshes
+	 *            the number of refreshes to wait for.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	private static void awaitRefreshes(ContinuousAssignment assignment,
+			long refreshes) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (assignment.getRefreshCount() < refreshes) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("Not refreshed: " + assignment);
+			}
+			Thread.sleep(1);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.DeadlineAssignmentExecutor;
+import co.aurasphere.assignables.exception.RejectedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link DeadlineAssignmentExecutor} performs the assignments
+ * earliest deadline first and drops the ones which can't make it.
+ * 
+ * @author Donato Rimenti
+ */
+public class DeadlineAssignmentExecutorTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final List<Object> order = Collections
+				.synchronizedList(new ArrayList<Object>());
+		AssignmentPolicy recording = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				order.add(value);
+				super.assign(value, variable);
+			}
+		};
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		AssignmentPolicy blocking = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.assign(value, variable);
+			}
+		};
+
+		// Keeps the only worker busy while the other tasks are queued.
+		DeadlineAssignmentExecutor executor = new DeadlineAssignmentExecutor(1);
+		AssignmentTask busy = new AssignmentTask("busy", new Assignable(null),
+				blocking);
+		executor.execute(busy);
+		Check.that(started.await(10, TimeUnit.SECONDS), "Worker busy");
+
+		Assignable variable = new Assignable(null);
+		AssignmentTask noDeadline = new AssignmentTask("none", variable,
+				recording);
+		AssignmentTask urgentNoDeadline = new AssignmentTask("none-urgent",
+				variable, recording).priority(5);
+		AssignmentTask late = new AssignmentTask("late", variable, recording)
+				.deadline(20, TimeUnit.SECONDS);
+		AssignmentTask early = new AssignmentTask("early", variable, recording)
+				.deadline(10, TimeUnit.SECONDS);
+		final AssignmentTask expired = new AssignmentTask("expired", variable,
+				recording).deadline(0, TimeUnit.NANOSECONDS);
+		executor.execute(noDeadline);
+		executor.execute(urgentNoDeadline);
+		executor.execute(late);
+		executor.execute(expired);
+		executor.execute(early);
+		Check.equal(5, executor.getPendingCount(), "Pending tasks");
+		release.countDown();
+
+		noDeadline.get(10, TimeUnit.SECONDS);
+		busy.get(10, TimeUnit.SECONDS);
+		Check.equal(Arrays.<Object> asList("early", "late", "none-urgent",
+				"none"), order, "Execution order");
+		Check.equal(1L, executor.getDroppedCount(), "Dropped tasks");
+		// The count is updated right after the last task completes.
+		long deadline = System.currentTimeMillis() + 10000;
+		while (executor.getExecutedCount() < 5
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		Check.equal(5L, executor.getExecutedCount(), "Executed tasks");
+		Check.fails(RejectedAssignmentException.class, new Runnable() {
+			public void run() {
+				try {
+					expired.get();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "Expired task");
+
+		// A slow first run doesn't starve the later tasks of the policy.
+		AssignmentPolicy coldStart = new AssignmentPolicy() {
+			private boolean cold = true;
+
+			public void assign(Object value, Assignable variable) {
+				if (cold) {
+					cold = false;
+					try {
+						Thread.sleep(300);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				variable.set(value);
+			}
+		};
+		executor.execute(new AssignmentTask("cold", new Assignable(null),
+				coldStart));
+		Thread.sleep(DeadlineAssignmentExecutor.RESAMPLE_INTERVAL_MILLIS + 500);
+		for (int i = 0; i < 5; i++) {
+			Assignable target = new Assignable(null);
+			AssignmentTask tight = new AssignmentTask(i, target, coldStart)
+					.deadline(100, TimeUnit.MILLISECONDS);
+			executor.execute(tight);
+			tight.get(10, TimeUnit.SECONDS);
+			Check.equal(i, target.get(), "Task " + i + " after a slow run");
+		}
+
+		// Tasks submitted after a shutdown are rejected.
+		executor.shutdown();
+		final DeadlineAssignmentExecutor closed = executor;
+		Check.fails(RejectedExecutionException.class, new Runnable() {
+			public void run() {
+				closed.execute(new AssignmentTask(1, new Assignable(0),
+						new JavaLegacyAssignmentPolicy()));
+			}
+		}, "Execute after shutdown");
+		Check.fails(IllegalArgumentException.class, new Runnable() {
+			public void run() {
+				new DeadlineAssignmentExecutor(0);
+			}
+		}, "No workers");
+
+		Check.passed(DeadlineAssignmentExecutorTest.class);
+	}
+
+}
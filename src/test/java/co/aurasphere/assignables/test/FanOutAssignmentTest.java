@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.CoalescingAssignmentExecutor;
+import co.aurasphere.assignables.policy.AssignIfNotAlreadyThereAssigmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.ChangeDetectingAssignmentPolicy;
+import co.aurasphere.assignables.policy.DescribedAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks the fan-out of a value into many variables.
+ * 
+ * @author Donato Rimenti
+ */
+public class FanOutAssignmentTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		// Pure policies which don't read the variable run once.
+		final AtomicInteger invocations = new AtomicInteger();
+		DescribedAssignmentPolicy doubling = new DescribedAssignmentPolicy() {
+			public void assign(Object value, Assignable variable) {
+				invocations.incrementAndGet();
+				variable.set((Integer) value * 2);
+			}
+
+			public AssignmentPolicyCapabilities getCapabilities() {
+				return AssignmentPolicyCapabilities.builder().pure(true)
+						.readingVariable(false).blocking(false).build();
+			}
+		};
+		Assignable[] targets = { new Assignable(), new Assignable(),
+				new Assignable() };
+		Assignables.assign(21).into(targets).end()
+				.withAssignmentPolicy(doubling);
+		Check.equal(1, invocations.get(), "Invocations of a pure policy");
+		for (Assignable target : targets) {
+			Check.equal(42, target.get(), "Fanned out value");
+		}
+
+		// Policies reading the variable skip the ones holding the value.
+		CountingAssignable holding = new CountingAssignable(7);
+		CountingAssignable other = new CountingAssignable(0);
+		Assignables.assign(7).into(holding, other).end()
+				.withAssignmentPolicy(
+						new AssignIfNotAlreadyThereAssigmentPolicy());
+		Check.equal(0, holding.writes, "Writes into the holder");
+		Check.equal(1, other.writes, "Writes into the other variable");
+
+		ChangeDetectingAssignmentPolicy detecting = new ChangeDetectingAssignmentPolicy();
+		Assignables.assign(7).into(holding, other).transactional().end()
+				.withAssignmentPolicy(detecting);
+		Check.equal(2L, detecting.getSkippedCount(),
+				"Transactional writes skipped");
+		Check.equal(0, holding.writes, "Transactional writes into the holder");
+
+		// Fan-outs into the same variables are keyed together.
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		CoalescingAssignmentExecutor coalescing = new CoalescingAssignmentExecutor(
+				new Executor() {
+					public void execute(Runnable command) {
+						queued.add(command);
+					}
+				}, 1);
+		Assignable a = new Assignable();
+		Assignable b = new Assignable();
+		coalescing.execute(new AssignmentTask(1, null,
+				new JavaLegacyAssignmentPolicy()).variables(a, b));
+		AssignmentTask last = new AssignmentTask(2, null,
+				new JavaLegacyAssignmentPolicy()).variables(a, b);
+		coalescing.execute(last);
+		Check.equal(1L, coalescing.getCoalescedCount(), "Coalesced fan-outs");
+		coalescing.execute(new AssignmentTask(3, null,
+				new JavaLegacyAssignmentPolicy()).variables(b, a));
+		Check.equal(1L, coalescing.getCoalescedCount(),
+				"Fan-outs into other variables");
+		Check.equal(2, coalescing.getPendingCount(), "Pending fan-outs");
+
+		Check.passed(FanOutAssignmentTest.class);
+	}
+
+	/**
+	 * Assignable which counts its writes.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class CountingAssignable extends Assignable {
+
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The number of writes.
+		 */
+		private int writes;
+
+		/**
+		 * Instantiates a new CountingAssignable.
+		 *
+		 * @param object
+		 *            the initial content.
+		 */
+		private CountingAssignable(Object object) {
+			super(object);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see co.aurasphere.assignables.Assignable#set(java.lang.Object)
+		 */
+		@Override
+		public void set(Object object) {
+			writes++;
+			super.set(object);
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.concurrent.LatencyTracker;
+import co.aurasphere.assignables.policy.AssignmentCost;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.DescribedAssignmentPolicy;
+import co.aurasphere.assignables.policy.DoAfterDelayAssignmentPolicy;
+import co.aurasphere.assignables.policy.HedgedAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link HedgedAssignmentPolicy} starts a second execution of a
+ * slow delegate and that the latencies of equal delegates are tracked
+ * together.
+ * 
+ * @author Donato Rimenti
+ */
+public class HedgedAssignmentPolicyTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		// Equal policies share a tracker, different ones don't.
+		Check.that(
+				LatencyTracker.forPolicy(new DoAfterDelayAssignmentPolicy(5)) == LatencyTracker
+						.forPolicy(new DoAfterDelayAssignmentPolicy(5)),
+				"Equal policies share a tracker");
+		Check.that(
+				LatencyTracker.forPolicy(new DoAfterDelayAssignmentPolicy(5)) != LatencyTracker
+						.forPolicy(new DoAfterDelayAssignmentPolicy(6)),
+				"Different policies have their own tracker");
+		Check.that(
+				LatencyTracker.forPolicy(new JavaLegacyAssignmentPolicy()) == LatencyTracker
+						.forPolicy(new JavaLegacyAssignmentPolicy()),
+				"Policies without equals share the class tracker");
+		Check.that(LatencyTracker.forKey("key") == LatencyTracker
+				.forKey("key"), "Explicit keys");
+
+		// A slow execution is hedged and the fast one wins. Which one is slow
+		// depends on which execution starts first.
+		SlowPolicy slowOnce = new SlowPolicy("once", Integer.MAX_VALUE);
+		LatencyTracker onceTracker = new LatencyTracker();
+		HedgedAssignmentPolicy hedge = HedgedAssignmentPolicy
+				.around(slowOnce).initialDelay(10).tracker(onceTracker)
+				.build();
+		Assignable variable = new Assignable(0);
+		long start = System.nanoTime();
+		hedge.assign(42, variable);
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		Check.equal(42, variable.get(), "Hedged value");
+		Check.equal(1L, hedge.getHedgedCount(), "Hedged assignments");
+		Check.that(elapsedMillis < 400, "Fast execution wins");
+		Check.equal(2, slowOnce.executions.get(), "Delegate executions");
+		// The cancelled loser returns early and isn't timed.
+		Thread.sleep(100);
+		Check.equal(1L, onceTracker.getCount(), "Latencies recorded");
+
+		// Hedges built for each assignment keep the samples of the delegate,
+		// so they switch to the percentile and hedge the slow executions.
+		SlowPolicy periodic = null;
+		for (int i = 0; i < 30; i++) {
+			periodic = new SlowPolicy("periodic", 25);
+			Assignable target = new Assignable(0);
+			Assignables.assign(i).into(target).parallelProcessing()
+					.hedge(0.5).end().withAssignmentPolicy(periodic);
+			Check.equal(i, target.get(), "Pipeline value");
+		}
+		int executions = SlowPolicy.executionsOf("periodic");
+		Check.that(LatencyTracker.forPolicy(periodic).getCount() >= 25,
+				"Samples kept across hedges");
+		Check.that(executions > 30, "Slow executions hedged");
+
+		Check.passed(HedgedAssignmentPolicyTest.class);
+	}
+
+	/**
+	 * Pure policy which is slow every few executions. Policies with the same
+	 * name are equal and count their executions together.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class SlowPolicy implements DescribedAssignmentPolicy {
+
+		/**
+		 * The executions of the policies with each name.
+		 */
+		private static final ConcurrentHashMap<String, AtomicInteger> counters = new ConcurrentHashMap<String, AtomicInteger>();
+
+		/**
+		 * The name of this policy.
+		 */
+		private final String name;
+
+		/**
+		 * An execution every this many is slow, starting from the first one.
+		 */
+		private final int slowEvery;
+
+		/**
+		 * The executions of the policies with the same name.
+		 */
+		private final AtomicInteger executions;
+
+		/**
+		 * Instantiates a new SlowPolicy.
+		 *
+		 * @param name
+		 *            the {@link #name}.
+		 * @param slowEvery
+		 *            the {@link #slowEvery}.
+		 */
+		private SlowPolicy(String name, int slowEvery) {
+			this.name = name;
+			this.slowEvery = slowEvery;
+			counters.putIfAbsent(name, new AtomicInteger());
+			this.executions = counters.get(name);
+		}
+
+		/**
+		 * Gets the executions of the policies with a name.
+		 *
+		 * @param name
+		 *            the name.
+		 * @return the number of executions.
+		 */
+		private static int executionsOf(String name) {
+			return counters.get(name).get();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * co.aurasphere.assignables.policy.AssignmentPolicy#assign(java.lang
+		 * .Object, co.aurasphere.assignables.Assignable)
+		 */
+		public void assign(Object value, Assignable variable) {
+			if (executions.getAndIncrement() % slowEvery == 0) {
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					// Cancelled loser.
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			variable.set(value);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see co.aurasphere.assignables.policy.DescribedAssignmentPolicy#
+		 * getCapabilities()
+		 */
+		public AssignmentPolicyCapabilities getCapabilities() {
+			return AssignmentPolicyCapabilities.builder().pure(true)
+					.idempotent(true).readingVariable(false).blocking(true)
+					.cost(AssignmentCost.EXPENSIVE).build();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			return name.equals(((SlowPolicy) obj).name);
+		}
+	}
+
+}
@@ -0,0 +1,254 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+import co.aurasphere.assignables.mapped.MappedAssignable;
+import co.aurasphere.assignables.mapped.MappedAssignableStore;
+
+/**
+ * Checks that a {@link MappedAssignableStore} keeps its values across
+ * restarts, that a write torn by a crash leaves the previous value and that
+ * files with an older layout are rejected.
+ * 
+ * @author Donato Rimenti
+ */
+public class MappedAssignableTest {
+
+	/**
+	 * Offset of the first slot in the file.
+	 */
+	private static final int FIRST_SLOT = 64;
+
+	/**
+	 * Size of a copy in a slot of the default size.
+	 */
+	private static final int COPY_SIZE = MappedAssignableStore.DEFAULT_SLOT_SIZE / 2;
+
+	/**
+	 * Size of the header of a copy.
+	 */
+	private static final int COPY_HEADER_SIZE = 16;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if a store can't be used.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("assignables-mapped");
+		try {
+			checkRestart(directory.resolve("restart.slots"));
+			checkTornWrite(directory.resolve("torn.slots"));
+			checkOldFormat(directory.resolve("old.slots"));
+		} finally {
+			Check.delete(directory);
+		}
+		Check.passed(MappedAssignableTest.class);
+	}
+
+	/**
+	 * Checks that the values survive closing and opening the store again.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @throws IOException
+	 *             if the store can't be used.
+	 */
+	private static void checkRestart(Path file) throws IOException {
+		Object[] values = { null, true, (byte) 1, (short) 2, 'c', 3, 4L, 5f,
+				6d, "text" };
+		MappedAssignableStore store = MappedAssignableStore.at(file)
+				.slots(values.length + 1).open();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				store.slot(i).set("overwritten");
+				store.slot(i).set(values[i]);
+			}
+			final MappedAssignable slot = store.slot(values.length);
+			Check.fails(UnsupportedAssignmentException.class, new Runnable() {
+				public void run() {
+					slot.set(new String(new char[49]));
+				}
+			}, "Value larger than a copy");
+			Check.fails(UnsupportedAssignmentException.class, new Runnable() {
+				public void run() {
+					slot.set(new Object());
+				}
+			}, "Unsupported type");
+			Check.equal(null, slot.get(), "Slot after rejected values");
+		} finally {
+			store.close();
+		}
+
+		store = MappedAssignableStore.at(file).slots(values.length + 1)
+				.open();
+		try {
+			// Equality reads the slots which haven't been read yet.
+			Check.equal(new Assignable("text").hashCode(),
+					store.slot(values.length - 1).hashCode(),
+					"Hash code before reading");
+			Check.that(!store.slot(3).equals(store.slot(4)),
+					"Slots with different values");
+			for (int i = 0; i < values.length; i++) {
+				Check.equal(values[i], store.slot(i).get(), "Slot " + i);
+			}
+		} finally {
+			store.close();
+		}
+
+		Check.fails(IOException.class, new Runnable() {
+			public void run() {
+				try {
+					MappedAssignableStore.at(file).slots(2).open().close();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "Different layout");
+	}
+
+	/**
+	 * Checks that a write torn by a crash leaves the previous value. The
+	 * crash is simulated by changing the file while the store is closed.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @throws IOException
+	 *             if the store can't be used.
+	 */
+	private static void checkTornWrite(Path file) throws IOException {
+		MappedAssignableStore store = MappedAssignableStore.at(file).slots(1)
+				.open();
+		store.slot(0).set("first");
+		store.slot(0).set("second");
+		store.close();
+
+		// A crash in the middle of the next write, which goes into the copy
+		// holding the older value.
+		overwrite(file, FIRST_SLOT + COPY_HEADER_SIZE, "xxxxx");
+		store = MappedAssignableStore.at(file).slots(1).open();
+		try {
+			Check.equal("second", store.slot(0).get(), "Older copy torn");
+			store.slot(0).set("third");
+		} finally {
+			store.close();
+		}
+
+		// A copy whose content doesn't match its commit word.
+		overwrite(file, FIRST_SLOT + COPY_HEADER_SIZE, "yyyyy");
+		store = MappedAssignableStore.at(file).slots(1).open();
+		try {
+			Check.equal("second", store.slot(0).get(), "Latest copy torn");
+			store.slot(0).set("fourth");
+		} finally {
+			store.close();
+		}
+
+		store = MappedAssignableStore.at(file).slots(1).open();
+		try {
+			Check.equal("fourth", store.slot(0).get(), "Written after a tear");
+		} finally {
+			store.close();
+		}
+
+		// Both copies torn.
+		overwrite(file, FIRST_SLOT + COPY_HEADER_SIZE, "xxxxx");
+		overwrite(file, FIRST_SLOT + COPY_SIZE + COPY_HEADER_SIZE, "yyyyy");
+		final MappedAssignableStore corrupted = MappedAssignableStore.at(file)
+				.slots(1).open();
+		try {
+			Check.fails(IllegalStateException.class, new Runnable() {
+				public void run() {
+					corrupted.slot(0).get();
+				}
+			}, "Both copies torn");
+		} finally {
+			corrupted.close();
+		}
+	}
+
+	/**
+	 * Checks that a file with an older layout is rejected.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @throws IOException
+	 *             if the store can't be used.
+	 */
+	private static void checkOldFormat(final Path file) throws IOException {
+		MappedAssignableStore.at(file).slots(1).open().close();
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		try {
+			channel.write(ByteBuffer.allocate(4), 12);
+		} finally {
+			channel.close();
+		}
+		IOException e = Check.fails(IOException.class, new Runnable() {
+			public void run() {
+				try {
+					MappedAssignableStore.at(file).slots(1).open().close();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "Older format");
+		Check.that(e.getMessage().contains("format version 0"),
+				"Message names the version: " + e.getMessage());
+	}
+
+	/**
+	 * Overwrites part of a file with the bytes of a string.
+	 *
+	 * @param file
+	 *            the file.
+	 * @param position
+	 *            where to write.
+	 * @param text
+	 *            what to write.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	private static void overwrite(Path file, long position, String text)
+			throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		try {
+			channel.write(ByteBuffer.wrap(text.getBytes("UTF-8")), position);
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.concurrent.AssignmentTask;
+import co.aurasphere.assignables.concurrent.OrderedAssignmentExecutor;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that {@link OrderedAssignmentExecutor} performs the assignments into
+ * a variable one at a time, in submission order.
+ * 
+ * @author Donato Rimenti
+ */
+public class OrderedAssignmentExecutorTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final List<Object> order = Collections
+				.synchronizedList(new ArrayList<Object>());
+		AssignmentPolicy recording = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				order.add(value);
+				super.assign(value, variable);
+			}
+		};
+
+		// A single drain per variable, rescheduled when out of budget.
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		OrderedAssignmentExecutor executor = new OrderedAssignmentExecutor(
+				new Executor() {
+					public void execute(Runnable command) {
+						queued.add(command);
+					}
+				});
+		Assignable variable = new Assignable(0);
+		List<AssignmentTask> tasks = new ArrayList<AssignmentTask>();
+		for (int i = 1; i <= 200; i++) {
+			AssignmentTask task = new AssignmentTask(i, variable, recording);
+			tasks.add(task);
+			executor.execute(task);
+		}
+		Check.equal(1, queued.size(), "Scheduled drains");
+		Check.equal(1, executor.getActiveVariables(), "Active variables");
+		for (int i = 0; i < queued.size(); i++) {
+			queued.get(i).run();
+		}
+		Check.that(queued.size() > 1, "Drain rescheduled when out of budget");
+		Check.equal(200, order.size(), "Performed assignments");
+		for (int i = 0; i < order.size(); i++) {
+			Check.equal(i + 1, order.get(i), "Submission order");
+		}
+		Check.equal(200, variable.get(), "Last writer");
+		Check.equal(0, executor.getActiveVariables(), "Retired queues");
+		for (AssignmentTask task : tasks) {
+			Check.that(task.isDone(), "Tasks are done");
+		}
+
+		// Order is kept per variable on a real pool too.
+		order.clear();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		OrderedAssignmentExecutor parallel = new OrderedAssignmentExecutor(
+				pool);
+		Assignable shared = new Assignable(0);
+		tasks.clear();
+		try {
+			for (int i = 1; i <= 500; i++) {
+				AssignmentTask task = new AssignmentTask(i, shared, recording);
+				tasks.add(task);
+				parallel.execute(task);
+			}
+			for (AssignmentTask task : tasks) {
+				task.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		for (int i = 0; i < order.size(); i++) {
+			Check.equal(i + 1, order.get(i), "Submission order on a pool");
+		}
+		Check.equal(500, shared.get(), "Last writer on a pool");
+
+		// A rejected drain fails its tasks and retires the queue.
+		OrderedAssignmentExecutor rejecting = new OrderedAssignmentExecutor(
+				new Executor() {
+					public void execute(Runnable command) {
+						throw new RejectedExecutionException("Full");
+					}
+				});
+		final AssignmentTask rejected = new AssignmentTask(1, new Assignable(0),
+				recording);
+		try {
+			rejecting.execute(rejected);
+			throw new AssertionError("Rejection not propagated");
+		} catch (RejectedExecutionException e) {
+			// Expected.
+		}
+		Check.fails(ExecutionException.class, new Runnable() {
+			public void run() {
+				try {
+					rejected.get();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}, "Rejected task");
+		Check.equal(0, rejecting.getActiveVariables(), "Rejected queue retired");
+
+		Check.passed(OrderedAssignmentExecutorTest.class);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.exception.UnsupportedAssignmentException;
+import co.aurasphere.assignables.policy.AssignmentCost;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.AssignmentPolicyCapabilities;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+import co.aurasphere.assignables.policy.NopeAssignmentPolicy;
+import co.aurasphere.assignables.policy.UnsupportedAssignmentPolicy;
+
+/**
+ * Checks the {@link AssignmentPolicyCapabilities} and how the dispatch uses
+ * them.
+ * 
+ * @author Donato Rimenti
+ */
+public class PolicyCapabilitiesTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		AssignmentPolicyCapabilities numbers = AssignmentPolicyCapabilities
+				.builder().accepting(Number.class).acceptingNull(false)
+				.cost(AssignmentCost.CHEAP).build();
+		Check.that(numbers.accepts(1), "Numbers are accepted");
+		Check.that(!numbers.accepts("1"), "Strings are rejected");
+		Check.that(!numbers.accepts(null), "Null is rejected");
+		Check.that(!numbers.acceptsEverything(), "Not everything is accepted");
+		Check.that(AssignmentPolicyCapabilities.UNKNOWN.acceptsEverything(),
+				"Unknown policies accept everything");
+		Check.that(AssignmentPolicyCapabilities.UNKNOWN.isBlocking(),
+				"Unknown policies are assumed blocking");
+		Check.that(AssignmentPolicyCapabilities.of(new AssignmentPolicy() {
+			public void assign(Object value, Assignable variable) {
+			}
+		}) == AssignmentPolicyCapabilities.UNKNOWN,
+				"Undescribed policies have unknown capabilities");
+
+		// Unsupported values are rejected before the policy runs.
+		final Assignable rejected = new Assignable(0);
+		Check.fails(UnsupportedAssignmentException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(rejected).end()
+						.withAssignmentPolicy(new UnsupportedAssignmentPolicy());
+			}
+		}, "Unsupported assignment");
+		Check.equal(0, rejected.get(), "Rejected variable");
+
+		// No-op policies are skipped.
+		Assignable skipped = new Assignable(0);
+		Assignables.assign(1).into(skipped).end()
+				.withAssignmentPolicy(new NopeAssignmentPolicy());
+		Check.equal(0, skipped.get(), "Variable after a no-op");
+
+		// Non-blocking policies run on the current Thread.
+		final Thread caller = Thread.currentThread();
+		final Thread[] runner = new Thread[1];
+		Assignable assigned = new Assignable(0);
+		Assignables.assign(1).into(assigned).parallelProcessing().end()
+				.withAssignmentPolicy(new JavaLegacyAssignmentPolicy() {
+					@Override
+					public void assign(Object value, Assignable variable) {
+						runner[0] = Thread.currentThread();
+						super.assign(value, variable);
+					}
+				});
+		Check.equal(1, assigned.get(), "Assigned variable");
+		Check.that(runner[0] == caller,
+				"Non-blocking policies run on the current Thread");
+
+		Check.passed(PolicyCapabilitiesTest.class);
+	}
+
+}
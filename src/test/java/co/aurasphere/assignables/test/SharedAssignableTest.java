@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.mapped.SharedAssignable;
+import co.aurasphere.assignables.mapped.SharedAssignableStore;
+
+/**
+ * Checks that the values of a {@link SharedAssignableStore} are seen by all
+ * the stores mapping the same file, that a slot left held by a dead writer
+ * fails the waiters instead of blocking them until it's repaired and that
+ * stores racing to lay out a file agree on its layout.
+ * 
+ * @author Donato Rimenti
+ */
+public class SharedAssignableTest {
+
+	/**
+	 * Offset of the sequence of the first slot in the file.
+	 */
+	private static final int FIRST_SLOT = 64;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if a store can't be used.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("assignables-shared");
+		try {
+			checkSharing(directory.resolve("shared.slots"));
+			checkDeadWriter(directory.resolve("dead.slots"));
+			checkLayoutRace(directory.resolve("race.slots"));
+		} finally {
+			Check.delete(directory);
+		}
+		Check.passed(SharedAssignableTest.class);
+	}
+
+	/**
+	 * Checks that two stores mapping the same file see each other's values.
+	 *
+	 * @param file
+	 *            the file of the stores.
+	 * @throws IOException
+	 *             if a store can't be used.
+	 */
+	private static void checkSharing(Path file) throws IOException {
+		SharedAssignableStore first = SharedAssignableStore.at(file).slots(4)
+				.open();
+		SharedAssignableStore second = SharedAssignableStore.at(file)
+				.slots(4).open();
+		try {
+			SharedAssignable written = first.slot(0);
+			SharedAssignable read = second.slot(0);
+			Check.equal(null, read.get(), "Empty slot");
+			written.set("hello");
+			Check.equal("hello", read.get(), "Seen by the other store");
+			written.set(42L);
+			Check.equal(42L, read.get(), "Seen after a change");
+			Check.equal(2L, read.getWriteCount(), "Writes");
+
+			// Equality follows the content of the slot.
+			Check.that(written.equals(read), "Same content");
+			Check.equal(new Assignable(42L).hashCode(), read.hashCode(),
+					"Hash code of the content");
+			second.slot(1).set(42L);
+			Check.that(read.equals(second.slot(1)), "Same content, other slot");
+			second.slot(1).set(43L);
+			Check.that(!read.equals(second.slot(1)), "Different content");
+			Check.that(!read.repair(), "Repair of a free slot");
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	/**
+	 * Checks that stores opening a new file at the same time with different
+	 * layouts agree on a single one: the stores with the same layout as the
+	 * first one open the file, while all the others fail.
+	 *
+	 * @param file
+	 *            the file of the stores.
+	 * @throws Exception
+	 *             if a store can't be opened or closed.
+	 */
+	private static void checkLayoutRace(final Path file) throws Exception {
+		final int openers = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(openers);
+		try {
+			List<Future<SharedAssignableStore>> futures = new ArrayList<Future<SharedAssignableStore>>();
+			for (int i = 0; i < openers; i++) {
+				final int slots = i % 2 == 0 ? 16 : 32;
+				futures.add(pool.submit(new Callable<SharedAssignableStore>() {
+					public SharedAssignableStore call() throws Exception {
+						start.await();
+						return SharedAssignableStore.at(file).slots(slots)
+								.open();
+					}
+				}));
+			}
+			start.countDown();
+			int opened = 0;
+			int layout = 0;
+			for (Future<SharedAssignableStore> future : futures) {
+				try {
+					SharedAssignableStore store = future.get(10,
+							TimeUnit.SECONDS);
+					Check.that(layout == 0 || layout == store.getSlots(),
+							"Stores with different layouts opened");
+					layout = store.getSlots();
+					opened++;
+					store.close();
+				} catch (ExecutionException e) {
+					Check.that(e.getCause() instanceof IOException,
+							"Layout mismatch: " + e.getCause());
+				}
+			}
+			Check.equal(openers / 2, opened, "Stores opened");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks that a slot held by a dead writer makes the waiters fail and
+	 * that repairing it keeps the last committed value. The dead writer is
+	 * simulated by making the sequence odd in the file.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @throws IOException
+	 *             if a store can't be used.
+	 */
+	private static void checkDeadWriter(Path file) throws IOException {
+		SharedAssignableStore store = SharedAssignableStore.at(file).slots(1)
+				.maxWait(50, TimeUnit.MILLISECONDS).open();
+		try {
+			final SharedAssignable slot = store.slot(0);
+			slot.set("committed");
+			long sequence = readSequence(file);
+			writeSequence(file, sequence + 1);
+
+			long start = System.nanoTime();
+			Check.fails(AssignmentException.class, new Runnable() {
+				public void run() {
+					slot.get();
+				}
+			}, "Read of a held slot");
+			Check.fails(AssignmentException.class, new Runnable() {
+				public void run() {
+					slot.set("blocked");
+				}
+			}, "Write into a held slot");
+			Check.that(System.nanoTime() - start < TimeUnit.SECONDS
+					.toNanos(5), "Waiters failed in time");
+
+			Check.that(slot.repair(), "Repair of a held slot");
+			Check.equal(sequence + 2, readSequence(file), "Released sequence");
+			Check.equal("committed", slot.get(), "Value after repair");
+			slot.set("next");
+			Check.equal("next", slot.get(), "Write after repair");
+		} finally {
+			store.close();
+		}
+	}
+
+	/**
+	 * Reads the sequence of the first slot from the file.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @return the sequence.
+	 * @throws IOException
+	 *             if the file can't be read.
+	 */
+	private static long readSequence(Path file) throws IOException {
+		ByteBuffer sequence = ByteBuffer.allocate(8).order(
+				ByteOrder.nativeOrder());
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			channel.read(sequence, FIRST_SLOT);
+		} finally {
+			channel.close();
+		}
+		return sequence.getLong(0);
+	}
+
+	/**
+	 * Writes the sequence of the first slot into the file.
+	 *
+	 * @param file
+	 *            the file of the store.
+	 * @param value
+	 *            the sequence.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	private static void writeSequence(Path file, long value)
+			throws IOException {
+		ByteBuffer sequence = ByteBuffer.allocate(8).order(
+				ByteOrder.nativeOrder());
+		sequence.putLong(0, value);
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		try {
+			channel.write(sequence, FIRST_SLOT);
+		} finally {
+			channel.close();
+		}
+	}
+
+}
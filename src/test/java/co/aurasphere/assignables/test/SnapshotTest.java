@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import co.aurasphere.assignables.stm.Snapshot;
+import co.aurasphere.assignables.stm.Stm;
+import co.aurasphere.assignables.stm.Transaction;
+import co.aurasphere.assignables.stm.TransactionBody;
+import co.aurasphere.assignables.stm.TransactionalAssignable;
+
+/**
+ * Checks that a {@link Snapshot} reads the variables as they were when it was
+ * opened and that old versions are dropped once no snapshot needs them.
+ * 
+ * @author Donato Rimenti
+ */
+public class SnapshotTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if a transaction fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		final TransactionalAssignable a = new TransactionalAssignable(1);
+		final TransactionalAssignable b = new TransactionalAssignable(1);
+		Check.equal(0, Snapshot.getOpenCount(), "Open snapshots");
+
+		// Reads stay at the version the snapshot was opened at.
+		Snapshot first = Snapshot.open();
+		write(a, b, 2);
+		Check.equal(1, first.read(a), "Old content of a");
+		Check.equal(1, first.read(b), "Old content of b");
+		Check.equal(2, a.get(), "Current content");
+		Check.equal(2, a.getRetainedVersions(), "Versions retained for a snapshot");
+
+		Snapshot second = Snapshot.open();
+		Check.equal(2, Snapshot.getOpenCount(), "Open snapshots");
+		write(a, b, 3);
+		Check.equal(1, first.read(a), "First snapshot");
+		Check.equal(2, second.read(a), "Second snapshot");
+		Check.equal(3, a.getRetainedVersions(), "Versions for two snapshots");
+
+		// Closing a snapshot lets the next write drop the versions older than
+		// the ones still read.
+		first.close();
+		write(a, b, 4);
+		Check.equal(2, second.read(b), "Second snapshot after close");
+		Check.equal(3, a.getRetainedVersions(), "Versions for one snapshot");
+		second.close();
+		write(a, b, 5);
+		Check.equal(1, a.getRetainedVersions(), "Versions without snapshots");
+		Check.equal(0, Snapshot.getOpenCount(), "Open snapshots after close");
+
+		final Snapshot closed = first;
+		Check.fails(IllegalStateException.class, new Runnable() {
+			public void run() {
+				closed.read(a);
+			}
+		}, "Read from a closed snapshot");
+
+		// The view is consistent across variables while transfers run.
+		final TransactionalAssignable from = new TransactionalAssignable(1000);
+		final TransactionalAssignable to = new TransactionalAssignable(0);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				while (running.get()) {
+					Stm.atomically(new TransactionBody<Void>() {
+						public Void run(Transaction transaction) {
+							int source = (Integer) transaction.read(from);
+							if (source > 0) {
+								transaction.write(from, source - 1);
+								transaction.write(to,
+										(Integer) transaction.read(to) + 1);
+							}
+							return null;
+						}
+					});
+				}
+			}
+		});
+		writer.start();
+		for (int i = 0; i < 500; i++) {
+			Snapshot snapshot = Snapshot.open();
+			try {
+				int total = (Integer) snapshot.read(from)
+						+ (Integer) snapshot.read(to);
+				Check.equal(1000, total, "Consistent total");
+			} finally {
+				snapshot.close();
+			}
+		}
+		running.set(false);
+		writer.join();
+		Check.equal(0, Snapshot.getOpenCount(), "Open snapshots at the end");
+
+		Check.passed(SnapshotTest.class);
+	}
+
+	/**
+	 * Writes the same value into two variables in a transaction.
+	 *
+	 * @param a
+	 *            the first variable.
+	 * @param b
+	 *            the second variable.
+	 * @param value
+	 *            the value to write.
+	 */
+	private static void write(final TransactionalAssignable a,
+			final TransactionalAssignable b, final int value) {
+		Stm.atomically(new TransactionBody<Void>() {
+			public Void run(Transaction transaction) {
+				transaction.write(a, value);
+				transaction.write(b, value);
+				return null;
+			}
+		});
+	}
+
+}
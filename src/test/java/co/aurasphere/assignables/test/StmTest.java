@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import co.aurasphere.assignables.stm.Stm;
+import co.aurasphere.assignables.stm.Transaction;
+import co.aurasphere.assignables.stm.TransactionBody;
+import co.aurasphere.assignables.stm.TransactionalAssignable;
+
+/**
+ * Checks that {@link Stm} transactions are atomic under contention and that
+ * {@link TransactionalAssignable}s survive serialization.
+ * 
+ * @author Donato Rimenti
+ */
+public class StmTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if a transaction fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		// Concurrent transfers never lose or create anything.
+		final TransactionalAssignable from = new TransactionalAssignable(1000);
+		final TransactionalAssignable to = new TransactionalAssignable(0);
+		final TransactionBody<Void> transfer = new TransactionBody<Void>() {
+			public Void run(Transaction transaction) {
+				int source = (Integer) transaction.read(from);
+				int target = (Integer) transaction.read(to);
+				transaction.write(from, source - 1);
+				transaction.write(to, target + 1);
+				return null;
+			}
+		};
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int j = 0; j < 250; j++) {
+						Stm.atomically(transfer);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Check.equal(0, from.get(), "Source");
+		Check.equal(1000, to.get(), "Target");
+
+		// A plain write counts as a transaction of its own.
+		long before = Stm.currentVersion();
+		to.set(5);
+		Check.that(Stm.currentVersion() > before, "Plain write versioned");
+
+		// Serialization keeps the content and resets the versions.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(to);
+		out.close();
+		final TransactionalAssignable copy = (TransactionalAssignable) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		Check.equal(5, copy.get(), "Deserialized content");
+		Check.equal(1, copy.getRetainedVersions(), "Deserialized versions");
+		Stm.atomically(new TransactionBody<Void>() {
+			public Void run(Transaction transaction) {
+				transaction.write(copy,
+						(Integer) transaction.read(copy) + 1);
+				return null;
+			}
+		});
+		Check.equal(6, copy.get(), "Deserialized variable in a transaction");
+
+		Check.passed(StmTest.class);
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.aurasphere.assignables.Assignable;
+import co.aurasphere.assignables.Assignables;
+import co.aurasphere.assignables.exception.AssignmentException;
+import co.aurasphere.assignables.policy.AssignmentPolicy;
+import co.aurasphere.assignables.policy.DoAfterDelayAssignmentPolicy;
+import co.aurasphere.assignables.policy.JavaLegacyAssignmentPolicy;
+
+/**
+ * Checks that a transactional assignment never overwrites nor rolls back the
+ * writes of other Threads, and that a timed out one never writes.
+ * 
+ * @author Donato Rimenti
+ */
+public class TransactionalAssignmentTest {
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if an assignment fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		// A write made while the policy runs is not lost: the transaction is
+		// retried on the new content.
+		final Assignable counter = new Assignable(0);
+		final AtomicInteger attempts = new AtomicInteger();
+		AssignmentPolicy increment = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				if (attempts.incrementAndGet() == 1) {
+					// Another writer sneaks in.
+					counter.set(10);
+				}
+				super.assign((Integer) variable.get() + 1, variable);
+			}
+		};
+		Assignables.assign(null).into(counter).transactional().end()
+				.withAssignmentPolicy(increment);
+		Check.equal(11, counter.get(), "Concurrent write kept");
+		Check.equal(2, attempts.get(), "Attempts");
+
+		// A variable which keeps changing makes the assignment give up.
+		final Assignable contended = new Assignable(0);
+		final AssignmentPolicy clashing = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				contended.set(new Object());
+				super.assign(value, variable);
+			}
+		};
+		Check.fails(AssignmentException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(contended).transactional().end()
+						.withAssignmentPolicy(clashing);
+			}
+		}, "Endless conflicts");
+
+		// A variable changed and then restored while the policy runs still
+		// counts as changed.
+		final Assignable restoredCounter = new Assignable(0);
+		final AtomicInteger restoredAttempts = new AtomicInteger();
+		AssignmentPolicy restoring = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				if (restoredAttempts.incrementAndGet() == 1) {
+					restoredCounter.set(5);
+					restoredCounter.set(0);
+				}
+				super.assign((Integer) variable.get() + 1, variable);
+			}
+		};
+		Assignables.assign(null).into(restoredCounter).transactional().end()
+				.withAssignmentPolicy(restoring);
+		Check.equal(1, restoredCounter.get(), "Restored variable");
+		Check.equal(2, restoredAttempts.get(), "Attempts after a restore");
+
+		// A commit failing midway restores its variables, while the writes of
+		// other Threads wait for the commit and are kept.
+		final Assignable overwritten = new Assignable("a");
+		Assignable restored = new Assignable("b");
+		final Thread[] writer = new Thread[1];
+		Assignable failing = new Assignable("c") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void set(Object object) {
+				// Another writer tries to change the first variable, then
+				// this write fails.
+				writer[0] = new Thread(new Runnable() {
+					public void run() {
+						overwritten.set("other");
+					}
+				});
+				writer[0].start();
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				Check.equal("new", overwritten.get(), "Write during commit");
+				throw new IllegalStateException("Write failed");
+			}
+		};
+		final Assignable[] targets = { overwritten, restored, failing };
+		Check.fails(IllegalStateException.class, new Runnable() {
+			public void run() {
+				Assignables.assign("new").into(targets).transactional().end()
+						.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+			}
+		}, "Failed commit");
+		writer[0].join();
+		Check.equal("other", overwritten.get(), "Other write kept");
+		Check.equal("b", restored.get(), "Own write rolled back");
+		Check.equal("c", failing.get(), "Failed variable");
+
+		// A timed out assignment leaves the variable untouched, even if the
+		// interrupted policy still assigns the value.
+		final Assignable untouched = new Assignable(0);
+		Check.fails(TimeoutException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(untouched).transactional()
+						.parallelProcessing().timeout(100).end()
+						.withAssignmentPolicy(
+								new DoAfterDelayAssignmentPolicy(300));
+			}
+		}, "Timed out assignment");
+		Check.equal(0, untouched.get(), "Variable after a timeout");
+		Thread.sleep(400);
+		Check.equal(0, untouched.get(), "Variable after the interrupted policy");
+
+		// The late completion of a policy which ignores interrupts is fenced
+		// off as well.
+		final Assignable fenced = new Assignable(0);
+		final CountDownLatch completed = new CountDownLatch(1);
+		final AssignmentPolicy stubborn = new JavaLegacyAssignmentPolicy() {
+			@Override
+			public void assign(Object value, Assignable variable) {
+				sleepUninterruptibly(300);
+				super.assign(value, variable);
+				completed.countDown();
+			}
+		};
+		Check.fails(TimeoutException.class, new Runnable() {
+			public void run() {
+				Assignables.assign(1).into(fenced).transactional()
+						.parallelProcessing().timeout(100).end()
+						.withAssignmentPolicy(stubborn);
+			}
+		}, "Timed out stubborn assignment");
+		Check.that(completed.await(10, TimeUnit.SECONDS), "Late completion");
+		Thread.sleep(100);
+		Check.equal(0, fenced.get(), "Variable after a late completion");
+
+		// An assignment which committed right before timing out is not
+		// aborted anymore and completes normally.
+		Assignable slowWrite = new Assignable(0) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void set(Object object) {
+				sleepUninterruptibly(300);
+				super.set(object);
+			}
+		};
+		Assignables.assign(1).into(slowWrite).transactional()
+				.parallelProcessing().timeout(100).end()
+				.withAssignmentPolicy(new JavaLegacyAssignmentPolicy());
+		Check.equal(1, slowWrite.get(), "Variable committed before the timeout");
+
+		Check.passed(TransactionalAssignmentTest.class);
+	}
+
+	/**
+	 * Sleeps, ignoring interrupts.
+	 *
+	 * @param millis
+	 *            how long to sleep, in milliseconds.
+	 */
+	private static void sleepUninterruptibly(long millis) {
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(millis);
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			} catch (InterruptedException e) {
+				// Keeps sleeping.
+			}
+		}
+	}
+
+}
@@ -0,0 +1,375 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.assignables.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import co.aurasphere.assignables.durable.DurableAssignable;
+import co.aurasphere.assignables.durable.WriteAheadLog;
+
+/**
+ * Checks that a {@link WriteAheadLog} gives back the last value logged for
+ * each variable when opened again, discards a record torn at its end and
+ * syncs concurrent assignments together.
+ * 
+ * @author Donato Rimenti
+ */
+public class WriteAheadLogTest {
+
+	/**
+	 * The number of Threads assigning together.
+	 */
+	private static final int THREADS = 8;
+
+	/**
+	 * The number of assignments of each Thread.
+	 */
+	private static final int ASSIGNMENTS = 50;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @throws Exception
+	 *             if the log can't be used.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Files.createTempDirectory("assignables-wal");
+		try {
+			checkReplay(directory.resolve("replay"));
+			checkTornTail(directory.resolve("torn"));
+			checkCorruptedSegment(directory.resolve("corrupted"));
+			checkGroupCommit(directory.resolve("group"));
+			checkFormat(directory.resolve("format"));
+		} finally {
+			Check.delete(directory);
+		}
+		Check.passed(WriteAheadLogTest.class);
+	}
+
+	/**
+	 * Checks that the variables get back their last value.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws IOException
+	 *             if the log can't be used.
+	 */
+	private static void checkReplay(Path directory) throws IOException {
+		WriteAheadLog log = WriteAheadLog.at(directory).open();
+		DurableAssignable a = log.variable("a");
+		DurableAssignable b = log.variable("b");
+		Check.that(a == log.variable("a"), "Same variable for an identifier");
+		a.set(1);
+		b.set("first");
+		a.set(2);
+		b.set("second");
+		Check.equal(3L, log.getDurableLsn(), "Durable LSN after 4 records");
+		log.close();
+
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(2, log.variable("a").get(), "Replayed a");
+			Check.equal("second", log.variable("b").get(), "Replayed b");
+			Check.equal(null, log.variable("c").get(), "Never logged");
+			log.variable("a").set(3);
+		} finally {
+			log.close();
+		}
+
+		// Records appended after a replay continue the same history.
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(3, log.variable("a").get(), "Replayed twice");
+			Check.equal(4L, log.getDurableLsn(), "Durable LSN after reopen");
+		} finally {
+			log.close();
+		}
+
+		final WriteAheadLog closed = log;
+		Check.fails(RuntimeException.class, new Runnable() {
+			public void run() {
+				closed.variable("a").set(4);
+			}
+		}, "Assignment into a closed log");
+	}
+
+	/**
+	 * Checks that a record torn at the end of the log is discarded.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws IOException
+	 *             if the log can't be used.
+	 */
+	private static void checkTornTail(Path directory) throws IOException {
+		WriteAheadLog log = WriteAheadLog.at(directory).open();
+		log.variable("a").set(1);
+		log.variable("a").set(2);
+		log.close();
+
+		// Half a record, as left by a crash in the middle of a write.
+		Path segment = last(segments(directory));
+		long size = Files.size(segment);
+		append(segment, new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5, 6 });
+
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(2, log.variable("a").get(), "Value before torn record");
+			Check.equal(size, Files.size(segment), "Torn record truncated");
+			log.variable("a").set(3);
+		} finally {
+			log.close();
+		}
+
+		// A whole record with a wrong checksum is torn as well.
+		segment = last(segments(directory));
+		size = Files.size(segment);
+		append(segment, new byte[] { 0, 0, 0, 2, 9, 9, 9, 9, 1, 2 });
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(3, log.variable("a").get(), "Value before bad checksum");
+			Check.equal(size, Files.size(segment), "Bad checksum truncated");
+		} finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * Checks that a segment corrupted before the end of the log can't be
+	 * replayed.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws IOException
+	 *             if the log can't be used.
+	 */
+	private static void checkCorruptedSegment(final Path directory)
+			throws IOException {
+		// Every batch starts a new segment.
+		WriteAheadLog log = WriteAheadLog.at(directory).segmentSize(1)
+				.open();
+		for (int i = 0; i < 3; i++) {
+			log.variable("a").set(i);
+		}
+		log.close();
+		List<Path> segments = segments(directory);
+		Check.that(segments.size() > 1, "Segments rolled");
+		append(segments.get(0), new byte[] { 0, 0, 0, 40, 1 });
+
+		failsToOpen(directory, "Corrupted segment before the end");
+	}
+
+	/**
+	 * Checks that concurrent assignments share the syncs.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws Exception
+	 *             if the log can't be used.
+	 */
+	private static void checkGroupCommit(Path directory) throws Exception {
+		final WriteAheadLog log = WriteAheadLog.at(directory)
+				.groupCommit(THREADS, 20, TimeUnit.MILLISECONDS).open();
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			for (int i = 0; i < THREADS; i++) {
+				final DurableAssignable variable = log.variable("v" + i);
+				pool.execute(new Runnable() {
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int j = 1; j <= ASSIGNMENTS; j++) {
+							variable.set(j);
+						}
+					}
+				});
+			}
+			start.countDown();
+			pool.shutdown();
+			Check.that(pool.awaitTermination(60, TimeUnit.SECONDS),
+					"Assignments completed");
+		} finally {
+			pool.shutdownNow();
+			log.close();
+		}
+		long records = THREADS * ASSIGNMENTS;
+		Check.equal(records, log.getAppendedCount(), "Appended records");
+		Check.that(log.getSyncCount() <= records / 2,
+				"Syncs shared: " + log.getSyncCount() + " for " + records
+						+ " records");
+
+		WriteAheadLog reopened = WriteAheadLog.at(directory).open();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				Check.equal(ASSIGNMENTS, reopened.variable("v" + i).get(),
+						"Last value of v" + i);
+			}
+		} finally {
+			reopened.close();
+		}
+	}
+
+	/**
+	 * Checks that segments without a header of the current format are
+	 * rejected, except for a header torn at the end of the log.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @throws IOException
+	 *             if the log can't be used.
+	 */
+	private static void checkFormat(final Path directory) throws IOException {
+		WriteAheadLog log = WriteAheadLog.at(directory).open();
+		log.variable("a").set(1);
+		log.close();
+
+		// A crash right after creating a segment. The segment is created
+		// again when the log is opened and removed when closed, as empty.
+		Path torn = directory.resolve("wal-00000000000000000001.log");
+		append(torn, new byte[] { 0x41, 0x53 });
+		log = WriteAheadLog.at(directory).open();
+		try {
+			Check.equal(1, log.variable("a").get(), "Value before torn header");
+			Check.equal(8L, Files.size(torn), "Segment created again");
+		} finally {
+			log.close();
+		}
+		Check.that(!Files.exists(torn), "Empty segment removed");
+
+		// A segment of a newer format.
+		Path newer = directory.resolve("wal-00000000000000000200.log");
+		append(newer, new byte[] { 0x41, 0x53, 0x57, 0x4C, 0, 0, 0, 99 });
+		IOException e = failsToOpen(directory, "Newer format");
+		Check.that(e.getMessage().contains("format version 99"),
+				"Message names the version: " + e.getMessage());
+		Files.delete(newer);
+
+		// A segment written before segments had a header.
+		Check.delete(directory);
+		Files.createDirectories(directory);
+		append(directory.resolve("wal-00000000000000000000.log"), new byte[] {
+				0, 0, 0, 4, 1, 2, 3, 4, 0, 0, 0, 0 });
+		e = failsToOpen(directory, "Older format");
+		Check.that(e.getMessage().contains("older version"),
+				"Message names the cause: " + e.getMessage());
+	}
+
+	/**
+	 * Checks that a log can't be opened.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @param message
+	 *            what is being checked.
+	 * @return the exception thrown while opening the log.
+	 */
+	private static IOException failsToOpen(final Path directory,
+			String message) {
+		return Check.fails(IOException.class, new Runnable() {
+			public void run() {
+				try {
+					WriteAheadLog.at(directory).open().close();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, message);
+	}
+
+	/**
+	 * Lists the segments of a log, oldest first.
+	 *
+	 * @param directory
+	 *            the directory of the log.
+	 * @return the segments.
+	 * @throws IOException
+	 *             if the directory can't be read.
+	 */
+	private static List<Path> segments(Path directory) throws IOException {
+		List<Path> segments = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+				"wal-*.log");
+		try {
+			for (Path path : stream) {
+				segments.add(path);
+			}
+		} finally {
+			stream.close();
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * Gets the last element of a list.
+	 *
+	 * @param segments
+	 *            the list.
+	 * @return its last element.
+	 */
+	private static Path last(List<Path> segments) {
+		return segments.get(segments.size() - 1);
+	}
+
+	/**
+	 * Appends bytes to a file.
+	 *
+	 * @param path
+	 *            the file.
+	 * @param bytes
+	 *            the bytes to append.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	static void append(Path path, byte[] bytes) throws IOException {
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		try {
+			channel.write(ByteBuffer.wrap(bytes));
+		} finally {
+			channel.close();
+		}
+	}
+
+}